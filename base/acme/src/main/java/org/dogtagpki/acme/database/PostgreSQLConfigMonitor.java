@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.acme.database;
 
+import java.sql.Connection;
+
 /**
  * @author Endi S. Dewata
  */
@@ -46,14 +48,19 @@ public class PostgreSQLConfigMonitor implements Runnable {
 
         while (running) {
             try {
-                database.connect();
+                Connection connection = database.getConnection();
+
+                try {
+                    logger.info("Updating ACME configuration");
+                    // update the config in memory only
 
-                logger.info("Updating ACME configuration");
-                // update the config in memory only
+                    String value = database.getConfig(connection, "enabled");
+                    database.enabled = value == null ? null : Boolean.valueOf(value);
+                    logger.info("- enabled: " + database.enabled);
 
-                String value = database.getConfig("enabled");
-                database.enabled = value == null ? null : Boolean.valueOf(value);
-                logger.info("- enabled: " + database.enabled);
+                } finally {
+                    database.releaseConnection(connection, "getConfig");
+                }
 
             } catch (Exception e) {
                 logger.error("Unable to monitor ACME configuration: " + e.getMessage(), e);
@@ -0,0 +1,300 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of JDBC connections for PostgreSQLDatabase.
+ *
+ * The minimum number of connections is opened when the pool is
+ * initialized, and more are created on demand up to the maximum size. Idle
+ * connections are reused most recently used first, and validated
+ * before reuse if they have been idle longer than the validation
+ * interval. Idle connections above the minimum size are closed once
+ * they have been idle longer than the idle timeout.
+ *
+ * Since the connections are long-lived, statements prepared by the
+ * driver on a connection are reused by subsequent requests.
+ */
+public class PostgreSQLConnectionPool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PostgreSQLConnectionPool.class);
+
+    public final static int DEFAULT_MIN_SIZE = 2;
+    public final static int DEFAULT_MAX_SIZE = 16;
+    public final static int DEFAULT_MAX_WAIT = 30; // seconds
+    public final static int DEFAULT_VALIDATION_INTERVAL = 30; // seconds
+    public final static int DEFAULT_VALIDATION_TIMEOUT = 5; // seconds
+    public final static int DEFAULT_IDLE_TIMEOUT = 600; // seconds
+
+    record PooledConnection(Connection connection, long lastUsed) {
+    }
+
+    private String url;
+    private Properties info;
+
+    private int minSize = DEFAULT_MIN_SIZE;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int maxWait = DEFAULT_MAX_WAIT;
+    private int validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private int validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    private Semaphore permits;
+
+    // idle connections, most recently used first
+    private LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    // connections in use by their checkout time
+    private Map<Connection, Long> busy = new ConcurrentHashMap<>();
+
+    private LongAdder created = new LongAdder();
+    private LongAdder closed = new LongAdder();
+    private LongAdder validations = new LongAdder();
+    private LongAdder waits = new LongAdder();
+    private LongAdder timeouts = new LongAdder();
+
+    public PostgreSQLConnectionPool(String url, Properties info) {
+        this.url = url;
+        this.info = info;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setMaxWait(int maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public void setValidationInterval(int validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public void init() {
+
+        logger.info("PostgreSQLConnectionPool: Creating connection pool for " + url);
+        logger.info("PostgreSQLConnectionPool: - min size: " + minSize);
+        logger.info("PostgreSQLConnectionPool: - max size: " + maxSize);
+        logger.info("PostgreSQLConnectionPool: - max wait: " + maxWait + " s");
+        logger.info("PostgreSQLConnectionPool: - validation interval: " + validationInterval + " s");
+        logger.info("PostgreSQLConnectionPool: - validation timeout: " + validationTimeout + " s");
+        logger.info("PostgreSQLConnectionPool: - idle timeout: " + idleTimeout + " s");
+
+        permits = new Semaphore(maxSize, true);
+
+        fill();
+    }
+
+    /**
+     * Opens the minimum number of connections. If the database is not
+     * available yet the remaining connections are created on demand.
+     */
+    private void fill() {
+
+        int size = Math.min(minSize, maxSize);
+
+        for (int i = idle.size(); i < size; i++) {
+            try {
+                Connection connection = createConnection();
+                created.increment();
+                idle.offerLast(new PooledConnection(connection, System.nanoTime()));
+
+            } catch (SQLException e) {
+                logger.warn("PostgreSQLConnectionPool: Unable to create initial connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a connection from the pool. The connection must be
+     * returned with releaseConnection().
+     */
+    public Connection getConnection() throws Exception {
+
+        acquire();
+
+        try {
+            Connection connection = checkout();
+            busy.put(connection, System.nanoTime());
+            return connection;
+
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws Exception {
+
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        waits.increment();
+
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.SECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting " + maxWait + " s for database connection");
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for database connection", e);
+        }
+    }
+
+    private Connection checkout() throws SQLException {
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+
+            Connection connection = pooled.connection();
+            long idleTime = System.nanoTime() - pooled.lastUsed();
+
+            if (idleTime < TimeUnit.SECONDS.toNanos(validationInterval)) {
+                return connection;
+            }
+
+            validations.increment();
+
+            if (connection.isValid(validationTimeout)) {
+                return connection;
+            }
+
+            logger.info("PostgreSQLConnectionPool: Discarding invalid connection");
+            close(connection);
+        }
+
+        Connection connection = createConnection();
+        created.increment();
+        return connection;
+    }
+
+    /**
+     * Opens a new connection to the database.
+     */
+    protected Connection createConnection() throws SQLException {
+        logger.info("PostgreSQLConnectionPool: Connecting to " + url);
+        return DriverManager.getConnection(url, info);
+    }
+
+    /**
+     * Returns a connection to the pool.
+     *
+     * @return time the connection was in use in nanoseconds
+     */
+    public long releaseConnection(Connection connection) {
+
+        long now = System.nanoTime();
+        Long start = busy.remove(connection);
+
+        try {
+            if (connection.isClosed() || !connection.getAutoCommit()) {
+                // the connection is unusable or in an unknown state
+                close(connection);
+
+            } else {
+                idle.offerFirst(new PooledConnection(connection, now));
+            }
+
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnectionPool: Unable to check connection: " + e.getMessage());
+            close(connection);
+
+        } finally {
+            permits.release();
+        }
+
+        trim(now);
+
+        return start == null ? 0 : now - start;
+    }
+
+    /**
+     * Closes the least recently used idle connections that have
+     * exceeded the idle timeout while keeping the minimum size.
+     */
+    private void trim(long now) {
+
+        long timeout = TimeUnit.SECONDS.toNanos(idleTimeout);
+
+        while (idle.size() + busy.size() > minSize) {
+
+            PooledConnection pooled = idle.peekLast();
+            if (pooled == null || now - pooled.lastUsed() < timeout) {
+                return;
+            }
+
+            if (idle.removeLastOccurrence(pooled)) {
+                logger.info("PostgreSQLConnectionPool: Closing idle connection");
+                close(pooled.connection());
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+
+        closed.increment();
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("PostgreSQLConnectionPool: Unable to close connection: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+
+        logger.info("PostgreSQLConnectionPool: Closing connection pool");
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled.connection());
+        }
+    }
+
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("maxSize", (long) maxSize);
+        stats.put("busy", (long) busy.size());
+        stats.put("idle", (long) idle.size());
+        stats.put("created", created.sum());
+        stats.put("closed", closed.sum());
+        stats.put("validations", validations.sum());
+        stats.put("waits", waits.sum());
+        stats.put("timeouts", timeouts.sum());
+
+        return stats;
+    }
+}
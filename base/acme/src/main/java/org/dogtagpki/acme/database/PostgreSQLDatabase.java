@@ -9,19 +9,21 @@ import java.io.FileReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.dogtagpki.acme.ACMEAccount;
@@ -33,6 +35,8 @@ import org.dogtagpki.acme.ACMENonce;
 import org.dogtagpki.acme.ACMEOrder;
 import org.dogtagpki.acme.JWK;
 
+import com.netscape.cmscore.util.Histogram;
+
 /**
  * @author Endi S. Dewata
  */
@@ -41,11 +45,17 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PostgreSQLDatabase.class);
     public static Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
 
+    public final static int BATCH_SIZE = 100;
+
     protected Properties info;
     protected String url;
 
     protected Properties statements;
-    protected Connection connection;
+    protected PostgreSQLConnectionPool pool;
+    protected volatile boolean ready;
+
+    // operation latencies by operation name
+    protected Map<String, Histogram> operationTimes = new ConcurrentHashMap<>();
 
     Boolean enabled;
     PostgreSQLConfigMonitor monitor;
@@ -68,6 +78,53 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         url = (String) info.remove("url");
 
+        pool = new PostgreSQLConnectionPool(url, info);
+
+        String minSize = (String) info.remove("pool.minSize");
+        if (minSize != null) {
+            pool.setMinSize(Integer.parseInt(minSize));
+        }
+
+        String maxSize = (String) info.remove("pool.maxSize");
+        if (maxSize != null) {
+            pool.setMaxSize(Integer.parseInt(maxSize));
+        }
+
+        String maxWait = (String) info.remove("pool.maxWait");
+        if (maxWait != null) {
+            pool.setMaxWait(Integer.parseInt(maxWait));
+        }
+
+        String validationInterval = (String) info.remove("pool.validationInterval");
+        if (validationInterval != null) {
+            pool.setValidationInterval(Integer.parseInt(validationInterval));
+        }
+
+        String validationTimeout = (String) info.remove("pool.validationTimeout");
+        if (validationTimeout != null) {
+            pool.setValidationTimeout(Integer.parseInt(validationTimeout));
+        }
+
+        String idleTimeout = (String) info.remove("pool.idleTimeout");
+        if (idleTimeout != null) {
+            pool.setIdleTimeout(Integer.parseInt(idleTimeout));
+        }
+
+        // Statements prepared on a pooled connection are cached by the
+        // driver and reused on the server once a statement has been
+        // executed prepareThreshold times. Since all statements come
+        // from a fixed set, prepare them on the server on first use.
+        if (!info.containsKey("prepareThreshold")) {
+            info.put("prepareThreshold", "1");
+        }
+
+        String statementCacheSize = (String) info.remove("pool.statementCacheSize");
+        if (statementCacheSize != null) {
+            info.put("preparedStatementCacheQueries", statementCacheSize);
+        }
+
+        pool.init();
+
         String statementsFilename = info.getProperty(
                 "statements",
                 "/usr/share/pki/acme/database/postgresql/statements.conf");
@@ -107,49 +164,71 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     }
 
     /**
-     * This method will create the initial connection, validate
-     * the current connection, or reestablish the connection if
-     * it's closed.
+     * This method will return a connection from the connection pool.
+     * On first use it will also create the tables if they do not exist.
      *
-     * This method should only be called by methods implementing
-     * ACMEDatabase.
-     *
-     * TODO: Use connection pool.
+     * The connection must be returned with releaseConnection().
      */
-    public void connect() throws Exception {
+    public Connection getConnection() throws Exception {
 
-        if (connection == null) { // create the initial connection
-            logger.info("Connecting to " + url);
-            connection = DriverManager.getConnection(url, info);
-            setup();
-            return;
+        Connection connection = pool.getConnection();
+
+        if (ready) {
+            return connection;
         }
 
-        // validate the current connection
-        try (Statement st = connection.createStatement();
-            ResultSet rs = st.executeQuery("SELECT 1")) {
+        try {
+            synchronized (this) {
+                if (!ready) {
+                    setup(connection);
+                    ready = true;
+                }
+            }
 
-        } catch (SQLException e) {
+        } catch (Exception e) {
+            pool.releaseConnection(connection);
+            throw e;
+        }
 
-            if (connection.isClosed()) { // reestablish the connection
-                logger.info("Reconnecting to " + url);
-                connection = DriverManager.getConnection(url, info);
-                return;
-            }
+        return connection;
+    }
+
+    /**
+     * This method will return the connection to the connection pool
+     * and record the latency of the operation.
+     */
+    public void releaseConnection(Connection connection, String operation) {
 
-            logger.error("Unable to access database: " + e.getMessage());
+        long time = pool.releaseConnection(connection);
 
-            // https://www.postgresql.org/docs/current/errcodes-appendix.html
-            logger.error("SQL state: " + e.getSQLState());
+        operationTimes
+                .computeIfAbsent(operation, key -> new Histogram())
+                .record(time);
+    }
 
-            throw e;
+    /**
+     * Returns connection pool metrics and operation latencies
+     * in microseconds.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Long> entry : pool.getStats().entrySet()) {
+            stats.put("pool." + entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<String, Histogram> entry : operationTimes.entrySet()) {
+            entry.getValue().export("operation." + entry.getKey(), stats, TimeUnit.MICROSECONDS);
         }
+
+        return stats;
     }
 
     /**
      * This method will create the tables if they do not exist.
      */
-    public void setup() throws Exception {
+    public void setup(Connection connection) throws Exception {
 
         logger.info("Setting up database");
 
@@ -181,7 +260,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    String getConfig(String id) throws Exception {
+    String getConfig(Connection connection, String id) throws Exception {
 
         logger.info("Getting config " + id);
 
@@ -202,7 +281,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void addConfig(String id, String value) throws Exception {
+    void addConfig(Connection connection, String id, String value) throws Exception {
 
         logger.info("Setting config " + id + ": " + value);
 
@@ -216,7 +295,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    int updateConfig(String id, String value) throws Exception {
+    int updateConfig(Connection connection, String id, String value) throws Exception {
 
         logger.info("Updating config " + id + ": " + value);
 
@@ -230,7 +309,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void removeConfig(String id) throws Exception {
+    void removeConfig(Connection connection, String id) throws Exception {
 
         logger.info("Removing config " + id);
 
@@ -243,17 +322,17 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void setConfig(String id, String value) throws Exception {
+    void setConfig(Connection connection, String id, String value) throws Exception {
 
         if (value == null) {
-            removeConfig(id);
+            removeConfig(connection, id);
             return;
         }
 
-        int updatedRows = updateConfig(id, value);
+        int updatedRows = updateConfig(connection, id, value);
         if (updatedRows > 0) return;
 
-        addConfig(id, value);
+        addConfig(connection, id, value);
     }
 
     @Override
@@ -265,10 +344,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         if (monitor == null) {
 
-            connect();
+            Connection connection = getConnection();
+
+            try {
+                String value = getConfig(connection, "enabled");
+                enabled = value == null ? null : Boolean.valueOf(value);
 
-            String value = getConfig("enabled");
-            enabled = value == null ? null : Boolean.valueOf(value);
+            } finally {
+                releaseConnection(connection, "getEnabled");
+            }
         }
 
         return enabled;
@@ -277,15 +361,20 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void setEnabled(Boolean enabled) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String value = enabled == null ? null : enabled.toString();
-        setConfig("enabled", value);
+        try {
+            String value = enabled == null ? null : enabled.toString();
+            setConfig(connection, "enabled", value);
 
-        this.enabled = enabled;
+            this.enabled = enabled;
+
+        } finally {
+            releaseConnection(connection, "setEnabled");
+        }
     }
 
-    private ACMENonce getNonce(String nonceID) throws Exception {
+    private ACMENonce getNonce(Connection connection, String nonceID) throws Exception {
 
         logger.info("Getting nonce " + nonceID);
 
@@ -318,41 +407,54 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addNonce(ACMENonce nonce) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String nonceID = nonce.getID();
-        logger.info("Adding nonce " + nonceID);
+        try {
+            String nonceID = nonce.getID();
+            logger.info("Adding nonce " + nonceID);
 
-        String sql = statements.getProperty("addNonce");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addNonce");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, nonceID);
+                ps.setString(1, nonceID);
 
-            Date creationTime = nonce.getCreationTime();
-            ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = nonce.getCreationTime();
+                ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
 
-            Date expirationTime = nonce.getExpirationTime();
-            ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = nonce.getExpirationTime();
+                ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
+
+        } finally {
+            releaseConnection(connection, "addNonce");
         }
     }
 
     @Override
     public ACMENonce removeNonce(String nonceID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        ACMENonce nonce = getNonce(nonceID);
-        if (nonce == null) return null;
+        try {
+            ACMENonce nonce = getNonce(connection, nonceID);
+            if (nonce == null) return null;
 
-        deleteNonce(nonceID);
-        return nonce;
+            // the nonce might have been used concurrently
+            // by another request on another connection
+            if (deleteNonce(connection, nonceID) == 0) return null;
+
+            return nonce;
+
+        } finally {
+            releaseConnection(connection, "removeNonce");
+        }
     }
 
-    private void deleteNonce(String nonceID) throws Exception {
+    private int deleteNonce(Connection connection, String nonceID) throws Exception {
 
         logger.info("Removing nonce " + nonceID);
 
@@ -361,27 +463,60 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, nonceID);
-            ps.executeUpdate();
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes the nonces in batches to reduce the number
+     * of round trips to the database.
+     */
+    private void deleteNonces(Connection connection, Collection<String> nonceIDs) throws Exception {
+
+        String sql = statements.getProperty("removeNonce");
+        logger.info("SQL: " + sql);
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            int count = 0;
+
+            for (String nonceID : nonceIDs) {
+                logger.debug("Removing nonce " + nonceID);
+
+                ps.setString(1, nonceID);
+                ps.addBatch();
+
+                if (++count % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+
+            if (count % BATCH_SIZE != 0) {
+                ps.executeBatch();
+            }
         }
     }
 
     @Override
     public void removeExpiredNonces(Date currentTime) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting expired nonces");
+        try {
+            logger.info("Getting expired nonces");
 
-        Collection<String> nonceIDs = getExpiredNonceIDs(currentTime);
+            Collection<String> nonceIDs = getExpiredNonceIDs(connection, currentTime);
 
-        logger.info("Removing expired nonces");
+            logger.info("Removing " + nonceIDs.size() + " expired nonces");
 
-        for (String nonceID : nonceIDs) {
-            deleteNonce(nonceID);
+            deleteNonces(connection, nonceIDs);
+
+        } finally {
+            releaseConnection(connection, "removeExpiredNonces");
         }
     }
 
-    private Collection<String> getExpiredNonceIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredNonceIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredNonceIDs");
         logger.info("SQL: " + sql);
@@ -406,42 +541,47 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEAccount getAccount(String accountID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting account " + accountID);
+        try {
+            logger.info("Getting account " + accountID);
 
-        String sql = statements.getProperty("getAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getAccount");
+            logger.info("SQL: " + sql);
 
-        ACMEAccount account = new ACMEAccount();
+            ACMEAccount account = new ACMEAccount();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                account.setID(accountID);
+                    account.setID(accountID);
 
-                Timestamp created = rs.getTimestamp("created");
-                account.setCreationTime(new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    account.setCreationTime(new Date(created.getTime()));
 
-                account.setStatus(rs.getString("status"));
+                    account.setStatus(rs.getString("status"));
 
-                String jwk = rs.getString("jwk");
-                account.setJWK(JWK.fromJSON(jwk));
+                    String jwk = rs.getString("jwk");
+                    account.setJWK(JWK.fromJSON(jwk));
+                }
             }
-        }
 
-        getAccountContacts(account);
+            getAccountContacts(connection, account);
+
+            return account;
 
-        return account;
+        } finally {
+            releaseConnection(connection, "getAccount");
+        }
     }
 
-    private void getAccountContacts(ACMEAccount account) throws Exception {
+    private void getAccountContacts(Connection connection, ACMEAccount account) throws Exception {
 
         String accountID = account.getID();
         logger.info("Getting contacts for " + accountID);
@@ -471,54 +611,64 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String accountID = account.getID();
-        logger.info("Adding account " + accountID);
+        try {
+            String accountID = account.getID();
+            logger.info("Adding account " + accountID);
 
-        String sql = statements.getProperty("addAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addAccount");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, accountID);
+                ps.setString(1, accountID);
 
-            Date creationTime = account.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = account.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            ps.setString(3, account.getStatus());
-            ps.setString(4, account.getJWK().toJSON());
+                ps.setString(3, account.getStatus());
+                ps.setString(4, account.getJWK().toJSON());
 
-            ps.executeUpdate();
-        }
+                ps.executeUpdate();
+            }
+
+            addAccountContacts(connection, account);
 
-        addAccountContacts(account);
+        } finally {
+            releaseConnection(connection, "addAccount");
+        }
     }
 
     @Override
     public void updateAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String accountID = account.getID();
-        logger.info("Updating account " + accountID);
+        try {
+            String accountID = account.getID();
+            logger.info("Updating account " + accountID);
 
-        String sql = statements.getProperty("updateAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("updateAccount");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, account.getStatus());
-            ps.setString(2, accountID);
+                ps.setString(1, account.getStatus());
+                ps.setString(2, accountID);
 
-            ps.executeUpdate();
-        }
+                ps.executeUpdate();
+            }
+
+            removeAccountContacts(connection, accountID);
+            addAccountContacts(connection, account);
 
-        removeAccountContacts(accountID);
-        addAccountContacts(account);
+        } finally {
+            releaseConnection(connection, "updateAccount");
+        }
     }
 
-    private void addAccountContacts(ACMEAccount account) throws Exception {
+    private void addAccountContacts(Connection connection, ACMEAccount account) throws Exception {
 
         String[] contacts = account.getContact();
         if (contacts == null) return;
@@ -541,7 +691,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAccountContacts(String accountID) throws Exception {
+    private void removeAccountContacts(Connection connection, String accountID) throws Exception {
 
         logger.info("Removing contacts for account " + accountID);
 
@@ -559,203 +709,223 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEOrder getOrder(String orderID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting order " + orderID);
+        try {
+            logger.info("Getting order " + orderID);
 
-        String sql = statements.getProperty("getOrder");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrder");
+            logger.info("SQL: " + sql);
 
-        ACMEOrder order = new ACMEOrder();
+            ACMEOrder order = new ACMEOrder();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, orderID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                order.setID(orderID);
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(orderID);
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(rs.getString("cert_id"));
+                    order.setCertID(rs.getString("cert_id"));
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
 
-        return order;
+            return order;
+
+        } finally {
+            releaseConnection(connection, "getOrder");
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAccount(String accountID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting orders for account " + accountID);
+        try {
+            logger.info("Getting orders for account " + accountID);
 
-        String sql = statements.getProperty("getOrdersByAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrdersByAccount");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(accountID);
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(accountID);
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    order.setStatus(rs.getString("status"));
+                        order.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    order.setCertID(rs.getString("cert_id"));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+
+        } finally {
+            releaseConnection(connection, "getOrdersByAccount");
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(String authzID, String status)
             throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting " + status + " orders for authorization " + authzID);
+        try {
+            logger.info("Getting " + status + " orders for authorization " + authzID);
 
-        String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
-            ps.setString(2, status);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
+                ps.setString(2, status);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(rs.getString("account_id"));
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(rs.getString("account_id"));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    order.setStatus(rs.getString("status"));
+                        order.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    order.setCertID(rs.getString("cert_id"));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+
+        } finally {
+            releaseConnection(connection, "getOrdersByAuthorizationAndStatus");
+        }
     }
 
     @Override
     public ACMEOrder getOrderByCertificate(String certID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting order for certificate " + certID);
+        try {
+            logger.info("Getting order for certificate " + certID);
 
-        String sql = statements.getProperty("getOrderByCertificate");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrderByCertificate");
+            logger.info("SQL: " + sql);
 
-        ACMEOrder order = new ACMEOrder();
+            ACMEOrder order = new ACMEOrder();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    // no order found
-                    return null;
-                }
+                    if (!rs.next()) {
+                        // no order found
+                        return null;
+                    }
 
-                // order found
+                    // order found
 
-                order.setID(rs.getString("id"));
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(rs.getString("id"));
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(certID);
+                    order.setCertID(certID);
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
+
+            return order;
 
-        return order;
+        } finally {
+            releaseConnection(connection, "getOrderByCertificate");
+        }
     }
 
-    private Collection<String> getExpiredOrderIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredOrderIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredOrderIDs");
         logger.info("SQL: " + sql);
@@ -777,7 +947,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         return orderIDs;
     }
 
-    private void getOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void getOrderIdentifiers(Connection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting identifiers for order " + orderID);
@@ -806,7 +976,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void getOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void getOrderAuthorizations(Connection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting authorizations for order " + orderID);
@@ -836,43 +1006,48 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addOrder(ACMEOrder order) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String orderID = order.getID();
-        logger.info("Adding order " + orderID);
+        try {
+            String orderID = order.getID();
+            logger.info("Adding order " + orderID);
 
-        String sql = statements.getProperty("addOrder");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addOrder");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, orderID);
-            ps.setString(2, order.getAccountID());
+                ps.setString(1, orderID);
+                ps.setString(2, order.getAccountID());
 
-            Date creationTime = order.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = order.getCreationTime();
+                ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            ps.setString(4, order.getStatus());
+                ps.setString(4, order.getStatus());
 
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date notBefore = order.getNotBeforeTime();
-            ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
+                Date notBefore = order.getNotBeforeTime();
+                ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
 
-            Date notAfter = order.getNotAfterTime();
-            ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
+                Date notAfter = order.getNotAfterTime();
+                ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
 
-            ps.setString(8, order.getCertID());
+                ps.setString(8, order.getCertID());
 
-            ps.executeUpdate();
-        }
+                ps.executeUpdate();
+            }
+
+            addOrderIdentifiers(connection, order);
+            addOrderAuthorizations(connection, order);
 
-        addOrderIdentifiers(order);
-        addOrderAuthorizations(order);
+        } finally {
+            releaseConnection(connection, "addOrder");
+        }
     }
 
-    private void addOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void addOrderIdentifiers(Connection connection, ACMEOrder order) throws Exception {
 
         ACMEIdentifier[] identifiers = order.getIdentifiers();
         if (identifiers == null) return;
@@ -896,7 +1071,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderIdentifiers(String orderID) throws Exception {
+    private void removeOrderIdentifiers(Connection connection, String orderID) throws Exception {
 
         logger.info("Removing identifiers for order " + orderID);
 
@@ -909,7 +1084,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void addOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void addOrderAuthorizations(Connection connection, ACMEOrder order) throws Exception {
 
         String[] authzIDs = order.getAuthzIDs();
         if (authzIDs == null) return;
@@ -932,7 +1107,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderAuthorizations(String orderID) throws Exception {
+    private void removeOrderAuthorizations(Connection connection, String orderID) throws Exception {
 
         logger.info("Removing authorizations for order " + orderID);
 
@@ -948,32 +1123,37 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void updateOrder(ACMEOrder order) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String orderID = order.getID();
-        logger.info("Updating order " + orderID);
+        try {
+            String orderID = order.getID();
+            logger.info("Updating order " + orderID);
 
-        String sql = statements.getProperty("updateOrder");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("updateOrder");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, order.getStatus());
-            ps.setString(2, order.getCertID());
+                ps.setString(1, order.getStatus());
+                ps.setString(2, order.getCertID());
 
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.setString(4, orderID);
+                ps.setString(4, orderID);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
+
+        } finally {
+            releaseConnection(connection, "updateOrder");
         }
     }
 
-    private void removeOrder(String orderID) throws Exception {
+    private void removeOrder(Connection connection, String orderID) throws Exception {
 
-        removeOrderIdentifiers(orderID);
-        removeOrderAuthorizations(orderID);
+        removeOrderIdentifiers(connection, orderID);
+        removeOrderAuthorizations(connection, orderID);
 
         logger.info("Removing order " + orderID);
 
@@ -989,114 +1169,129 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredOrders(Date currentTime) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
+
+        try {
+            logger.info("Getting expired order IDs");
 
-        logger.info("Getting expired order IDs");
+            Collection<String> orderIDs = getExpiredOrderIDs(connection, currentTime);
 
-        Collection<String> orderIDs = getExpiredOrderIDs(currentTime);
+            logger.info("Removing expired orders");
 
-        logger.info("Removing expired orders");
+            for (String orderID : orderIDs) {
+                removeOrder(connection, orderID);
+            }
 
-        for (String orderID : orderIDs) {
-            removeOrder(orderID);
+        } finally {
+            releaseConnection(connection, "removeExpiredOrders");
         }
     }
 
     @Override
     public ACMEAuthorization getAuthorization(String authzID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting authorization " + authzID);
+        try {
+            logger.info("Getting authorization " + authzID);
 
-        String sql = statements.getProperty("getAuthorization");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getAuthorization");
+            logger.info("SQL: " + sql);
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            ACMEAuthorization authorization = new ACMEAuthorization();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                authorization.setID(authzID);
-                authorization.setAccountID(rs.getString("account_id"));
+                    authorization.setID(authzID);
+                    authorization.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                authorization.setStatus(rs.getString("status"));
+                    authorization.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+                }
             }
-        }
 
-        getAuthorizationChallenges(authorization);
+            getAuthorizationChallenges(connection, authorization);
+
+            return authorization;
 
-        return authorization;
+        } finally {
+            releaseConnection(connection, "getAuthorization");
+        }
     }
 
     @Override
     public ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting authorization for challenge " + challengeID);
+        try {
+            logger.info("Getting authorization for challenge " + challengeID);
 
-        String sql = statements.getProperty("getAuthorizationByChallenge");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getAuthorizationByChallenge");
+            logger.info("SQL: " + sql);
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            ACMEAuthorization authorization = new ACMEAuthorization();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, challengeID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, challengeID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                authorization.setID(rs.getString("id"));
-                authorization.setAccountID(rs.getString("account_id"));
+                    authorization.setID(rs.getString("id"));
+                    authorization.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                authorization.setStatus(rs.getString("status"));
+                    authorization.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+                }
             }
-        }
 
-        getAuthorizationChallenges(authorization);
+            getAuthorizationChallenges(connection, authorization);
+
+            return authorization;
 
-        return authorization;
+        } finally {
+            releaseConnection(connection, "getAuthorizationByChallenge");
+        }
     }
 
-    private Collection<String> getExpiredAuthorizationIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredAuthorizationIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredAuthorizationIDs");
         logger.info("SQL: " + sql);
@@ -1121,55 +1316,60 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public Collection<ACMEAuthorization> getRevocationAuthorizations(String accountID, Date time) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting authorizations for account " + accountID);
+        try {
+            logger.info("Getting authorizations for account " + accountID);
 
-        String sql = statements.getProperty("getRevocationAuthorizations");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getRevocationAuthorizations");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEAuthorization> authorizations = new ArrayList<>();
+            Collection<ACMEAuthorization> authorizations = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
-            ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
+                ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
+                    while (rs.next()) {
 
-                    ACMEAuthorization authorization = new ACMEAuthorization();
+                        ACMEAuthorization authorization = new ACMEAuthorization();
 
-                    authorization.setID(rs.getString("id"));
-                    authorization.setAccountID(accountID);
+                        authorization.setID(rs.getString("id"));
+                        authorization.setAccountID(accountID);
 
-                    Timestamp created = rs.getTimestamp("created");
-                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    authorization.setStatus(rs.getString("status"));
+                        authorization.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    ACMEIdentifier identifier = new ACMEIdentifier();
-                    identifier.setType(rs.getString("identifier_type"));
-                    identifier.setValue(rs.getString("identifier_value"));
-                    authorization.setIdentifier(identifier);
+                        ACMEIdentifier identifier = new ACMEIdentifier();
+                        identifier.setType(rs.getString("identifier_type"));
+                        identifier.setValue(rs.getString("identifier_value"));
+                        authorization.setIdentifier(identifier);
 
-                    boolean wildcard = rs.getBoolean("wildcard");
-                    authorization.setWildcard(wildcard ? true : null);
+                        boolean wildcard = rs.getBoolean("wildcard");
+                        authorization.setWildcard(wildcard ? true : null);
 
-                    getAuthorizationChallenges(authorization);
+                        getAuthorizationChallenges(connection, authorization);
 
-                    authorizations.add(authorization);
+                        authorizations.add(authorization);
+                    }
                 }
             }
-        }
 
-        return authorizations;
+            return authorizations;
+
+        } finally {
+            releaseConnection(connection, "getRevocationAuthorizations");
+        }
     }
 
-    private void getAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void getAuthorizationChallenges(Connection connection, ACMEAuthorization authorization) throws Exception {
 
         String authzID = authorization.getID();
         logger.info("Getting challenges for authorization " + authzID);
@@ -1209,68 +1409,78 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addAuthorization(ACMEAuthorization authorization) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String authzID = authorization.getID();
-        logger.info("Adding authorization " + authzID);
+        try {
+            String authzID = authorization.getID();
+            logger.info("Adding authorization " + authzID);
 
-        String sql = statements.getProperty("addAuthorization");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addAuthorization");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, authzID);
-            ps.setString(2, authorization.getAccountID());
+                ps.setString(1, authzID);
+                ps.setString(2, authorization.getAccountID());
 
-            Date creationTime = authorization.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = authorization.getCreationTime();
+                ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            ps.setString(4, authorization.getStatus());
+                ps.setString(4, authorization.getStatus());
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = authorization.getExpirationTime();
+                ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ACMEIdentifier identifier = authorization.getIdentifier();
-            ps.setString(6, identifier.getType());
-            ps.setString(7, identifier.getValue());
+                ACMEIdentifier identifier = authorization.getIdentifier();
+                ps.setString(6, identifier.getType());
+                ps.setString(7, identifier.getValue());
 
-            Boolean wildcard = authorization.getWildcard();
-            ps.setBoolean(8, wildcard == null ? false : wildcard);
+                Boolean wildcard = authorization.getWildcard();
+                ps.setBoolean(8, wildcard == null ? false : wildcard);
 
-            ps.executeUpdate();
-        }
+                ps.executeUpdate();
+            }
 
-        addAuthorizationChallenges(authorization);
+            addAuthorizationChallenges(connection, authorization);
+
+        } finally {
+            releaseConnection(connection, "addAuthorization");
+        }
     }
 
     @Override
     public void updateAuthorization(ACMEAuthorization authorization) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        String authzID = authorization.getID();
-        logger.info("Updating authorization " + authzID);
+        try {
+            String authzID = authorization.getID();
+            logger.info("Updating authorization " + authzID);
 
-        String sql = statements.getProperty("updateAuthorization");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("updateAuthorization");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, authorization.getStatus());
+                ps.setString(1, authorization.getStatus());
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = authorization.getExpirationTime();
+                ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.setString(3, authzID);
+                ps.setString(3, authzID);
 
-            ps.executeUpdate();
-        }
+                ps.executeUpdate();
+            }
+
+            removeAuthorizationChallenges(connection, authzID);
+            addAuthorizationChallenges(connection, authorization);
 
-        removeAuthorizationChallenges(authzID);
-        addAuthorizationChallenges(authorization);
+        } finally {
+            releaseConnection(connection, "updateAuthorization");
+        }
     }
 
-    private void removeAuthorizationChallenges(String authzID) throws Exception {
+    private void removeAuthorizationChallenges(Connection connection, String authzID) throws Exception {
 
         logger.info("Removing challenges for authorization " + authzID);
 
@@ -1283,7 +1493,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void addAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void addAuthorizationChallenges(Connection connection, ACMEAuthorization authorization) throws Exception {
 
         Collection<ACMEChallenge> challenges = authorization.getChallenges();
         if (challenges == null) return;
@@ -1312,9 +1522,9 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAuthorization(String authzID) throws Exception {
+    private void removeAuthorization(Connection connection, String authzID) throws Exception {
 
-        removeAuthorizationChallenges(authzID);
+        removeAuthorizationChallenges(connection, authzID);
 
         logger.info("Removing authorization " + authzID);
 
@@ -1330,55 +1540,65 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredAuthorizations(Date currentTime) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting expired authorization IDs");
+        try {
+            logger.info("Getting expired authorization IDs");
 
-        Collection<String> authzIDs = getExpiredAuthorizationIDs(currentTime);
+            Collection<String> authzIDs = getExpiredAuthorizationIDs(connection, currentTime);
 
-        logger.info("Removing expired authorization");
+            logger.info("Removing expired authorization");
 
-        for (String authzID : authzIDs) {
-            removeAuthorization(authzID);
+            for (String authzID : authzIDs) {
+                removeAuthorization(connection, authzID);
+            }
+
+        } finally {
+            releaseConnection(connection, "removeExpiredAuthorizations");
         }
     }
 
     @Override
     public ACMECertificate getCertificate(String certID) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting certificate " + certID);
+        try {
+            logger.info("Getting certificate " + certID);
 
-        String sql = statements.getProperty("getCertificate");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getCertificate");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                ACMECertificate certificate = new ACMECertificate();
-                certificate.setID(certID);
+                    ACMECertificate certificate = new ACMECertificate();
+                    certificate.setID(certID);
 
-                Timestamp created = rs.getTimestamp("created");
-                certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                certificate.setData(rs.getBytes("data"));
+                    certificate.setData(rs.getBytes("data"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                return certificate;
+                    return certificate;
+                }
             }
+
+        } finally {
+            releaseConnection(connection, "getCertificate");
         }
     }
 
-    private Collection<String> getExpiredCertificateIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredCertificateIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredCertificateIDs");
         logger.info("SQL: " + sql);
@@ -1403,30 +1623,35 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addCertificate(String certID, ACMECertificate certificate) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Adding certificate " + certID);
+        try {
+            logger.info("Adding certificate " + certID);
 
-        String sql = statements.getProperty("addCertificate");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addCertificate");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, certID);
+                ps.setString(1, certID);
 
-            Date creationTime = certificate.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = certificate.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            ps.setBytes(3, certificate.getData());
+                ps.setBytes(3, certificate.getData());
 
-            Date expirationTime = certificate.getExpirationTime();
-            ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = certificate.getExpirationTime();
+                ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
+
+        } finally {
+            releaseConnection(connection, "addCertificate");
         }
     }
 
-    private void removeCertificate(String certID) throws Exception {
+    private void removeCertificate(Connection connection, String certID) throws Exception {
 
         logger.info("Removing certificate " + certID);
 
@@ -1442,16 +1667,21 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredCertificates(Date currentTime) throws Exception {
 
-        connect();
+        Connection connection = getConnection();
 
-        logger.info("Getting expired certificaate IDs");
+        try {
+            logger.info("Getting expired certificaate IDs");
 
-        Collection<String> certIDs = getExpiredCertificateIDs(currentTime);
+            Collection<String> certIDs = getExpiredCertificateIDs(connection, currentTime);
 
-        logger.info("Removing expired certificates");
+            logger.info("Removing expired certificates");
+
+            for (String certID : certIDs) {
+                removeCertificate(connection, certID);
+            }
 
-        for (String certID : certIDs) {
-            removeCertificate(certID);
+        } finally {
+            releaseConnection(connection, "removeExpiredCertificates");
         }
     }
 
@@ -1462,8 +1692,9 @@ public class PostgreSQLDatabase extends ACMEDatabase {
             monitor.stop();
         }
 
-        if (connection != null) {
-            connection.close();
+        if (pool != null) {
+            logger.info("PostgreSQL database stats: " + getStats());
+            pool.close();
         }
     }
 }
@@ -13,6 +13,8 @@ import java.math.BigInteger;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.codec.binary.Base64;
 import org.dogtagpki.acme.ACMERevocation;
@@ -24,10 +26,9 @@ import org.mozilla.jss.netscape.security.x509.RevocationReason;
 import org.mozilla.jss.netscape.security.x509.X500Name;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
-import com.netscape.certsrv.account.AccountClient;
+import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.ca.AuthorityID;
 import com.netscape.certsrv.ca.CACertClient;
-import com.netscape.certsrv.ca.CAClient;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
 import com.netscape.certsrv.cert.CertRequestInfo;
@@ -35,7 +36,6 @@ import com.netscape.certsrv.cert.CertRequestInfos;
 import com.netscape.certsrv.cert.CertReviewResponse;
 import com.netscape.certsrv.cert.CertRevokeRequest;
 import com.netscape.certsrv.client.ClientConfig;
-import com.netscape.certsrv.client.PKIClient;
 import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.profile.ProfileAttribute;
 import com.netscape.certsrv.profile.ProfileInput;
@@ -54,6 +54,17 @@ public class PKIIssuer extends ACMEIssuer {
     private AuthorityID authorityID;
     private X500Name authorityDN;
 
+    private int sessionPoolSize = 8;
+    private int sessionTimeout = 600; // seconds
+
+    // idle sessions, most recently used first
+    private LinkedBlockingDeque<PKIIssuerSession> sessions = new LinkedBlockingDeque<>();
+    private Semaphore sessionPermits;
+
+    interface SessionTask<T> {
+        T run(PKIIssuerSession session) throws Exception;
+    }
+
     public String getProfile() {
         return profile;
     }
@@ -125,6 +136,83 @@ public class PKIIssuer extends ACMEIssuer {
             authorityDN = new X500Name(adn);
             logger.info("- authority-dn: " + adn);
         }
+
+        String poolSize = config.getParameter("session-pool-size");
+        if (poolSize != null) {
+            sessionPoolSize = Integer.parseInt(poolSize);
+        }
+        logger.info("- session-pool-size: " + sessionPoolSize);
+
+        String timeout = config.getParameter("session-timeout");
+        if (timeout != null) {
+            sessionTimeout = Integer.parseInt(timeout);
+        }
+        logger.info("- session-timeout: " + sessionTimeout);
+
+        sessionPermits = new Semaphore(sessionPoolSize, true);
+    }
+
+    /**
+     * Runs the task with a pooled CA session. A new session is created
+     * if there is no idle session and the pool is not full, otherwise
+     * the caller waits for a session to be released.
+     *
+     * If the CA rejects the session (e.g. it has expired on the server)
+     * the session logs in again and the task is retried once. A session
+     * that fails in any other way is closed since the state of its
+     * connections is unknown.
+     */
+    <T> T execute(SessionTask<T> task) throws Exception {
+
+        sessionPermits.acquire();
+
+        PKIIssuerSession session = null;
+
+        try {
+            session = sessions.pollFirst();
+
+            if (session == null) {
+                logger.info("PKIIssuer: Creating CA session");
+                session = new PKIIssuerSession(clientConfig, sessionTimeout);
+            }
+
+            T result;
+
+            try {
+                session.login();
+                result = task.run(session);
+
+            } catch (UnauthorizedException e) {
+                logger.info("PKIIssuer: CA session rejected, logging in again");
+                session.invalidate();
+                session.login();
+                result = task.run(session);
+            }
+
+            sessions.offerFirst(session);
+            session = null;
+
+            return result;
+
+        } finally {
+            if (session != null) {
+                logger.warn("PKIIssuer: Closing failed CA session");
+                session.close();
+            }
+
+            sessionPermits.release();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+
+        logger.info("PKIIssuer: Closing CA sessions");
+
+        PKIIssuerSession session;
+        while ((session = sessions.pollFirst()) != null) {
+            session.close();
+        }
     }
 
     @Override
@@ -132,10 +220,7 @@ public class PKIIssuer extends ACMEIssuer {
 
         logger.info("Issuing certificate");
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-
-            CAClient caClient = new CAClient(pkiClient);
-            AccountClient accountClient = new AccountClient(caClient);
+        return execute(session -> {
 
             // Here the agent credentials are stored in the ClientConfig and will
             // be sent to the CA automatically if any of the methods being called
@@ -162,10 +247,14 @@ public class PKIIssuer extends ACMEIssuer {
             // it's not actually necessary to call CAClient.login(). However, to
             // support both types of profiles the CAClient.login() needs to be
             // called explicitly.
-            accountClient.login();
+            //
+            // The login is done by execute() once per pooled session, and the
+            // enrollment template is cached in the session, so with a profile
+            // that has an authenticator the request is completed with a single
+            // call to the CA.
 
-            CACertClient certClient = new CACertClient(caClient);
-            CertEnrollmentRequest certEnrollmentRequest = certClient.getEnrollmentTemplate(profile);
+            CACertClient certClient = session.getCertClient();
+            CertEnrollmentRequest certEnrollmentRequest = session.getEnrollmentTemplate(profile);
 
             for (ProfileInput input : certEnrollmentRequest.getInputs()) {
 
@@ -214,7 +303,7 @@ public class PKIIssuer extends ACMEIssuer {
             logger.info("Serial number: " + id.toHexString());
             BigInteger serialNumber = id.toBigInteger();
             return Base64.encodeBase64URLSafeString(serialNumber.toByteArray());
-        }
+        });
     }
 
     @Override
@@ -223,37 +312,32 @@ public class PKIIssuer extends ACMEIssuer {
         CertId id = new CertId(new BigInteger(1, Base64.decodeBase64(certID)));
         logger.info("Serial number: " + id.toHexString());
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-
-            CAClient caClient = new CAClient(pkiClient);
-            CACertClient certClient = new CACertClient(caClient);
-            CertData certData = certClient.getCert(id);
+        CertData certData = execute(session -> session.getCertClient().getCert(id));
 
-            String pkcs7Chain = certData.getPkcs7CertChain();
-            logger.info("Cert chain:\n" + pkcs7Chain);
+        String pkcs7Chain = certData.getPkcs7CertChain();
+        logger.info("Cert chain:\n" + pkcs7Chain);
 
-            PKCS7 pkcs7 = new PKCS7(Utils.base64decode(pkcs7Chain));
-            X509Certificate[] certs = pkcs7.getCertificates();
+        PKCS7 pkcs7 = new PKCS7(Utils.base64decode(pkcs7Chain));
+        X509Certificate[] certs = pkcs7.getCertificates();
 
-            if (certs == null || certs.length == 0) {
-                throw new Error("PKCS #7 data contains no certificates");
-            }
+        if (certs == null || certs.length == 0) {
+            throw new Error("PKCS #7 data contains no certificates");
+        }
 
-            // sort certs from leaf to root
-            certs = Cert.sortCertificateChain(certs, true);
+        // sort certs from leaf to root
+        certs = Cert.sortCertificateChain(certs, true);
 
-            StringWriter sw = new StringWriter();
+        StringWriter sw = new StringWriter();
 
-            try (PrintWriter out = new PrintWriter(sw, true)) {
-                for (X509Certificate cert : certs) {
-                    out.println(Cert.HEADER);
-                    out.print(Utils.base64encode(cert.getEncoded(), true));
-                    out.println(Cert.FOOTER);
-                }
+        try (PrintWriter out = new PrintWriter(sw, true)) {
+            for (X509Certificate cert : certs) {
+                out.println(Cert.HEADER);
+                out.print(Utils.base64encode(cert.getEncoded(), true));
+                out.println(Cert.FOOTER);
             }
-
-            return sw.toString();
         }
+
+        return sw.toString();
     }
 
     @Override
@@ -282,10 +366,9 @@ public class PKIIssuer extends ACMEIssuer {
 
         logger.info("Reviewing certificate");
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
+        execute(session -> {
 
-            CAClient caClient = new CAClient(pkiClient);
-            CACertClient certClient = new CACertClient(caClient);
+            CACertClient certClient = session.getCertClient();
             CertData certData = certClient.reviewCert(certID);
 
             // Compare cert in request to cert retrieved from PKI.
@@ -321,6 +404,8 @@ public class PKIIssuer extends ACMEIssuer {
                 String error = certRequestInfo.getErrorMessage();
                 throw new Exception("Unable to revoke certificate: " + error);
             }
-        }
+
+            return null;
+        });
     }
 }
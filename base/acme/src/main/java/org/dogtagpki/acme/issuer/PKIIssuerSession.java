@@ -0,0 +1,119 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.issuer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netscape.certsrv.account.AccountClient;
+import com.netscape.certsrv.ca.CACertClient;
+import com.netscape.certsrv.ca.CAClient;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+import com.netscape.certsrv.client.ClientConfig;
+import com.netscape.certsrv.client.PKIClient;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * Long-lived authenticated session with the CA used by PKIIssuer.
+ *
+ * The underlying HTTP client keeps the TLS connections and the
+ * session cookie alive between requests, so the login is only
+ * repeated when the session is older than the session timeout
+ * or when the CA rejects the session.
+ *
+ * A session is used by one thread at a time.
+ */
+public class PKIIssuerSession implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PKIIssuerSession.class);
+
+    private PKIClient pkiClient;
+    private AccountClient accountClient;
+    private CACertClient certClient;
+
+    private long sessionTimeout; // nanoseconds
+    private long loginTime;
+    private boolean loggedIn;
+
+    // enrollment templates in JSON format by profile ID
+    private Map<String, String> templates = new HashMap<>();
+
+    public PKIIssuerSession(ClientConfig clientConfig, int sessionTimeout) throws Exception {
+
+        this.sessionTimeout = TimeUnit.SECONDS.toNanos(sessionTimeout);
+
+        pkiClient = new PKIClient(clientConfig);
+
+        CAClient caClient = new CAClient(pkiClient);
+        accountClient = new AccountClient(caClient);
+        certClient = new CACertClient(caClient);
+    }
+
+    public CACertClient getCertClient() {
+        return certClient;
+    }
+
+    /**
+     * Logs into the CA unless the current session is still valid.
+     */
+    public void login() throws Exception {
+
+        if (loggedIn && System.nanoTime() - loginTime < sessionTimeout) {
+            return;
+        }
+
+        logger.info("PKIIssuerSession: Logging into CA");
+        accountClient.login();
+
+        loggedIn = true;
+        loginTime = System.nanoTime();
+
+        // templates may have changed while logged out
+        templates.clear();
+    }
+
+    /**
+     * Forces a new login on the next request, e.g. after the CA
+     * rejected the session.
+     */
+    public void invalidate() {
+        loggedIn = false;
+    }
+
+    /**
+     * Returns a new copy of the enrollment template for the profile.
+     * The template is retrieved from the CA once per login.
+     */
+    public CertEnrollmentRequest getEnrollmentTemplate(String profile) throws Exception {
+
+        String json = templates.get(profile);
+
+        if (json == null) {
+            logger.info("PKIIssuerSession: Retrieving enrollment template for " + profile);
+            CertEnrollmentRequest template = certClient.getEnrollmentTemplate(profile);
+            json = template.toJSON();
+            templates.put(profile, json);
+        }
+
+        return JSONSerializer.fromJSON(json, CertEnrollmentRequest.class);
+    }
+
+    @Override
+    public void close() {
+
+        if (loggedIn) {
+            try {
+                accountClient.logout();
+            } catch (Exception e) {
+                logger.warn("PKIIssuerSession: Unable to log out: " + e.getMessage());
+            }
+            loggedIn = false;
+        }
+
+        pkiClient.close();
+    }
+}
@@ -0,0 +1,220 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+public class PostgreSQLConnectionPoolTest {
+
+    /**
+     * State of a connection that is not connected to a database.
+     */
+    static class ConnectionState implements InvocationHandler {
+
+        boolean valid = true;
+        boolean closed;
+        boolean autoCommit = true;
+        List<Integer> validationTimeouts = new ArrayList<>();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+            case "isValid":
+                validationTimeouts.add((Integer) args[0]);
+                return valid;
+            case "isClosed":
+                return closed;
+            case "getAutoCommit":
+                return autoCommit;
+            case "close":
+                closed = true;
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ConnectionStub";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    static class PostgreSQLConnectionPoolStub extends PostgreSQLConnectionPool {
+
+        Map<Connection, ConnectionState> connections = new IdentityHashMap<>();
+        int maxConnections = Integer.MAX_VALUE;
+
+        PostgreSQLConnectionPoolStub() {
+            super("jdbc:postgresql://localhost/acme", new Properties());
+        }
+
+        @Override
+        protected synchronized Connection createConnection() throws SQLException {
+
+            if (connections.size() >= maxConnections) {
+                throw new SQLException("Database not available");
+            }
+
+            ConnectionState state = new ConnectionState();
+            Connection connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    state);
+
+            connections.put(connection, state);
+            return connection;
+        }
+
+        ConnectionState getState(Connection connection) {
+            return connections.get(connection);
+        }
+    }
+
+    @Test
+    public void testPrefill() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(3);
+        pool.setMaxSize(5);
+        pool.init();
+
+        // the minimum number of connections is opened on init
+        assertEquals(3L, pool.getStats().get("created"));
+        assertEquals(3L, pool.getStats().get("idle"));
+
+        Connection connection = pool.getConnection();
+        assertTrue(pool.connections.containsKey(connection));
+        assertEquals(3L, pool.getStats().get("created"));
+
+        pool.releaseConnection(connection);
+        pool.close();
+
+        assertEquals(0L, pool.getStats().get("idle"));
+        assertEquals(3L, pool.getStats().get("closed"));
+    }
+
+    @Test
+    public void testPrefillWithoutDatabase() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(3);
+        pool.maxConnections = 1;
+        pool.init();
+
+        // init does not fail if the database is not available yet
+        assertEquals(1L, pool.getStats().get("idle"));
+
+        // the remaining connections are created on demand
+        pool.maxConnections = 3;
+        pool.getConnection();
+        pool.getConnection();
+        pool.getConnection();
+
+        assertEquals(3L, pool.getStats().get("created"));
+        assertEquals(3L, pool.getStats().get("busy"));
+    }
+
+    @Test
+    public void testValidationTimeout() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(1);
+        pool.setValidationInterval(0);
+        pool.setValidationTimeout(7);
+        pool.init();
+
+        Connection connection = pool.getConnection();
+        pool.releaseConnection(connection);
+
+        // idle connections are validated with the configured timeout
+        assertSame(connection, pool.getConnection());
+        assertEquals(List.of(7, 7), pool.getState(connection).validationTimeouts);
+        pool.releaseConnection(connection);
+
+        // invalid connections are closed and replaced
+        pool.getState(connection).valid = false;
+
+        Connection newConnection = pool.getConnection();
+        assertNotSame(connection, newConnection);
+        assertTrue(pool.getState(connection).closed);
+        assertEquals(2L, pool.getStats().get("created"));
+        assertEquals(3L, pool.getStats().get("validations"));
+    }
+
+    @Test
+    public void testNoValidationWithinInterval() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(1);
+        pool.setValidationInterval(3600);
+        pool.init();
+
+        Connection connection = pool.getConnection();
+        pool.releaseConnection(connection);
+
+        // recently used connections are reused without validation
+        assertSame(connection, pool.getConnection());
+        assertTrue(pool.getState(connection).validationTimeouts.isEmpty());
+        assertEquals(0L, pool.getStats().get("validations"));
+    }
+
+    @Test
+    public void testBoundedSize() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(0);
+        pool.setMaxSize(2);
+        pool.setMaxWait(1);
+        pool.init();
+
+        Connection connection1 = pool.getConnection();
+        pool.getConnection();
+
+        // no more than the maximum number of connections is handed out
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1L, pool.getStats().get("timeouts"));
+        assertEquals(2L, pool.getStats().get("created"));
+
+        pool.releaseConnection(connection1);
+        assertSame(connection1, pool.getConnection());
+    }
+
+    @Test
+    public void testReleaseInTransaction() throws Exception {
+
+        PostgreSQLConnectionPoolStub pool = new PostgreSQLConnectionPoolStub();
+        pool.setMinSize(0);
+        pool.init();
+
+        Connection connection = pool.getConnection();
+        pool.getState(connection).autoCommit = false;
+
+        // connections in an unknown state are not reused
+        pool.releaseConnection(connection);
+        assertTrue(pool.getState(connection).closed);
+        assertEquals(0L, pool.getStats().get("idle"));
+        assertEquals(0L, pool.getStats().get("busy"));
+    }
+}
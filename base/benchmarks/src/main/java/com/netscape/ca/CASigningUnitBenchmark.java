@@ -0,0 +1,115 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.mozilla.jss.CryptoManager;
+import org.mozilla.jss.InitializationValues;
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.util.Password;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.certsrv.security.SigningUnitConfig;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmsutil.crypto.CryptoUtil;
+
+/**
+ * Signs TBS data with a CA signing key in an NSS database, with
+ * and without the signature context pool.
+ *
+ * The NSS database is specified with system properties, e.g.:
+ *
+ * java -Dpki.benchmarks.nssdb=/tmp/nssdb \
+ *      -Dpki.benchmarks.password=Secret.123 \
+ *      -Dpki.benchmarks.nickname=ca_signing \
+ *      -jar pki-benchmarks.jar CASigningUnitBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CASigningUnitBenchmark {
+
+    public static final String NSS_DATABASE = "pki.benchmarks.nssdb";
+    public static final String NSS_PASSWORD = "pki.benchmarks.password";
+    public static final String NICKNAME = "pki.benchmarks.nickname";
+
+    @Param({ "0", "8" })
+    int poolSize;
+
+    @Param({ "SHA256withRSA" })
+    String algorithm;
+
+    CASigningUnit signingUnit = new CASigningUnit();
+
+    // size of the TBS data of a typical certificate
+    byte[] data = new byte[1024];
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        String database = System.getProperty(NSS_DATABASE);
+        String nickname = System.getProperty(NICKNAME);
+
+        if (database == null || nickname == null) {
+            throw new IllegalStateException(
+                    "Missing -D" + NSS_DATABASE + " or -D" + NICKNAME + " system property");
+        }
+
+        InitializationValues vals = new InitializationValues(database);
+        vals.removeSunProvider = false;
+        vals.installJSSProvider = true;
+        CryptoManager.initialize(vals);
+
+        String passwordValue = System.getProperty(NSS_PASSWORD);
+        if (passwordValue != null) {
+
+            String tokenName = null;
+            int i = nickname.indexOf(':');
+            if (i >= 0) {
+                tokenName = nickname.substring(0, i);
+            }
+
+            CryptoToken token = CryptoUtil.getKeyStorageToken(tokenName);
+            Password password = new Password(passwordValue.toCharArray());
+
+            try {
+                token.login(password);
+            } finally {
+                password.clear();
+            }
+        }
+
+        SigningUnitConfig config = new SigningUnitConfig("ca.signing", new SimpleProperties());
+        config.setDefaultSigningAlgorithm(algorithm);
+        config.putInteger("pool.size", poolSize);
+
+        signingUnit.init(config, nickname);
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        return signingUnit.sign(data, algorithm);
+    }
+}
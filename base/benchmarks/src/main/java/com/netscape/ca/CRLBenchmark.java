@@ -0,0 +1,99 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes and parses CRLs of various sizes. Larger CRLs
+ * (e.g. 10M entries) can be measured with -p entries=10000000,
+ * which needs a larger heap (e.g. -jvmArgs -Xmx16g).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CRLBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    int entries;
+
+    Hashtable<BigInteger, RevokedCertificate> revokedCerts;
+    byte[] crl;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        revokedCerts = BenchmarkUtils.createRevokedCerts(entries);
+        crl = BenchmarkUtils.encodeCRL(BenchmarkUtils.createCRL(revokedCerts));
+    }
+
+    /**
+     * Creates and encodes the CRL as CRLIssuingPoint does
+     * before signing it.
+     */
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return BenchmarkUtils.encodeCRL(BenchmarkUtils.createCRL(revokedCerts));
+    }
+
+    /**
+     * Spools the entries the way StreamingCRLBuilder does for
+     * large CRLs. Signing is not included since it needs a key.
+     */
+    @Benchmark
+    public int streamingAdd() throws Exception {
+        try (StreamingCRLBuilder builder = new StreamingCRLBuilder(
+                BenchmarkUtils.getCACert().getSubjectName(),
+                BenchmarkUtils.SIGNING_ALGORITHM,
+                new Date(),
+                null,
+                null)) {
+
+            for (RevokedCertificate entry : revokedCerts.values()) {
+                builder.add(entry);
+            }
+
+            return builder.size();
+        }
+    }
+
+    @Benchmark
+    public X509CRLImpl parse() throws Exception {
+        return new X509CRLImpl(crl);
+    }
+
+    /**
+     * Parses the CRL without the entries, as done when only
+     * the CRL number and dates are needed.
+     */
+    @Benchmark
+    public X509CRLImpl parseWithoutEntries() throws Exception {
+        return new X509CRLImpl(crl, false);
+    }
+}
@@ -0,0 +1,138 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.authorization;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.dogtagpki.server.authentication.AuthToken;
+import org.mozilla.jss.netscape.security.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.certsrv.evaluators.AccessEvaluator;
+import com.netscape.cms.evaluators.UserAccessEvaluator;
+
+/**
+ * Checks permissions against the default CA ACLs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AclAuthzBenchmark {
+
+    static final String[] ACLS = {
+            "certServer.ee.request.enrollment:submit:allow (submit) user=\"anybody\""
+                    + ":Anybody may submit an enrollment request",
+            "certServer.ca.request.profile:approve,read:allow (approve,read) group=\"Certificate Manager Agents\""
+                    + ":Certificate Manager agents may approve profile",
+            "certServer.ca.certs:execute:allow (execute) group=\"Certificate Manager Agents\""
+                    + ":Agents may execute cert operations",
+            "certServer.ca.registerUser:read,modify:allow (modify,read) group=\"Enterprise CA Administrators\""
+                    + " || group=\"Enterprise KRA Administrators\" || group=\"Enterprise RA Administrators\""
+                    + " || group=\"Enterprise OCSP Administrators\" || group=\"Enterprise TKS Administrators\""
+                    + ":Only Enterprise Administrators are allowed to register a new agent",
+            "certServer.ca.connectorInfo:read,modify:allow (read) group=\"Enterprise KRA Administrators\""
+                    + ";allow (modify) group=\"Enterprise KRA Administrators\" || group=\"Subsystem Group\""
+                    + ":Only Enterprise Administrators and Subsystem Group are allowed to update the connector information"
+    };
+
+    /**
+     * Group evaluator that only uses the groups in the auth token,
+     * like GroupAccessEvaluator does when the token has them, so the
+     * benchmark does not need a user and group database.
+     */
+    static class TokenGroupEvaluator extends AccessEvaluator {
+
+        TokenGroupEvaluator() {
+            type = "group";
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public boolean evaluate(String type, String op, String value) {
+            return false;
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, String type, String op, String value) {
+
+            String[] groups = authToken.getInStringArray(AuthToken.GROUPS);
+            if (groups == null) {
+                return false;
+            }
+
+            boolean matched = Arrays.asList(groups).contains(Utils.stripQuotes(value));
+            return op.equals("=") ? matched : !matched;
+        }
+
+        @Override
+        public String[] getSupportedOperators() {
+            return new String[] { "=", "!=" };
+        }
+    }
+
+    BasicAclAuthz authz;
+    AuthToken agentToken;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        authz = new BasicAclAuthz() {
+            @Override
+            public EvaluationOrder getOrder() {
+                return EvaluationOrder.DENY_ALLOW;
+            }
+        };
+
+        authz.registerEvaluator("user", new UserAccessEvaluator());
+        authz.registerEvaluator("group", new TokenGroupEvaluator());
+
+        for (String acl : ACLS) {
+            authz.addACLs(acl);
+        }
+
+        agentToken = new AuthToken(null);
+        agentToken.set(AuthToken.UID, "agent");
+        agentToken.set(AuthToken.USER_ID, "agent");
+        agentToken.set(AuthToken.GROUPS, new String[] {
+                "Certificate Manager Agents",
+                "Enterprise TKS Administrators"
+        });
+    }
+
+    @Benchmark
+    public void anybody() throws Exception {
+        authz.checkPermission(agentToken, "certServer.ee.request.enrollment", "submit");
+    }
+
+    @Benchmark
+    public void group() throws Exception {
+        authz.checkPermission(agentToken, "certServer.ca.certs", "execute");
+    }
+
+    @Benchmark
+    public void groupExpression() throws Exception {
+        authz.checkPermission(agentToken, "certServer.ca.registerUser", "read");
+    }
+}
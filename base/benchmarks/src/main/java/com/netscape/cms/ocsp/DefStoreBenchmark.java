@@ -0,0 +1,148 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.mozilla.jss.asn1.INTEGER;
+import org.mozilla.jss.asn1.NULL;
+import org.mozilla.jss.asn1.OBJECT_IDENTIFIER;
+import org.mozilla.jss.asn1.OCTET_STRING;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+import org.mozilla.jss.netscape.security.x509.X509Key;
+import org.mozilla.jss.pkix.primitive.AlgorithmIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.cmscore.dbs.CRLIssuingPointRecord;
+import com.netscape.cmsutil.ocsp.CertID;
+import com.netscape.cmsutil.ocsp.Request;
+import com.netscape.cmsutil.ocsp.SingleResponse;
+
+/**
+ * Checks the status of revoked and good certificates with
+ * DefStore using the revocation index, the parsed CRL, or the
+ * CRL cache. The issuing point is preloaded so the database is
+ * not used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DefStoreBenchmark {
+
+    static final OBJECT_IDENTIFIER SHA256_OID = new OBJECT_IDENTIFIER("2.16.840.1.101.3.4.2.1");
+
+    @Param({ "10000", "1000000" })
+    int entries;
+
+    @Param({ "index", "crl", "cache" })
+    String lookup;
+
+    DefStore store = new DefStore();
+
+    Request revoked;
+    Request good;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        X509CertImpl caCert = BenchmarkUtils.getCACert();
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = BenchmarkUtils.createRevokedCerts(entries);
+
+        Date thisUpdate = new Date();
+        Date nextUpdate = new Date(thisUpdate.getTime() + 24 * 60 * 60 * 1000L);
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] keyHash = md.digest(((X509Key) caCert.getPublicKey()).getKey());
+        byte[] nameHash = md.digest(caCert.getSubjectObj().getX500Name().getEncoded());
+
+        switch (lookup) {
+        case "index" -> {
+            RevocationIndex.Builder builder = new RevocationIndex.Builder("MasterCRL", caCert, entries);
+            for (RevokedCertificate entry : revokedCerts.values()) {
+                builder.add(entry);
+            }
+
+            RevocationIndex index = builder
+                    .setThisUpdate(thisUpdate)
+                    .setNextUpdate(nextUpdate)
+                    .build();
+
+            Map<String, RevocationIndex> indexes = new HashMap<>();
+            for (String key : index.getKeys()) {
+                indexes.put(key, index);
+            }
+            store.mRevocationIndexes = Map.copyOf(indexes);
+        }
+        case "crl" -> {
+            store.mUseIndex = false;
+
+            X509CRLImpl crl = new X509CRLImpl(
+                    BenchmarkUtils.encodeCRL(BenchmarkUtils.createCRL(revokedCerts)));
+
+            CRLIssuingPointRecord rec = new CRLIssuingPointRecord(
+                    "MasterCRL", BigInteger.ONE, (long) entries, thisUpdate, nextUpdate);
+            store.mCacheCRLIssuingPoints.put(new String(keyHash), new CRLIPContainer(rec, caCert, crl));
+        }
+        case "cache" -> {
+            store.mUseIndex = false;
+
+            CRLIssuingPointRecord rec = new CRLIssuingPointRecord(
+                    "MasterCRL", BigInteger.ONE, (long) entries, thisUpdate, nextUpdate);
+            rec.set(CRLIssuingPointRecord.ATTR_CRL_CACHE, revokedCerts);
+            store.mCacheCRLIssuingPoints.put(new String(keyHash), new CRLIPContainer(rec, caCert, null));
+        }
+        default -> throw new IllegalArgumentException("Unknown lookup: " + lookup);
+        }
+
+        revoked = createRequest(nameHash, keyHash, BenchmarkUtils.getSerialNumber(entries / 2));
+        good = createRequest(nameHash, keyHash, BenchmarkUtils.getSerialNumber(entries + 1));
+    }
+
+    Request createRequest(byte[] nameHash, byte[] keyHash, BigInteger serialNumber) {
+
+        CertID certID = new CertID(
+                new AlgorithmIdentifier(SHA256_OID, NULL.getInstance()),
+                new OCTET_STRING(nameHash),
+                new OCTET_STRING(keyHash),
+                new INTEGER(serialNumber));
+
+        return new Request(certID, null);
+    }
+
+    @Benchmark
+    public SingleResponse revoked() throws Exception {
+        return store.processRequest(revoked);
+    }
+
+    @Benchmark
+    public SingleResponse good() throws Exception {
+        return store.processRequest(good);
+    }
+}
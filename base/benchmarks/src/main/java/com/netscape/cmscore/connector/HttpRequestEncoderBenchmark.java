@@ -0,0 +1,90 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.certsrv.request.RequestStatus;
+import com.netscape.cmscore.request.Request;
+
+/**
+ * Encodes and decodes connector messages in the binary format
+ * and with Java serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRequestEncoderBenchmark {
+
+    HttpRequestEncoder encoder = new HttpRequestEncoder();
+
+    HttpPKIMessage message;
+    String binaryMessage;
+    String serializedMessage;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        Request request = new Request(new RequestId(1234567L));
+        request.setRequestType("enrollment");
+        request.setRequestStatus(RequestStatus.COMPLETE);
+
+        for (Map.Entry<String, Object> entry : BenchmarkUtils.createExtData().entrySet()) {
+            if (entry.getValue() instanceof Hashtable) {
+                request.setExtData(entry.getKey(), (Hashtable<String, String>) entry.getValue());
+            } else {
+                request.setExtData(entry.getKey(), (String) entry.getValue());
+            }
+        }
+
+        message = new HttpPKIMessage();
+        message.fromRequest(request);
+
+        binaryMessage = encoder.encode(message, true);
+        serializedMessage = encoder.encode(message, false);
+    }
+
+    @Benchmark
+    public String binaryEncode() throws Exception {
+        return encoder.encode(message, true);
+    }
+
+    @Benchmark
+    public Object binaryDecode() throws Exception {
+        return encoder.decode(binaryMessage);
+    }
+
+    @Benchmark
+    public String serializedEncode() throws Exception {
+        return encoder.encode(message, false);
+    }
+
+    @Benchmark
+    public Object serializedDecode() throws Exception {
+        return encoder.decode(serializedMessage);
+    }
+}
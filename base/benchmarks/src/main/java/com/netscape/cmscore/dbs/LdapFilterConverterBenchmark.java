@@ -0,0 +1,96 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.certsrv.dbs.DBAttrMapper;
+
+/**
+ * Converts certificate search filters into LDAP filters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LdapFilterConverterBenchmark {
+
+    static final String SUBJECT_FILTER =
+            "(&(x509cert.subject=CN=server.example.com,O=Example)(certStatus=VALID))";
+
+    static final String EXPIRED_FILTER =
+            "(&(x509Cert.notAfter<=1700000000000)(!(x509Cert.notAfter=1700000000000)))";
+
+    static final String RANGE_FILTER =
+            "(&(certRecordId>=1000)(certRecordId<=2000)(|(certStatus=VALID)(certStatus=REVOKED)))";
+
+    LDAPRegistry registry;
+    LdapFilterConverter converter;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        registry = new LDAPRegistry();
+        registry.init(null);
+
+        registry.registerAttribute(CertRecord.ATTR_ID,
+                new BigIntegerMapper(CertDBSchema.LDAP_ATTR_SERIALNO));
+        registry.registerAttribute(CertRecord.ATTR_META_INFO,
+                new MetaInfoMapper(CertDBSchema.LDAP_ATTR_META_INFO));
+        registry.registerAttribute(CertRecord.ATTR_REVO_INFO,
+                new RevocationInfoMapper());
+        registry.registerAttribute(CertRecord.ATTR_X509CERT,
+                new X509CertImplMapper());
+        registry.registerAttribute(CertRecord.ATTR_CERT_STATUS,
+                new StringMapper(CertDBSchema.LDAP_ATTR_CERT_STATUS));
+        registry.registerAttribute(CertRecord.ATTR_ISSUED_BY,
+                new StringMapper(CertDBSchema.LDAP_ATTR_ISSUED_BY));
+        registry.registerAttribute(CertRecord.ATTR_REVOKED_ON,
+                new DateMapper(CertDBSchema.LDAP_ATTR_REVOKED_ON));
+
+        Hashtable<String, DBAttrMapper> mappers = new Hashtable<>();
+        mappers.put(CertRecord.ATTR_CERT_STATUS.toLowerCase(),
+                new StringMapper(CertDBSchema.LDAP_ATTR_CERT_STATUS));
+        converter = new LdapFilterConverter(mappers);
+    }
+
+    @Benchmark
+    public String convert() {
+        return converter.convert(CertRecord.ATTR_CERT_STATUS, "=", "VALID");
+    }
+
+    @Benchmark
+    public String subjectFilter() throws Exception {
+        return registry.getFilter(SUBJECT_FILTER);
+    }
+
+    @Benchmark
+    public String expiredFilter() throws Exception {
+        return registry.getFilter(EXPIRED_FILTER);
+    }
+
+    @Benchmark
+    public String rangeFilter() throws Exception {
+        return registry.getFilter(RANGE_FILTER);
+    }
+}
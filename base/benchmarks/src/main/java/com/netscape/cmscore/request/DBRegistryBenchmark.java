@@ -0,0 +1,105 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.request;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netscape.certsrv.dbs.IDBObj;
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.certsrv.request.RequestStatus;
+import com.netscape.cmscore.dbs.DBRegistry;
+import com.netscape.cmscore.dbs.DBSubsystem;
+import com.netscape.cmscore.dbs.LDAPRegistry;
+
+import netscape.ldap.LDAPAttributeSet;
+
+/**
+ * Maps request records to and from LDAP attributes with the
+ * mappers registered by the request repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DBRegistryBenchmark {
+
+    static final String[] SEARCH_ATTRS = {
+            RequestRecord.ATTR_REQUEST_ID,
+            RequestRecord.ATTR_REQUEST_STATE,
+            RequestRecord.ATTR_MODIFY_TIME,
+            "extData-profileId",
+            "extData-req_subject_name"
+    };
+
+    DBRegistry registry;
+    RequestRecord record;
+    LDAPAttributeSet attrs;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        registry = new LDAPRegistry();
+        registry.init(null);
+
+        DBSubsystem dbSubsystem = new DBSubsystem() {
+            @Override
+            public DBRegistry getRegistry() {
+                return registry;
+            }
+        };
+
+        RequestRecord.register(dbSubsystem);
+
+        record = new RequestRecord();
+        record.set(RequestRecord.ATTR_REQUEST_ID, new RequestId(1234567L));
+        record.set(RequestRecord.ATTR_REQUEST_STATE, RequestStatus.COMPLETE);
+        record.set(RequestRecord.ATTR_REQUEST_TYPE, "enrollment");
+        record.set(RequestRecord.ATTR_CREATE_TIME, new Date());
+        record.set(RequestRecord.ATTR_MODIFY_TIME, new Date());
+        record.set(RequestRecord.ATTR_SOURCE_ID, "source");
+        record.set(RequestRecord.ATTR_REQUEST_OWNER, "owner");
+        record.set(RequestRecord.ATTR_EXT_DATA, BenchmarkUtils.createExtData());
+
+        attrs = registry.createLDAPAttributeSet(record);
+    }
+
+    @Benchmark
+    public LDAPAttributeSet createLDAPAttributeSet() throws Exception {
+        return registry.createLDAPAttributeSet(record);
+    }
+
+    @Benchmark
+    public IDBObj createObject() throws Exception {
+        // createObject() removes the object class from the set
+        LDAPAttributeSet copy = new LDAPAttributeSet();
+        for (int i = 0; i < attrs.size(); i++) {
+            copy.add(attrs.elementAt(i));
+        }
+        return registry.createObject(copy);
+    }
+
+    @Benchmark
+    public String[] getLDAPAttributes() throws Exception {
+        return registry.getLDAPAttributes(SEARCH_ATTRS);
+    }
+}
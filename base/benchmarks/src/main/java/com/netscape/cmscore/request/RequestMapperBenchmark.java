@@ -0,0 +1,100 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.request;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.dogtagpki.benchmarks.BenchmarkUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import netscape.ldap.LDAPAttributeSet;
+
+/**
+ * Maps the request attributes to and from LDAP attributes with
+ * ExtAttrDynMapper (one extdata-* attribute per entry, used for
+ * all new records) and RequestAttrsMapper (Java serialization,
+ * still needed to read old records).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMapperBenchmark {
+
+    ExtAttrDynMapper extAttrMapper = new ExtAttrDynMapper();
+    RequestAttrsMapper requestAttrsMapper = new RequestAttrsMapper();
+
+    Hashtable<String, Object> extData;
+    LDAPAttributeSet extAttrs;
+    LDAPAttributeSet serializedAttrs;
+    RequestRecord record = new RequestRecord();
+
+    String key = "SubjectAltNameExt.pattern_0";
+    String encodedKey;
+
+    @Setup
+    public void setup() throws Exception {
+
+        BenchmarkUtils.disableLogging();
+
+        extData = BenchmarkUtils.createExtData();
+        encodedKey = extAttrMapper.encodeKey(key);
+
+        extAttrs = new LDAPAttributeSet();
+        extAttrMapper.mapObjectToLDAPAttributeSet(null, RequestRecord.ATTR_EXT_DATA, extData, extAttrs);
+
+        serializedAttrs = new LDAPAttributeSet();
+        requestAttrsMapper.mapObjectToLDAPAttributeSet(null, "requestAttributes", extData, serializedAttrs);
+    }
+
+    @Benchmark
+    public LDAPAttributeSet extAttrEncode() throws Exception {
+        LDAPAttributeSet attrs = new LDAPAttributeSet();
+        extAttrMapper.mapObjectToLDAPAttributeSet(null, RequestRecord.ATTR_EXT_DATA, extData, attrs);
+        return attrs;
+    }
+
+    @Benchmark
+    public Object extAttrDecode() throws Exception {
+        extAttrMapper.mapLDAPAttributeSetToObject(extAttrs, RequestRecord.ATTR_EXT_DATA, record);
+        return record.get(RequestRecord.ATTR_EXT_DATA);
+    }
+
+    @Benchmark
+    public LDAPAttributeSet serializedEncode() throws Exception {
+        LDAPAttributeSet attrs = new LDAPAttributeSet();
+        requestAttrsMapper.mapObjectToLDAPAttributeSet(null, "requestAttributes", extData, attrs);
+        return attrs;
+    }
+
+    @Benchmark
+    public Object serializedDecode() throws Exception {
+        requestAttrsMapper.mapLDAPAttributeSetToObject(serializedAttrs, RequestRecord.ATTR_EXT_DATA, record);
+        return record.get(RequestRecord.ATTR_EXT_DATA);
+    }
+
+    @Benchmark
+    public String encodeKey() {
+        return extAttrMapper.encodeKey(key);
+    }
+
+    @Benchmark
+    public String decodeKey() {
+        return extAttrMapper.decodeKey(encodedKey);
+    }
+}
@@ -0,0 +1,67 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.util;
+
+import java.io.StringWriter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Records durations from concurrent threads and exports them,
+ * to check that timing stays cheap enough for hot paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistogramBenchmark {
+
+    Histogram histogram = new Histogram();
+    MetricsRegistry registry = new MetricsRegistry();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < 10; i++) {
+            Histogram h = registry.histogram("pki_operation_duration_seconds", "operation", "op" + i);
+            for (int j = 0; j < 1000; j++) {
+                h.record(ThreadLocalRandom.current().nextLong(1_000_000_000L));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1_000_000_000L));
+    }
+
+    @Benchmark
+    public long getValueAtQuantile() {
+        return histogram.getSnapshot().getValueAtQuantile(0.99);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String write() throws Exception {
+        StringWriter out = new StringWriter();
+        registry.write(out, null);
+        return out.toString();
+    }
+}
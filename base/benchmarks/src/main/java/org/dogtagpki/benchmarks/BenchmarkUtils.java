@@ -0,0 +1,182 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+
+/**
+ * Test data shared by the benchmarks.
+ */
+public class BenchmarkUtils {
+
+    // self-signed certificate (CN=testing) with a 512-bit RSA key,
+    // only used as issuer data so it does not need a matching key
+    static final byte[] CA_CERT = new byte[] {
+            48, -126, 1, 18, 48, -127, -67, -96, 3, 2, 1, 2, 2, 1,
+            1, 48, 13, 6, 9, 42, -122, 72, -122, -9, 13, 1, 1, 4,
+            5, 0, 48, 18, 49, 16, 48, 14, 6, 3, 85, 4, 3, 19,
+            7, 116, 101, 115, 116, 105, 110, 103, 48, 30, 23, 13, 48, 55,
+            48, 55, 49, 50, 49, 55, 51, 56, 51, 52, 90, 23, 13, 48,
+            55, 49, 48, 49, 50, 49, 55, 51, 56, 51, 52, 90, 48, 18,
+            49, 16, 48, 14, 6, 3, 85, 4, 3, 19, 7, 116, 101, 115,
+            116, 105, 110, 103, 48, 92, 48, 13, 6, 9, 42, -122, 72, -122,
+            -9, 13, 1, 1, 1, 5, 0, 3, 75, 0, 48, 72, 2, 65,
+            0, -65, 121, -119, -59, 105, 66, -122, -78, -30, -64, 63, -47, 44,
+            -48, -104, 103, -47, -108, 42, -38, 46, -8, 32, 49, -29, -26, -112,
+            -29, -86, 71, 24, -104, 78, -31, -75, -128, 90, -92, -34, -51, -125,
+            -13, 80, 101, -78, 39, -119, -38, 117, 28, 67, -19, -71, -124, -85,
+            105, -53, -103, -59, -67, -38, -83, 118, 65, 2, 3, 1, 0, 1,
+            48, 13, 6, 9, 42, -122, 72, -122, -9, 13, 1, 1, 4, 5,
+            0, 3, 65, 0, -97, -62, 79, -28, 124, -81, 98, 119, -85, -49,
+            62, -81, 46, -25, -29, 78, -40, 118, -2, 114, -128, 74, -47, -68,
+            52, 11, -14, 30, -46, -95, -26, -108, -19, 110, -63, -70, 61, -75,
+            64, 74, -33, -65, -96, 120, -109, 37, 77, -76, 38, -114, 58, -80,
+            -122, -39, -65, -31, 37, -30, -126, 126, 17, -82, 92, 64,
+    };
+
+    // first serial number of the generated revoked certificates,
+    // similar in size to random serial numbers
+    public static final String SIGNING_ALGORITHM = "SHA256withRSA";
+
+    // placeholder for a 2048-bit RSA signature
+    static final byte[] SIGNATURE = new byte[256];
+
+    public static final BigInteger FIRST_SERIAL = BigInteger.ONE.shiftLeft(120);
+
+    /**
+     * Only log warnings and errors so logging does not dominate
+     * the measurements. Must be called in the benchmark setup since
+     * each benchmark runs in a forked JVM.
+     */
+    public static void disableLogging() {
+        LogManager.getLogManager().getLogger("").setLevel(Level.WARNING);
+    }
+
+    public static X509CertImpl getCACert() throws Exception {
+        return new X509CertImpl(CA_CERT);
+    }
+
+    public static BigInteger getSerialNumber(int i) {
+        return FIRST_SERIAL.add(BigInteger.valueOf(i));
+    }
+
+    /**
+     * Creates revoked certificate entries with sequential serial
+     * numbers. Every other entry has a revocation reason.
+     */
+    public static Hashtable<BigInteger, RevokedCertificate> createRevokedCerts(int size) throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = new Hashtable<>(size * 4 / 3 + 1);
+
+        CRLExtensions reasonExts = new CRLExtensions();
+        reasonExts.set(CRLReasonExtension.NAME, new CRLReasonExtension(RevocationReason.KEY_COMPROMISE));
+
+        long time = System.currentTimeMillis();
+
+        for (int i = 0; i < size; i++) {
+            BigInteger serialNumber = getSerialNumber(i);
+            Date revocationDate = new Date(time - i * 1000L);
+            CRLExtensions exts = i % 2 == 0 ? reasonExts : null;
+            entries.put(serialNumber, new RevokedCertImpl(serialNumber, revocationDate, exts));
+        }
+
+        return entries;
+    }
+
+    public static X509CRLImpl createCRL(Hashtable<BigInteger, RevokedCertificate> entries) throws Exception {
+
+        X500Name issuer = getCACert().getSubjectName();
+        Date thisUpdate = new Date();
+        Date nextUpdate = new Date(thisUpdate.getTime() + 24 * 60 * 60 * 1000L);
+
+        return new X509CRLImpl(issuer, AlgorithmId.get(SIGNING_ALGORITHM),
+                thisUpdate, nextUpdate, entries, null);
+    }
+
+    /**
+     * Encodes the CRL the same way CertificateAuthority.sign() does,
+     * but with a placeholder signature so no signing key is needed.
+     * The signature is not verified when the CRL is parsed.
+     */
+    public static byte[] encodeCRL(X509CRLImpl crl) throws Exception {
+
+        try (DerOutputStream out = new DerOutputStream();
+                DerOutputStream tmp = new DerOutputStream()) {
+
+            crl.encodeInfo(tmp);
+            AlgorithmId.get(SIGNING_ALGORITHM).encode(tmp);
+            tmp.putBitString(SIGNATURE);
+            out.write(DerValue.tag_Sequence, tmp);
+
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Creates request attributes similar to those of a
+     * profile-based enrollment request.
+     */
+    public static Hashtable<String, Object> createExtData() {
+
+        Hashtable<String, Object> extData = new Hashtable<>();
+
+        extData.put("profile", "true");
+        extData.put("profileId", "caServerCert");
+        extData.put("profileSetId", "serverCertSet");
+        extData.put("profileApprovedBy", "admin");
+        extData.put("profileRemoteHost", "10.0.0.1");
+        extData.put("profileRemoteAddr", "10.0.0.1");
+        extData.put("cert_request_type", "pkcs10");
+        extData.put("requestor_name", "Test User");
+        extData.put("requestor_email", "test@example.com");
+        extData.put("requestor_phone", "555-0100");
+        extData.put("auth_token.uid", "testuser");
+        extData.put("auth_token.userdn", "uid=testuser,ou=people,dc=example,dc=com");
+        extData.put("isencryptioncert", "false");
+        extData.put("req_seq_num", "0");
+        extData.put("req_key", "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAwJ6m4gH0fRbY");
+        extData.put("cert_request", "MIICYjCCAUoCAQAwHTEbMBkGA1UEAxMSc2VydmVyLmV4YW1wbGUuY29t"
+                + "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAwJ6m4gH0fRbYxZ2rG8n7");
+        extData.put("req_subject_name", "CN=server.example.com");
+        extData.put("req_notbefore", "Sun Oct 18 00:00:00 UTC 2026");
+        extData.put("req_notafter", "Mon Oct 18 00:00:00 UTC 2027");
+        extData.put("req_extensions", "MBIwEAYDVR0PAQH/BAYDBAeFAQ==");
+        extData.put("sn_uid", "testuser");
+        extData.put("sn_e", "test@example.com");
+        extData.put("sn_cn", "server.example.com");
+        extData.put("sn_ou", "Engineering");
+        extData.put("sn_o", "Example");
+        extData.put("sn_c", "US");
+
+        // attribute keys with characters that need encoding
+        extData.put("SubjectAltNameExt.pattern_0", "$request.req_san_entry_0$");
+        extData.put("req_san_pattern_0", "server.example.com");
+
+        Hashtable<String, String> inputs = new Hashtable<>();
+        inputs.put("cert_request_type", "pkcs10");
+        inputs.put("requestor_name", "Test User");
+        inputs.put("requestor_email", "test@example.com");
+        extData.put("profileInputs", inputs);
+
+        return extData;
+    }
+}
@@ -0,0 +1,137 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.benchmarks;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares JMH results (generated with -rf json) against
+ * baseline results and exits with status 1 if a benchmark
+ * regressed by more than the threshold, so it can be used
+ * to gate changes:
+ *
+ * java -cp pki-benchmarks.jar org.dogtagpki.benchmarks.CompareResults \
+ *      baseline.json results.json [threshold percent]
+ */
+public class CompareResults {
+
+    public static final double DEFAULT_THRESHOLD = 10;
+
+    record Result(String mode, double score, double error, String unit) {
+    }
+
+    /**
+     * Returns the results keyed by benchmark name and parameters.
+     */
+    static Map<String, Result> load(File file) throws Exception {
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree(file);
+
+        Map<String, Result> results = new LinkedHashMap<>();
+
+        for (JsonNode node : root) {
+
+            StringBuilder name = new StringBuilder(node.get("benchmark").asText());
+
+            JsonNode params = node.get("params");
+            if (params != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    name.append(' ').append(field.getKey()).append('=').append(field.getValue().asText());
+                }
+            }
+
+            JsonNode metric = node.get("primaryMetric");
+
+            // the error is NaN if there are not enough iterations
+            double error = metric.get("scoreError").asDouble();
+            if (Double.isNaN(error)) {
+                error = 0;
+            }
+
+            results.put(name.toString(), new Result(
+                    node.get("mode").asText(),
+                    metric.get("score").asDouble(),
+                    error,
+                    metric.get("scoreUnit").asText()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the change in percent, where a positive value
+     * means the benchmark got slower.
+     */
+    static double getRegression(Result baseline, Result current) {
+
+        double change = (current.score() - baseline.score()) / baseline.score() * 100;
+
+        // throughput: higher is better
+        if ("thrpt".equals(current.mode())) {
+            return -change;
+        }
+
+        // average, sample, and single shot time: lower is better
+        return change;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <results.json> [threshold percent]");
+            System.exit(2);
+        }
+
+        Map<String, Result> baseline = load(new File(args[0]));
+        Map<String, Result> results = load(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+        int regressions = 0;
+
+        System.out.printf("%-80s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+
+            String name = entry.getKey();
+            Result current = entry.getValue();
+            Result base = baseline.get(name);
+
+            if (base == null) {
+                System.out.printf("%-80s %14s %14.3f %9s  %s%n", name, "-", current.score(), "new", current.unit());
+                continue;
+            }
+
+            double regression = getRegression(base, current);
+            String status = "";
+
+            // ignore changes within the measurement error
+            double margin = Math.abs(current.score() - base.score()) - base.error() - current.error();
+
+            if (regression > threshold && margin > 0) {
+                status = "  REGRESSION";
+                regressions++;
+            }
+
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%%  %s%s%n",
+                    name, base.score(), current.score(), regression, current.unit(), status);
+        }
+
+        if (regressions > 0) {
+            System.out.println();
+            System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+}
@@ -8,8 +8,12 @@ package com.netscape.ca;
 import org.dogtagpki.server.ca.CAEngine;
 
 import com.netscape.certsrv.ldap.LdapConnFactory;
+import com.netscape.certsrv.request.RequestListener;
 import com.netscape.cmscore.ldap.CAPublisherProcessor;
 import com.netscape.cmscore.ldap.LdapConnModule;
+import com.netscape.cmscore.ldap.LdapPublishModule;
+import com.netscape.cmscore.ldap.LdapRequestListener;
+import com.netscape.cmscore.request.Request;
 import com.netscape.cmscore.request.RequestNotifier;
 
 public class CANotify extends RequestNotifier {
@@ -53,4 +57,16 @@ public class CANotify extends RequestNotifier {
 
         return maxConnection > totalConnection;
     }
+
+    @Override
+    public boolean isPublishingListener(RequestListener listener) {
+        return listener instanceof LdapRequestListener || listener instanceof LdapPublishModule;
+    }
+
+    @Override
+    public boolean isPublishingFailed(Request r) {
+        // set by the LDAP publishing listeners
+        Integer status = r.getExtDataInInteger("ldapPublishOverAllStatus");
+        return Request.RES_ERROR.equals(status);
+    }
 }
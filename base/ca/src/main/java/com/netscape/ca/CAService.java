@@ -790,8 +790,9 @@ public class CAService implements IService {
         }
 
         // set issuer, serial number
+        BigInteger serialNo;
         try {
-            BigInteger serialNo = cr.getNextSerialNumber();
+            serialNo = cr.getNextSerialNumber();
             logger.info("CAService: Signing cert 0x" + serialNo.toString(16));
 
             certi.set(X509CertInfo.SERIAL_NUMBER, new CertificateSerialNumber(serialNo));
@@ -811,6 +812,15 @@ public class CAService implements IService {
                     CMS.getUserMessage("CMS_CA_SET_SERIALNO_FAILED", rid), e);
         }
 
+        // point the cert to the CRL partition covering the serial number
+        try {
+            CRLPartitions.resolveDistributionPoints(certi, serialNo, engine.getCRLIssuingPoints());
+
+        } catch (EBaseException | CertificateException | IOException e) {
+            logger.error("CAService: Unable to assign CRL partition: " + e.getMessage(), e);
+            throw new ECAException("Unable to assign CRL partition: " + e.getMessage(), e);
+        }
+
         try {
             if (ca.getIssuerObj() != null) {
                 // this ensures the isserDN has the same encoding as the
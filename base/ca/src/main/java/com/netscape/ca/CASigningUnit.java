@@ -64,6 +64,9 @@ public final class CASigningUnit extends SigningUnit {
 
         logger.debug("CASigningUnit.init(" + config.getName() + ", " + nickname + ")");
 
+        // contexts of the previous key cannot be reused
+        shutdown();
+
         mConfig = config;
 
         String tokenname = null;
@@ -131,6 +134,8 @@ public final class CASigningUnit extends SigningUnit {
             mDefSigningAlgorithm = checkSigningAlgorithmFromName(mDefSigningAlgname);
             logger.debug("CASigningUnit: signing algorithm: " + mDefSigningAlgorithm);
 
+            initSignaturePool();
+
             mInited = true;
 
         } catch (java.security.cert.CertificateException e) {
@@ -161,6 +166,12 @@ public final class CASigningUnit extends SigningUnit {
             throw new EBaseException("CASigningUnit not initialized");
         }
 
+        if (mSignaturePool != null) {
+            logger.debug("CASigningUnit: Signing with pooled context for " + algname);
+            checkSignatureFailure();
+            return signWithPool(data, algname);
+        }
+
         // XXX for now do this mapping until James changes the names
         // to match JCA names and provide a getAlgorithm method.
         SignatureAlgorithm signAlg = mDefSigningAlgorithm;
@@ -169,7 +180,6 @@ public final class CASigningUnit extends SigningUnit {
             signAlg = checkSigningAlgorithmFromName(algname);
         }
 
-        // XXX use a pool of signers based on alg ?
         // XXX Map algor. name to id. hack: use hardcoded define for now.
         logger.debug("CASigningUnit: Getting algorithm context for " + algname + " " + signAlg);
         Signature signer = mToken.getSignatureContext(signAlg);
@@ -188,12 +198,22 @@ public final class CASigningUnit extends SigningUnit {
 
         logger.debug("CASigningUnit: Signing ...");
 
+        checkSignatureFailure();
+
+        return signer.sign();
+    }
+
+    @Override
+    public byte[] sign(DataSource data, String algname) throws Exception {
+        checkSignatureFailure();
+        return super.sign(data, algname);
+    }
+
+    private void checkSignatureFailure() throws Exception {
         boolean testSignatureFailure = mConfig.getTestSignatureFailure();
         if (testSignatureFailure) {
             throw new SignatureException("SignatureException forced for testing");
         }
-
-        return signer.sign();
     }
 
     @Override
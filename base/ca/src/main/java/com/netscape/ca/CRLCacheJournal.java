@@ -0,0 +1,513 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.Extension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+/**
+ * Stores the entries of the last full CRL (the CRL cache) on disk
+ * so they can be restored on startup without decoding the CRL.
+ *
+ * The cache is stored in a snapshot file with all entries and a
+ * journal file with the entries removed and added by each subsequent
+ * full CRL, each batch followed by a commit record with the CRL number
+ * and update times. Records after the last commit record, e.g. from
+ * a crash while writing, are ignored. Once the journal gets large
+ * relative to the snapshot, the next commit writes a new snapshot
+ * and starts an empty journal.
+ *
+ * Entries with no extensions or only a reason code are stored as
+ * serial number, revocation date, and reason code. Other entries
+ * are stored in DER format.
+ */
+public class CRLCacheJournal {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CRLCacheJournal.class);
+
+    static final int MAGIC = 0x504b4943;
+    static final int VERSION = 1;
+
+    // journal records
+    static final byte REMOVE = 1;
+    static final byte ADD = 2;
+    static final byte COMMIT = 3;
+
+    // entry formats
+    static final byte NO_EXTENSIONS = 0;
+    static final byte REASON = 1;
+    static final byte DER = 2;
+
+    // minimum number of journal changes before compaction
+    static final int MIN_COMPACTION_SIZE = 10000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * CRL cache restored from the snapshot and journal.
+     */
+    public record Cache(
+            BigInteger crlNumber,
+            Date thisUpdate,
+            Date nextUpdate,
+            Hashtable<BigInteger, RevokedCertificate> entries) {
+    }
+
+    private Path snapshotFile;
+    private Path journalFile;
+
+    // changes since the last commit
+    private Map<BigInteger, RevokedCertificate> added = new LinkedHashMap<>();
+    private Set<BigInteger> removed = new LinkedHashSet<>();
+
+    // whether the next commit needs to write a snapshot
+    private boolean reset = true;
+
+    private long snapshotSize;
+    private long journalSize;
+
+    public CRLCacheJournal(Path dir, String id) {
+        snapshotFile = dir.resolve(id + ".cache");
+        journalFile = dir.resolve(id + ".journal");
+    }
+
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Records an entry added to or replaced in the CRL cache.
+     */
+    public synchronized void add(BigInteger serialNumber, RevokedCertificate entry) {
+        removed.remove(serialNumber);
+        added.put(serialNumber, entry);
+    }
+
+    /**
+     * Records an entry removed from the CRL cache.
+     */
+    public synchronized void remove(BigInteger serialNumber) {
+        added.remove(serialNumber);
+        removed.add(serialNumber);
+    }
+
+    /**
+     * Discards the recorded changes, e.g. when the CRL cache is
+     * rebuilt, so the next commit will write a new snapshot.
+     */
+    public synchronized void reset() {
+        added.clear();
+        removed.clear();
+        reset = true;
+    }
+
+    /**
+     * Stores the recorded changes for a new full CRL. If there is no
+     * usable snapshot or the journal is too large, the entries will
+     * be stored in a new snapshot instead.
+     *
+     * The files are written without holding the lock, so changes can
+     * be recorded in the meantime. They will be stored in the next commit.
+     *
+     * @param crlNumber CRL number
+     * @param thisUpdate CRL thisUpdate
+     * @param nextUpdate CRL nextUpdate, or null
+     * @param entries current entries of the CRL cache
+     */
+    public void commit(
+            BigInteger crlNumber,
+            Date thisUpdate,
+            Date nextUpdate,
+            Hashtable<BigInteger, RevokedCertificate> entries) throws IOException {
+
+        Map<BigInteger, RevokedCertificate> addedEntries;
+        Set<BigInteger> removedSerialNumbers;
+        boolean snapshot;
+
+        synchronized (this) {
+            addedEntries = added;
+            removedSerialNumbers = removed;
+            added = new LinkedHashMap<>();
+            removed = new LinkedHashSet<>();
+
+            long changes = journalSize + addedEntries.size() + removedSerialNumbers.size();
+            snapshot = reset || changes > Math.max(MIN_COMPACTION_SIZE, snapshotSize / 2);
+            reset = false;
+        }
+
+        try {
+            if (snapshot) {
+                writeSnapshot(crlNumber, thisUpdate, nextUpdate, entries);
+            } else {
+                appendJournal(crlNumber, thisUpdate, nextUpdate, addedEntries, removedSerialNumbers);
+            }
+
+        } catch (IOException e) {
+            // the journal might be incomplete
+            synchronized (this) {
+                reset = true;
+            }
+            throw e;
+        }
+    }
+
+    void writeSnapshot(
+            BigInteger crlNumber,
+            Date thisUpdate,
+            Date nextUpdate,
+            Hashtable<BigInteger, RevokedCertificate> entries) throws IOException {
+
+        logger.info("CRLCacheJournal: Writing " + snapshotFile);
+
+        Files.createDirectories(snapshotFile.getParent());
+        Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        // Hashtable enumerations do not fail on concurrent updates,
+        // so collect the entries first to get a consistent count
+        List<RevokedCertificate> list = new ArrayList<>(entries.size());
+        for (Enumeration<RevokedCertificate> e = entries.elements(); e.hasMoreElements();) {
+            list.add(e.nextElement());
+        }
+
+        try (FileChannel channel = FileChannel.open(tmpFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+
+            writeHeader(out, crlNumber);
+            writeDate(out, thisUpdate);
+            writeDate(out, nextUpdate);
+
+            out.writeInt(list.size());
+            for (RevokedCertificate entry : list) {
+                writeEntry(out, entry);
+            }
+
+            out.flush();
+            channel.force(false);
+        }
+
+        Files.move(tmpFile, snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // the journal applies to the previous snapshot
+        try (FileChannel channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+
+            writeHeader(out, crlNumber);
+            out.flush();
+            channel.force(false);
+        }
+
+        snapshotSize = list.size();
+        journalSize = 0;
+    }
+
+    void appendJournal(
+            BigInteger crlNumber,
+            Date thisUpdate,
+            Date nextUpdate,
+            Map<BigInteger, RevokedCertificate> added,
+            Set<BigInteger> removed) throws IOException {
+
+        logger.info("CRLCacheJournal: Appending " + removed.size() + " removed and "
+                + added.size() + " added entries to " + journalFile);
+
+        try (FileChannel channel = FileChannel.open(journalFile,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+
+            for (BigInteger serialNumber : removed) {
+                out.writeByte(REMOVE);
+                writeBigInteger(out, serialNumber);
+            }
+
+            for (RevokedCertificate entry : added.values()) {
+                out.writeByte(ADD);
+                writeEntry(out, entry);
+            }
+
+            out.writeByte(COMMIT);
+            writeBigInteger(out, crlNumber);
+            writeDate(out, thisUpdate);
+            writeDate(out, nextUpdate);
+
+            out.flush();
+            channel.force(false);
+        }
+
+        journalSize += added.size() + removed.size();
+    }
+
+    /**
+     * Restores the CRL cache from the snapshot and the journal.
+     *
+     * @return the CRL cache, or null if there is no snapshot
+     */
+    public synchronized Cache load() throws IOException {
+
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+
+        logger.info("CRLCacheJournal: Reading " + snapshotFile);
+
+        BigInteger crlNumber;
+        Date thisUpdate;
+        Date nextUpdate;
+        Hashtable<BigInteger, RevokedCertificate> entries;
+
+        try (InputStream is = Files.newInputStream(snapshotFile);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE))) {
+
+            crlNumber = readHeader(in);
+            thisUpdate = readDate(in);
+            nextUpdate = readDate(in);
+
+            int size = in.readInt();
+            entries = new Hashtable<>(Math.max(16, (int) (size / 0.75f) + 1));
+
+            for (int i = 0; i < size; i++) {
+                RevokedCertificate entry = readEntry(in);
+                entries.put(entry.getSerialNumber(), entry);
+            }
+        }
+
+        snapshotSize = entries.size();
+        journalSize = 0;
+        reset = true;
+
+        if (!Files.exists(journalFile)) {
+            logger.info("CRLCacheJournal: Missing " + journalFile);
+            return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+        }
+
+        logger.info("CRLCacheJournal: Replaying " + journalFile);
+
+        try (InputStream is = Files.newInputStream(journalFile);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE))) {
+
+            BigInteger baseCRLNumber = readHeader(in);
+            if (!baseCRLNumber.equals(crlNumber)) {
+                // e.g. crash while writing a snapshot
+                logger.warn("CRLCacheJournal: Journal does not match snapshot " + crlNumber);
+                return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+            }
+
+            List<BigInteger> pendingRemoved = new ArrayList<>();
+            List<RevokedCertificate> pendingAdded = new ArrayList<>();
+
+            while (true) {
+
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+
+                try {
+                    if (type == REMOVE) {
+                        pendingRemoved.add(readBigInteger(in));
+
+                    } else if (type == ADD) {
+                        pendingAdded.add(readEntry(in));
+
+                    } else if (type == COMMIT) {
+                        BigInteger number = readBigInteger(in);
+                        Date commitThisUpdate = readDate(in);
+                        Date commitNextUpdate = readDate(in);
+
+                        for (BigInteger serialNumber : pendingRemoved) {
+                            entries.remove(serialNumber);
+                        }
+
+                        for (RevokedCertificate entry : pendingAdded) {
+                            entries.put(entry.getSerialNumber(), entry);
+                        }
+
+                        journalSize += pendingRemoved.size() + pendingAdded.size();
+                        pendingRemoved.clear();
+                        pendingAdded.clear();
+
+                        crlNumber = number;
+                        thisUpdate = commitThisUpdate;
+                        nextUpdate = commitNextUpdate;
+
+                    } else {
+                        logger.warn("CRLCacheJournal: Invalid journal record: " + type);
+                        return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+                    }
+
+                } catch (EOFException e) {
+                    logger.warn("CRLCacheJournal: Incomplete journal record");
+                    return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+                }
+            }
+
+            if (!pendingRemoved.isEmpty() || !pendingAdded.isEmpty()) {
+                logger.warn("CRLCacheJournal: Ignoring uncommitted journal records");
+                return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+            }
+        }
+
+        // the journal can be appended
+        reset = false;
+
+        return new Cache(crlNumber, thisUpdate, nextUpdate, entries);
+    }
+
+    /**
+     * Removes the snapshot and the journal.
+     */
+    public synchronized void delete() throws IOException {
+        reset();
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    static void writeHeader(DataOutputStream out, BigInteger crlNumber) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeBigInteger(out, crlNumber);
+    }
+
+    static BigInteger readHeader(DataInputStream in) throws IOException {
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Invalid CRL cache file");
+        }
+
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported CRL cache version: " + version);
+        }
+
+        return readBigInteger(in);
+    }
+
+    static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static BigInteger readBigInteger(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    static void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeLong(date == null ? -1 : date.getTime());
+    }
+
+    static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time == -1 ? null : new Date(time);
+    }
+
+    static void writeEntry(DataOutputStream out, RevokedCertificate entry) throws IOException {
+
+        CRLExtensions exts = entry instanceof RevokedCertImpl revokedCert ? revokedCert.getExtensions() : null;
+
+        if (exts == null || exts.isEmpty()) {
+            out.writeByte(NO_EXTENSIONS);
+            writeBigInteger(out, entry.getSerialNumber());
+            writeDate(out, entry.getRevocationDate());
+            return;
+        }
+
+        if (exts.size() == 1) {
+            Extension ext = exts.elementAt(0);
+            if (ext instanceof CRLReasonExtension reasonExt && !ext.isCritical()) {
+                out.writeByte(REASON);
+                writeBigInteger(out, entry.getSerialNumber());
+                writeDate(out, entry.getRevocationDate());
+                out.writeByte(reasonExt.getReason().getCode());
+                return;
+            }
+        }
+
+        byte[] bytes;
+        try {
+            bytes = entry.getEncoded();
+        } catch (Exception e) {
+            throw new IOException("Unable to encode CRL entry: " + e.getMessage(), e);
+        }
+
+        out.writeByte(DER);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static RevokedCertificate readEntry(DataInputStream in) throws IOException {
+
+        int format = in.readUnsignedByte();
+
+        if (format == NO_EXTENSIONS) {
+            BigInteger serialNumber = readBigInteger(in);
+            Date revocationDate = readDate(in);
+            return new RevokedCertImpl(serialNumber, revocationDate, null);
+        }
+
+        if (format == REASON) {
+            BigInteger serialNumber = readBigInteger(in);
+            Date revocationDate = readDate(in);
+            RevocationReason reason = RevocationReason.valueOf(in.readUnsignedByte());
+
+            CRLExtensions exts = new CRLExtensions();
+            exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(reason));
+
+            return new RevokedCertImpl(serialNumber, revocationDate, exts);
+        }
+
+        if (format == DER) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+
+            try {
+                return new RevokedCertImpl(bytes);
+            } catch (Exception e) {
+                throw new IOException("Unable to decode CRL entry: " + e.getMessage(), e);
+            }
+        }
+
+        throw new IOException("Invalid CRL entry format: " + format);
+    }
+}
@@ -31,6 +31,18 @@ public class CRLConfig extends ConfigStore {
         putInteger("pageSize", pageSize);
     }
 
+    /**
+     * Returns the maximum number of CRLs generated concurrently
+     * across all issuing points, or 0 if unlimited.
+     */
+    public int getMaxConcurrentUpdates() throws EBaseException {
+        return getInteger("maxConcurrentUpdates", 0);
+    }
+
+    public void setMaxConcurrentUpdates(int maxConcurrentUpdates) {
+        putInteger("maxConcurrentUpdates", maxConcurrentUpdates);
+    }
+
     /**
      * Returns ca.crl.<name>.* parameters.
      */
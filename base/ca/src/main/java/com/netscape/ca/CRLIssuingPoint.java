@@ -17,8 +17,10 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.ca;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -28,6 +30,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.Semaphore;
 
 import org.dogtagpki.server.ca.CAConfig;
 import org.dogtagpki.server.ca.CAEngine;
@@ -336,6 +339,11 @@ public class CRLIssuingPoint {
     protected BigInteger mBeginSerial = null;
     protected BigInteger mEndSerial = null;
 
+    /**
+     * ID of the partitioned issuing point this issuing point belongs to, if any.
+     */
+    protected String mPartitionOf = null;
+
     private int mUpdatingCRL = CRL_UPDATE_DONE;
 
     boolean mDoManualUpdate;
@@ -346,6 +354,11 @@ public class CRLIssuingPoint {
 
     private boolean mSaveMemory = false;
 
+    private boolean mStreaming = false;
+
+    // stores the CRL cache on disk to restore it on startup, or null
+    private CRLCacheJournal mCacheJournal;
+
     /**
      * One time config flag that we have an updated schedule and we want it
      * followed immediately after startup.
@@ -883,6 +896,18 @@ public class CRLIssuingPoint {
         mPublishDN = config.getPublishDN();
 
         mSaveMemory = config.getSaveMemory();
+        mStreaming = config.getStreaming();
+
+        if (config.getEnableCacheJournal()) {
+            String cacheJournalDir = config.getCacheJournalDir();
+            if (cacheJournalDir == null) {
+                cacheJournalDir = CMS.getInstanceDir() + File.separator + "ca" + File.separator + "crl";
+            }
+            logger.debug("CRLIssuingPoint: cache journal: " + cacheJournalDir);
+            mCacheJournal = new CRLCacheJournal(Paths.get(cacheJournalDir), mId);
+        } else {
+            mCacheJournal = null;
+        }
 
         mCMSCRLExtensions = new CMSCRLExtensions(this, config);
 
@@ -904,6 +929,8 @@ public class CRLIssuingPoint {
                             PROP_END_SERIAL, "BigInteger", "positive number"));
         }
 
+        mPartitionOf = config.getPartitionOf();
+
         mAutoUpdateIntervalEffectiveAtStart = config.getAutoUpdateIntervalEffectiveAtStart();
         logger.debug("CRLIssuingPoint: auto update interval effective at start: " + mAutoUpdateIntervalEffectiveAtStart);
 
@@ -993,13 +1020,21 @@ public class CRLIssuingPoint {
 
                 if (crl != null) {
                     X509CRLImpl x509crl = null;
+                    CRLCacheJournal.Cache cache = null;
 
-                    if (mEnableCRLCache || mPublishOnStart) {
+                    if (mEnableCRLCache && mCacheJournal != null) {
+                        cache = loadCRLCache(crlRecord);
+                    }
+
+                    // the CRL only needs to be decoded if the CRL cache
+                    // cannot be restored from the journal
+                    if ((mEnableCRLCache && cache == null) || mPublishOnStart) {
                         try {
                             x509crl = new X509CRLImpl(crl);
 
                         } catch (Exception e) {
                             clearCRLCache();
+                            cache = null;
                             logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_DECODE_CRL", e.toString()), e);
 
                         } catch (OutOfMemoryError e) {
@@ -1009,8 +1044,8 @@ public class CRLIssuingPoint {
                             return;
                         }
                     }
-                    if (x509crl != null) {
-                        mLastFullUpdate = x509crl.getThisUpdate();
+                    if (x509crl != null || cache != null) {
+                        mLastFullUpdate = cache != null ? cache.thisUpdate() : x509crl.getThisUpdate();
                         if (mEnableCRLCache) {
                             logger.info("CRLIssuingPoint: Loading CRL cache");
 
@@ -1034,10 +1069,10 @@ public class CRLIssuingPoint {
                                 logger.debug("CRLIssuingPoint: - expired certs: " + mExpiredCerts.size());
 
                                 if (isDeltaCRLEnabled()) {
-                                    mNextUpdate = x509crl.getNextUpdate();
+                                    mNextUpdate = cache != null ? cache.nextUpdate() : x509crl.getNextUpdate();
                                 }
 
-                                mCRLCerts = x509crl.getListOfRevokedCertificates();
+                                mCRLCerts = cache != null ? cache.entries() : x509crl.getListOfRevokedCertificates();
                                 logger.debug("CRLIssuingPoint: - CRL certs: " + mCRLCerts.size());
                             }
                             if (mFirstUnsaved != null && !mFirstUnsaved.equals(CRLIssuingPointRecord.CLEAN_CACHE)) {
@@ -1047,7 +1082,7 @@ public class CRLIssuingPoint {
                             }
                             mInitialized = CRLIssuingPointStatus.Initialized;
                         }
-                        if (mPublishOnStart) {
+                        if (mPublishOnStart && x509crl != null) {
                             try {
                                 publishCRL(x509crl);
                                 x509crl = null;
@@ -1457,6 +1492,28 @@ public class CRLIssuingPoint {
         return mId;
     }
 
+    /**
+     * Returns the ID of the partitioned CRL issuing point
+     * this CRL issuing point is a partition of.
+     *
+     * @return partitioned CRL issuing point id or null
+     */
+    public String getPartitionOf() {
+        return mPartitionOf;
+    }
+
+    /**
+     * Checks whether the serial number is within the serial number
+     * range of this CRL issuing point.
+     *
+     * @param serialNumber certificate serial number
+     * @return true if the serial number is in range
+     */
+    public boolean isSerialNumberInRange(BigInteger serialNumber) {
+        return (mBeginSerial == null || serialNumber.compareTo(mBeginSerial) >= 0)
+                && (mEndSerial == null || serialNumber.compareTo(mEndSerial) <= 0);
+    }
+
     /**
      * Returns internal description of this CRL issuing point.
      *
@@ -1925,12 +1982,40 @@ public class CRLIssuingPoint {
      * Updates CRL and publishes it.
      */
     void updateCRL() throws EBaseException {
-        if (mDoManualUpdate && mSignatureAlgorithmForManualUpdate != null) {
-            logger.info("CRLIssuingPoint: Updating CRL now with " + mSignatureAlgorithmForManualUpdate);
-            updateCRLNow(mSignatureAlgorithmForManualUpdate);
-        } else {
-            logger.info("CRLIssuingPoint: Updating CRL now");
-            updateCRLNow();
+
+        // time scheduled updates as a main action so that
+        // the generation, signing and publishing are recorded
+        CAEngine engine = CAEngine.getInstance();
+
+        // limit the number of CRLs generated concurrently
+        // by the update threads of all issuing points
+        Semaphore semaphore = engine.getCRLUpdateSemaphore();
+        if (semaphore != null) {
+            logger.debug("CRLIssuingPoint: Waiting for CRL update slot");
+            semaphore.acquireUninterruptibly();
+        }
+
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.startTiming("crl_update", true /* main action */);
+        }
+
+        try {
+            if (mDoManualUpdate && mSignatureAlgorithmForManualUpdate != null) {
+                logger.info("CRLIssuingPoint: Updating CRL now with " + mSignatureAlgorithmForManualUpdate);
+                updateCRLNow(mSignatureAlgorithmForManualUpdate);
+            } else {
+                logger.info("CRLIssuingPoint: Updating CRL now");
+                updateCRLNow();
+            }
+
+        } finally {
+            if (statsSub != null) {
+                statsSub.endTiming("crl_update");
+            }
+            if (semaphore != null) {
+                semaphore.release();
+            }
         }
     }
 
@@ -2029,6 +2114,43 @@ public class CRLIssuingPoint {
         engine.certStatusUpdateTask.processRevokedCerts(cp, filter, mPageSize);
     }
 
+    /**
+     * Restores the CRL cache from the journal if it belongs to the
+     * current full CRL.
+     *
+     * @return the CRL cache, or null if the CRL needs to be decoded
+     */
+    CRLCacheJournal.Cache loadCRLCache(CRLIssuingPointRecord crlRecord) {
+
+        try {
+            CRLCacheJournal.Cache cache = mCacheJournal.load();
+
+            if (cache == null) {
+                logger.info("CRLIssuingPoint: No CRL cache journal for " + mId);
+                return null;
+            }
+
+            // LDAP stores the thisUpdate in seconds
+            Date thisUpdate = crlRecord.getThisUpdate();
+            if (!cache.crlNumber().equals(crlRecord.getCRLNumber())
+                    || thisUpdate == null || cache.thisUpdate() == null
+                    || cache.thisUpdate().getTime() / 1000 != thisUpdate.getTime() / 1000) {
+
+                logger.info("CRLIssuingPoint: CRL cache journal does not match CRL " + crlRecord.getCRLNumber());
+                mCacheJournal.reset();
+                return null;
+            }
+
+            logger.info("CRLIssuingPoint: Restored " + cache.entries().size() + " CRL entries from journal");
+            return cache;
+
+        } catch (Exception e) {
+            logger.warn("CRLIssuingPoint: Unable to load CRL cache journal: " + e.getMessage(), e);
+            mCacheJournal.reset();
+            return null;
+        }
+    }
+
     /**
      * Clears CRL cache
      */
@@ -2042,6 +2164,10 @@ public class CRLIssuingPoint {
         mUnrevokedCerts.clear();
         mExpiredCerts.clear();
         mSchemaCounter = 0;
+
+        if (mCacheJournal != null) {
+            mCacheJournal.reset();
+        }
     }
 
     /**
@@ -2285,6 +2411,10 @@ public class CRLIssuingPoint {
                                 new RevokedCertImpl(serialNumber, revocationDate, entryExt);
 
                         mCRLCerts.put(serialNumber, newRevokedCert);
+
+                        if (mCacheJournal != null) {
+                            mCacheJournal.add(serialNumber, newRevokedCert);
+                        }
                     }
 
                 } else {
@@ -2341,6 +2471,12 @@ public class CRLIssuingPoint {
                                String requestId) {
 
         CertId certID = new CertId(serialNumber);
+
+        if (!isSerialNumberInRange(serialNumber)) {
+            logger.debug("CRLIssuingPoint: Cert " + certID.toHexString() + " not in " + mId);
+            return;
+        }
+
         logger.info("CRLIssuingPoint: Adding revoked cert " + certID.toHexString());
 
         CertRecordProcessor cp = new CertRecordProcessor(mCRLCerts, this, mAllowExtensions);
@@ -2378,6 +2514,12 @@ public class CRLIssuingPoint {
     public void addUnrevokedCert(BigInteger serialNumber, String requestId) {
 
         CertId certID = new CertId(serialNumber);
+
+        if (!isSerialNumberInRange(serialNumber)) {
+            logger.debug("CRLIssuingPoint: Cert " + certID.toHexString() + " not in " + mId);
+            return;
+        }
+
         logger.info("CRLIssuingPoint: Adding unrevoked cert " + certID.toHexString());
 
         if (mEnable && mEnableCRLCache) {
@@ -2402,6 +2544,12 @@ public class CRLIssuingPoint {
     public void addExpiredCert(BigInteger serialNumber) {
 
         CertId certID = new CertId(serialNumber);
+
+        if (!isSerialNumberInRange(serialNumber)) {
+            logger.debug("CRLIssuingPoint: Cert " + certID.toHexString() + " not in " + mId);
+            return;
+        }
+
         logger.info("CRLIssuingPoint: Adding expired cert " + certID.toHexString());
 
         if (mEnable && mEnableCRLCache && (!mIncludeExpiredCerts)) {
@@ -2721,15 +2869,18 @@ public class CRLIssuingPoint {
         }
 
         mSplits[0] -= System.currentTimeMillis();
-        @SuppressWarnings("unchecked")
-        Hashtable<BigInteger, RevokedCertificate> clonedRevokedCerts =
-                (Hashtable<BigInteger, RevokedCertificate>) mRevokedCerts.clone();
-        @SuppressWarnings("unchecked")
-        Hashtable<BigInteger, RevokedCertificate> clonedUnrevokedCerts =
-                (Hashtable<BigInteger, RevokedCertificate>) mUnrevokedCerts.clone();
-        @SuppressWarnings("unchecked")
-        Hashtable<BigInteger, RevokedCertificate> clonedExpiredCerts =
-                (Hashtable<BigInteger, RevokedCertificate>) mExpiredCerts.clone();
+
+        // take consistent snapshots of the working sets; changes made
+        // during the update will be processed in the next update
+        Map<BigInteger, RevokedCertificate> clonedRevokedCerts;
+        Map<BigInteger, RevokedCertificate> clonedUnrevokedCerts;
+        Map<BigInteger, RevokedCertificate> clonedExpiredCerts;
+
+        synchronized (cacheMonitor) {
+            clonedRevokedCerts = snapshot(mRevokedCerts);
+            clonedUnrevokedCerts = snapshot(mUnrevokedCerts);
+            clonedExpiredCerts = snapshot(mExpiredCerts);
+        }
 
         mSplits[0] += System.currentTimeMillis();
 
@@ -2746,9 +2897,9 @@ public class CRLIssuingPoint {
             mSplits[5] -= System.currentTimeMillis();
             mDeltaCRLSize = -1;
             clearCRLCache();
-            clonedRevokedCerts.clear();
-            clonedUnrevokedCerts.clear();
-            clonedExpiredCerts.clear();
+            clonedRevokedCerts = Map.of();
+            clonedUnrevokedCerts = Map.of();
+            clonedExpiredCerts = Map.of();
             mSchemaCounter = 0;
 
             StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
@@ -2786,32 +2937,38 @@ public class CRLIssuingPoint {
                         (mCRLCerts.isEmpty() && (mCRLSize == 0) && (!clonedRevokedCerts.isEmpty()))) {
 
                     if (!clonedUnrevokedCerts.isEmpty()) {
-                        for (Enumeration<BigInteger> e = clonedUnrevokedCerts.keys(); e.hasMoreElements();) {
-                            BigInteger serialNumber = e.nextElement();
+                        for (BigInteger serialNumber : clonedUnrevokedCerts.keySet()) {
                             CertId certID = new CertId(serialNumber);
 
                             if (mCRLCerts.containsKey(serialNumber)) {
                                 logger.info("CRLIssuingPoint: Removing unrevoked cert " + certID.toHexString() + " from cache");
                                 mCRLCerts.remove(serialNumber);
+
+                                if (mCacheJournal != null) {
+                                    mCacheJournal.remove(serialNumber);
+                                }
                             }
                             mUnrevokedCerts.remove(serialNumber);
                         }
                     }
 
                     if (!clonedRevokedCerts.isEmpty()) {
-                        for (Enumeration<BigInteger> e = clonedRevokedCerts.keys(); e.hasMoreElements();) {
-                            BigInteger serialNumber = e.nextElement();
+                        for (BigInteger serialNumber : clonedRevokedCerts.keySet()) {
                             CertId certID = new CertId(serialNumber);
 
                             logger.info("CRLIssuingPoint: Adding revoked cert " + certID.toHexString() + " to cache");
-                            mCRLCerts.put(serialNumber, mRevokedCerts.get(serialNumber));
+                            RevokedCertificate revokedCert = mRevokedCerts.get(serialNumber);
+                            mCRLCerts.put(serialNumber, revokedCert);
                             mRevokedCerts.remove(serialNumber);
+
+                            if (mCacheJournal != null) {
+                                mCacheJournal.add(serialNumber, revokedCert);
+                            }
                         }
                     }
 
                     if (!clonedExpiredCerts.isEmpty()) {
-                        for (Enumeration<BigInteger> e = clonedExpiredCerts.keys(); e.hasMoreElements();) {
-                            BigInteger serialNumber = e.nextElement();
+                        for (BigInteger serialNumber : clonedExpiredCerts.keySet()) {
                             CertId certID = new CertId(serialNumber);
 
                             if ((!mIncludeExpiredCertsOneExtraTime) ||
@@ -2821,6 +2978,10 @@ public class CRLIssuingPoint {
                                 logger.info("CRLIssuingPoint: Removing expired cert " + certID.toHexString() + " from cache");
                                 if (mCRLCerts.containsKey(serialNumber)) {
                                     mCRLCerts.remove(serialNumber);
+
+                                    if (mCacheJournal != null) {
+                                        mCacheJournal.remove(serialNumber);
+                                    }
                                 }
                                 mExpiredCerts.remove(serialNumber);
                             }
@@ -2834,9 +2995,6 @@ public class CRLIssuingPoint {
 
         logger.debug("CRLIssuingPoint: - CRL certs: " + mCRLCerts.size());
 
-        clonedRevokedCerts.clear();
-        clonedUnrevokedCerts.clear();
-        clonedExpiredCerts.clear();
         clonedRevokedCerts = null;
         clonedUnrevokedCerts = null;
         clonedExpiredCerts = null;
@@ -2878,10 +3036,90 @@ public class CRLIssuingPoint {
         return ext;
     }
 
+    static Map<BigInteger, RevokedCertificate> snapshot(Hashtable<BigInteger, RevokedCertificate> certs) {
+        // immutable maps are more compact than Hashtable clones
+        synchronized (certs) {
+            return Map.copyOf(certs);
+        }
+    }
+
+    /**
+     * Returns true if the expired cert should be included in the delta CRL.
+     */
+    boolean isExpiredCertInDeltaCRL(RevokedCertificate expiredCert) {
+
+        if (!mIncludeExpiredCertsOneExtraTime) {
+            return true;
+        }
+
+        return mLastFullUpdate == null || mLastFullUpdate.after(expiredCert.getRevocationDate());
+    }
+
+    private boolean isExpiredCertInDeltaCRL(Map<BigInteger, RevokedCertificate> expiredCerts, BigInteger serialNumber) {
+        RevokedCertificate expiredCert = expiredCerts.get(serialNumber);
+        return expiredCert != null && isExpiredCertInDeltaCRL(expiredCert);
+    }
+
+    /**
+     * Adds the delta CRL entries into the builder without merging the
+     * working sets into a new table. Expired certs take precedence over
+     * unrevoked certs which take precedence over revoked certs.
+     */
+    void addDeltaCRLEntries(
+            StreamingCRLBuilder builder,
+            Map<BigInteger, RevokedCertificate> revokedCerts,
+            Map<BigInteger, RevokedCertificate> unrevokedCerts,
+            Map<BigInteger, RevokedCertificate> expiredCerts) throws Exception {
+
+        for (Map.Entry<BigInteger, RevokedCertificate> entry : revokedCerts.entrySet()) {
+            BigInteger serialNumber = entry.getKey();
+            if (unrevokedCerts.containsKey(serialNumber) || isExpiredCertInDeltaCRL(expiredCerts, serialNumber)) {
+                continue;
+            }
+            builder.add(entry.getValue());
+        }
+
+        for (Map.Entry<BigInteger, RevokedCertificate> entry : unrevokedCerts.entrySet()) {
+            if (isExpiredCertInDeltaCRL(expiredCerts, entry.getKey())) {
+                continue;
+            }
+            builder.add(entry.getValue());
+        }
+
+        for (RevokedCertificate expiredCert : expiredCerts.values()) {
+            if (isExpiredCertInDeltaCRL(expiredCert)) {
+                builder.add(expiredCert);
+            }
+        }
+    }
+
+    /**
+     * Signs the CRL in the builder with the CRL signing unit.
+     */
+    byte[] signCRL(CertificateAuthority ca, StreamingCRLBuilder builder) throws Exception {
+
+        ca.ensureReady();
+
+        CAEngine engine = CAEngine.getInstance();
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.startTiming("signing");
+        }
+
+        try {
+            return builder.sign(ca.getCRLSigningUnit());
+
+        } finally {
+            if (statsSub != null) {
+                statsSub.endTiming("signing");
+            }
+        }
+    }
+
     void generateDeltaCRL(
-            Hashtable<BigInteger, RevokedCertificate> clonedRevokedCerts,
-            Hashtable<BigInteger, RevokedCertificate> clonedUnrevokedCerts,
-            Hashtable<BigInteger, RevokedCertificate> clonedExpiredCerts,
+            Map<BigInteger, RevokedCertificate> clonedRevokedCerts,
+            Map<BigInteger, RevokedCertificate> clonedUnrevokedCerts,
+            Map<BigInteger, RevokedCertificate> clonedExpiredCerts,
             String signingAlgorithm,
             Date thisUpdate,
             Date nextDeltaUpdate) {
@@ -2894,24 +3132,17 @@ public class CRLIssuingPoint {
         CertificateAuthority ca = engine.getCA();
         Auditor auditor = engine.getAuditor();
 
-        @SuppressWarnings("unchecked")
-        Hashtable<BigInteger, RevokedCertificate> deltaCRLCerts =
-                (Hashtable<BigInteger, RevokedCertificate>) clonedRevokedCerts.clone();
+        Hashtable<BigInteger, RevokedCertificate> deltaCRLCerts = null;
 
-        deltaCRLCerts.putAll(clonedUnrevokedCerts);
+        if (!mStreaming) {
+            deltaCRLCerts = new Hashtable<>(clonedRevokedCerts);
+            deltaCRLCerts.putAll(clonedUnrevokedCerts);
 
-        if (mIncludeExpiredCertsOneExtraTime) {
-
-            for (Enumeration<BigInteger> e = clonedExpiredCerts.keys(); e.hasMoreElements();) {
-                BigInteger serialNumber = e.nextElement();
-                if (mLastFullUpdate == null ||
-                    mLastFullUpdate.after(mExpiredCerts.get(serialNumber).getRevocationDate())) {
-                    deltaCRLCerts.put(serialNumber, clonedExpiredCerts.get(serialNumber));
+            for (Map.Entry<BigInteger, RevokedCertificate> entry : clonedExpiredCerts.entrySet()) {
+                if (isExpiredCertInDeltaCRL(entry.getValue())) {
+                    deltaCRLCerts.put(entry.getKey(), entry.getValue());
                 }
             }
-
-        } else {
-            deltaCRLCerts.putAll(clonedExpiredCerts);
         }
 
         mLastCRLNumber = mCRLNumber;
@@ -2921,13 +3152,26 @@ public class CRLIssuingPoint {
         mSplits[1] += System.currentTimeMillis();
 
         X509CRLImpl newX509DeltaCRL = null;
+        StreamingCRLBuilder builder = null;
 
         try {
             mSplits[2] -= System.currentTimeMillis();
 
+            int deltaCRLSize;
+
+            if (mStreaming) {
+                builder = new StreamingCRLBuilder(ca.getCRLX500Name(),
+                        signingAlgorithm, thisUpdate, nextDeltaUpdate, ext);
+                addDeltaCRLEntries(builder, clonedRevokedCerts, clonedUnrevokedCerts, clonedExpiredCerts);
+                deltaCRLSize = builder.size();
+
+            } else {
+                deltaCRLSize = deltaCRLCerts.size();
+            }
+
             // #56123 - dont generate CRL if no revoked certificates
             if (mConfigStore.getNoCRLIfNoRevokedCert()) {
-                if (deltaCRLCerts.size() == 0) {
+                if (deltaCRLSize == 0) {
                     logger.info("CRLIssuingPoint: Not generating delta CRL since there are no revoked certificates");
                     mDeltaCRLSize = -1;
                     auditor.log(DeltaCRLGenerationEvent.createSuccessEvent(
@@ -2937,25 +3181,37 @@ public class CRLIssuingPoint {
                 }
             }
 
-            logger.info("CRLIssuingPoint: Generating delta CRL with " + deltaCRLCerts.size() + " cert(s)");
-            X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
-                    AlgorithmId.get(signingAlgorithm),
-                    thisUpdate, nextDeltaUpdate, deltaCRLCerts, ext);
+            logger.info("CRLIssuingPoint: Generating delta CRL with " + deltaCRLSize + " cert(s)");
+            byte[] newDeltaCRL;
 
-            logger.info("CRLIssuingPoint: Signing delta CRL with " + signingAlgorithm);
-            newX509DeltaCRL = engine.sign(ca, crl, signingAlgorithm);
+            if (mStreaming) {
+                logger.info("CRLIssuingPoint: Signing delta CRL with " + signingAlgorithm);
+                newDeltaCRL = signCRL(ca, builder);
 
-            logger.info("CRLIssuingPoint: Encoding delta CRL");
-            byte[] newDeltaCRL = newX509DeltaCRL.getEncoded();
+            } else {
+                X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
+                        AlgorithmId.get(signingAlgorithm),
+                        thisUpdate, nextDeltaUpdate, deltaCRLCerts, ext);
+
+                logger.info("CRLIssuingPoint: Signing delta CRL with " + signingAlgorithm);
+                newX509DeltaCRL = engine.sign(ca, crl, signingAlgorithm);
+
+                logger.info("CRLIssuingPoint: Encoding delta CRL");
+                newDeltaCRL = newX509DeltaCRL.getEncoded();
+            }
 
             mSplits[2] += System.currentTimeMillis();
 
             mSplits[3] -= System.currentTimeMillis();
             mCRLRepository.updateDeltaCRL(mId, mNextDeltaCRLNumber,
-                      Long.valueOf(deltaCRLCerts.size()), mNextDeltaUpdate, newDeltaCRL);
+                      Long.valueOf(deltaCRLSize), mNextDeltaUpdate, newDeltaCRL);
             mSplits[3] += System.currentTimeMillis();
 
-            mDeltaCRLSize = deltaCRLCerts.size();
+            if (mStreaming && isCRLPublishingEnabled()) {
+                newX509DeltaCRL = new X509CRLImpl(newDeltaCRL);
+            }
+
+            mDeltaCRLSize = deltaCRLSize;
 
             long totalTime = 0;
             StringBuffer splitTimes = new StringBuffer("  (");
@@ -2997,6 +3253,11 @@ public class CRLIssuingPoint {
                     getAuditSubjectID(),
                     e.getMessage()));
             return;
+
+        } finally {
+            if (builder != null) {
+                builder.close();
+            }
         }
 
         logger.info("CRLIssuingPoint: Publishing delta CRL");
@@ -3043,18 +3304,25 @@ public class CRLIssuingPoint {
         mSplits[6] += System.currentTimeMillis();
 
         X509CRLImpl newX509CRL = null;
+        StreamingCRLBuilder builder = null;
 
         try {
             logger.debug("CRLIssuingPoint: - signing algorithm: " + signingAlgorithm);
 
             mSplits[7] -= System.currentTimeMillis();
 
-            logger.debug("CRLIssuingPoint: - CRL certs: " + mCRLCerts.size());
+            // revocations may arrive while the CRL is generated, so the
+            // CRL, its size, and the cache journal use the same entries
+            @SuppressWarnings("unchecked")
+            Hashtable<BigInteger, RevokedCertificate> crlCerts =
+                    (Hashtable<BigInteger, RevokedCertificate>) mCRLCerts.clone();
+
+            logger.debug("CRLIssuingPoint: - CRL certs: " + crlCerts.size());
 
             // #56123 - dont generate CRL if no revoked certificates
             if (mConfigStore.getNoCRLIfNoRevokedCert()) {
 
-                if (mCRLCerts.size() == 0) {
+                if (crlCerts.isEmpty()) {
                     logger.info("CRLIssuingPoint: Not generating full CRL since there are no revoked certificates");
                     auditor.log(FullCRLGenerationEvent.createSuccessEvent(
                             getAuditSubjectID(),
@@ -3063,16 +3331,34 @@ public class CRLIssuingPoint {
                 }
             }
 
-            logger.info("CRLIssuingPoint: Generating full CRL with " + mCRLCerts.size() + " cert(s)");
-            X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
-                    AlgorithmId.get(signingAlgorithm),
-                    thisUpdate, nextUpdate, mCRLCerts, ext);
+            logger.info("CRLIssuingPoint: Generating full CRL with " + crlCerts.size() + " cert(s)");
+            byte[] newCRL;
 
-            logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
-            newX509CRL = engine.sign(ca, crl, signingAlgorithm);
+            if (mStreaming) {
+                builder = new StreamingCRLBuilder(ca.getCRLX500Name(),
+                        signingAlgorithm, thisUpdate, nextUpdate, ext);
 
-            logger.info("CRLIssuingPoint: Encoding full CRL");
-            byte[] newCRL = newX509CRL.getEncoded();
+                for (RevokedCertificate entry : crlCerts.values()) {
+                    builder.add(entry);
+                }
+
+                logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
+                newCRL = signCRL(ca, builder);
+
+                builder.close();
+                builder = null;
+
+            } else {
+                X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
+                        AlgorithmId.get(signingAlgorithm),
+                        thisUpdate, nextUpdate, crlCerts, ext);
+
+                logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
+                newX509CRL = engine.sign(ca, crl, signingAlgorithm);
+
+                logger.info("CRLIssuingPoint: Encoding full CRL");
+                newCRL = newX509CRL.getEncoded();
+            }
 
             mSplits[7] += System.currentTimeMillis();
 
@@ -3089,20 +3375,34 @@ public class CRLIssuingPoint {
             if (mSaveMemory) {
                 mCRLRepository.updateCRLIssuingPointRecord(
                         mId, newCRL, thisUpdate, nextUpdateDate,
-                        mNextCRLNumber, Long.valueOf(mCRLCerts.size()));
+                        mNextCRLNumber, Long.valueOf(crlCerts.size()));
                 updateCRLCacheRepository();
 
             } else {
                 mCRLRepository.updateCRLIssuingPointRecord(
                         mId, newCRL, thisUpdate, nextUpdateDate,
-                        mNextCRLNumber, Long.valueOf(mCRLCerts.size()),
+                        mNextCRLNumber, Long.valueOf(crlCerts.size()),
                         mRevokedCerts, mUnrevokedCerts, mExpiredCerts);
                 mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
             }
 
+            if (mCacheJournal != null && mEnableCRLCache) {
+                try {
+                    mCacheJournal.commit(mNextCRLNumber, thisUpdate, nextUpdate, crlCerts);
+                } catch (IOException e) {
+                    // the CRL will be decoded on startup
+                    logger.warn("CRLIssuingPoint: Unable to store CRL cache journal: " + e.getMessage(), e);
+                }
+            }
+
             mSplits[8] += System.currentTimeMillis();
 
-            mCRLSize = mCRLCerts.size();
+            if (mStreaming && isCRLPublishingEnabled()) {
+                // publishers need the decoded CRL
+                newX509CRL = new X509CRLImpl(newCRL);
+            }
+
+            mCRLSize = crlCerts.size();
             mCRLNumber = mNextCRLNumber;
             mDeltaCRLNumber = mCRLNumber;
             mNextCRLNumber = mCRLNumber.add(BigInteger.ONE);
@@ -3156,6 +3456,11 @@ public class CRLIssuingPoint {
                     getAuditSubjectID(),
                     e.getMessage()));
             throw new ECAException(CMS.getUserMessage("CMS_CA_FAILED_CONSTRUCTING_CRL", e.toString()), e);
+
+        } finally {
+            if (builder != null) {
+                builder.close();
+            }
         }
 
         logger.info("CRLIssuingPoint: Publishing full CRL");
@@ -3224,7 +3529,8 @@ public class CRLIssuingPoint {
 
         logger.info("CRLIssuingPoint: Publishing " + mId);
         try {
-            if (x509crl == null) {
+            // don't load the CRL if it will not be published
+            if (x509crl == null && isCRLPublishingEnabled()) {
                 crlRecord = mCRLRepository.readCRLIssuingPointRecord(mId);
                 if (crlRecord != null) {
                     byte[] crl = (isDeltaCRL) ? crlRecord.getDeltaCRL() : crlRecord.getCRL();
@@ -3234,8 +3540,7 @@ public class CRLIssuingPoint {
                     }
                 }
             }
-            if (x509crl != null &&
-                    mPublisherProcessor != null && mPublisherProcessor.isCRLPublishingEnabled()) {
+            if (x509crl != null && isCRLPublishingEnabled()) {
                 Enumeration<LdapRule> rules = mPublisherProcessor.getRules(CAPublisherProcessor.PROP_LOCAL_CRL);
                 if (rules == null || !rules.hasMoreElements()) {
                     logger.debug("CRLIssuingPoint: CRL publishing is not enabled");
@@ -3260,6 +3565,10 @@ public class CRLIssuingPoint {
         }
     }
 
+    boolean isCRLPublishingEnabled() {
+        return mPublisherProcessor != null && mPublisherProcessor.isCRLPublishingEnabled();
+    }
+
     void setConfigParam(String name, String value) {
         mConfigStore.putString(name, value);
     }
@@ -193,6 +193,41 @@ public class CRLIssuingPointConfig extends ConfigStore {
         putBoolean("saveMemory", saveMemory);
     }
 
+    /**
+     * Returns whether CRLs are encoded and signed as a stream
+     * through a temporary file instead of in memory.
+     */
+    public boolean getStreaming() throws EBaseException {
+        return getBoolean("streaming", false);
+    }
+
+    public void setStreaming(boolean streaming) {
+        putBoolean("streaming", streaming);
+    }
+
+    /**
+     * Returns whether the CRL cache is stored in a journal on disk
+     * so it can be restored on startup without decoding the CRL.
+     */
+    public boolean getEnableCacheJournal() throws EBaseException {
+        return getBoolean("enableCacheJournal", false);
+    }
+
+    public void setEnableCacheJournal(boolean enableCacheJournal) {
+        putBoolean("enableCacheJournal", enableCacheJournal);
+    }
+
+    /**
+     * Returns the directory of the CRL cache journal.
+     */
+    public String getCacheJournalDir() throws EBaseException {
+        return getString("cacheJournalDir", null);
+    }
+
+    public void setCacheJournalDir(String cacheJournalDir) {
+        putString("cacheJournalDir", cacheJournalDir);
+    }
+
     public String getSigningAlgorithm() throws EBaseException {
         return getString("signingAlgorithm", null);
     }
@@ -305,6 +340,30 @@ public class CRLIssuingPointConfig extends ConfigStore {
         putBigInteger("crlEndSerialNo", crlEndSerialNo);
     }
 
+    /**
+     * Returns the number of partitions (serial number ranges) this
+     * issuing point is split into. Values below 2 disable partitioning.
+     */
+    public int getPartitions() throws EBaseException {
+        return getInteger("partitions", 0);
+    }
+
+    public void setPartitions(int partitions) {
+        putInteger("partitions", partitions);
+    }
+
+    /**
+     * Returns the ID of the partitioned issuing point this
+     * issuing point is a partition of.
+     */
+    public String getPartitionOf() throws EBaseException {
+        return getString("partitionOf", null);
+    }
+
+    public void setPartitionOf(String partitionOf) {
+        putString("partitionOf", partitionOf);
+    }
+
     public boolean getAutoUpdateIntervalEffectiveAtStart() throws EBaseException {
         return getBoolean("autoUpdateInterval.effectiveAtStart", false);
     }
@@ -0,0 +1,322 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPoint;
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPointsExtension;
+import org.mozilla.jss.netscape.security.x509.CertificateExtensions;
+import org.mozilla.jss.netscape.security.x509.GeneralNameInterface;
+import org.mozilla.jss.netscape.security.x509.GeneralNames;
+import org.mozilla.jss.netscape.security.x509.GeneralNamesException;
+import org.mozilla.jss.netscape.security.x509.URIName;
+import org.mozilla.jss.netscape.security.x509.X509CertInfo;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * Splits a CRL issuing point into partitions by serial number range.
+ *
+ * A partitioned issuing point is configured like a regular issuing point
+ * with an additional ca.crl.<id>.partitions parameter. On startup it is
+ * expanded into ca.crl.<id>-<n> issuing points, each covering a contiguous
+ * range of serial numbers. Values containing ${partition} (e.g. the
+ * IssuingDistributionPoint point name) are replaced with the partition ID
+ * so each partition publishes a distinct CRL.
+ *
+ * Since serial numbers are assigned after the profile defaults run,
+ * the CRL distribution point of a new certificate is added with a
+ * ${partition:<id>} placeholder which is resolved once the serial
+ * number is known.
+ */
+public class CRLPartitions {
+
+    public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CRLPartitions.class);
+
+    public static final String PARTITION = "${partition}";
+
+    public static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{partition:([^}]+)\\}");
+
+    public static final BigInteger MAX_SERIAL_NUMBER = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+    public record Range(BigInteger begin, BigInteger end) {
+    }
+
+    /**
+     * Returns the placeholder for the partition of the given
+     * partitioned issuing point.
+     */
+    public static String getPlaceholder(String id) {
+        return "${partition:" + id + "}";
+    }
+
+    public static String getPartitionID(String id, int index) {
+        return id + "-" + index;
+    }
+
+    /**
+     * Splits the serial number range into contiguous ranges of equal size.
+     * The last range absorbs the remainder.
+     */
+    public static List<Range> split(BigInteger begin, BigInteger end, int count) {
+
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid number of partitions: " + count);
+        }
+
+        BigInteger total = end.subtract(begin).add(BigInteger.ONE);
+        if (total.compareTo(BigInteger.valueOf(count)) < 0) {
+            throw new IllegalArgumentException(
+                    "Serial number range " + begin + "-" + end + " too small for " + count + " partitions");
+        }
+
+        BigInteger size = total.divide(BigInteger.valueOf(count));
+        List<Range> ranges = new ArrayList<>();
+
+        BigInteger start = begin;
+        for (int i = 0; i < count; i++) {
+            BigInteger stop = i == count - 1 ? end : start.add(size).subtract(BigInteger.ONE);
+            ranges.add(new Range(start, stop));
+            start = stop.add(BigInteger.ONE);
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Creates the configuration of the partitions of a partitioned
+     * issuing point unless it already exists.
+     *
+     * The serial number range has to be configured explicitly since
+     * sequential serial numbers would otherwise all fall into the first
+     * partition. Existing partitions are not changed since certificates
+     * already refer to their CRLs, so the startup fails if they no longer
+     * match the configured range and number of partitions.
+     *
+     * @param crlConfig ca.crl.* parameters
+     * @param id partitioned issuing point ID
+     * @return true if the configuration was changed
+     */
+    public static boolean createPartitions(CRLConfig crlConfig, String id) throws EBaseException {
+
+        if (CertificateAuthority.PROP_MASTER_CRL.equals(id)) {
+            throw new EBaseException("CRL issuing point " + id + " cannot be partitioned");
+        }
+
+        CRLIssuingPointConfig templateConfig = crlConfig.getCRLIssuingPointConfig(id);
+        int count = templateConfig.getPartitions();
+
+        BigInteger begin = templateConfig.getCRLBeginSerialNo();
+        BigInteger end = templateConfig.getCRLEndSerialNo();
+
+        if (begin == null || end == null) {
+            throw new EBaseException(
+                    "Missing crlBeginSerialNo or crlEndSerialNo for partitioned CRL issuing point " + id);
+        }
+
+        List<Range> ranges;
+        try {
+            ranges = split(begin, end, count);
+        } catch (IllegalArgumentException e) {
+            throw new EBaseException("Unable to partition CRL issuing point " + id + ": " + e.getMessage(), e);
+        }
+
+        List<String> partitionIDs = new ArrayList<>();
+        for (String name : crlConfig.getSubStoreNames()) {
+            if (id.equals(crlConfig.getCRLIssuingPointConfig(name).getPartitionOf())) {
+                partitionIDs.add(name);
+            }
+        }
+
+        if (!partitionIDs.isEmpty()) {
+            checkPartitions(crlConfig, id, ranges, partitionIDs);
+            return false;
+        }
+
+        Map<String, String> properties = templateConfig.getProperties();
+        String description = templateConfig.getDescription();
+
+        for (int i = 0; i < count; i++) {
+
+            String partitionID = getPartitionID(id, i);
+            Range range = ranges.get(i);
+            logger.info("CRLPartitions: Creating " + partitionID + " for serial numbers " + range.begin() + "-" + range.end());
+
+            crlConfig.makeSubStore(partitionID);
+            CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(partitionID);
+
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                ipConfig.putString(entry.getKey(), entry.getValue().replace(PARTITION, partitionID));
+            }
+
+            ipConfig.remove("partitions");
+            ipConfig.setPartitionOf(id);
+            ipConfig.setCRLBeginSerialNo(range.begin());
+            ipConfig.setCRLEndSerialNo(range.end());
+            ipConfig.setDescription((description == null ? id : description) + " (partition " + i + ")");
+        }
+
+        return true;
+    }
+
+    /**
+     * Verifies that the existing partitions cover the configured ranges.
+     */
+    static void checkPartitions(
+            CRLConfig crlConfig,
+            String id,
+            List<Range> ranges,
+            List<String> partitionIDs) throws EBaseException {
+
+        if (partitionIDs.size() != ranges.size()) {
+            throw new EBaseException(
+                    "CRL issuing point " + id + " has " + partitionIDs.size() + " partitions but "
+                    + ranges.size() + " are configured");
+        }
+
+        for (int i = 0; i < ranges.size(); i++) {
+
+            String partitionID = getPartitionID(id, i);
+            if (!partitionIDs.contains(partitionID)) {
+                throw new EBaseException("Missing partition " + partitionID + " of CRL issuing point " + id);
+            }
+
+            CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(partitionID);
+            Range range = new Range(ipConfig.getCRLBeginSerialNo(), ipConfig.getCRLEndSerialNo());
+
+            if (!range.equals(ranges.get(i))) {
+                throw new EBaseException(
+                        "Partition " + partitionID + " covers serial numbers " + range.begin() + "-" + range.end()
+                        + " but " + ranges.get(i).begin() + "-" + ranges.get(i).end() + " is configured");
+            }
+        }
+    }
+
+    /**
+     * Replaces the partition placeholders in the CRL distribution points
+     * extension with the ID of the partition covering the serial number.
+     *
+     * @param info certificate info
+     * @param serialNumber serial number of the certificate
+     * @param issuingPoints available CRL issuing points
+     */
+    public static void resolveDistributionPoints(
+            X509CertInfo info,
+            BigInteger serialNumber,
+            Collection<CRLIssuingPoint> issuingPoints)
+            throws CertificateException, IOException, EBaseException {
+
+        CertificateExtensions exts = (CertificateExtensions) info.get(X509CertInfo.EXTENSIONS);
+        if (exts == null) {
+            return;
+        }
+
+        String extName = null;
+        CRLDistributionPointsExtension ext = null;
+
+        Enumeration<String> e = exts.getNames();
+        while (e.hasMoreElements()) {
+            String name = e.nextElement();
+            if (exts.get(name) instanceof CRLDistributionPointsExtension cdpExt) {
+                extName = name;
+                ext = cdpExt;
+                break;
+            }
+        }
+
+        if (ext == null) {
+            return;
+        }
+
+        CRLDistributionPointsExtension newExt = null;
+        boolean resolved = false;
+
+        for (int i = 0; i < ext.getNumPoints(); i++) {
+            CRLDistributionPoint cdp = ext.getPointAt(i);
+            GeneralNames fullName = cdp.getFullName();
+
+            if (fullName != null) {
+                GeneralNames newFullName = new GeneralNames();
+
+                for (GeneralNameInterface name : fullName) {
+                    String uri = getURI(name);
+                    Matcher matcher = uri == null ? null : PLACEHOLDER.matcher(uri);
+
+                    if (matcher == null || !matcher.find()) {
+                        newFullName.addElement(name);
+                        continue;
+                    }
+
+                    String partitionID = findPartition(matcher.group(1), serialNumber, issuingPoints);
+                    logger.info("CRLPartitions: Assigning cert 0x" + serialNumber.toString(16) + " to " + partitionID);
+
+                    newFullName.addElement(new URIName(matcher.replaceAll(Matcher.quoteReplacement(partitionID))));
+                    resolved = true;
+                }
+
+                CRLDistributionPoint newCDP = new CRLDistributionPoint();
+                try {
+                    newCDP.setFullName(newFullName);
+                } catch (GeneralNamesException ex) {
+                    throw new IOException("Unable to set CRL distribution point: " + ex.getMessage(), ex);
+                }
+                newCDP.setReasons(cdp.getReasons());
+                newCDP.setCRLIssuer(cdp.getCRLIssuer());
+                cdp = newCDP;
+            }
+
+            if (newExt == null) {
+                newExt = new CRLDistributionPointsExtension(cdp);
+                newExt.setCritical(ext.isCritical());
+            } else {
+                newExt.addPoint(cdp);
+            }
+        }
+
+        if (!resolved) {
+            return;
+        }
+
+        exts.delete(extName);
+        exts.set(extName, newExt);
+    }
+
+    public static String getURI(GeneralNameInterface name) {
+
+        if (name.getType() != GeneralNameInterface.NAME_URI) {
+            return null;
+        }
+
+        // URIName.toString() returns "URIName: <uri>"
+        String s = name.toString();
+        int pos = s.indexOf(':');
+        return s.substring(pos + 1).trim();
+    }
+
+    static String findPartition(
+            String id,
+            BigInteger serialNumber,
+            Collection<CRLIssuingPoint> issuingPoints) throws EBaseException {
+
+        for (CRLIssuingPoint ip : issuingPoints) {
+            if (id.equals(ip.getPartitionOf()) && ip.isSerialNumberInRange(serialNumber)) {
+                return ip.getId();
+            }
+        }
+
+        throw new EBaseException("No partition of " + id + " for serial number 0x" + serialNumber.toString(16));
+    }
+}
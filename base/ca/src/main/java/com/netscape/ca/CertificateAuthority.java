@@ -790,6 +790,34 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
      */
     @Override
     public void startup() throws EBaseException {
+
+        if (!hostCA) {
+            return;
+        }
+
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub == null) {
+            return;
+        }
+
+        addSignaturePoolSource(statsSub, "signing.ca", mSigningUnit);
+
+        if (mCRLSigningUnit != mSigningUnit) {
+            addSignaturePoolSource(statsSub, "signing.crl", mCRLSigningUnit);
+        }
+
+        if (mOCSPSigningUnit != mSigningUnit) {
+            addSignaturePoolSource(statsSub, "signing.ocsp", mOCSPSigningUnit);
+        }
+    }
+
+    private void addSignaturePoolSource(StatsSubsystem statsSub, String name, CASigningUnit signingUnit) {
+
+        if (signingUnit == null || signingUnit.getSignaturePool() == null) {
+            return;
+        }
+
+        statsSub.addSource(name, signingUnit.getSignaturePool()::getStats);
     }
 
     public X509CRLImpl sign(X509CRLImpl crl, String algname) throws Exception {
@@ -1578,5 +1606,23 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
      */
     @Override
     public void shutdown() {
+
+        // the CRL and OCSP signing units may be the same as the cert signing unit
+        for (CASigningUnit signingUnit : new CASigningUnit[] { mSigningUnit, mCRLSigningUnit, mOCSPSigningUnit }) {
+            if (signingUnit != null) {
+                signingUnit.shutdown();
+            }
+        }
+
+        if (!hostCA) {
+            return;
+        }
+
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.removeSource("signing.ca");
+            statsSub.removeSource("signing.crl");
+            statsSub.removeSource("signing.ocsp");
+        }
     }
 }
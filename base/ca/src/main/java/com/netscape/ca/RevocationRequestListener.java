@@ -66,8 +66,7 @@ public class RevocationRequestListener extends RequestListener {
             for (int i = 0; i < serialNumbers.length; i++) {
                 BigInteger serialNumber = serialNumbers[i];
                 logger.debug("RevocationRequestListener: - serial number: " + serialNumber);
-                if ((crlIssuingPoint.mBeginSerial == null || serialNumber.compareTo(crlIssuingPoint.mBeginSerial) >= 0)
-                        && (crlIssuingPoint.mEndSerial == null || serialNumber.compareTo(crlIssuingPoint.mEndSerial) <= 0)) {
+                if (crlIssuingPoint.isSerialNumberInRange(serialNumber)) {
                     inRange = true;
                 }
             }
@@ -0,0 +1,255 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.mozilla.jss.netscape.security.util.BigInt;
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+
+import com.netscape.certsrv.security.SigningUnit;
+
+/**
+ * Builds a signed X.509 CRL without materializing the CRL entries
+ * in memory more than once.
+ *
+ * The DER encoding of each revoked certificate entry is written to
+ * a temporary spool file as it is added. Once all entries are added
+ * the length of the TBSCertList is known, so the TBSCertList header,
+ * the spooled entries, and the CRL extensions are streamed through
+ * the signature context. Finally the signed CRL is assembled into a
+ * single byte array of the exact size, which is the only full copy
+ * of the CRL held on the heap.
+ *
+ * The encoding is identical to the one produced by X509CRLImpl.
+ */
+public class StreamingCRLBuilder implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StreamingCRLBuilder.class);
+
+    // dates from 2050 onwards are encoded as GeneralizedTime
+    private static final long YR_2050 = 2524608000000L;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private X500Name issuer;
+    private String signingAlgorithm;
+    private Date thisUpdate;
+    private Date nextUpdate;
+    private CRLExtensions extensions;
+
+    private Path spool;
+    private OutputStream spoolOut;
+    private long entriesLength;
+    private int entries;
+    private boolean entryExtensions;
+
+    public StreamingCRLBuilder(
+            X500Name issuer,
+            String signingAlgorithm,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions) throws IOException {
+
+        this.issuer = issuer;
+        this.signingAlgorithm = signingAlgorithm;
+        this.thisUpdate = thisUpdate;
+        this.nextUpdate = nextUpdate;
+        this.extensions = extensions;
+
+        spool = Files.createTempFile("crl-", ".der");
+        spoolOut = new BufferedOutputStream(Files.newOutputStream(spool), BUFFER_SIZE);
+    }
+
+    /**
+     * Adds a revoked certificate entry to the CRL.
+     */
+    public void add(RevokedCertificate entry) throws Exception {
+
+        byte[] bytes = entry.getEncoded();
+        spoolOut.write(bytes);
+
+        entriesLength += bytes.length;
+        entries++;
+
+        if (entry.hasExtensions()) {
+            entryExtensions = true;
+        }
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Signs the CRL and returns its DER encoding.
+     */
+    public byte[] sign(SigningUnit signingUnit) throws Exception {
+
+        spoolOut.close();
+        spoolOut = null;
+
+        // encode TBSCertList fields except the entries
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+
+        try (DerOutputStream tmp = new DerOutputStream()) {
+
+            // v2 is required if there are CRL or entry extensions
+            if (extensions != null || entryExtensions) {
+                tmp.putInteger(new BigInt(1));
+            }
+
+            AlgorithmId.get(signingAlgorithm).encode(tmp);
+            issuer.encode(tmp);
+            putTime(tmp, thisUpdate);
+
+            if (nextUpdate != null) {
+                putTime(tmp, nextUpdate);
+            }
+
+            head.write(tmp.toByteArray());
+        }
+
+        if (entries > 0) {
+            head.write(encodeHeader(DerValue.tag_Sequence, entriesLength));
+        }
+
+        byte[] tail = new byte[0];
+        if (extensions != null) {
+            try (DerOutputStream tmp = new DerOutputStream()) {
+                extensions.encode(tmp, true);
+                tail = tmp.toByteArray();
+            }
+        }
+
+        long tbsContentLength = head.size() + entriesLength + tail.length;
+        byte[] tbsHeader = encodeHeader(DerValue.tag_Sequence, tbsContentLength);
+        byte[] headBytes = head.toByteArray();
+
+        logger.info("StreamingCRLBuilder: Signing CRL with " + entries + " entries");
+
+        byte[] tailBytes = tail;
+        byte[] signature = signingUnit.sign(out -> {
+            out.write(tbsHeader);
+            out.write(headBytes);
+            Files.copy(spool, out);
+            out.write(tailBytes);
+        }, signingAlgorithm);
+
+        byte[] algorithm;
+        byte[] bitString;
+
+        try (DerOutputStream tmp = new DerOutputStream()) {
+            AlgorithmId.get(signingAlgorithm).encode(tmp);
+            algorithm = tmp.toByteArray();
+        }
+
+        try (DerOutputStream tmp = new DerOutputStream()) {
+            tmp.putBitString(signature);
+            bitString = tmp.toByteArray();
+        }
+
+        long crlContentLength = tbsHeader.length + tbsContentLength + algorithm.length + bitString.length;
+        byte[] crlHeader = encodeHeader(DerValue.tag_Sequence, crlContentLength);
+
+        long crlLength = crlHeader.length + crlContentLength;
+        if (crlLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("CRL too large: " + crlLength + " bytes");
+        }
+
+        logger.info("StreamingCRLBuilder: Assembling CRL (" + crlLength + " bytes)");
+
+        byte[] crl = new byte[(int) crlLength];
+        int offset = 0;
+
+        offset = copy(crlHeader, crl, offset);
+        offset = copy(tbsHeader, crl, offset);
+        offset = copy(headBytes, crl, offset);
+
+        try (InputStream in = Files.newInputStream(spool)) {
+            int n = in.readNBytes(crl, offset, (int) entriesLength);
+            if (n != entriesLength) {
+                throw new IOException("Unable to read CRL entries from " + spool);
+            }
+            offset += n;
+        }
+
+        offset = copy(tail, crl, offset);
+        offset = copy(algorithm, crl, offset);
+        copy(bitString, crl, offset);
+
+        return crl;
+    }
+
+    private static int copy(byte[] src, byte[] dest, int offset) {
+        System.arraycopy(src, 0, dest, offset, src.length);
+        return offset + src.length;
+    }
+
+    private static void putTime(DerOutputStream out, Date date) throws IOException {
+        if (date.getTime() < YR_2050) {
+            out.putUTCTime(date);
+        } else {
+            out.putGeneralizedTime(date);
+        }
+    }
+
+    /**
+     * Encodes a DER tag and definite length.
+     */
+    static byte[] encodeHeader(byte tag, long length) {
+
+        if (length < 0x80) {
+            return new byte[] { tag, (byte) length };
+        }
+
+        int size = 0;
+        for (long l = length; l > 0; l >>>= 8) {
+            size++;
+        }
+
+        byte[] header = new byte[2 + size];
+        header[0] = tag;
+        header[1] = (byte) (0x80 | size);
+
+        for (int i = 0; i < size; i++) {
+            header[1 + size - i] = (byte) (length >>> (8 * i));
+        }
+
+        return header;
+    }
+
+    @Override
+    public void close() {
+
+        if (spoolOut != null) {
+            try {
+                spoolOut.close();
+            } catch (IOException e) {
+                logger.warn("StreamingCRLBuilder: Unable to close " + spool + ": " + e.getMessage(), e);
+            }
+            spoolOut = null;
+        }
+
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            logger.warn("StreamingCRLBuilder: Unable to delete " + spool + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.profile.def;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPoint;
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPointsExtension;
+import org.mozilla.jss.netscape.security.x509.GeneralNames;
+import org.mozilla.jss.netscape.security.x509.GeneralNamesException;
+import org.mozilla.jss.netscape.security.x509.PKIXExtensions;
+import org.mozilla.jss.netscape.security.x509.URIName;
+import org.mozilla.jss.netscape.security.x509.X509CertInfo;
+
+import com.netscape.ca.CRLPartitions;
+import com.netscape.certsrv.profile.EProfileException;
+import com.netscape.certsrv.property.Descriptor;
+import com.netscape.certsrv.property.EPropertyException;
+import com.netscape.certsrv.property.IDescriptor;
+import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.request.Request;
+
+/**
+ * This class implements an enrollment default policy
+ * that populates a CRL distribution points extension
+ * pointing to the partition of a partitioned CRL issuing
+ * point that covers the certificate serial number.
+ *
+ * The URI may contain ${partition} which is replaced with
+ * the partition ID when the serial number is assigned.
+ */
+public class PartitionedCRLDistributionPointExtDefault extends EnrollExtDefault {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PartitionedCRLDistributionPointExtDefault.class);
+
+    public static final String CONFIG_CRITICAL = "crlDistPointsCritical";
+    public static final String CONFIG_ISSUING_POINT = "crlIssuingPoint";
+    public static final String CONFIG_URI = "crlDistPointsURI";
+
+    public static final String VAL_CRITICAL = "crlDistPointsCritical";
+    public static final String VAL_URI = "crlDistPointsURI";
+
+    public PartitionedCRLDistributionPointExtDefault() {
+        super();
+        addValueName(VAL_CRITICAL);
+        addValueName(VAL_URI);
+
+        addConfigName(CONFIG_CRITICAL);
+        addConfigName(CONFIG_ISSUING_POINT);
+        addConfigName(CONFIG_URI);
+    }
+
+    @Override
+    public IDescriptor getConfigDescriptor(Locale locale, String name) {
+        if (name.equals(CONFIG_CRITICAL)) {
+            return new Descriptor(IDescriptor.BOOLEAN, null,
+                    "false",
+                    CMS.getUserMessage(locale, "CMS_PROFILE_CRITICAL"));
+        } else if (name.equals(CONFIG_ISSUING_POINT)) {
+            return new Descriptor(IDescriptor.STRING, null,
+                    null,
+                    CMS.getUserMessage(locale, "CMS_PROFILE_CRL_ISSUING_POINT"));
+        } else if (name.equals(CONFIG_URI)) {
+            return new Descriptor(IDescriptor.STRING, null,
+                    null,
+                    CMS.getUserMessage(locale, "CMS_PROFILE_POINT_NAME"));
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public IDescriptor getValueDescriptor(Locale locale, String name) {
+        if (name.equals(VAL_CRITICAL)) {
+            return new Descriptor(IDescriptor.BOOLEAN, null,
+                    "false",
+                    CMS.getUserMessage(locale, "CMS_PROFILE_CRITICAL"));
+        } else if (name.equals(VAL_URI)) {
+            return new Descriptor(IDescriptor.STRING, "readonly",
+                    null,
+                    CMS.getUserMessage(locale, "CMS_PROFILE_POINT_NAME"));
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void setValue(String name, Locale locale,
+            X509CertInfo info, String value)
+            throws EPropertyException {
+
+        if (name == null) {
+            throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+        }
+
+        if (name.equals(VAL_URI)) {
+            // the URI is determined by the serial number
+            return;
+        }
+
+        if (!name.equals(VAL_CRITICAL)) {
+            throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+        }
+
+        try {
+            CRLDistributionPointsExtension ext = (CRLDistributionPointsExtension)
+                    getExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), info);
+
+            if (ext == null) {
+                populate(null, info);
+                ext = (CRLDistributionPointsExtension)
+                        getExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), info);
+            }
+
+            if (ext == null) {
+                return;
+            }
+
+            ext.setCritical(Boolean.valueOf(value).booleanValue());
+            replaceExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), ext, info);
+
+        } catch (EProfileException e) {
+            logger.error("PartitionedCRLDistributionPointExtDefault: setValue " + e.getMessage(), e);
+            throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+        }
+    }
+
+    @Override
+    public String getValue(String name, Locale locale,
+            X509CertInfo info)
+            throws EPropertyException {
+
+        if (name == null) {
+            throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+        }
+
+        CRLDistributionPointsExtension ext = (CRLDistributionPointsExtension)
+                getExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), info);
+
+        if (ext == null) {
+            try {
+                populate(null, info);
+            } catch (EProfileException e) {
+                throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+            }
+
+            ext = (CRLDistributionPointsExtension)
+                    getExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), info);
+        }
+
+        if (ext == null) {
+            return null;
+        }
+
+        if (name.equals(VAL_CRITICAL)) {
+            return ext.isCritical() ? "true" : "false";
+
+        } else if (name.equals(VAL_URI)) {
+            if (ext.getNumPoints() == 0) {
+                return "";
+            }
+            GeneralNames names = ext.getPointAt(0).getFullName();
+            if (names == null || names.isEmpty()) {
+                return "";
+            }
+            return CRLPartitions.getURI(names.elementAt(0));
+
+        } else {
+            throw new EPropertyException(CMS.getUserMessage(
+                        locale, "CMS_INVALID_PROPERTY", name));
+        }
+    }
+
+    @Override
+    public String getText(Locale locale) {
+        String params[] = {
+                getConfig(CONFIG_CRITICAL),
+                getConfig(CONFIG_ISSUING_POINT),
+                getConfig(CONFIG_URI)
+            };
+
+        return CMS.getUserMessage(locale, "CMS_PROFILE_DEF_PARTITIONED_CRL_DIST_POINT_EXT", params);
+    }
+
+    /**
+     * Populates the request with this policy default.
+     */
+    @Override
+    public void populate(Request request, X509CertInfo info)
+            throws EProfileException {
+        CRLDistributionPointsExtension ext = createExtension();
+        addExtension(PKIXExtensions.CRLDistributionPoints_Id.toString(), ext, info);
+    }
+
+    public CRLDistributionPointsExtension createExtension() throws EProfileException {
+
+        boolean critical = getConfigBoolean(CONFIG_CRITICAL);
+        String issuingPoint = getConfig(CONFIG_ISSUING_POINT);
+        String uri = getConfig(CONFIG_URI);
+
+        if (issuingPoint == null || issuingPoint.equals("")) {
+            throw new EProfileException("Missing " + CONFIG_ISSUING_POINT + " parameter");
+        }
+
+        if (uri == null || !uri.contains(CRLPartitions.PARTITION)) {
+            throw new EProfileException("Parameter " + CONFIG_URI + " must contain " + CRLPartitions.PARTITION);
+        }
+
+        // the partition is resolved once the serial number is assigned
+        uri = uri.replace(CRLPartitions.PARTITION, CRLPartitions.getPlaceholder(issuingPoint));
+
+        try {
+            GeneralNames names = new GeneralNames();
+            names.addElement(new URIName(uri));
+
+            CRLDistributionPoint cdp = new CRLDistributionPoint();
+            cdp.setFullName(names);
+
+            CRLDistributionPointsExtension ext = new CRLDistributionPointsExtension(cdp);
+            ext.setCritical(critical);
+            return ext;
+
+        } catch (IOException | GeneralNamesException e) {
+            logger.error("PartitionedCRLDistributionPointExtDefault: createExtension " + e.getMessage(), e);
+            throw new EProfileException(e);
+        }
+    }
+}
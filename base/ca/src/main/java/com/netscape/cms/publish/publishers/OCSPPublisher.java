@@ -27,7 +27,6 @@ import java.net.URLEncoder;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
 import java.util.Date;
-import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 
@@ -35,13 +34,11 @@ import org.dogtagpki.server.ca.CAEngine;
 import org.dogtagpki.server.ca.CAEngineConfig;
 import org.dogtagpki.util.cert.CertUtil;
 import org.mozilla.jss.netscape.security.util.Utils;
-import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IExtendedPluginInfo;
 import com.netscape.certsrv.dbs.DBException;
-import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.publish.Publisher;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
@@ -66,6 +63,10 @@ public class OCSPPublisher
     private static final String PROP_PATH = "path";
     private static final String PROP_NICK = "nickName";
     private static final String PROP_CLIENT_AUTH_ENABLE = "enableClientAuth";
+    private static final String PROP_BINARY = "binary";
+
+    // DER-encoded CRL sent in the request body (RFC 2585)
+    private static final String CRL_CONTENT_TYPE = "application/pkix-crl";
 
     private ConfigStore mConfig;
     private String mHost = null;
@@ -73,6 +74,7 @@ public class OCSPPublisher
     private String mPath = null;
     private String mNickname = null;
     private boolean mClientAuthEnabled = true;
+    private boolean mBinary = false;
 
     /**
      * Returns the implementation name.
@@ -98,6 +100,7 @@ public class OCSPPublisher
                 PROP_PATH + ";string;URI of CMS's OCSP Secure agent service",
                 PROP_NICK + ";string;Nickname of cert used for client authentication",
                 PROP_CLIENT_AUTH_ENABLE + ";boolean;Client Authentication enabled",
+                PROP_BINARY + ";boolean;Send the CRL in DER format instead of URL-encoded PEM format",
                 IExtendedPluginInfo.HELP_TOKEN +
                         ";configuration-ldappublish-publisher-ocsppublisher",
                 IExtendedPluginInfo.HELP_TEXT +
@@ -118,6 +121,7 @@ public class OCSPPublisher
         String path = "";
         String nickname = "";
         String clientAuthEnabled = "";
+        String binary = "";
 
         try {
             host = mConfig.getString(PROP_HOST);
@@ -144,6 +148,11 @@ public class OCSPPublisher
         } catch (EBaseException e) {
         }
         v.addElement(PROP_CLIENT_AUTH_ENABLE + "=" + clientAuthEnabled);
+        try {
+            binary = mConfig.getString(PROP_BINARY);
+        } catch (EBaseException e) {
+        }
+        v.addElement(PROP_BINARY + "=" + binary);
         return v;
     }
 
@@ -172,6 +181,7 @@ public class OCSPPublisher
         v.addElement(PROP_PATH + "=/ocsp/agent/ocsp/addCRL");
         v.addElement(PROP_CLIENT_AUTH_ENABLE + "=true");
         v.addElement(PROP_NICK + "=" + nickname);
+        v.addElement(PROP_BINARY + "=true");
         return v;
     }
 
@@ -186,6 +196,7 @@ public class OCSPPublisher
         mPath = mConfig.getString(PROP_PATH, "");
         mNickname = mConfig.getString(PROP_NICK, "");
         mClientAuthEnabled = mConfig.getBoolean(PROP_CLIENT_AUTH_ENABLE, true);
+        mBinary = mConfig.getBoolean(PROP_BINARY, false);
     }
 
     @Override
@@ -252,26 +263,24 @@ public class OCSPPublisher
             String url = "https://" + host + ":" + port + path;
             logger.info("OCSPPublisher: Publishing CRL to " + url);
 
-            if (object instanceof X509CRLImpl crlImpl) {
-                logger.info("OCSPPublisher: Revoked certs:");
-                Set<RevokedCertificate> certs = crlImpl.getRevokedCertificates();
-                if (certs != null) {
-                    for (RevokedCertificate cert : certs) {
-                        CertId certID = new CertId(cert.getSerialNumber());
-                        logger.info("OCSPPublisher: - " + certID.toHexString());
-                    }
-                }
+            if (object instanceof X509CRLImpl crlImpl && crlImpl.areEntriesIncluded()) {
+                logger.info("OCSPPublisher: Revoked certs: " + crlImpl.getNumberOfRevokedCertificates());
             }
 
-            String pemCRL = CertUtil.CRL_HEADER + "\n" +
-                    Utils.base64encode(crl.getEncoded(), true) +
-                    CertUtil.CRL_FOOTER;
-            logger.debug("OCSPPublisher: CRL:\n" + pemCRL);
+            byte[] der = crl.getEncoded();
+            StringBuilder query = null;
+
+            if (!mBinary) {
+                String pemCRL = CertUtil.CRL_HEADER + "\n" +
+                        Utils.base64encode(der, true) +
+                        CertUtil.CRL_FOOTER;
+                logger.debug("OCSPPublisher: CRL:\n" + pemCRL);
 
-            StringBuilder query = new StringBuilder();
-            query.append("crl=");
-            query.append(URLEncoder.encode(pemCRL, "UTF-8"));
-            query.append("&noui=true");
+                query = new StringBuilder();
+                query.append("crl=");
+                query.append(URLEncoder.encode(pemCRL, "UTF-8"));
+                query.append("&noui=true");
+            }
 
             Socket socket = null;
             JssSSLSocketFactory factory;
@@ -311,13 +320,22 @@ public class OCSPPublisher
             httpReq.setURI(path);
             httpReq.setHeader("Connection", "Keep-Alive");
 
-            httpReq.setHeader("Content-Type",
-                    "application/x-www-form-urlencoded");
-            httpReq.setHeader("Content-Transfer-Encoding", "7bit");
+            if (mBinary) {
+                // the CRL is written to the socket after the headers
+                httpReq.setHeader("Content-Type", CRL_CONTENT_TYPE);
+                httpReq.setHeader("Content-Length",
+                        Integer.toString(der.length));
+
+            } else {
+                httpReq.setHeader("Content-Type",
+                        "application/x-www-form-urlencoded");
+                httpReq.setHeader("Content-Transfer-Encoding", "7bit");
+
+                httpReq.setHeader("Content-Length",
+                        Integer.toString(query.length()));
+                httpReq.setContent(query.toString());
+            }
 
-            httpReq.setHeader("Content-Length",
-                    Integer.toString(query.length()));
-            httpReq.setContent(query.toString());
             OutputStream os = socket.getOutputStream();
             OutputStreamWriter outputStreamWriter = new OutputStreamWriter(os, "UTF8");
 
@@ -328,6 +346,11 @@ public class OCSPPublisher
 
             httpReq.write(outputStreamWriter);
 
+            if (mBinary) {
+                os.write(der);
+                os.flush();
+            }
+
             long endTime = new Date().getTime();
             logger.debug("OCSPPublisher: done CRL sending endTime=" + endTime + " diff=" + (endTime - startTime));
 
@@ -23,7 +23,10 @@ import java.math.BigInteger;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Locale;
+import java.util.StringJoiner;
 import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -92,6 +95,9 @@ public class DoRevokeTPS extends CAServlet {
     private static final long serialVersionUID = -2980600514636454836L;
     private final static String TPL_FILE = "revocationResult.template";
 
+    private final static Pattern SERIAL_PATTERN = Pattern.compile(
+            IRemoteRequest.CA_REVOKE_SERIAL + "=([^)]+)");
+
     private CertificateRepository mCertDB;
     private String mFormPath = null;
     private RequestQueue mQueue;
@@ -347,17 +353,16 @@ public class DoRevokeTPS extends CAServlet {
         if (revokeAll != null) {
             logger.debug("DoRevokeTPS.process revokeAll" + revokeAll);
 
-            String serial = "";
-            String[] tokens;
-            tokens = revokeAll.split("=");
+            // revokeAll is either (certRecordId=<serial>) or, to revoke
+            // multiple certs in one request, (|(certRecordId=<serial>)...)
+            StringJoiner serials = new StringJoiner(",");
+            Matcher matcher = SERIAL_PATTERN.matcher(revokeAll);
+            while (matcher.find()) {
+                serials.add(matcher.group(1));
+            }
 
-            if (tokens.length == 2) {
-                serial = tokens[1];
-                //remove the trailing paren
-                if (serial.endsWith(")")) {
-                    serial = serial.substring(0, serial.length() - 1);
-                }
-                auditSerialNumber = serial;
+            if (serials.length() > 0) {
+                auditSerialNumber = serials.toString();
             }
         }
 
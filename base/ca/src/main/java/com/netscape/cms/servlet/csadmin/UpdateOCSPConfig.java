@@ -159,6 +159,7 @@ public class UpdateOCSPConfig extends CMSServlet {
             cs.putString(publisherPrefix+".path", "/ocsp/agent/ocsp/addCRL");
             cs.putString(publisherPrefix+".pluginName", "OCSPPublisher");
             cs.putString(publisherPrefix+".enableClientAuth", "true");
+            cs.putString(publisherPrefix+".binary", "true");
             cs.putString(rulePrefix+".enable", "true");
             cs.putString(rulePrefix+".mapper", "NoMap");
             cs.putString(rulePrefix+".pluginName", "Rule");
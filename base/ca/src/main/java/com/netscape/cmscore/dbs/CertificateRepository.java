@@ -18,14 +18,17 @@
 package com.netscape.cmscore.dbs;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.x509.CertificateValidity;
@@ -86,6 +89,11 @@ public class CertificateRepository extends Repository {
     public static final String PROP_CERT_ID_LENGTH = "cert.id.length";
     public static final int DEFAULT_CERT_ID_LENGTH = 128;
 
+    public static final String PROP_CERT_ID_LEASE_SIZE = "cert.id.lease.size";
+    public static final int DEFAULT_CERT_ID_LEASE_SIZE = 1000;
+
+    public static final String PROP_CERT_ID_LEASE_PREFETCH = "cert.id.lease.prefetch";
+
     private boolean mConsistencyCheck = false;
 
     private boolean mEnableRandomSerialNumbers;
@@ -136,11 +144,27 @@ public class CertificateRepository extends Repository {
             logger.debug("CertificateRepository: - cert ID length: " + idLength);
         } else if (idGenerator == IDGenerator.LEGACY_2) {
             initLegacy2Generator();
+        } else if (idGenerator == IDGenerator.LEASED) {
+            initLeasedGenerator();
         } else {
             initLegacyGenerator();
         }
     }
 
+    protected void initLeasedGenerator() throws EBaseException {
+
+        rangeDN = mDBConfig.getSerialRangeDN() + "," + dbSubsystem.getBaseDN();
+        logger.debug("CertificateRepository: - range DN: " + rangeDN);
+
+        int leaseSize = mDBConfig.getInteger(PROP_CERT_ID_LEASE_SIZE, DEFAULT_CERT_ID_LEASE_SIZE);
+        logger.debug("CertificateRepository: - lease size: " + leaseSize);
+
+        int prefetch = mDBConfig.getInteger(PROP_CERT_ID_LEASE_PREFETCH, leaseSize / 4);
+        logger.debug("CertificateRepository: - lease prefetch: " + prefetch);
+
+        initLeasedGenerator("cert", leaseSize, prefetch);
+    }
+
     protected void initLegacy2Generator() throws EBaseException {
 
         rangeDN = mDBConfig.getSerialRangeDN() + "," + dbSubsystem.getBaseDN();
@@ -434,13 +458,18 @@ public class CertificateRepository extends Repository {
      * @exception EBaseException failed to retrieve next serial number
      */
     @Override
-    public synchronized BigInteger getNextSerialNumber()
+    public BigInteger getNextSerialNumber()
             throws EBaseException {
 
-        if (idGenerator == IDGenerator.RANDOM) {
+        if (idGenerator == IDGenerator.RANDOM || idGenerator == IDGenerator.LEASED) {
             return super.getNextSerialNumber();
         }
 
+        return getNextLegacySerialNumber();
+    }
+
+    private synchronized BigInteger getNextLegacySerialNumber() throws EBaseException {
+
         BigInteger nextSerialNumber = null;
         BigInteger randomNumber = null;
 
@@ -1213,6 +1242,69 @@ public class CertificateRepository extends Repository {
         return records.iterator();
     }
 
+    /**
+     * Finds certificate records that satisfy the filter, sorted by serial
+     * number, starting from the given serial number.
+     *
+     * Unlike searchCertificates(filter, timeLimit, start, size) the
+     * previous entries are excluded by the filter instead of being read
+     * and skipped, so the cost of a page does not depend on its position
+     * in the result set. The serial number after the last returned record
+     * can be passed to createCursor() to get the next page.
+     *
+     * @param filter search filter
+     * @param timeLimit timeout value
+     * @param from first serial number to return, or null to start from the beginning
+     * @param size max size to return
+     * @return a list of certificates
+     * @exception EBaseException failed to search
+     */
+    public List<CertRecord> searchCertificatesFrom(String filter, int timeLimit, BigInteger from, int size)
+            throws EBaseException {
+
+        if (from != null) {
+            String range = "(" + CertRecord.ATTR_ID + ">=" + from + ")";
+            filter = filter == null ? range : "(&" + filter + range + ")";
+        }
+
+        logger.debug("CertificateRepository: Searching certificates with filter {} and size {}", filter, size);
+
+        List<CertRecord> records = new ArrayList<>();
+        try (DBSSession s = dbSubsystem.createSession()) {
+            DBSearchResults sr = s.pagedSearch(mBaseDN, filter, new String[] { "serialno" }, 0, size, timeLimit);
+            while (sr.hasMoreElements() && records.size() < size) {
+                records.add((CertRecord) sr.nextElement());
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Creates an opaque continuation token for searchCertificatesFrom().
+     *
+     * @param from first serial number of the next page
+     * @return continuation token
+     */
+    public static String createCursor(BigInteger from) {
+        byte[] bytes = from.toString(16).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Parses a continuation token created by createCursor().
+     *
+     * @param cursor continuation token, or an empty string for the first page
+     * @return first serial number of the page, or null for the first page
+     * @exception IllegalArgumentException invalid token
+     */
+    public static BigInteger parseCursor(String cursor) {
+        if (cursor.isEmpty()) {
+            return null;
+        }
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        return new BigInteger(new String(bytes, StandardCharsets.US_ASCII), 16);
+    }
+
     /**
      * Counts certificate records that satisfies the filter.
      *
@@ -43,6 +43,7 @@ import com.netscape.cmscore.dbs.CertRecord;
 import com.netscape.cmscore.dbs.CertificateRepository;
 import com.netscape.cmscore.request.Request;
 import com.netscape.cmscore.request.RequestNotifier;
+import com.netscape.cmscore.util.StatsSubsystem;
 
 import netscape.ldap.LDAPConnection;
 
@@ -112,13 +113,30 @@ public class CAPublisherProcessor extends PublisherProcessor {
                 int savePublishingStatus = queueConfig.getSaveStatus();
                 logger.info("CAPublisherProcessor: - save status: " + savePublishingStatus);
 
+                int batchSize = queueConfig.getBatchSize();
+                logger.info("CAPublisherProcessor: - batch size: " + batchSize);
+
+                int maxRetries = queueConfig.getMaxRetries();
+                logger.info("CAPublisherProcessor: - max retries: " + maxRetries);
+
+                int retryDelay = queueConfig.getRetryDelay();
+                logger.info("CAPublisherProcessor: - retry delay: " + retryDelay + " s");
+
                 RequestNotifier requestNotifier = engine.getRequestNotifier();
                 requestNotifier.setPublishingQueue(
                         isPublishingQueueEnabled,
                         publishingQueuePriorityLevel,
                         maxNumberOfPublishingThreads,
                         publishingQueuePageSize,
-                        savePublishingStatus);
+                        savePublishingStatus,
+                        batchSize,
+                        maxRetries,
+                        retryDelay);
+
+                StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+                if (isPublishingQueueEnabled && statsSub != null) {
+                    statsSub.addSource("publishing.queue", requestNotifier::getStats);
+                }
             }
         }
     }
@@ -132,6 +150,7 @@ public class CAPublisherProcessor extends PublisherProcessor {
             CAEngine engine = CAEngine.getInstance();
             // requestListener.shutdown();
             engine.removeRequestListener(requestListener);
+            engine.getRequestNotifier().shutdown();
         }
 
         super.shutdown();
@@ -60,4 +60,25 @@ public class PublishingQueueConfig extends ConfigStore {
     public int getSaveStatus() throws EBaseException {
         return getInteger("saveStatus", 0);
     }
+
+    /**
+     * Returns ca.publish.queue.batchSize parameter.
+     */
+    public int getBatchSize() throws EBaseException {
+        return getInteger("batchSize", 10);
+    }
+
+    /**
+     * Returns ca.publish.queue.maxRetries parameter.
+     */
+    public int getMaxRetries() throws EBaseException {
+        return getInteger("maxRetries", 3);
+    }
+
+    /**
+     * Returns ca.publish.queue.retryDelay parameter (in seconds).
+     */
+    public int getRetryDelay() throws EBaseException {
+        return getInteger("retryDelay", 30);
+    }
 }
@@ -38,6 +38,7 @@ import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -77,6 +78,7 @@ import com.netscape.ca.CRLExtensionConfig;
 import com.netscape.ca.CRLExtensionsConfig;
 import com.netscape.ca.CRLIssuingPoint;
 import com.netscape.ca.CRLIssuingPointConfig;
+import com.netscape.ca.CRLPartitions;
 import com.netscape.ca.CertificateAuthority;
 import com.netscape.ca.KeyRetrieverWorker;
 import com.netscape.certsrv.authentication.ISharedToken;
@@ -189,6 +191,7 @@ public class CAEngine extends CMSEngine {
     protected CAPublisherProcessor publisherProcessor;
 
     protected Map<String, CRLIssuingPoint> crlIssuingPoints = new HashMap<>();
+    protected Semaphore crlUpdateSemaphore;
 
     // for CMC shared secret operations
     protected org.mozilla.jss.crypto.X509Certificate issuanceProtectionCert;
@@ -384,6 +387,14 @@ public class CAEngine extends CMSEngine {
         return crlIssuingPoints.values();
     }
 
+    /**
+     * Returns the semaphore limiting the number of CRLs generated
+     * concurrently, or null if unlimited.
+     */
+    public Semaphore getCRLUpdateSemaphore() {
+        return crlUpdateSemaphore;
+    }
+
     public CRLIssuingPoint getMasterCRLIssuingPoint() {
         return crlIssuingPoints.get(CertificateAuthority.PROP_MASTER_CRL);
     }
@@ -769,6 +780,28 @@ public class CAEngine extends CMSEngine {
             return;
         }
 
+        int maxConcurrentUpdates = crlConfig.getMaxConcurrentUpdates();
+        logger.info("CAEngine: - max concurrent CRL updates: " + maxConcurrentUpdates);
+
+        if (maxConcurrentUpdates > 0) {
+            crlUpdateSemaphore = new Semaphore(maxConcurrentUpdates, true);
+        }
+
+        // expand partitioned issuing points into
+        // issuing points for each serial number range
+        boolean modified = false;
+        for (String id : crlConfig.getSubStoreNames()) {
+            CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(id);
+            if (ipConfig.getPartitions() > 1) {
+                logger.info("CAEngine: Partitioning " + id + " into " + ipConfig.getPartitions() + " CRL issuing points");
+                modified |= CRLPartitions.createPartitions(crlConfig, id);
+            }
+        }
+
+        if (modified) {
+            engineConfig.commit(true);
+        }
+
         Enumeration<String> ipIDs = crlConfig.getSubStoreNames().elements();
 
         if (ipIDs == null || !ipIDs.hasMoreElements()) {
@@ -781,6 +814,12 @@ public class CAEngine extends CMSEngine {
             String id = ipIDs.nextElement();
 
             CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(id);
+
+            if (ipConfig.getPartitions() > 1) {
+                // partitions are created above
+                continue;
+            }
+
             String className = ipConfig.getClassName();
             Class<CRLIssuingPoint> clazz = (Class<CRLIssuingPoint>) Class.forName(className);
 
@@ -5,10 +5,21 @@
 //
 package org.dogtagpki.server.ca.job;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.dogtagpki.server.ca.CAEngine;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -25,11 +36,22 @@ import com.netscape.cmscore.dbs.CertificateRepository;
 import com.netscape.cmscore.dbs.Repository.IDGenerator;
 import com.netscape.cmscore.jobs.JobConfig;
 import com.netscape.cmscore.jobs.JobsScheduler;
-import com.netscape.cmscore.request.Request;
 import com.netscape.cmscore.request.RequestRecord;
 import com.netscape.cmscore.request.RequestRepository;
+import com.netscape.cmscore.util.StatsSubsystem;
 
 /**
+ * A job that removes expired certificates and incomplete requests.
+ *
+ * The records are retrieved in pages sorted by ID (the search size
+ * limit is the page size) and removed by a pool of worker threads,
+ * each using its own connection from the internal database pool.
+ * After each page the job records the ID of the next record as a
+ * checkpoint. The checkpoints are stored in the job configuration at
+ * the end of the run, so a run stopped by its time or record limit
+ * resumes from there. The checkpoint is removed once all records have
+ * been processed.
+ *
  * @author Endi S. Dewata
  */
 public class PruningJob extends Job implements IExtendedPluginInfo {
@@ -44,9 +66,37 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
     int requestSearchSizeLimit;
     int requestSearchTimeLimit;
 
+    int threads;
+    int maxRate; // records per second
+    int maxRecords; // records per run
+    int maxTime; // seconds per run
+
     CertificateRepository certRepository;
     RequestRepository requestRepository;
 
+    ExecutorService executor;
+
+    // deadlines of the current run
+    long nextRecordTime; // nanoseconds
+    long endTime; // nanoseconds
+    int remainingRecords;
+
+    // records searched but not yet removed
+    AtomicInteger backlog = new AtomicInteger();
+
+    LongAdder runs = new LongAdder();
+    LongAdder certsPruned = new LongAdder();
+    LongAdder certsFailed = new LongAdder();
+    LongAdder requestsPruned = new LongAdder();
+    LongAdder requestsFailed = new LongAdder();
+    LongAdder pages = new LongAdder();
+
+    // checkpoints changed in the current run
+    boolean checkpointsModified;
+
+    volatile long lastRunRecords;
+    volatile long lastRunTime; // milliseconds
+
     @Override
     public String[] getConfigParams() {
         return new String[] {
@@ -59,7 +109,11 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
                 "requestRetentionTime",
                 "requestRetentionUnit",
                 "requestSearchSizeLimit",
-                "requestSearchTimeLimit"
+                "requestSearchTimeLimit",
+                "threads",
+                "maxRate",
+                "maxRecords",
+                "maxTime"
         };
     }
 
@@ -74,12 +128,16 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
                 "enabled;boolean;Enable this plugin",
                 "certRetentionTime;integer;Certificate retention time (default: 30)",
                 "certRetentionUnit;integer;Certificate retention unit: year, month, day (default), hour, minute",
-                "certSearchSizeLimit;integer;Certificate search size limit (default: 1000)",
+                "certSearchSizeLimit;integer;Certificate search page size (default: 1000)",
                 "certSearchTimeLimit;integer;Certificate search time limit in seconds (default: 0)",
                 "requestRetentionTime;integer;Request retention time (default: 30)",
                 "requestRetentionUnit;integer;Request retention unit: year, month, day (default), hour, minute",
-                "requestSearchSizeLimit;integer;Request search size limit (default: 1000)",
+                "requestSearchSizeLimit;integer;Request search page size (default: 1000)",
                 "requestSearchTimeLimit;integer;Request search time limit in seconds (default: 0)",
+                "threads;integer;Number of threads removing records (default: 1)",
+                "maxRate;integer;Maximum records removed per second, 0 for unlimited (default: 0)",
+                "maxRecords;integer;Maximum records removed per run, 0 for unlimited (default: 0)",
+                "maxTime;integer;Maximum time per run in seconds, 0 for unlimited (default: 0)",
                 IExtendedPluginInfo.HELP_TOKEN + ";configuration-jobrules-pruningjobs",
         };
     }
@@ -144,6 +202,113 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
         // default LDAPSearchConstraints.serverTimeLimit is 0
         requestSearchTimeLimit = config.getInteger("requestSearchTimeLimit", 0);
         logger.info("PruningJob: - request search time limit: " + requestSearchTimeLimit);
+
+        threads = Math.max(1, config.getInteger("threads", 1));
+        logger.info("PruningJob: - threads: " + threads);
+
+        maxRate = config.getInteger("maxRate", 0);
+        logger.info("PruningJob: - max rate: " + maxRate);
+
+        maxRecords = config.getInteger("maxRecords", 0);
+        logger.info("PruningJob: - max records: " + maxRecords);
+
+        maxTime = config.getInteger("maxTime", 0);
+        logger.info("PruningJob: - max time: " + maxTime);
+
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.addSource("jobs." + id, this::getStats);
+        }
+    }
+
+    BigInteger getCheckpoint(String name) throws EBaseException {
+        String value = mConfig.getString(name, "");
+        return value.isEmpty() ? null : new BigInteger(value, 16);
+    }
+
+    void setCheckpoint(String name, BigInteger id) throws EBaseException {
+
+        String value = id == null ? "" : id.toString(16);
+        if (value.equals(mConfig.getString(name, ""))) {
+            return;
+        }
+
+        mConfig.putString(name, value);
+        checkpointsModified = true;
+    }
+
+    /**
+     * Stores the checkpoints of the current run in the configuration.
+     */
+    void storeCheckpoints() {
+
+        if (!checkpointsModified) {
+            return;
+        }
+
+        try {
+            engine.getConfig().commit(false);
+            checkpointsModified = false;
+        } catch (EBaseException e) {
+            logger.warn("PruningJob: Unable to store checkpoints: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns false if the run has reached its time or record limit.
+     */
+    boolean canContinue() {
+
+        if (maxRecords > 0 && remainingRecords <= 0) {
+            return false;
+        }
+
+        return endTime == 0 || System.nanoTime() - endTime < 0;
+    }
+
+    /**
+     * Submits a removal task, waiting first if necessary to stay
+     * within the maximum rate.
+     */
+    Future<Boolean> submit(Callable<Boolean> task) throws InterruptedException {
+
+        if (maxRate > 0) {
+            long now = System.nanoTime();
+            long delay = nextRecordTime - now;
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } else {
+                nextRecordTime = now;
+            }
+            nextRecordTime += TimeUnit.SECONDS.toNanos(1) / maxRate;
+        }
+
+        remainingRecords--;
+        backlog.incrementAndGet();
+
+        return executor.submit(() -> {
+            try {
+                return task.call();
+            } finally {
+                backlog.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Waits for the removal tasks of a page to complete.
+     */
+    void await(List<Future<Boolean>> futures) throws InterruptedException {
+        for (Future<Boolean> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // the tasks handle their own errors
+                logger.warn("PruningJob: " + e.getMessage(), e);
+            }
+        }
+        futures.clear();
+        pages.increment();
     }
 
     public void pruneCertRecord(CertRecord certRecord) throws Exception {
@@ -185,21 +350,73 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
         String filter = "(&(x509Cert.notAfter<=" + time + ")(!(x509Cert.notAfter=" + time + ")))";
         logger.info("PruningJob: - filter: " + filter);
 
-        Enumeration<CertRecord> certRecords = certRepository.searchCertificates(
-                filter, certSearchSizeLimit, certSearchTimeLimit);
+        BigInteger from = getCheckpoint("certCheckpoint");
+        if (from != null) {
+            logger.info("PruningJob: - resuming from: 0x" + from.toString(16));
+        }
 
-        while (certRecords.hasMoreElements()) {
-            CertRecord certRecord = certRecords.nextElement();
+        List<Future<Boolean>> futures = new ArrayList<>();
 
-            CertId certID = new CertId(certRecord.getSerialNumber());
-            logger.info("PruningJob: Pruning cert " + certID.toHexString());
-            logger.info("PruningJob: - expired: " + certRecord.getNotAfter());
+        try {
+            while (canContinue()) {
 
-            try {
-                pruneCertRecord(certRecord);
-            } catch (Exception e) {
-                logger.warn("Unable to prune cert " + certID.toHexString() + ": " + e.getMessage(), e);
+                List<CertRecord> certRecords = certRepository.searchCertificatesFrom(
+                        filter, certSearchTimeLimit, from, certSearchSizeLimit);
+
+                if (certRecords.isEmpty()) {
+                    // all expired certs have been processed
+                    from = null;
+                    break;
+                }
+
+                for (CertRecord certRecord : certRecords) {
+
+                    if (!canContinue()) {
+                        break;
+                    }
+
+                    CertId certID = new CertId(certRecord.getSerialNumber());
+                    from = certRecord.getSerialNumber().add(BigInteger.ONE);
+
+                    futures.add(submit(() -> {
+                        logger.info("PruningJob: Pruning cert " + certID.toHexString());
+                        logger.info("PruningJob: - expired: " + certRecord.getNotAfter());
+
+                        try {
+                            pruneCertRecord(certRecord);
+                            certsPruned.increment();
+                            return true;
+
+                        } catch (Exception e) {
+                            logger.warn("Unable to prune cert " + certID.toHexString() + ": " + e.getMessage(), e);
+                            certsFailed.increment();
+                            return false;
+                        }
+                    }));
+                }
+
+                await(futures);
+
+                if (certRecords.size() < certSearchSizeLimit && canContinue()) {
+                    // all expired certs have been processed
+                    from = null;
+                    break;
+                }
+
+                setCheckpoint("certCheckpoint", from);
             }
+
+        } catch (InterruptedException e) {
+            logger.warn("PruningJob: Pruning certs interrupted");
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (from == null) {
+            logger.info("PruningJob: All expired certs have been processed");
+            setCheckpoint("certCheckpoint", null);
+        } else {
+            logger.info("PruningJob: Next run will resume from cert 0x" + from.toString(16));
         }
     }
 
@@ -219,21 +436,74 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
                 "(!(" + RequestRecord.ATTR_MODIFY_TIME + "=" + time + ")))";
         logger.info("PruningJob: - filter: " + filter);
 
-        Collection<RequestRecord> records = requestRepository.listRequestsByFilter(
-                filter, requestSearchSizeLimit, requestSearchTimeLimit);
+        BigInteger from = getCheckpoint("requestCheckpoint");
+        if (from != null) {
+            logger.info("PruningJob: - resuming from: 0x" + from.toString(16));
+        }
 
-        for (RequestRecord record : records) {
-            Request request = record.toRequest();
-            RequestId requestID = request.getRequestId();
-            logger.info("PruningJob: Pruning request " + requestID.toHexString());
-            logger.info("PruningJob: - status: " + request.getRequestStatus());
-            logger.info("PruningJob: - last modified: " + request.getModificationTime());
+        List<Future<Boolean>> futures = new ArrayList<>();
 
-            try {
-                requestRepository.removeRequest(requestID);
-            } catch (EBaseException e) {
-                logger.warn("Unable to prune cert " + requestID.toHexString() + ": " + e.getMessage(), e);
+        try {
+            while (canContinue()) {
+
+                List<RequestRecord> requestRecords = requestRepository.searchRequestsFrom(
+                        filter, requestSearchTimeLimit, from, requestSearchSizeLimit);
+
+                if (requestRecords.isEmpty()) {
+                    // all incomplete requests have been processed
+                    from = null;
+                    break;
+                }
+
+                for (RequestRecord requestRecord : requestRecords) {
+
+                    if (!canContinue()) {
+                        break;
+                    }
+
+                    RequestId requestID = requestRecord.getRequestId();
+                    from = requestID.toBigInteger().add(BigInteger.ONE);
+
+                    futures.add(submit(() -> {
+                        logger.info("PruningJob: Pruning request " + requestID.toHexString());
+                        logger.info("PruningJob: - status: " + requestRecord.get(RequestRecord.ATTR_REQUEST_STATE));
+                        logger.info("PruningJob: - last modified: " + requestRecord.get(RequestRecord.ATTR_MODIFY_TIME));
+
+                        try {
+                            requestRepository.removeRequest(requestID);
+                            requestsPruned.increment();
+                            return true;
+
+                        } catch (EBaseException e) {
+                            logger.warn("Unable to prune request " + requestID.toHexString() + ": " + e.getMessage(), e);
+                            requestsFailed.increment();
+                            return false;
+                        }
+                    }));
+                }
+
+                await(futures);
+
+                if (requestRecords.size() < requestSearchSizeLimit && canContinue()) {
+                    // all incomplete requests have been processed
+                    from = null;
+                    break;
+                }
+
+                setCheckpoint("requestCheckpoint", from);
             }
+
+        } catch (InterruptedException e) {
+            logger.warn("PruningJob: Pruning requests interrupted");
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (from == null) {
+            logger.info("PruningJob: All incomplete requests have been processed");
+            setCheckpoint("requestCheckpoint", null);
+        } else {
+            logger.info("PruningJob: Next run will resume from request 0x" + from.toString(16));
         }
     }
 
@@ -257,16 +527,62 @@ public class PruningJob extends Job implements IExtendedPluginInfo {
             throw new RuntimeException(message);
         }
 
-        try {
-            pruneCertRecords(calendar);
-        } catch (EBaseException e) {
-            logger.warn("PruningJob: Unable to prune certificates: " + e.getMessage(), e);
-        }
+        long startTime = System.nanoTime();
+        long startRecords = certsPruned.sum() + requestsPruned.sum();
+
+        endTime = maxTime > 0 ? startTime + TimeUnit.SECONDS.toNanos(maxTime) : 0;
+        remainingRecords = maxRecords;
+        nextRecordTime = startTime;
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "PruningJob-" + mId + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
 
         try {
-            pruneRequestRecords(calendar);
-        } catch (EBaseException e) {
-            logger.warn("PruningJob: Unable to prune requests: " + e.getMessage(), e);
+            try {
+                pruneCertRecords(calendar);
+            } catch (EBaseException e) {
+                logger.warn("PruningJob: Unable to prune certificates: " + e.getMessage(), e);
+            }
+
+            try {
+                pruneRequestRecords(calendar);
+            } catch (EBaseException e) {
+                logger.warn("PruningJob: Unable to prune requests: " + e.getMessage(), e);
+            }
+
+        } finally {
+            executor.shutdownNow();
+            storeCheckpoints();
+            runs.increment();
+
+            lastRunRecords = certsPruned.sum() + requestsPruned.sum() - startRecords;
+            lastRunTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            logger.info("PruningJob: Removed " + lastRunRecords + " records in " + lastRunTime + " ms");
         }
     }
+
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("runs", runs.sum());
+        stats.put("backlog", (long) backlog.get());
+        stats.put("pages", pages.sum());
+        stats.put("certsPruned", certsPruned.sum());
+        stats.put("certsFailed", certsFailed.sum());
+        stats.put("requestsPruned", requestsPruned.sum());
+        stats.put("requestsFailed", requestsFailed.sum());
+        stats.put("lastRunRecords", lastRunRecords);
+        stats.put("lastRunTime", lastRunTime);
+
+        long time = lastRunTime;
+        stats.put("lastRunRate", time > 0 ? lastRunRecords * 1000 / time : 0);
+
+        return stats;
+    }
 }
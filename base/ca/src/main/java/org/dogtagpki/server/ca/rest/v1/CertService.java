@@ -19,6 +19,7 @@
 package org.dogtagpki.server.ca.rest.v1;
 
 import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.security.Principal;
 import java.security.PublicKey;
@@ -147,7 +148,8 @@ public class CertService extends PKIService implements CertResource {
     }
 
     @Override
-    public Response listCerts(String status, Integer maxResults, Integer maxTime, Integer start, Integer size) {
+    public Response listCerts(String status, Integer maxResults, Integer maxTime, Integer start, Integer size,
+            String cursor) {
 
         logger.info("Listing certificates");
 
@@ -159,6 +161,10 @@ public class CertService extends PKIService implements CertResource {
         String filter = createSearchFilter(status);
         logger.info("Search filter: " + filter);
 
+        if (cursor != null) {
+            return createOKResponse(listCerts(filter, maxTime, cursor, size));
+        }
+
         CertDataInfos infos = new CertDataInfos();
         try {
             Enumeration<CertRecord> e = repo.searchCertificates(filter, maxResults, maxTime);
@@ -191,7 +197,7 @@ public class CertService extends PKIService implements CertResource {
     }
 
     @Override
-    public Response searchCerts(String searchRequest, Integer start, Integer size) {
+    public Response searchCerts(String searchRequest, Integer start, Integer size, String cursor) {
 
         logger.info("Searching for certificates");
 
@@ -207,6 +213,10 @@ public class CertService extends PKIService implements CertResource {
         String filter = createSearchFilter(data);
         logger.info("Search filter: " + filter);
 
+        if (cursor != null) {
+            return createOKResponse(listCerts(filter, DEFAULT_MAXTIME, cursor, size));
+        }
+
         CertDataInfos infos = new CertDataInfos();
         try {
             CertRecordList list = repo.findCertRecordsInList(filter, null, "serialno", size);
@@ -234,6 +244,53 @@ public class CertService extends PKIService implements CertResource {
         return createOKResponse(infos);
     }
 
+    /**
+     * Returns the page of certificates that starts at the cursor and the
+     * cursor of the next page. The page is retrieved with a range filter
+     * on the serial number, so the cost does not depend on the position
+     * of the page.
+     */
+    CertDataInfos listCerts(String filter, int maxTime, String cursor, int size) {
+
+        BigInteger from;
+        try {
+            from = CertificateRepository.parseCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+
+        if (size < 1) {
+            throw new BadRequestException("Invalid page size: " + size);
+        }
+
+        if (size > MAX_SIZE) {
+            logger.info("Limiting page size to " + MAX_SIZE);
+            size = MAX_SIZE;
+        }
+
+        CertDataInfos infos = new CertDataInfos();
+        try {
+            // get one more record to find the start of the next page
+            List<CertRecord> records = repo.searchCertificatesFrom(filter, maxTime, from, size + 1);
+
+            if (records.size() > size) {
+                infos.setNext(CertificateRepository.createCursor(records.get(size).getSerialNumber()));
+                records = records.subList(0, size);
+            }
+
+            logger.info("Search results: " + records.size());
+
+            for (CertRecord record : records) {
+                infos.addEntry(createCertDataInfo(record));
+            }
+        } catch (Exception e) {
+            logger.error("Unable to list certificates: " + e.getMessage(), e);
+            throw new PKIException("Unable to list certificates: " + e.getMessage(), e);
+        }
+
+        return infos;
+    }
+
     CertData getCert(CertRetrievalRequest data, boolean generateNonce) throws Exception {
 
         CAEngine engine = CAEngine.getInstance();
@@ -8,6 +8,7 @@ package org.dogtagpki.server.ca.rest.v2;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
+import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.security.Principal;
 import java.security.PublicKey;
@@ -79,6 +80,13 @@ public class CertServlet extends CAServlet {
         int start = request.getParameter("start") == null ? 0 : Integer.parseInt(request.getParameter("start"));
 
         CertSearchRequest searchElems = CertSearchRequest.fromMap(request.getParameterMap());
+
+        String cursor = request.getParameter("cursor");
+        if (cursor != null) {
+            writeCerts(searchElems, maxTime, cursor, size, response.getWriter());
+            return;
+        }
+
         CertDataInfos infos = listCerts(searchElems, maxTime, start, size);
         PrintWriter out = response.getWriter();
         out.println(infos.toJSON());
@@ -120,6 +128,12 @@ public class CertServlet extends CAServlet {
                 DEFAULT_SIZE : Integer.parseInt(request.getParameter("size"));
         int start = request.getParameter("start") == null ? 0 : Integer.parseInt(request.getParameter("start"));
 
+        String cursor = request.getParameter("cursor");
+        if (cursor != null) {
+            writeCerts(requestFilter, -1, cursor, size, response.getWriter());
+            return;
+        }
+
         CertDataInfos infos = listCerts(requestFilter, start, size);
 
         PrintWriter out = response.getWriter();
@@ -232,6 +246,73 @@ public class CertServlet extends CAServlet {
         return infos;
     }
 
+    /**
+     * Writes the page of certificates that starts at the cursor. The page
+     * is retrieved with a range filter on the serial number, so the cost
+     * does not depend on the position of the page, and the entries are
+     * written as they are converted instead of building the response in
+     * memory. The response contains the cursor of the next page if there
+     * are more entries.
+     */
+    private void writeCerts(CertSearchRequest searchReq, int maxTime, String cursor, int size, PrintWriter out) {
+        CAEngine engine = getCAEngine();
+        CertificateRepository repo = engine.getCertificateRepository();
+
+        BigInteger from;
+        try {
+            from = CertificateRepository.parseCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+
+        if (size < 1) {
+            throw new BadRequestException("Invalid page size: " + size);
+        }
+
+        if (size > MAX_SIZE) {
+            logger.info("Limiting page size to {}", MAX_SIZE);
+            size = MAX_SIZE;
+        }
+
+        logger.info("Listing certificates from cursor {}", cursor);
+        FilterBuilder builder = new FilterBuilder(searchReq);
+        String filter = builder.buildFilter();
+
+        logger.info("Search filter: {}", filter);
+
+        try {
+            // get one more record to find the start of the next page
+            List<CertRecord> records = repo.searchCertificatesFrom(filter, maxTime, from, size + 1);
+
+            String next = null;
+            if (records.size() > size) {
+                next = CertificateRepository.createCursor(records.get(size).getSerialNumber());
+                records = records.subList(0, size);
+            }
+
+            logger.info("Search results: {}", records.size());
+
+            out.print("{\"entries\":[");
+            boolean first = true;
+            for (CertRecord record : records) {
+                if (!first) out.print(",");
+                out.print(createCertDataInfo(record).toJSON());
+                first = false;
+            }
+            out.print("]");
+
+            if (next != null) {
+                // cursors only contain URL-safe Base64 characters
+                out.print(",\"next\":\"" + next + "\"");
+            }
+            out.println("}");
+
+        } catch (Exception e) {
+            logger.error("Unable to list certificates: " + e.getMessage(), e);
+            throw new PKIException("Unable to list certificates: " + e.getMessage(), e);
+        }
+    }
+
     private CertDataInfo createCertDataInfo(CertRecord certRecord) throws EBaseException, InvalidKeyException {
         CertDataInfo info = new CertDataInfo();
 
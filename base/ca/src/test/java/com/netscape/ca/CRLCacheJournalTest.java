@@ -0,0 +1,177 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Hashtable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.InvalidityDateExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+public class CRLCacheJournalTest {
+
+    @TempDir
+    Path dir;
+
+    static RevokedCertImpl createEntry(long serialNumber, RevocationReason reason) throws IOException {
+
+        CRLExtensions exts = null;
+        if (reason != null) {
+            exts = new CRLExtensions();
+            exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(reason));
+        }
+
+        return new RevokedCertImpl(BigInteger.valueOf(serialNumber), new Date(serialNumber * 1000), exts);
+    }
+
+    static Hashtable<BigInteger, RevokedCertificate> createEntries(int size) throws IOException {
+        Hashtable<BigInteger, RevokedCertificate> entries = new Hashtable<>();
+        for (int i = 1; i <= size; i++) {
+            entries.put(BigInteger.valueOf(i), createEntry(i, i % 2 == 0 ? RevocationReason.KEY_COMPROMISE : null));
+        }
+        return entries;
+    }
+
+    static void assertEntries(
+            Hashtable<BigInteger, RevokedCertificate> expected,
+            Hashtable<BigInteger, RevokedCertificate> actual) throws Exception {
+
+        assertEquals(expected.size(), actual.size());
+
+        for (BigInteger serialNumber : expected.keySet()) {
+            RevokedCertificate entry = actual.get(serialNumber);
+            assertEquals(expected.get(serialNumber).toString(), entry.toString());
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = createEntries(100);
+
+        // entry with multiple extensions
+        CRLExtensions exts = new CRLExtensions();
+        exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(RevocationReason.CA_COMPROMISE));
+        exts.set(InvalidityDateExtension.NAME, new InvalidityDateExtension(new Date(1000)));
+        entries.put(BigInteger.valueOf(1000), new RevokedCertImpl(BigInteger.valueOf(1000), new Date(), exts));
+
+        Date thisUpdate = new Date();
+
+        CRLCacheJournal journal = new CRLCacheJournal(dir, "MasterCRL");
+        assertNull(journal.load());
+
+        journal.commit(BigInteger.ONE, thisUpdate, null, entries);
+
+        CRLCacheJournal.Cache cache = new CRLCacheJournal(dir, "MasterCRL").load();
+
+        assertEquals(BigInteger.ONE, cache.crlNumber());
+        assertEquals(thisUpdate, cache.thisUpdate());
+        assertNull(cache.nextUpdate());
+        assertEntries(entries, cache.entries());
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = createEntries(100);
+
+        CRLCacheJournal journal = new CRLCacheJournal(dir, "MasterCRL");
+        journal.commit(BigInteger.ONE, new Date(), null, entries);
+        long snapshotSize = Files.size(journal.getSnapshotFile());
+
+        // remove an entry, add an entry, and replace an entry
+        entries.remove(BigInteger.valueOf(10));
+        journal.remove(BigInteger.valueOf(10));
+
+        RevokedCertImpl entry = createEntry(200, RevocationReason.SUPERSEDED);
+        entries.put(entry.getSerialNumber(), entry);
+        journal.add(entry.getSerialNumber(), entry);
+
+        entry = createEntry(20, RevocationReason.CESSATION_OF_OPERATION);
+        entries.put(entry.getSerialNumber(), entry);
+        journal.add(entry.getSerialNumber(), entry);
+
+        Date thisUpdate = new Date();
+        Date nextUpdate = new Date(thisUpdate.getTime() + 60000);
+        journal.commit(BigInteger.TWO, thisUpdate, nextUpdate, entries);
+
+        // the changes are appended to the journal
+        assertEquals(snapshotSize, Files.size(journal.getSnapshotFile()));
+
+        CRLCacheJournal.Cache cache = new CRLCacheJournal(dir, "MasterCRL").load();
+
+        assertEquals(BigInteger.TWO, cache.crlNumber());
+        assertEquals(thisUpdate, cache.thisUpdate());
+        assertEquals(nextUpdate, cache.nextUpdate());
+        assertEntries(entries, cache.entries());
+    }
+
+    @Test
+    public void testIncompleteJournal() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = createEntries(10);
+
+        CRLCacheJournal journal = new CRLCacheJournal(dir, "MasterCRL");
+        journal.commit(BigInteger.ONE, new Date(), null, entries);
+
+        journal.remove(BigInteger.valueOf(1));
+        journal.commit(BigInteger.TWO, new Date(), null, entries);
+
+        // uncommitted record
+        Files.write(journal.getJournalFile(),
+                new byte[] { CRLCacheJournal.REMOVE, 0, 1, 2 },
+                StandardOpenOption.APPEND);
+
+        journal = new CRLCacheJournal(dir, "MasterCRL");
+        CRLCacheJournal.Cache cache = journal.load();
+
+        assertEquals(BigInteger.TWO, cache.crlNumber());
+        assertEquals(9, cache.entries().size());
+        assertTrue(cache.entries().containsKey(BigInteger.valueOf(2)));
+
+        // the next commit replaces the incomplete journal with a snapshot
+        journal.commit(BigInteger.valueOf(3), new Date(), null, cache.entries());
+
+        cache = new CRLCacheJournal(dir, "MasterCRL").load();
+        assertEquals(BigInteger.valueOf(3), cache.crlNumber());
+        assertEquals(9, cache.entries().size());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = createEntries(10);
+
+        CRLCacheJournal journal = new CRLCacheJournal(dir, "MasterCRL");
+        journal.commit(BigInteger.ONE, new Date(), null, entries);
+
+        // rebuilt CRL cache
+        journal.remove(BigInteger.valueOf(1));
+        journal.reset();
+        entries = createEntries(5);
+
+        journal.commit(BigInteger.TWO, new Date(), null, entries);
+
+        CRLCacheJournal.Cache cache = new CRLCacheJournal(dir, "MasterCRL").load();
+        assertEquals(BigInteger.TWO, cache.crlNumber());
+        assertEntries(entries, cache.entries());
+    }
+}
@@ -0,0 +1,278 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPoint;
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPointsExtension;
+import org.mozilla.jss.netscape.security.x509.CertificateExtensions;
+import org.mozilla.jss.netscape.security.x509.GeneralNameInterface;
+import org.mozilla.jss.netscape.security.x509.GeneralNames;
+import org.mozilla.jss.netscape.security.x509.PKIXExtensions;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.URIName;
+import org.mozilla.jss.netscape.security.x509.X509CertInfo;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.SimpleProperties;
+
+public class CRLPartitionsTest {
+
+    static final String ID = "PartitionedCRL";
+
+    static final String URI = "http://pki.example.com/ca/ee/ca/getCRL?crlIssuingPoint=";
+
+    /**
+     * Issuing point covering a serial number range without a CRL repository.
+     */
+    static class CRLIssuingPointStub extends CRLIssuingPoint {
+
+        CRLIssuingPointStub(String id, String partitionOf, long begin, long end) {
+            mId = id;
+            mPartitionOf = partitionOf;
+            mBeginSerial = BigInteger.valueOf(begin);
+            mEndSerial = BigInteger.valueOf(end);
+
+            // keep the revoked certs in the cache instead of storing them
+            mCacheUpdateInterval = 60000;
+        }
+    }
+
+    CRLConfig createCRLConfig(int partitions, String begin, String end) {
+
+        CRLConfig crlConfig = new CRLConfig("ca.crl", new SimpleProperties());
+
+        CRLIssuingPointConfig ipConfig = crlConfig.makeSubStore(ID, CRLIssuingPointConfig.class);
+        ipConfig.putString("class", "com.netscape.ca.CRLIssuingPoint");
+        ipConfig.putString("extension.IssuingDistributionPoint.pointName", URI + CRLPartitions.PARTITION);
+        ipConfig.setPartitions(partitions);
+
+        if (begin != null) {
+            ipConfig.putString("crlBeginSerialNo", begin);
+        }
+
+        if (end != null) {
+            ipConfig.putString("crlEndSerialNo", end);
+        }
+
+        return crlConfig;
+    }
+
+    X509CertInfo createCertInfo(String... uris) throws Exception {
+
+        CRLDistributionPointsExtension ext = null;
+
+        for (String uri : uris) {
+            GeneralNames names = new GeneralNames();
+            names.addElement(new URIName(uri));
+
+            CRLDistributionPoint cdp = new CRLDistributionPoint();
+            cdp.setFullName(names);
+
+            if (ext == null) {
+                ext = new CRLDistributionPointsExtension(cdp);
+            } else {
+                ext.addPoint(cdp);
+            }
+        }
+
+        CertificateExtensions exts = new CertificateExtensions();
+        exts.set(PKIXExtensions.CRLDistributionPoints_Id.toString(), ext);
+
+        X509CertInfo info = new X509CertInfo();
+        info.set(X509CertInfo.EXTENSIONS, exts);
+        return info;
+    }
+
+    List<String> getURIs(X509CertInfo info) throws Exception {
+
+        CertificateExtensions exts = (CertificateExtensions) info.get(X509CertInfo.EXTENSIONS);
+        CRLDistributionPointsExtension ext = (CRLDistributionPointsExtension)
+                exts.get(PKIXExtensions.CRLDistributionPoints_Id.toString());
+
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < ext.getNumPoints(); i++) {
+            for (GeneralNameInterface name : ext.getPointAt(i).getFullName()) {
+                uris.add(CRLPartitions.getURI(name));
+            }
+        }
+        return uris;
+    }
+
+    List<CRLIssuingPoint> createPartitionIssuingPoints() {
+        List<CRLIssuingPoint> issuingPoints = new ArrayList<>();
+        issuingPoints.add(new CRLIssuingPointStub("MasterCRL", null, 0, Long.MAX_VALUE));
+        issuingPoints.add(new CRLIssuingPointStub(CRLPartitions.getPartitionID(ID, 0), ID, 1, 50));
+        issuingPoints.add(new CRLIssuingPointStub(CRLPartitions.getPartitionID(ID, 1), ID, 51, 100));
+        return issuingPoints;
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+
+        List<CRLPartitions.Range> ranges = CRLPartitions.split(BigInteger.ONE, BigInteger.valueOf(10), 3);
+
+        assertEquals(3, ranges.size());
+        assertEquals(new CRLPartitions.Range(BigInteger.valueOf(1), BigInteger.valueOf(3)), ranges.get(0));
+        assertEquals(new CRLPartitions.Range(BigInteger.valueOf(4), BigInteger.valueOf(6)), ranges.get(1));
+
+        // the last partition absorbs the remainder
+        assertEquals(new CRLPartitions.Range(BigInteger.valueOf(7), BigInteger.valueOf(10)), ranges.get(2));
+    }
+
+    @Test
+    public void testSplitFullRange() throws Exception {
+
+        List<CRLPartitions.Range> ranges = CRLPartitions.split(BigInteger.ZERO, CRLPartitions.MAX_SERIAL_NUMBER, 16);
+
+        assertEquals(16, ranges.size());
+        assertEquals(BigInteger.ZERO, ranges.get(0).begin());
+        assertEquals(CRLPartitions.MAX_SERIAL_NUMBER, ranges.get(15).end());
+
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).end().add(BigInteger.ONE), ranges.get(i).begin());
+        }
+    }
+
+    @Test
+    public void testSplitTooSmall() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                () -> CRLPartitions.split(BigInteger.ONE, BigInteger.TWO, 3));
+    }
+
+    @Test
+    public void testCreatePartitions() throws Exception {
+
+        CRLConfig crlConfig = createCRLConfig(3, "1", "0x64");
+
+        assertTrue(CRLPartitions.createPartitions(crlConfig, ID));
+
+        String[] begins = { "1", "34", "67" };
+        String[] ends = { "33", "66", "100" };
+
+        for (int i = 0; i < 3; i++) {
+            String partitionID = CRLPartitions.getPartitionID(ID, i);
+            CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(partitionID);
+
+            assertEquals(ID, ipConfig.getPartitionOf());
+            assertEquals(new BigInteger(begins[i]), ipConfig.getCRLBeginSerialNo());
+            assertEquals(new BigInteger(ends[i]), ipConfig.getCRLEndSerialNo());
+            assertEquals(0, ipConfig.getPartitions());
+            assertEquals("com.netscape.ca.CRLIssuingPoint", ipConfig.getClassName());
+
+            // each partition publishes a distinct CRL
+            assertEquals(URI + partitionID, ipConfig.getString("extension.IssuingDistributionPoint.pointName"));
+        }
+
+        // the existing partitions are kept on the next startup
+        assertFalse(CRLPartitions.createPartitions(crlConfig, ID));
+    }
+
+    @Test
+    public void testCreatePartitionsWithoutRange() throws Exception {
+
+        assertThrows(EBaseException.class,
+                () -> CRLPartitions.createPartitions(createCRLConfig(4, null, null), ID));
+
+        assertThrows(EBaseException.class,
+                () -> CRLPartitions.createPartitions(createCRLConfig(4, "1", null), ID));
+    }
+
+    @Test
+    public void testCreatePartitionsChanged() throws Exception {
+
+        CRLConfig crlConfig = createCRLConfig(3, "1", "100");
+        CRLPartitions.createPartitions(crlConfig, ID);
+
+        CRLIssuingPointConfig ipConfig = crlConfig.getCRLIssuingPointConfig(ID);
+
+        // fewer partitions would leave an orphaned partition
+        ipConfig.setPartitions(2);
+        assertThrows(EBaseException.class, () -> CRLPartitions.createPartitions(crlConfig, ID));
+
+        // more partitions would overlap the existing ones
+        ipConfig.setPartitions(4);
+        assertThrows(EBaseException.class, () -> CRLPartitions.createPartitions(crlConfig, ID));
+
+        // a different range would move serial numbers between partitions
+        ipConfig.setPartitions(3);
+        ipConfig.putString("crlEndSerialNo", "200");
+        assertThrows(EBaseException.class, () -> CRLPartitions.createPartitions(crlConfig, ID));
+
+        // the existing partitions are not modified
+        assertNull(crlConfig.getCRLIssuingPointConfig(CRLPartitions.getPartitionID(ID, 3)).getPartitionOf());
+        assertEquals(BigInteger.valueOf(100),
+                crlConfig.getCRLIssuingPointConfig(CRLPartitions.getPartitionID(ID, 2)).getCRLEndSerialNo());
+    }
+
+    @Test
+    public void testCreatePartitionsMasterCRL() throws Exception {
+
+        CRLConfig crlConfig = createCRLConfig(2, "1", "100");
+        crlConfig.makeSubStore(CertificateAuthority.PROP_MASTER_CRL, CRLIssuingPointConfig.class).setPartitions(2);
+
+        assertThrows(EBaseException.class,
+                () -> CRLPartitions.createPartitions(crlConfig, CertificateAuthority.PROP_MASTER_CRL));
+    }
+
+    @Test
+    public void testResolveDistributionPoints() throws Exception {
+
+        List<CRLIssuingPoint> issuingPoints = createPartitionIssuingPoints();
+        String otherURI = "http://crl.example.com/ca.crl";
+
+        X509CertInfo info = createCertInfo(URI + CRLPartitions.getPlaceholder(ID), otherURI);
+        CRLPartitions.resolveDistributionPoints(info, BigInteger.valueOf(75), issuingPoints);
+
+        // only the placeholder is replaced
+        assertEquals(List.of(URI + CRLPartitions.getPartitionID(ID, 1), otherURI), getURIs(info));
+
+        info = createCertInfo(URI + CRLPartitions.getPlaceholder(ID));
+        CRLPartitions.resolveDistributionPoints(info, BigInteger.valueOf(50), issuingPoints);
+
+        assertEquals(List.of(URI + CRLPartitions.getPartitionID(ID, 0)), getURIs(info));
+    }
+
+    @Test
+    public void testResolveDistributionPointsOutOfRange() throws Exception {
+
+        X509CertInfo info = createCertInfo(URI + CRLPartitions.getPlaceholder(ID));
+
+        assertThrows(EBaseException.class,
+                () -> CRLPartitions.resolveDistributionPoints(info, BigInteger.valueOf(101), createPartitionIssuingPoints()));
+    }
+
+    @Test
+    public void testAddRevokedCert() throws Exception {
+
+        List<CRLIssuingPoint> issuingPoints = createPartitionIssuingPoints();
+
+        for (long serialNumber : new long[] { 1, 50, 51, 100 }) {
+            BigInteger serialNo = BigInteger.valueOf(serialNumber);
+            RevokedCertImpl revokedCert = new RevokedCertImpl(serialNo, new Date());
+
+            for (CRLIssuingPoint ip : issuingPoints) {
+                ip.addRevokedCert(serialNo, revokedCert);
+            }
+        }
+
+        // each partition only keeps the certs in its range
+        assertEquals(4, issuingPoints.get(0).getNumberOfRecentlyRevokedCerts());
+        assertEquals(2, issuingPoints.get(1).getNumberOfRecentlyRevokedCerts());
+        assertEquals(2, issuingPoints.get(2).getNumberOfRecentlyRevokedCerts());
+    }
+}
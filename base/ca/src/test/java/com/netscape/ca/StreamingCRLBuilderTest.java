@@ -0,0 +1,182 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLNumberExtension;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+
+import com.netscape.certsrv.security.SigningUnit;
+
+public class StreamingCRLBuilderTest {
+
+    static final String ALGORITHM = "SHA256withRSA";
+
+    static KeyPair keyPair;
+
+    /**
+     * Signs with a software key. RSA PKCS #1 v1.5 signatures are
+     * deterministic, so the same data always has the same signature.
+     */
+    static class SigningUnitStub extends SigningUnit {
+
+        @Override
+        public byte[] sign(DataSource data, String algname) throws Exception {
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            data.writeTo(out);
+
+            Signature signer = Signature.getInstance(algname);
+            signer.initSign(keyPair.getPrivate());
+            signer.update(out.toByteArray());
+            return signer.sign();
+        }
+
+        @Override
+        public byte[] sign(byte[] data, String algname) throws Exception {
+            return sign(out -> out.write(data), algname);
+        }
+
+        @Override
+        public boolean verify(byte[] data, byte[] signature, String algname) {
+            return false;
+        }
+
+        @Override
+        public void updateConfig(String nickname, String tokenname) {
+        }
+    }
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    Hashtable<BigInteger, RevokedCertificate> createEntries(int size, boolean entryExtensions) throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = new Hashtable<>();
+
+        for (int i = 1; i <= size; i++) {
+            BigInteger serialNumber = BigInteger.valueOf(i);
+
+            CRLExtensions exts = null;
+            if (entryExtensions && i % 2 == 0) {
+                exts = new CRLExtensions();
+                exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(RevocationReason.KEY_COMPROMISE));
+            }
+
+            entries.put(serialNumber, new RevokedCertImpl(serialNumber, new Date(i * 1000L), exts));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Encodes and signs the CRL the same way as CertificateAuthority.sign().
+     */
+    byte[] signCRL(X509CRLImpl crl, SigningUnit signingUnit) throws Exception {
+
+        try (DerOutputStream out = new DerOutputStream();
+                DerOutputStream tmp = new DerOutputStream()) {
+
+            crl.encodeInfo(tmp);
+            AlgorithmId.get(ALGORITHM).encode(tmp);
+
+            byte[] signature = signingUnit.sign(crl.getTBSCertList(), ALGORITHM);
+
+            tmp.putBitString(signature);
+            out.write(DerValue.tag_Sequence, tmp);
+
+            return out.toByteArray();
+        }
+    }
+
+    void assertSameEncoding(
+            Hashtable<BigInteger, RevokedCertificate> entries,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions) throws Exception {
+
+        SigningUnit signingUnit = new SigningUnitStub();
+        X500Name issuer = new X500Name("CN=Test CA");
+
+        X509CRLImpl crl = new X509CRLImpl(issuer, AlgorithmId.get(ALGORITHM),
+                thisUpdate, nextUpdate, entries, extensions);
+
+        byte[] expected = signCRL(crl, signingUnit);
+
+        try (StreamingCRLBuilder builder = new StreamingCRLBuilder(
+                issuer, ALGORITHM, thisUpdate, nextUpdate, extensions)) {
+
+            // add the entries in the order X509CRLImpl encodes them
+            Set<RevokedCertificate> revokedCerts = crl.getRevokedCertificates();
+            if (revokedCerts != null) {
+                for (RevokedCertificate entry : revokedCerts) {
+                    builder.add(entry);
+                }
+            }
+
+            assertEquals(entries.size(), builder.size());
+            assertArrayEquals(expected, builder.sign(signingUnit));
+        }
+    }
+
+    @Test
+    public void testEncoding() throws Exception {
+
+        Date thisUpdate = new Date(1700000000000L);
+        Date nextUpdate = new Date(1700003600000L);
+
+        assertSameEncoding(createEntries(1000, false), thisUpdate, nextUpdate, null);
+    }
+
+    @Test
+    public void testEncodingWithExtensions() throws Exception {
+
+        Date thisUpdate = new Date(1700000000000L);
+        Date nextUpdate = new Date(1700003600000L);
+
+        CRLExtensions extensions = new CRLExtensions();
+        extensions.set(CRLNumberExtension.NAME, new CRLNumberExtension(Boolean.FALSE, BigInteger.valueOf(42)));
+
+        // entry extensions require a v2 CRL
+        assertSameEncoding(createEntries(100, true), thisUpdate, nextUpdate, null);
+        assertSameEncoding(createEntries(100, true), thisUpdate, nextUpdate, extensions);
+    }
+
+    @Test
+    public void testEncodingWithoutEntries() throws Exception {
+
+        // dates from 2050 onwards are encoded as GeneralizedTime
+        Date thisUpdate = new Date(2524608000000L);
+
+        assertSameEncoding(new Hashtable<>(), thisUpdate, null, null);
+    }
+}
@@ -0,0 +1,187 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.ca.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.certsrv.request.RequestStatus;
+import com.netscape.cmscore.apps.DatabaseConfig;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmscore.dbs.DBSubsystem;
+import com.netscape.cmscore.jobs.JobConfig;
+import com.netscape.cmscore.request.RequestRecord;
+import com.netscape.cmscore.request.RequestRepository;
+
+public class PruningJobTest {
+
+    static class DBSubsystemStub extends DBSubsystem {
+
+        DatabaseConfig dbConfig = new DatabaseConfig("internaldb", new SimpleProperties());
+
+        @Override
+        public DatabaseConfig getDBConfigStore() {
+            return dbConfig;
+        }
+    }
+
+    /**
+     * Request repository that keeps the records sorted by ID in memory.
+     */
+    static class RequestRepositoryStub extends RequestRepository {
+
+        TreeMap<BigInteger, RequestRecord> records = new TreeMap<>();
+        List<BigInteger> searches = new ArrayList<>();
+        List<Integer> timeLimits = new ArrayList<>();
+
+        RequestRepositoryStub() {
+            super(null, new DBSubsystemStub(), null);
+        }
+
+        void addRequest(int id) {
+            RequestRecord record = new RequestRecord();
+            record.set(RequestRecord.ATTR_REQUEST_ID, new RequestId(id));
+            record.set(RequestRecord.ATTR_REQUEST_STATE, RequestStatus.PENDING);
+            record.set(RequestRecord.ATTR_MODIFY_TIME, new Date(0));
+            records.put(BigInteger.valueOf(id), record);
+        }
+
+        @Override
+        public synchronized List<RequestRecord> searchRequestsFrom(
+                String filter, int timeLimit, BigInteger from, int size) {
+
+            searches.add(from);
+            timeLimits.add(timeLimit);
+
+            List<RequestRecord> page = new ArrayList<>();
+            for (RequestRecord record : (from == null ? records : records.tailMap(from)).values()) {
+                if (page.size() >= size) {
+                    break;
+                }
+                page.add(record);
+            }
+            return page;
+        }
+
+        @Override
+        public synchronized void removeRequest(RequestId requestID) throws EBaseException {
+            records.remove(requestID.toBigInteger());
+        }
+    }
+
+    static class PruningJobStub extends PruningJob {
+        PruningJobStub(JobConfig config) {
+            mConfig = config;
+        }
+    }
+
+    RequestRepositoryStub requestRepository;
+    PruningJob job;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        requestRepository = new RequestRepositoryStub();
+        for (int i = 1; i <= 25; i++) {
+            requestRepository.addRequest(i);
+        }
+
+        job = new PruningJobStub(new JobConfig("jobsScheduler.job.pruning", new SimpleProperties()));
+        job.requestRepository = requestRepository;
+        job.requestRetentionTime = 30;
+        job.requestRetentionUnit = Calendar.DAY_OF_YEAR;
+        job.requestSearchSizeLimit = 10;
+        job.requestSearchTimeLimit = 15;
+        job.executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        job.executor.shutdownNow();
+    }
+
+    void startRun(int maxRecords) {
+        job.endTime = 0;
+        job.maxRecords = maxRecords;
+        job.remainingRecords = maxRecords;
+        job.nextRecordTime = System.nanoTime();
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+
+        startRun(0);
+        job.pruneRequestRecords(Calendar.getInstance());
+
+        assertTrue(requestRepository.records.isEmpty());
+        assertEquals(25L, job.requestsPruned.sum());
+
+        // each page resumes after the last request of the previous page
+        assertEquals(3, requestRepository.searches.size());
+        assertNull(requestRepository.searches.get(0));
+        assertEquals(BigInteger.valueOf(11), requestRepository.searches.get(1));
+        assertEquals(BigInteger.valueOf(21), requestRepository.searches.get(2));
+
+        // the search time limit is applied to every page
+        for (int timeLimit : requestRepository.timeLimits) {
+            assertEquals(15, timeLimit);
+        }
+
+        // the checkpoint is removed once all requests are processed
+        assertNull(job.getCheckpoint("requestCheckpoint"));
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+
+        // stop the first run in the middle of the second page
+        startRun(15);
+        job.pruneRequestRecords(Calendar.getInstance());
+
+        assertEquals(10, requestRepository.records.size());
+        assertEquals(BigInteger.valueOf(16), job.getCheckpoint("requestCheckpoint"));
+        assertTrue(job.checkpointsModified);
+
+        // the next run resumes from the checkpoint
+        requestRepository.searches.clear();
+
+        startRun(0);
+        job.pruneRequestRecords(Calendar.getInstance());
+
+        assertTrue(requestRepository.records.isEmpty());
+        assertEquals(BigInteger.valueOf(16), requestRepository.searches.get(0));
+        assertNull(job.getCheckpoint("requestCheckpoint"));
+    }
+
+    @Test
+    public void testCheckpointUnchanged() throws Exception {
+
+        // a run without records to prune does not modify the configuration
+        requestRepository.records.clear();
+
+        startRun(0);
+        job.pruneRequestRecords(Calendar.getInstance());
+
+        assertNull(job.getCheckpoint("requestCheckpoint"));
+        assertFalse(job.checkpointsModified);
+    }
+}
@@ -102,6 +102,19 @@ public class CACertClient extends Client {
         return post("search", params, entity, CertDataInfos.class);
     }
 
+    /**
+     * Finds certificates using a continuation token.
+     *
+     * @param cursor the next token from the previous page, or an empty string for the first page
+     */
+    public CertDataInfos findCertsByCursor(CertSearchRequest data, String cursor, Integer size) throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("cursor", cursor);
+        if (size != null) params.put("size", size);
+        HttpEntity entity = client.entity(data);
+        return post("search", params, entity, CertDataInfos.class);
+    }
+
     public CertRequestInfo revokeCert(CertId id, CertRevokeRequest request) throws Exception {
         return agentCertClient.revokeCert(id, request);
     }
@@ -19,6 +19,7 @@ package com.netscape.certsrv.cert;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Objects;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -44,6 +45,32 @@ import com.netscape.certsrv.util.JSONSerializer;
 @JsonIgnoreProperties(ignoreUnknown=true)
 public class CertDataInfos extends DataCollection<CertDataInfo> implements JSONSerializer {
 
+    /**
+     * Continuation token of the next page, or null if there are no more entries.
+     */
+    protected String next;
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), next);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj))
+            return false;
+        CertDataInfos other = (CertDataInfos) obj;
+        return Objects.equals(next, other.next);
+    }
+
     public Element toDOM(Document document) {
 
         Element infosElement = document.createElement("CertDataInfos");
@@ -58,6 +85,12 @@ public class CertDataInfos extends DataCollection<CertDataInfo> implements JSONS
             infosElement.appendChild(infoElement);
         }
 
+        if (next != null) {
+            Element nextElement = document.createElement("next");
+            nextElement.appendChild(document.createTextNode(next));
+            infosElement.appendChild(nextElement);
+        }
+
         return infosElement;
     }
 
@@ -94,6 +127,11 @@ public class CertDataInfos extends DataCollection<CertDataInfo> implements JSONS
             infos.setTotal(Integer.parseInt(value));
         }
 
+        NodeList nextList = infosElement.getElementsByTagName("next");
+        if (nextList.getLength() > 0) {
+            infos.setNext(nextList.item(0).getTextContent());
+        }
+
         NodeList infoList = infosElement.getElementsByTagName("CertDataInfo");
         int infoCount = infoList.getLength();
         for (int i=0; i<infoCount; i++) {
@@ -19,14 +19,16 @@ public interface CertResource {
             @QueryParam("maxResults") Integer maxResults,
             @QueryParam("maxTime") Integer maxTime,
             @QueryParam("start") Integer start,
-            @QueryParam("size") Integer size);
+            @QueryParam("size") Integer size,
+            @QueryParam("cursor") String cursor);
 
     @POST
     @Path("search")
     public Response searchCerts(
             String searchRequest,
             @QueryParam("start") Integer start,
-            @QueryParam("size") Integer size);
+            @QueryParam("size") Integer size,
+            @QueryParam("cursor") String cursor);
 
     @GET
     @Path("{id}")
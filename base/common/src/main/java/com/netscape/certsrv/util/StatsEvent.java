@@ -18,9 +18,11 @@
 package com.netscape.certsrv.util;
 
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A statistics transaction.
@@ -31,12 +33,12 @@ import java.util.Vector;
  */
 public class StatsEvent {
     private String mName = null;
-    private long mMin = -1;
-    private long mMax = -1;
-    private long mTimeTaken = 0;
-    private long mTimeTakenSqSum = 0;
-    private long mNoOfOperations = 0;
-    private Map<String,StatsEvent> mSubEvents = new HashMap<>();
+    private AtomicLong mMin = new AtomicLong(-1);
+    private AtomicLong mMax = new AtomicLong(-1);
+    private LongAdder mTimeTaken = new LongAdder();
+    private LongAdder mTimeTakenSqSum = new LongAdder();
+    private LongAdder mNoOfOperations = new LongAdder();
+    private Map<String,StatsEvent> mSubEvents = new ConcurrentHashMap<>();
     private StatsEvent mParent = null;
 
     public StatsEvent(StatsEvent parent) {
@@ -54,10 +56,29 @@ public class StatsEvent {
         return mName;
     }
 
+    public StatsEvent getParent() {
+        return mParent;
+    }
+
     public void addSubEvent(StatsEvent st) {
         mSubEvents.put(st.getName(), st);
     }
 
+    /**
+     * Retrieves a sub transaction, creating it if it does not exist.
+     */
+    public StatsEvent getOrCreateSubEvent(String name) {
+        StatsEvent st = mSubEvents.get(name);
+        if (st != null) {
+            return st;
+        }
+        return mSubEvents.computeIfAbsent(name, n -> {
+            StatsEvent newST = new StatsEvent(this);
+            newST.setName(n);
+            return newST;
+        });
+    }
+
     /**
      * Retrieves a list of sub transaction names.
      */
@@ -75,37 +96,37 @@ public class StatsEvent {
     }
 
     public void resetCounters() {
-        mMin = -1;
-        mMax = -1;
-        mNoOfOperations = 0;
-        mTimeTaken = 0;
-        mTimeTakenSqSum = 0;
+        mMin.set(-1);
+        mMax.set(-1);
+        mNoOfOperations.reset();
+        mTimeTaken.reset();
+        mTimeTakenSqSum.reset();
         for (StatsEvent c : mSubEvents.values()) {
                 c.resetCounters();
         }
     }
 
     public long getMax() {
-        return mMax;
+        return mMax.get();
     }
 
     public long getMin() {
-        return mMin;
+        return mMin.get();
     }
 
     public void incNoOfOperations(long c) {
-        mNoOfOperations += c;
+        mNoOfOperations.add(c);
     }
 
     public long getTimeTakenSqSum() {
-        return mTimeTakenSqSum;
+        return mTimeTakenSqSum.sum();
     }
 
     public long getPercentage() {
         if (mParent == null || mParent.getTimeTaken() == 0) {
             return 100;
         }
-        return (mTimeTaken * 100 / mParent.getTimeTaken());
+        return (getTimeTaken() * 100 / mParent.getTimeTaken());
     }
 
     public long getStdDev() {
@@ -119,39 +140,28 @@ public class StatsEvent {
     }
 
     public long getAvg() {
-        return mNoOfOperations == 0 ? -1 : mTimeTaken / mNoOfOperations;
+        long n = getNoOfOperations();
+        return n == 0 ? -1 : getTimeTaken() / n;
     }
 
     /**
      * Retrieves number of operations performed.
      */
     public long getNoOfOperations() {
-        return mNoOfOperations;
+        return mNoOfOperations.sum();
     }
 
     public void incTimeTaken(long c) {
-        if (mMin == -1) {
-            mMin = c;
-        } else {
-            if (c < mMin) {
-                mMin = c;
-            }
-        }
-        if (mMax == -1) {
-            mMax = c;
-        } else {
-            if (c > mMax) {
-                mMax = c;
-            }
-        }
-        mTimeTaken += c;
-        mTimeTakenSqSum += (c * c);
+        mMin.accumulateAndGet(c, (current, value) -> current == -1 ? value : Math.min(current, value));
+        mMax.accumulateAndGet(c, (current, value) -> current == -1 ? value : Math.max(current, value));
+        mTimeTaken.add(c);
+        mTimeTakenSqSum.add(c * c);
     }
 
     /**
      * Retrieves total time token in msec.
      */
     public long getTimeTaken() {
-        return mTimeTaken;
+        return mTimeTaken.sum();
     }
 }
@@ -104,6 +104,10 @@ public class HttpClient {
     /**
      * Sends a request to http server.
      * Returns a http response.
+     *
+     * The connection is closed after the response unless the request
+     * has a "Connection: keep-alive" header and the server agreed to
+     * keep the connection open.
      */
     public HttpResponse send(HttpRequest request)
             throws IOException {
@@ -119,10 +123,36 @@ public class HttpClient {
             disconnect();
             throw e;
         }
-        disconnect();
+        if (!isKeepAlive(request, resp)) {
+            disconnect();
+        }
         return resp;
     }
 
+    /**
+     * Returns true if the connection can be reused after the response.
+     */
+    protected boolean isKeepAlive(HttpRequest request, HttpResponse resp) {
+
+        if (!"keep-alive".equalsIgnoreCase(request.getHeader("Connection"))) {
+            return false;
+        }
+
+        // without content length the content was read until the
+        // server closed the connection
+        if (resp.getHeader("Content-Length") == null) {
+            return false;
+        }
+
+        String connection = resp.getHeader("Connection");
+
+        if ("close".equalsIgnoreCase(connection)) {
+            return false;
+        }
+
+        return Http.Vers1_1.equals(resp.getHttpVers()) || "keep-alive".equalsIgnoreCase(connection);
+    }
+
     public void disconnect()
             throws IOException {
         mSocket.close();
@@ -38,6 +38,7 @@ public class CertDataInfosTest {
 
         before.addEntry(info);
         before.setTotal(1);
+        before.setNext("YWU5ZjE");
     }
 
     @Test
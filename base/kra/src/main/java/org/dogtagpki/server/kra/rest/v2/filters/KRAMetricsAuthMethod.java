@@ -0,0 +1,10 @@
+package org.dogtagpki.server.kra.rest.v2.filters;
+
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.MetricsAuthMethod;
+
+@WebFilter(servletNames = "kraMetrics")
+public class KRAMetricsAuthMethod extends MetricsAuthMethod {
+    private static final long serialVersionUID = 1L;
+}
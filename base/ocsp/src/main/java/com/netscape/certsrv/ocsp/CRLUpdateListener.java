@@ -0,0 +1,31 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.ocsp;
+
+import java.security.cert.X509CRL;
+
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+
+/**
+ * This interface is notified when an OCSP store has committed a new CRL.
+ */
+public interface CRLUpdateListener {
+
+    /**
+     * This method is called after the CRL has been stored.
+     *
+     * @param crl the new CRL
+     */
+    void crlUpdated(X509CRL crl);
+
+    /**
+     * This method is called after a CRL stored by another server
+     * (e.g. the master of a clone) has been loaded.
+     *
+     * @param caCert the certificate of the CRL issuer
+     */
+    void crlReloaded(X509CertImpl caCert);
+}
@@ -91,6 +91,43 @@ public interface IDefStore extends IOCSPStore {
      */
     public void updateCRL(X509CRL crl) throws EBaseException;
 
+    /**
+     * This method checks whether delta CRLs can be applied to the
+     * CRLs in this store.
+     * <P>
+     *
+     * @return boolean true or false
+     */
+    public boolean isDeltaCRLSupported();
+
+    /**
+     * This method applies the specified delta CRL to the CRL of
+     * the same issuer. The delta CRL must be newer than the stored
+     * CRL and its base CRL must not be newer than the stored CRL.
+     * <P>
+     *
+     * @param crl the delta CRL
+     * @exception EBaseException occurs when the delta CRL cannot be applied
+     */
+    public void updateDeltaCRL(X509CRL crl) throws EBaseException;
+
+    /**
+     * This method registers a listener to be notified after
+     * a CRL has been updated.
+     * <P>
+     *
+     * @param listener the CRL update listener
+     */
+    public void addCRLUpdateListener(CRLUpdateListener listener);
+
+    /**
+     * This method unregisters a CRL update listener.
+     * <P>
+     *
+     * @param listener the CRL update listener
+     */
+    public void removeCRLUpdateListener(CRLUpdateListener listener);
+
     /**
      * This method attempts to read the CRL issuing point.
      * <P>
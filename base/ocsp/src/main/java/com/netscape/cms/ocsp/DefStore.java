@@ -22,16 +22,27 @@ import java.security.MessageDigest;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.codec.binary.Hex;
 import org.mozilla.jss.asn1.GeneralizedTime;
 import org.mozilla.jss.asn1.INTEGER;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
 import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -43,6 +54,7 @@ import com.netscape.certsrv.common.Constants;
 import com.netscape.certsrv.common.NameValuePairs;
 import com.netscape.certsrv.dbs.Modification;
 import com.netscape.certsrv.dbs.ModificationSet;
+import com.netscape.certsrv.ocsp.CRLUpdateListener;
 import com.netscape.certsrv.ocsp.IDefStore;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
@@ -88,13 +100,26 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
     private static final String PROP_NOT_FOUND_GOOD = "notFoundAsGood";
     private static final String PROP_INCLUDE_NEXT_UPDATE =
             "includeNextUpdate";
+    private static final String PROP_USE_INDEX = "useIndex";
 
     protected Hashtable<String, Long> mReqCounts = new Hashtable<>();
+    protected CopyOnWriteArrayList<CRLUpdateListener> mCRLUpdateListeners = new CopyOnWriteArrayList<>();
     protected boolean mNotFoundGood = true;
     protected boolean mUseCache = true;
     protected boolean mByName = false;
     protected boolean mIncludeNextUpdate = false;
     protected Hashtable<String, CRLIPContainer> mCacheCRLIssuingPoints = new Hashtable<>();
+
+    // Revocation indexes keyed by digest, issuer name hash and issuer
+    // key hash. The map is never modified; it is replaced as a whole
+    // by the index builder thread so lookups do not need locking.
+    protected boolean mUseIndex = true;
+    protected volatile Map<String, RevocationIndex> mRevocationIndexes = Map.of();
+    private ScheduledExecutorService mIndexBuilder;
+
+    // CRL and delta CRL numbers of each issuing point seen by the last
+    // refresh, used to detect CRLs committed by another server
+    private Map<String, String> mCRLVersions = new ConcurrentHashMap<>();
     private ConfigStore mConfig;
     private String mId = null;
     private DBSubsystem dbSubsystem;
@@ -151,6 +176,8 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         mByName = mConfig.getBoolean(PROP_BY_NAME, false);
 
+        mUseIndex = mConfig.getBoolean(PROP_USE_INDEX, true);
+
         // To include next update in the OCSP response. If included,
         // PSM (client) will check to see if the revoked information
         // is too old or not
@@ -279,14 +306,351 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         int refresh = mConfig.getInteger(PROP_REFRESH_IN_SEC,
                 DEF_REFRESH_IN_SEC);
         if (refresh > 0) {
-            DefStoreCRLUpdater updater =
-                    new DefStoreCRLUpdater(mCacheCRLIssuingPoints, refresh);
+            DefStoreCRLUpdater updater = new DefStoreCRLUpdater(this, refresh);
             updater.start();
         }
+
+        if (!mUseIndex) {
+            return;
+        }
+
+        mIndexBuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "DefStoreIndexBuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // build indexes for all issuing points in the background,
+        // requests are served from the database until then
+        mIndexBuilder.submit(this::rebuildRevocationIndexes);
+
+        if (refresh > 0) {
+            // clones do not receive CRL updates directly
+            mIndexBuilder.scheduleWithFixedDelay(
+                    this::rebuildRevocationIndexes, refresh, refresh, TimeUnit.SECONDS);
+        }
     }
 
     @Override
     public void shutdown() {
+        if (mIndexBuilder != null) {
+            mIndexBuilder.shutdownNow();
+            mIndexBuilder = null;
+        }
+    }
+
+    /**
+     * Rebuilds the revocation indexes of the issuing points whose CRL
+     * or delta CRL has changed. The indexes of the other issuing points
+     * are kept.
+     */
+    public void rebuildRevocationIndexes() {
+        try {
+            logger.info("DefStore: Building revocation indexes");
+
+            Map<String, RevocationIndex> indexes = new HashMap<>();
+            List<X509CertImpl> reloaded = new ArrayList<>();
+
+            Enumeration<CRLIssuingPointRecord> recs = searchAllCRLIssuingPointRecord(100);
+            while (recs.hasMoreElements()) {
+                CRLIssuingPointRecord rec = recs.nextElement();
+
+                boolean changed = isCRLChanged(rec);
+                RevocationIndex index = getRevocationIndex(rec.getId());
+
+                if (changed || index == null) {
+                    logger.info("DefStore: Building revocation index for " + rec.getId());
+                    index = createRevocationIndex(rec, null);
+                }
+
+                if (index == null) {
+                    continue;
+                }
+
+                for (String key : index.getKeys()) {
+                    indexes.put(key, index);
+                }
+
+                if (changed) {
+                    reloaded.add(index.getCACert());
+                }
+            }
+
+            mRevocationIndexes = Map.copyOf(indexes);
+
+            // cached responses can only be invalidated
+            // once the new indexes are in place
+            for (X509CertImpl caCert : reloaded) {
+                notifyCRLReloaded(caCert);
+            }
+
+        } catch (Exception e) {
+            logger.warn("DefStore: Unable to build revocation indexes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the current revocation index of the issuing point.
+     *
+     * @param id issuing point record ID
+     * @return revocation index, or null if there is none
+     */
+    RevocationIndex getRevocationIndex(String id) {
+        for (RevocationIndex index : mRevocationIndexes.values()) {
+            if (index.getId().equals(id)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the CRL or delta CRL of the issuing point record
+     * has changed since the last time the record was checked.
+     */
+    boolean isCRLChanged(CRLIssuingPointRecord rec) {
+        String version = rec.getCRLNumber() + ":" + rec.getDeltaCRLNumber();
+        String previous = mCRLVersions.put(rec.getId(), version);
+        return previous != null && !previous.equals(version);
+    }
+
+    /**
+     * Reloads CRLs committed by another server (e.g. on a clone).
+     * Called periodically if refreshInSec is set.
+     */
+    public void refreshCRLIssuingPoints() {
+
+        mCacheCRLIssuingPoints.clear();
+
+        if (mIndexBuilder != null) {
+            // the index builder reloads the CRLs on the same schedule
+            return;
+        }
+
+        try {
+            Enumeration<CRLIssuingPointRecord> recs = searchAllCRLIssuingPointRecord(100);
+            while (recs.hasMoreElements()) {
+                CRLIssuingPointRecord rec = recs.nextElement();
+                if (isCRLChanged(rec) && rec.getCACert() != null) {
+                    notifyCRLReloaded(new X509CertImpl(rec.getCACert()));
+                }
+            }
+
+        } catch (Exception e) {
+            logger.warn("DefStore: Unable to refresh CRL issuing points: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rebuilds the revocation index of an issuing point and swaps it in.
+     */
+    public void rebuildRevocationIndex(String name, X509CRLImpl crl) {
+        try {
+            CRLIssuingPointRecord rec = readCRLIssuingPoint(name);
+            if (rec == null) {
+                return;
+            }
+
+            RevocationIndex index = createRevocationIndex(rec, crl);
+            if (index == null) {
+                return;
+            }
+
+            // the periodic refresh does not need to rebuild this index
+            isCRLChanged(rec);
+
+            Map<String, RevocationIndex> indexes = new HashMap<>(mRevocationIndexes);
+            indexes.values().removeIf(i -> i.getId().equals(rec.getId()));
+
+            for (String key : index.getKeys()) {
+                indexes.put(key, index);
+            }
+
+            mRevocationIndexes = Map.copyOf(indexes);
+
+        } catch (Exception e) {
+            logger.warn("DefStore: Unable to build revocation index for " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a revocation index from the CRL, the CRL cache of the
+     * issuing point record, or the CRL stored in the record.
+     *
+     * @param crl CRL with entries, or null to use the record
+     * @return revocation index, or null if no revocation data is available
+     */
+    RevocationIndex createRevocationIndex(CRLIssuingPointRecord rec, X509CRLImpl crl) throws Exception {
+
+        byte[] certdata = rec.getCACert();
+        if (certdata == null) {
+            return null;
+        }
+
+        X509CertImpl caCert = new X509CertImpl(certdata);
+
+        Hashtable<BigInteger, RevokedCertificate> cache = null;
+        if (crl == null) {
+            cache = rec.getCRLCacheNoClone();
+        }
+
+        if (crl == null && cache == null) {
+            byte[] crldata = rec.getCRL();
+            if (crldata == null) {
+                return null;
+            }
+            crl = new X509CRLImpl(crldata);
+        }
+
+        RevocationIndex.Builder builder;
+
+        if (crl != null) {
+            Set<RevokedCertificate> entries = crl.getRevokedCertificates();
+            builder = new RevocationIndex.Builder(rec.getId(), caCert, entries == null ? 0 : entries.size());
+            if (entries != null) {
+                for (RevokedCertificate entry : entries) {
+                    builder.add(entry);
+                }
+            }
+
+        } else {
+            builder = new RevocationIndex.Builder(rec.getId(), caCert, cache.size());
+            for (RevokedCertificate entry : cache.values()) {
+                builder.add(entry);
+            }
+        }
+
+        RevocationIndex index = builder
+                .setThisUpdate(rec.getThisUpdate())
+                .setNextUpdate(rec.getNextUpdate())
+                .build();
+
+        logger.info("DefStore: Revocation index for " + rec.getId() + ": " + index.size() + " entries");
+
+        X509CRLImpl deltaCRL = getDeltaCRL(rec);
+        if (deltaCRL != null) {
+            index = index.withDelta(createDeltaIndex(rec.getId(), caCert, deltaCRL));
+        }
+
+        return index;
+    }
+
+    /**
+     * Creates a revocation index from the entries of a delta CRL.
+     */
+    RevocationIndex createDeltaIndex(String id, X509CertImpl caCert, X509CRLImpl deltaCRL) {
+
+        Set<RevokedCertificate> entries = deltaCRL.getRevokedCertificates();
+        RevocationIndex.Builder builder = new RevocationIndex.Builder(id, caCert, entries == null ? 0 : entries.size());
+
+        if (entries != null) {
+            for (RevokedCertificate entry : entries) {
+                builder.add(entry);
+            }
+        }
+
+        RevocationIndex delta = builder
+                .setThisUpdate(deltaCRL.getThisUpdate())
+                .setNextUpdate(deltaCRL.getNextUpdate())
+                .build();
+
+        logger.info("DefStore: Delta revocation index for " + id + ": " + delta.size() + " entries");
+        return delta;
+    }
+
+    /**
+     * Returns the delta CRL stored in the issuing point record, or
+     * null if there is none or if it is older than the base CRL.
+     */
+    X509CRLImpl getDeltaCRL(CRLIssuingPointRecord rec) throws CRLException {
+
+        byte[] deltaCRL = rec.getDeltaCRL();
+        BigInteger deltaCRLNumber = rec.getDeltaCRLNumber();
+
+        if (deltaCRL == null || deltaCRLNumber == null) {
+            return null;
+        }
+
+        // a full CRL received after the delta CRL supersedes it
+        BigInteger crlNumber = rec.getCRLNumber();
+        if (crlNumber != null && deltaCRLNumber.compareTo(crlNumber) <= 0) {
+            return null;
+        }
+
+        return new X509CRLImpl(deltaCRL);
+    }
+
+    /**
+     * Applies a delta CRL to the current revocation index of an
+     * issuing point without rebuilding the base index.
+     */
+    public void applyDeltaCRL(String name, X509CRLImpl deltaCRL) {
+        try {
+            CRLIssuingPointRecord rec = readCRLIssuingPoint(name);
+            if (rec == null) {
+                return;
+            }
+
+            RevocationIndex current = getRevocationIndex(rec.getId());
+
+            if (current == null) {
+                rebuildRevocationIndex(name, null);
+                return;
+            }
+
+            RevocationIndex index = current.withDelta(
+                    createDeltaIndex(rec.getId(), current.getCACert(), deltaCRL));
+
+            // the periodic refresh does not need to rebuild this index
+            isCRLChanged(rec);
+
+            Map<String, RevocationIndex> indexes = new HashMap<>(mRevocationIndexes);
+            for (String key : index.getKeys()) {
+                indexes.put(key, index);
+            }
+
+            mRevocationIndexes = Map.copyOf(indexes);
+
+        } catch (Exception e) {
+            logger.warn("DefStore: Unable to apply delta CRL for " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks the certificate status against the revocation index.
+     */
+    SingleResponse processRequest(CertID cid, RevocationIndex index) {
+
+        incReqCount(index.getId());
+
+        BigInteger serialNumber = new BigInteger(cid.getSerialNumber().toString());
+
+        GeneralizedTime thisUpdate = new GeneralizedTime(
+                index.getThisUpdate() == null ? new Date() : index.getThisUpdate());
+
+        GeneralizedTime nextUpdate = null;
+        if (includeNextUpdate()) {
+            nextUpdate = new GeneralizedTime(
+                    index.getNextUpdate() == null ? new Date() : index.getNextUpdate());
+        }
+
+        CertStatus certStatus;
+        int entry = index.lookup(serialNumber);
+
+        if (entry >= 0) {
+            logger.info("DefStore: Cert found in revocation index -> Revoked");
+            certStatus = new RevokedInfo(new GeneralizedTime(index.getRevocationDate(entry)));
+
+        } else if (isNotFoundGood()) {
+            logger.info("DefStore: Cert not found in revocation index -> Good");
+            certStatus = new GoodInfo();
+
+        } else {
+            logger.info("DefStore: Cert not found in revocation index -> Unknown");
+            certStatus = new UnknownInfo();
+        }
+
+        return new SingleResponse(cid, certStatus, thisUpdate, nextUpdate);
     }
 
     public ConfigStore getConfigStore() {
@@ -315,11 +679,20 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         // cache result to speed up the performance
         X509CertImpl theCert = null;
         X509CRLImpl theCRL = null;
+        X509CRLImpl theDeltaCRL = null;
         CRLIssuingPointRecord theRec = null;
         byte[] keyhsh = cid.getIssuerKeyHash().toByteArray();
         byte[] namehash = cid.getIssuerNameHash().toByteArray();
         logger.info("DefStore: Issuer key hash: " + new String(Hex.encodeHex(keyhsh)));
 
+        if (mUseIndex) {
+            String key = RevocationIndex.createKey(cid.getDigestName(), namehash, keyhsh);
+            RevocationIndex index = mRevocationIndexes.get(key);
+            if (index != null) {
+                return processRequest(cid, index);
+            }
+        }
+
         CRLIPContainer matched = mCacheCRLIssuingPoints.get(new String(keyhsh));
         logger.info("DefStore: CRL issuing point container: " + matched);
 
@@ -379,8 +752,14 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                     logger.info("DefStore: CRL cache available");
                 }
 
+                theDeltaCRL = getDeltaCRL(rec);
+                if (theDeltaCRL != null) {
+                    logger.info("DefStore: Delta CRL number: " + theDeltaCRL.getCRLNumber());
+                }
+
                 logger.info("DefStore: Adding CRL issuing point container for {}", new String(Hex.encodeHex(digest)));
-                mCacheCRLIssuingPoints.put(new String(digest), new CRLIPContainer(theRec, theCert, theCRL));
+                mCacheCRLIssuingPoints.put(new String(digest),
+                        new CRLIPContainer(theRec, theCert, theCRL, theDeltaCRL));
                 break;
             }
 
@@ -388,6 +767,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
             theCert = matched.getX509CertImpl();
             theRec = matched.getCRLIssuingPointRecord();
             theCRL = matched.getX509CRLImpl();
+            theDeltaCRL = matched.getDeltaCRL();
             incReqCount(theRec.getId());
         }
 
@@ -434,6 +814,30 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         CertStatus certStatus;
 
+        if (theDeltaCRL != null) {
+
+            thisUpdate = new GeneralizedTime(theDeltaCRL.getThisUpdate());
+            if (nextUpdate != null && theDeltaCRL.getNextUpdate() != null) {
+                nextUpdate = new GeneralizedTime(theDeltaCRL.getNextUpdate());
+            }
+
+            // delta CRL entries take precedence over the base CRL
+            X509CRLEntry deltaEntry = theDeltaCRL.getRevokedCertificate(new BigInteger(serialNo.toString()));
+
+            if (deltaEntry instanceof RevokedCertificate rc
+                    && RevocationIndex.getReason(rc) == RevocationReason.REMOVE_FROM_CRL.getCode()) {
+                logger.info("DefStore: Cert removed from CRL in delta CRL");
+                certStatus = isNotFoundGood() ? new GoodInfo() : new UnknownInfo();
+                return new SingleResponse(cid, certStatus, thisUpdate, nextUpdate);
+            }
+
+            if (deltaEntry != null) {
+                logger.info("DefStore: Delta CRL entry found -> Revoked");
+                certStatus = new RevokedInfo(new GeneralizedTime(deltaEntry.getRevocationDate()));
+                return new SingleResponse(cid, certStatus, thisUpdate, nextUpdate);
+            }
+        }
+
         if (theCRL == null) {
 
             certStatus = new UnknownInfo();
@@ -694,6 +1098,8 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                     mConfig.getString(PROP_BY_NAME, "true"));
             params.put(PROP_INCLUDE_NEXT_UPDATE,
                     mConfig.getString(PROP_INCLUDE_NEXT_UPDATE, "false"));
+            params.put(PROP_USE_INDEX,
+                    mConfig.getString(PROP_USE_INDEX, "true"));
             return params;
         } catch (Exception e) {
             return null;
@@ -775,11 +1181,129 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                     " thisUpdate=" + crl.getThisUpdate() +
                     " nextUpdate=" + crl.getNextUpdate());
 
+            if (mIndexBuilder != null) {
+                // the current index keeps serving requests until the new
+                // one is swapped in, so the listeners are notified after
+                // the swap to avoid caching responses from the old index
+                String name = crl.getIssuerDN().getName();
+                X509CRLImpl crlImpl = (X509CRLImpl) crl;
+                mIndexBuilder.submit(() -> {
+                    rebuildRevocationIndex(name, crlImpl);
+                    notifyCRLUpdateListeners(crlImpl);
+                });
+
+            } else {
+                notifyCRLUpdateListeners(crl);
+            }
+
+        } finally {
+            mStateCount--;
+        }
+    }
+
+    @Override
+    public boolean isDeltaCRLSupported() {
+        return true;
+    }
+
+    /**
+     * Stores the delta CRL in the issuing point record next to the
+     * base CRL. Since delta CRLs contain all changes since the base
+     * CRL, only the latest delta CRL is kept and the base CRL and
+     * the CRL cache do not need to be rewritten.
+     */
+    @Override
+    public void updateDeltaCRL(X509CRL crl) throws EBaseException {
+        try {
+            mStateCount++;
+
+            X509CRLImpl deltaCRL = (X509CRLImpl) crl;
+            String name = deltaCRL.getIssuerDN().getName();
+
+            try {
+                if (!deltaCRL.areEntriesIncluded()) {
+                    deltaCRL = new X509CRLImpl(deltaCRL.getEncoded());
+                }
+            } catch (Exception e) {
+                logger.warn("DefStore: " + e.getMessage(), e);
+            }
+
+            int size = deltaCRL.getNumberOfRevokedCertificates();
+
+            ModificationSet mods = new ModificationSet();
+            mods.add(CRLIssuingPointRecord.ATTR_DELTA_NUMBER,
+                    Modification.MOD_REPLACE, deltaCRL.getCRLNumber());
+            mods.add(CRLIssuingPointRecord.ATTR_DELTA_SIZE,
+                    Modification.MOD_REPLACE, Long.valueOf(size < 0 ? 0 : size));
+
+            try {
+                mods.add(CRLIssuingPointRecord.ATTR_DELTA_CRL,
+                        Modification.MOD_REPLACE, deltaCRL.getEncoded());
+            } catch (CRLException e) {
+                logger.error("Unable to store delta CRL: " + e.getMessage(), e);
+                throw new EBaseException("Unable to store delta CRL: " + e.getMessage(), e);
+            }
+
+            logger.debug("DefStore: ready to delta CRL update " + name);
+            modifyCRLIssuingPointRecord(name, mods);
+            logger.debug("DefStore: done delta CRL update " + name);
+
+            // update cache
+            mCacheCRLIssuingPoints.clear();
+
+            logger.info("DefStore: Finish Committing delta CRL." +
+                    " CRL number=" + deltaCRL.getCRLNumber() +
+                    " thisUpdate=" + deltaCRL.getThisUpdate() +
+                    " nextUpdate=" + deltaCRL.getNextUpdate());
+
+            if (mIndexBuilder != null) {
+                // notify the listeners once the delta CRL is in the index
+                // to avoid caching responses without the new revocations
+                X509CRLImpl crlImpl = deltaCRL;
+                mIndexBuilder.submit(() -> {
+                    applyDeltaCRL(name, crlImpl);
+                    notifyCRLUpdateListeners(crlImpl);
+                });
+
+            } else {
+                notifyCRLUpdateListeners(deltaCRL);
+            }
+
         } finally {
             mStateCount--;
         }
     }
 
+    @Override
+    public void addCRLUpdateListener(CRLUpdateListener listener) {
+        mCRLUpdateListeners.add(listener);
+    }
+
+    @Override
+    public void removeCRLUpdateListener(CRLUpdateListener listener) {
+        mCRLUpdateListeners.remove(listener);
+    }
+
+    protected void notifyCRLUpdateListeners(X509CRL crl) {
+        for (CRLUpdateListener listener : mCRLUpdateListeners) {
+            try {
+                listener.crlUpdated(crl);
+            } catch (Exception e) {
+                logger.warn("DefStore: Unable to notify CRL update listener: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    protected void notifyCRLReloaded(X509CertImpl caCert) {
+        for (CRLUpdateListener listener : mCRLUpdateListeners) {
+            try {
+                listener.crlReloaded(caCert);
+            } catch (Exception e) {
+                logger.warn("DefStore: Unable to notify CRL update listener: " + e.getMessage(), e);
+            }
+        }
+    }
+
     @Override
     public int getStateCount() {
         return mStateCount;
@@ -807,11 +1331,17 @@ class CRLIPContainer {
     private CRLIssuingPointRecord mRec = null;
     private X509CertImpl mCert = null;
     private X509CRLImpl mCRL = null;
+    private X509CRLImpl mDeltaCRL = null;
 
     public CRLIPContainer(CRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl) {
+        this(rec, cert, crl, null);
+    }
+
+    public CRLIPContainer(CRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl, X509CRLImpl deltaCRL) {
         mRec = rec;
         mCert = cert;
         mCRL = crl;
+        mDeltaCRL = deltaCRL;
     }
 
     public CRLIssuingPointRecord getCRLIssuingPointRecord() {
@@ -825,17 +1355,21 @@ class CRLIPContainer {
     public X509CRLImpl getX509CRLImpl() {
         return mCRL;
     }
+
+    public X509CRLImpl getDeltaCRL() {
+        return mDeltaCRL;
+    }
 }
 
 class DefStoreCRLUpdater extends Thread {
 
     public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DefStoreCRLUpdater.class);
 
-    private Hashtable<String, CRLIPContainer> mCache = null;
+    private DefStore mStore;
     private int mSec = 0;
 
-    public DefStoreCRLUpdater(Hashtable<String, CRLIPContainer> cache, int sec) {
-        mCache = cache;
+    public DefStoreCRLUpdater(DefStore store, int sec) {
+        mStore = store;
         mSec = sec;
     }
 
@@ -844,7 +1378,7 @@ class DefStoreCRLUpdater extends Thread {
         while (true) {
             try {
                 logger.debug("DefStore: CRLUpdater invoked");
-                mCache.clear();
+                mStore.refreshCRLIssuingPoints();
                 sleep(mSec * 1000); // turn sec into millis-sec
             } catch (Exception e) {
                 // ignore
@@ -27,6 +27,7 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.dogtagpki.server.ocsp.OCSPEngine;
 import org.mozilla.jss.asn1.GeneralizedTime;
@@ -40,6 +41,7 @@ import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IExtendedPluginInfo;
 import com.netscape.certsrv.common.Constants;
 import com.netscape.certsrv.common.NameValuePairs;
+import com.netscape.certsrv.ocsp.CRLUpdateListener;
 import com.netscape.certsrv.ocsp.IDefStore;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
@@ -98,6 +100,7 @@ public class LDAPStore implements IDefStore, IExtendedPluginInfo {
     private boolean mByName = false;
     private String mCACertAttr = null;
     protected Hashtable<String, Long> mReqCounts = new Hashtable<>();
+    protected CopyOnWriteArrayList<CRLUpdateListener> mCRLUpdateListeners = new CopyOnWriteArrayList<>();
     private Hashtable<X509CertImpl, X509CRLImpl> mCRLs = new Hashtable<>();
     private boolean mValidateConnection = true;
 
@@ -262,6 +265,8 @@ public class LDAPStore implements IDefStore, IExtendedPluginInfo {
         logger.debug("LDAPStore: updateCRLHash: Added '" + caCert.getSubjectName() + "' into CRL hash");
         mCRLs.put(caCert, crl);
         logger.debug("LDAPStore: updateCRLHash: mCRLs size= "+ mCRLs.size());
+
+        notifyCRLUpdateListeners(crl);
     }
 
     @Override
@@ -341,6 +346,36 @@ public class LDAPStore implements IDefStore, IExtendedPluginInfo {
         throw new EBaseException("NOT SUPPORTED");
     }
 
+    @Override
+    public boolean isDeltaCRLSupported() {
+        return false;
+    }
+
+    @Override
+    public void updateDeltaCRL(X509CRL crl) throws EBaseException {
+        throw new EBaseException("NOT SUPPORTED");
+    }
+
+    @Override
+    public void addCRLUpdateListener(CRLUpdateListener listener) {
+        mCRLUpdateListeners.add(listener);
+    }
+
+    @Override
+    public void removeCRLUpdateListener(CRLUpdateListener listener) {
+        mCRLUpdateListeners.remove(listener);
+    }
+
+    protected void notifyCRLUpdateListeners(X509CRL crl) {
+        for (CRLUpdateListener listener : mCRLUpdateListeners) {
+            try {
+                listener.crlUpdated(crl);
+            } catch (Exception e) {
+                logger.warn("LDAPStore: Unable to notify CRL update listener: " + e.getMessage(), e);
+            }
+        }
+    }
+
     @Override
     public CRLIssuingPointRecord readCRLIssuingPoint(String name)
             throws EBaseException {
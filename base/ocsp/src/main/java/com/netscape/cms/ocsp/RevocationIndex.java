@@ -0,0 +1,366 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.Extension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+import org.mozilla.jss.netscape.security.x509.X509Key;
+
+/**
+ * Immutable revocation index of a CRL issuing point.
+ *
+ * The index maps certificate serial numbers to revocation date and
+ * reason using an open addressing hash table over primitive arrays,
+ * so a lookup is a few array reads regardless of the CRL size and
+ * does not require the CRL to be parsed or locked. The index also
+ * provides the issuer name and key hashes for every supported digest
+ * so that OCSP requests can be matched to the issuing point without
+ * decoding the CA certificate.
+ *
+ * Serial numbers are hashed on their lowest 64 bits. The remaining
+ * bits of serial numbers larger than 64 bits are stored in a packed
+ * byte array and compared on lookup.
+ *
+ * A delta CRL can be applied on top of the index with withDelta().
+ * Its entries take precedence over the base entries, and entries
+ * with the removeFromCRL reason mark certificates that are no longer
+ * revoked.
+ */
+public class RevocationIndex {
+
+    public static final String[] DIGESTS = { "SHA-1", "SHA-256", "SHA-384", "SHA-512" };
+
+    public static final int NO_REASON = -1;
+
+    private final String id;
+    private final X509CertImpl caCert;
+    private final Date thisUpdate;
+    private final Date nextUpdate;
+
+    // hash table: slot -> entry index + 1 (0 means empty slot)
+    private final int[] slots;
+    private final int mask;
+
+    // entries
+    private final long[] lows;
+    private final int[] highOffsets;
+    private final byte[] highs;
+    private final long[] revocationDates;
+    private final byte[] reasons;
+
+    // entries of the delta CRL, or null
+    private final RevocationIndex delta;
+
+    private RevocationIndex(
+            String id,
+            X509CertImpl caCert,
+            Date thisUpdate,
+            Date nextUpdate,
+            long[] lows,
+            int[] highOffsets,
+            byte[] highs,
+            long[] revocationDates,
+            byte[] reasons,
+            int size) {
+
+        this.id = id;
+        this.caCert = caCert;
+        this.thisUpdate = thisUpdate;
+        this.nextUpdate = nextUpdate;
+
+        this.lows = lows;
+        this.highOffsets = highOffsets;
+        this.highs = highs;
+        this.revocationDates = revocationDates;
+        this.reasons = reasons;
+        this.delta = null;
+
+        // keep load factor at or below 0.5
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        slots = new int[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < size; i++) {
+            int slot = hash(lows[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    private RevocationIndex(RevocationIndex base, RevocationIndex delta) {
+
+        this.id = base.id;
+        this.caCert = base.caCert;
+        this.thisUpdate = delta.thisUpdate;
+        this.nextUpdate = delta.nextUpdate;
+
+        this.slots = base.slots;
+        this.mask = base.mask;
+        this.lows = base.lows;
+        this.highOffsets = base.highOffsets;
+        this.highs = base.highs;
+        this.revocationDates = base.revocationDates;
+        this.reasons = base.reasons;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns an index with the entries of a delta CRL applied on top
+     * of the entries of this index. The entries of this index are
+     * shared, and a delta CRL applied previously is replaced since
+     * delta CRLs contain all changes since the base CRL.
+     *
+     * @param delta index of the delta CRL entries
+     */
+    public RevocationIndex withDelta(RevocationIndex delta) {
+        return new RevocationIndex(this, delta);
+    }
+
+    public RevocationIndex getDelta() {
+        return delta;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public X509CertImpl getCACert() {
+        return caCert;
+    }
+
+    public Date getThisUpdate() {
+        return thisUpdate;
+    }
+
+    public Date getNextUpdate() {
+        return nextUpdate;
+    }
+
+    public int size() {
+        return lows.length;
+    }
+
+    /**
+     * Returns the entry index of the serial number, or -1 if the
+     * certificate is not revoked.
+     */
+    public int lookup(BigInteger serialNumber) {
+
+        if (delta != null) {
+            int entry = delta.lookup(serialNumber);
+            if (entry >= 0) {
+                if (delta.getReason(entry) == RevocationReason.REMOVE_FROM_CRL.getCode()) {
+                    return -1;
+                }
+                // delta entries follow the base entries
+                return lows.length + entry;
+            }
+        }
+
+        long low = serialNumber.longValue();
+        byte[] high = getHighBytes(serialNumber);
+
+        int slot = hash(low) & mask;
+        int entry;
+
+        while ((entry = slots[slot]) != 0) {
+            int i = entry - 1;
+            if (lows[i] == low && highEquals(i, high)) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    public Date getRevocationDate(int entry) {
+        if (entry >= lows.length) {
+            return delta.getRevocationDate(entry - lows.length);
+        }
+        return new Date(revocationDates[entry]);
+    }
+
+    /**
+     * Returns the CRL reason code of the entry, or NO_REASON.
+     */
+    public int getReason(int entry) {
+        if (entry >= lows.length) {
+            return delta.getReason(entry - lows.length);
+        }
+        return reasons[entry];
+    }
+
+    private boolean highEquals(int entry, byte[] high) {
+
+        int start = highOffsets[entry];
+        int end = highOffsets[entry + 1];
+
+        if (high == null) {
+            return start == end;
+        }
+
+        return Arrays.equals(highs, start, end, high, 0, high.length);
+    }
+
+    private static byte[] getHighBytes(BigInteger serialNumber) {
+        BigInteger high = serialNumber.shiftRight(64);
+        return high.signum() == 0 ? null : high.toByteArray();
+    }
+
+    private static int hash(long value) {
+        // mix both halves so sequential serial numbers spread evenly
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the index keys (digest, issuer name hash, issuer key hash)
+     * of this issuing point for all supported digests.
+     */
+    public Collection<String> getKeys() throws Exception {
+
+        X509Key key = (X509Key) caCert.getPublicKey();
+        byte[] name = caCert.getSubjectObj().getX500Name().getEncoded();
+
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (String digest : DIGESTS) {
+            MessageDigest md = MessageDigest.getInstance(digest);
+            byte[] nameHash = md.digest(name);
+            byte[] keyHash = md.digest(key.getKey());
+            keys.put(digest, createKey(digest, nameHash, keyHash));
+        }
+
+        return keys.values();
+    }
+
+    public static String createKey(String digest, byte[] nameHash, byte[] keyHash) {
+        return digest + ":" + Hex.encodeHexString(nameHash) + ":" + Hex.encodeHexString(keyHash);
+    }
+
+    static int getReason(RevokedCertificate entry) {
+
+        if (!(entry instanceof RevokedCertImpl revokedCert)) {
+            return NO_REASON;
+        }
+
+        CRLExtensions exts = revokedCert.getExtensions();
+        if (exts == null) {
+            return NO_REASON;
+        }
+
+        Enumeration<Extension> e = exts.getElements();
+        while (e.hasMoreElements()) {
+            Extension ext = e.nextElement();
+            if (ext instanceof CRLReasonExtension reasonExt) {
+                return reasonExt.getReason().getCode();
+            }
+        }
+
+        return NO_REASON;
+    }
+
+    /**
+     * Builds a RevocationIndex from CRL entries.
+     */
+    public static class Builder {
+
+        private String id;
+        private X509CertImpl caCert;
+        private Date thisUpdate;
+        private Date nextUpdate;
+
+        private int size;
+        private long[] lows;
+        private int[] highOffsets;
+        private ByteArrayOutputStream highs = new ByteArrayOutputStream();
+        private long[] revocationDates;
+        private byte[] reasons;
+
+        public Builder(String id, X509CertImpl caCert, int expectedSize) {
+            this.id = id;
+            this.caCert = caCert;
+
+            int capacity = Math.max(expectedSize, 16);
+            lows = new long[capacity];
+            highOffsets = new int[capacity + 1];
+            revocationDates = new long[capacity];
+            reasons = new byte[capacity];
+        }
+
+        public Builder setThisUpdate(Date thisUpdate) {
+            this.thisUpdate = thisUpdate;
+            return this;
+        }
+
+        public Builder setNextUpdate(Date nextUpdate) {
+            this.nextUpdate = nextUpdate;
+            return this;
+        }
+
+        public Builder add(RevokedCertificate entry) {
+            return add(entry.getSerialNumber(), entry.getRevocationDate(), getReason(entry));
+        }
+
+        public Builder add(BigInteger serialNumber, Date revocationDate, int reason) {
+
+            if (size == lows.length) {
+                int capacity = size * 2;
+                lows = Arrays.copyOf(lows, capacity);
+                highOffsets = Arrays.copyOf(highOffsets, capacity + 1);
+                revocationDates = Arrays.copyOf(revocationDates, capacity);
+                reasons = Arrays.copyOf(reasons, capacity);
+            }
+
+            lows[size] = serialNumber.longValue();
+
+            byte[] high = getHighBytes(serialNumber);
+            if (high != null) {
+                highs.write(high, 0, high.length);
+            }
+
+            revocationDates[size] = revocationDate == null ? 0 : revocationDate.getTime();
+            reasons[size] = (byte) reason;
+
+            size++;
+            highOffsets[size] = highs.size();
+
+            return this;
+        }
+
+        public RevocationIndex build() {
+            return new RevocationIndex(
+                    id,
+                    caCert,
+                    thisUpdate,
+                    nextUpdate,
+                    Arrays.copyOf(lows, size),
+                    Arrays.copyOf(highOffsets, size + 1),
+                    highs.toByteArray(),
+                    Arrays.copyOf(revocationDates, size),
+                    Arrays.copyOf(reasons, size),
+                    size);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Arrays;
+
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+
+/**
+ * Reads a DER-encoded CRL from a stream and verifies its signature
+ * while the CRL is being received.
+ *
+ * The CRL is read into a single buffer sized from the outer DER
+ * length. The issuer and the signature algorithm are decoded from
+ * the beginning of the TBSCertList so the caller can find the issuer
+ * certificate before the entries arrive. The rest of the TBSCertList
+ * is passed to the signature as it is read, so the signature does not
+ * need another pass over the CRL once it has been received.
+ */
+public class StreamingCRLReader {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StreamingCRLReader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private InputStream in;
+    private byte[] crl;
+    private int offset;
+
+    private int tbsStart;
+    private int tbsEnd;
+
+    private AlgorithmId algorithm;
+    private X500Name issuer;
+
+    /**
+     * Reads the CRL up to and including the issuer name.
+     *
+     * @param in input stream
+     * @param maxSize maximum CRL size in bytes
+     */
+    public StreamingCRLReader(InputStream in, long maxSize) throws IOException {
+
+        this.in = in;
+
+        // CertificateList header
+        byte[] header = new byte[6];
+        readFully(header, 0, 2);
+
+        if (header[0] != DerValue.tag_Sequence) {
+            throw new IOException("Invalid CRL: not a DER sequence");
+        }
+
+        int headerLength = 2;
+        int n = getLengthBytes(header[1]);
+        if (n > 0) {
+            readFully(header, 2, n);
+            headerLength += n;
+        }
+
+        long length = headerLength + decodeLength(header, 1);
+        if (length > maxSize || length > Integer.MAX_VALUE - 8) {
+            throw new IOException("CRL too large: " + length + " bytes");
+        }
+
+        crl = new byte[(int) length];
+        System.arraycopy(header, 0, crl, 0, headerLength);
+        offset = headerLength;
+
+        // TBSCertList header
+        tbsStart = offset;
+        int tbsLength = readHeader();
+        tbsEnd = offset + tbsLength;
+
+        // optional version
+        int start = readValue();
+        if (crl[start] == DerValue.tag_Integer) {
+            start = readValue();
+        }
+
+        algorithm = AlgorithmId.parse(new DerValue(Arrays.copyOfRange(crl, start, offset)));
+
+        start = readValue();
+        issuer = new X500Name(Arrays.copyOfRange(crl, start, offset));
+    }
+
+    public X500Name getIssuer() {
+        return issuer;
+    }
+
+    public AlgorithmId getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Reads the rest of the CRL and verifies its signature with the
+     * public key if specified.
+     *
+     * @param key issuer public key, or null to skip the verification
+     * @param provider signature provider, or null for the default provider
+     * @return the CRL with its entries
+     * @exception SignatureException if the signature is invalid
+     */
+    public X509CRLImpl readCRL(PublicKey key, String provider) throws Exception {
+
+        if (key == null) {
+            read(crl.length - offset);
+            return new X509CRLImpl(crl);
+        }
+
+        Signature signature;
+
+        try {
+            signature = provider == null
+                    ? Signature.getInstance(algorithm.getName())
+                    : Signature.getInstance(algorithm.getName(), provider);
+            signature.initVerify(key);
+
+        } catch (GeneralSecurityException e) {
+            // e.g. algorithms with parameters, let X509CRLImpl handle them
+            logger.info("StreamingCRLReader: Unable to verify " + algorithm.getName()
+                    + " signature while reading: " + e.getMessage());
+
+            read(crl.length - offset);
+            X509CRLImpl result = new X509CRLImpl(crl);
+            if (provider == null) {
+                result.verify(key);
+            } else {
+                result.verify(key, provider);
+            }
+            return result;
+        }
+
+        // TBSCertList received so far
+        signature.update(crl, tbsStart, offset - tbsStart);
+
+        while (offset < tbsEnd) {
+            int start = offset;
+            read(Math.min(BUFFER_SIZE, tbsEnd - offset));
+            signature.update(crl, start, offset - start);
+        }
+
+        // signature algorithm and signature value
+        read(crl.length - offset);
+
+        X509CRLImpl result = new X509CRLImpl(crl);
+
+        if (!algorithm.getOID().toString().equals(result.getSigAlgOID())) {
+            throw new SignatureException("CRL signature algorithm mismatch");
+        }
+
+        if (!signature.verify(result.getSignature())) {
+            throw new SignatureException("Invalid CRL signature");
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the tag and length of the next value and returns the
+     * length of the value.
+     */
+    private int readHeader() throws IOException {
+
+        int start = offset;
+        read(2);
+
+        int n = getLengthBytes(crl[start + 1]);
+        if (n > 0) {
+            read(n);
+        }
+
+        long length = decodeLength(crl, start + 1);
+        if (length > crl.length - offset) {
+            throw new IOException("Invalid CRL: value exceeds CRL length");
+        }
+
+        return (int) length;
+    }
+
+    /**
+     * Reads the next value and returns its start offset.
+     */
+    private int readValue() throws IOException {
+        int start = offset;
+        read(readHeader());
+        return start;
+    }
+
+    private static int getLengthBytes(byte b) throws IOException {
+
+        if ((b & 0x80) == 0) {
+            return 0;
+        }
+
+        int n = b & 0x7f;
+        if (n == 0 || n > 4) {
+            throw new IOException("Invalid CRL: unsupported DER length");
+        }
+
+        return n;
+    }
+
+    /**
+     * Decodes the DER length starting at the given position.
+     */
+    private static long decodeLength(byte[] buffer, int pos) throws IOException {
+
+        int b = buffer[pos] & 0xff;
+        if ((b & 0x80) == 0) {
+            return b;
+        }
+
+        int n = getLengthBytes(buffer[pos]);
+        long length = 0;
+
+        for (int i = 1; i <= n; i++) {
+            length = (length << 8) | (buffer[pos + i] & 0xff);
+        }
+
+        return length;
+    }
+
+    private void read(int length) throws IOException {
+        if (offset + length > crl.length) {
+            throw new IOException("Invalid CRL: value exceeds CRL length");
+        }
+        readFully(crl, offset, length);
+        offset += length;
+    }
+
+    private void readFully(byte[] buffer, int off, int length) throws IOException {
+        int n = in.readNBytes(buffer, off, length);
+        if (n < length) {
+            throw new EOFException("Incomplete CRL");
+        }
+    }
+}
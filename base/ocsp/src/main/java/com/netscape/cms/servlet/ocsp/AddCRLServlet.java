@@ -19,11 +19,11 @@ package com.netscape.cms.servlet.ocsp;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.SignatureException;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
 import java.util.Date;
 import java.util.Locale;
-import java.util.Set;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -42,16 +42,18 @@ import org.mozilla.jss.CryptoManager;
 import org.mozilla.jss.crypto.CryptoToken;
 import org.mozilla.jss.netscape.security.util.Cert;
 import org.mozilla.jss.netscape.security.util.Utils;
-import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.DeltaCRLIndicatorExtension;
+import org.mozilla.jss.netscape.security.x509.Extension;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 import org.mozilla.jss.netscape.security.x509.X509ExtensionException;
 
 import com.netscape.certsrv.base.EBaseException;
-import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.logging.AuditEvent;
 import com.netscape.certsrv.logging.ILogger;
 import com.netscape.certsrv.ocsp.IDefStore;
+import com.netscape.cms.ocsp.StreamingCRLReader;
 import com.netscape.cms.servlet.base.CMSServlet;
 import com.netscape.cms.servlet.common.CMSRequest;
 import com.netscape.cms.servlet.common.CMSTemplate;
@@ -90,8 +92,13 @@ public class AddCRLServlet extends CMSServlet {
     private static final long serialVersionUID = 1476080474638590902L;
 
     private final static String TPL_FILE = "addCRL.template";
+
+    // DER-encoded CRL sent in the request body (RFC 2585)
+    public final static String CRL_CONTENT_TYPE = "application/pkix-crl";
+
     private String mFormPath = null;
     private OCSPAuthority mOCSPAuthority;
+    private long mMaxCRLSize;
 
     public AddCRLServlet() {
         super();
@@ -114,6 +121,12 @@ public class AddCRLServlet extends CMSServlet {
         OCSPEngine engine = OCSPEngine.getInstance();
         mOCSPAuthority = engine.getOCSP();
 
+        try {
+            mMaxCRLSize = engine.getConfig().getOCSPConfig().getMaxCRLSize();
+        } catch (EBaseException e) {
+            throw new ServletException("Unable to read maximum CRL size: " + e.getMessage(), e);
+        }
+
         if (mOutputTemplatePath != null)
             mFormPath = mOutputTemplatePath;
     }
@@ -125,6 +138,8 @@ public class AddCRLServlet extends CMSServlet {
      * <ul>
      * <li>http.param crl certificate revocation list, base-64, DER encoded wrapped in -----BEGIN CERTIFICATE REVOCATION
      * LIST-----, -----END CERTIFICATE REVOCATION LIST----- strings
+     * <li>alternatively, the DER-encoded CRL as the request body with application/pkix-crl content type;
+     * the signature is verified while the CRL is received, and the minimal text response is used
      * <li>http.param noui if true, use minimal hardcoded text response
      * <li>signed.audit LOGGING_SIGNED_AUDIT_CRL_RETRIEVAL used when CRLs are retrieved by the OCSP Responder ("agent"
      * or "EE")
@@ -198,10 +213,19 @@ public class AddCRLServlet extends CMSServlet {
                 }
             }
 
-            String b64 = cmsReq.getHttpReq().getParameter("crl");
-            logger.debug("AddCRLServlet: CRL:\n" + b64);
+            String contentType = req.getContentType();
+            boolean binary = contentType != null && contentType.startsWith(CRL_CONTENT_TYPE);
+
+            String b64 = null;
+
+            if (binary) {
+                logger.info("AddCRLServlet: Receiving DER-encoded CRL");
+            } else {
+                b64 = cmsReq.getHttpReq().getParameter("crl");
+                logger.debug("AddCRLServlet: CRL:\n" + b64);
+            }
 
-            if (b64 == null) {
+            if (!binary && b64 == null) {
                 // store a message in the signed audit log file
                 auditMessage = CMS.getLogMessage(
                         AuditEvent.CRL_RETRIEVAL,
@@ -218,7 +242,7 @@ public class AddCRLServlet extends CMSServlet {
             String nouiParm = cmsReq.getHttpReq().getParameter("noui");
             boolean noUI = false;
 
-            if (nouiParm != null && nouiParm.equals("true")) {
+            if (binary || nouiParm != null && nouiParm.equals("true")) {
                 noUI = true;
                 logger.debug("AddCRLServlet: noUI=true");
             } else {
@@ -252,7 +276,7 @@ public class AddCRLServlet extends CMSServlet {
             ArgBlock fixed = new ArgBlock();
             CMSTemplateParams argSet = new CMSTemplateParams(header, fixed);
 
-            if (b64.indexOf(CertUtil.CRL_HEADER) == -1) {
+            if (!binary && b64.indexOf(CertUtil.CRL_HEADER) == -1) {
                 logger.error(CMS.getLogMessage("CMSGW_MISSING_CRL_HEADER"));
 
                 // store a message in the signed audit log file
@@ -267,7 +291,7 @@ public class AddCRLServlet extends CMSServlet {
                 throw new ECMSGWException(CMS.getUserMessage(getLocale(req),
                                           "CMS_GW_MISSING_CRL_HEADER"));
             }
-            if (b64.indexOf(CertUtil.CRL_FOOTER) == -1) {
+            if (!binary && b64.indexOf(CertUtil.CRL_FOOTER) == -1) {
                 logger.error(CMS.getLogMessage("CMSGW_MISSING_CRL_FOOTER"));
 
                 // store a message in the signed audit log file
@@ -286,6 +310,7 @@ public class AddCRLServlet extends CMSServlet {
             IDefStore defStore = mOCSPAuthority.getDefaultStore();
 
             X509CRLImpl crl = null;
+            CRLIssuingPointRecord pt = null;
 
             try {
                 long startTime = new Date().getTime();
@@ -293,7 +318,28 @@ public class AddCRLServlet extends CMSServlet {
                 if (statsSub != null) {
                     statsSub.startTiming("decode_crl");
                 }
-                crl = mapCRL1(b64);
+                if (binary) {
+                    // the issuer is read first to find the CA certificate
+                    // so the CRL can be verified while it is received
+                    // the CRL cannot be larger than the request body
+                    long contentLength = req.getContentLengthLong();
+                    if (contentLength > mMaxCRLSize) {
+                        throw new EBaseException("CRL too large: " + contentLength + " bytes");
+                    }
+
+                    long maxSize = contentLength < 0 ? mMaxCRLSize : contentLength;
+                    StreamingCRLReader reader = new StreamingCRLReader(req.getInputStream(), maxSize);
+                    String issuer = reader.getIssuer().getName();
+
+                    pt = defStore.readCRLIssuingPoint(issuer);
+                    if (pt == null) {
+                        throw new EBaseException("Unknown CRL issuing point: " + issuer);
+                    }
+
+                    crl = readCRL(reader, pt);
+                } else {
+                    crl = mapCRL1(b64);
+                }
                 if (statsSub != null) {
                     statsSub.endTiming("decode_crl");
                 }
@@ -319,6 +365,37 @@ public class AddCRLServlet extends CMSServlet {
                 // acknowledge that the CRL has been retrieved
                 CRLFetched = true;
 
+                if (binary && pt.getCACert() != null) {
+                    // store a message in the signed audit log file
+                    auditMessage = CMS.getLogMessage(
+                            AuditEvent.CRL_VALIDATION,
+                            auditSubjectID,
+                            ILogger.SUCCESS);
+
+                    auditor.log(auditMessage);
+
+                    // acknowledge that the CRL has been validated
+                    CRLValidated = true;
+                }
+
+            } catch (SignatureException e) {
+                logger.error("AddCRLServlet: Invalid CRL signature: " + e.getMessage(), e);
+
+                // the CRL has been received, the validation failure
+                // will be logged in the signed audit log file below
+                auditMessage = CMS.getLogMessage(
+                        AuditEvent.CRL_RETRIEVAL,
+                        auditSubjectID,
+                        ILogger.SUCCESS,
+                        auditCRLNum);
+
+                auditor.log(auditMessage);
+
+                CRLFetched = true;
+
+                throw new ECMSGWException(
+                        CMS.getUserMessage("CMS_GW_DECODING_CRL_ERROR"));
+
             } catch (Exception e) {
                 logger.error("AddCRLServlet: Unable to parse CRL: " + e.getMessage(), e);
 
@@ -337,32 +414,27 @@ public class AddCRLServlet extends CMSServlet {
 
             logger.info("AddCRLServlet: Issuer DN: " + crl.getIssuerDN().getName());
 
-            logger.info("AddCRLServlet: Revoked certs:");
-            Set<RevokedCertificate> certs = crl.getRevokedCertificates();
-            if (certs != null) {
-                for (RevokedCertificate cert : certs) {
-                    CertId certID = new CertId(cert.getSerialNumber());
-                    logger.info("AddCRLServlet: - " + certID.toHexString());
-                }
+            if (crl.areEntriesIncluded()) {
+                logger.info("AddCRLServlet: Revoked certs: " + crl.getNumberOfRevokedCertificates());
             }
 
-            CRLIssuingPointRecord pt = null;
-
-            try {
-                pt = defStore.readCRLIssuingPoint(
-                            crl.getIssuerDN().getName());
-            } catch (Exception e) {
-                logger.error("Unable to retrieve CRL issuing point: " + e.getMessage(), e);
+            if (!binary) {
+                try {
+                    pt = defStore.readCRLIssuingPoint(
+                                crl.getIssuerDN().getName());
+                } catch (Exception e) {
+                    logger.error("Unable to retrieve CRL issuing point: " + e.getMessage(), e);
 
-                // store a message in the signed audit log file
-                auditMessage = CMS.getLogMessage(
-                        AuditEvent.CRL_VALIDATION,
-                        auditSubjectID,
-                        ILogger.FAILURE);
+                    // store a message in the signed audit log file
+                    auditMessage = CMS.getLogMessage(
+                            AuditEvent.CRL_VALIDATION,
+                            auditSubjectID,
+                            ILogger.FAILURE);
 
-                auditor.log(auditMessage);
+                    auditor.log(auditMessage);
 
-                throw new ECMSGWException("Unable to retrieve CRL issuing point: " + e.getMessage(), e);
+                    throw new ECMSGWException("Unable to retrieve CRL issuing point: " + e.getMessage(), e);
+                }
             }
 
             logger.info("AddCRLServlet: Issuing Point: " + pt.getThisUpdate());
@@ -372,7 +444,8 @@ public class AddCRLServlet extends CMSServlet {
             boolean tokenSwitched = false;
             CryptoToken verToken = null;
             CryptoToken savedToken = null;
-            byte caCertData[] = pt.getCACert();
+            // binary CRLs have been verified while being received
+            byte caCertData[] = binary ? null : pt.getCACert();
             if (caCertData != null) {
                 try {
                     cmanager = CryptoManager.getInstance();
@@ -477,58 +550,73 @@ public class AddCRLServlet extends CMSServlet {
 
             if (crl.isDeltaCRL()) {
 
-                logger.warn("AddCRLServlet: no update, " + CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED"));
+                String error = checkDeltaCRL(defStore, pt, crl);
 
-                if (noUI) {
-                    try {
-                        resp.setContentType("application/text");
-                        resp.getOutputStream().write("status=1\n".getBytes());
-                        resp.getOutputStream().write(
-                                "error=Delta CRLs are not supported.\n".getBytes());
-                        resp.getOutputStream().flush();
-                        cmsReq.setStatus(CMSRequest.SUCCESS);
+                if (error != null) {
 
-                        return;
-                    } catch (Exception e) {
-                        logger.error("AddCRLServlet: " + e.getMessage(), e);
-                    }
+                    logger.warn("AddCRLServlet: no update, " + error);
 
-                } else {
-                    throw new ECMSGWException(CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED"));
+                    if (noUI) {
+                        try {
+                            resp.setContentType("application/text");
+                            resp.getOutputStream().write("status=1\n".getBytes());
+                            resp.getOutputStream().write(
+                                    ("error=" + error + "\n").getBytes());
+                            resp.getOutputStream().flush();
+                            cmsReq.setStatus(CMSRequest.SUCCESS);
+
+                            return;
+                        } catch (Exception e) {
+                            logger.error("AddCRLServlet: " + e.getMessage(), e);
+                        }
+
+                    } else {
+                        throw new ECMSGWException(error);
+                    }
                 }
             }
 
-            logger.info("AddCRLServlet: Start Committing CRL");
+            if (crl.isDeltaCRL()) {
 
-            // *****************************************************
-            // The commit transaction may take long time and
-            // there may have a system crash during the transaction
-            // *****************************************************
+                // the delta CRL is applied to the current CRL,
+                // which does not need to be stored again
+                logger.info("AddCRLServlet: Start Committing delta CRL " + crl.getCRLNumber());
+                defStore.updateDeltaCRL(crl);
 
-            RepositoryRecord repRec = defStore.createRepositoryRecord();
+            } else {
 
-            repRec.set(RepositoryRecord.ATTR_SERIALNO,
-                    new BigInteger(Long.toString(crl.getThisUpdate().getTime())));
-            try {
-                defStore.addRepository(
-                        crl.getIssuerDN().getName(),
-                        Long.toString(crl.getThisUpdate().getTime()),
-                        repRec);
-                logger.info("AddCRLServlet: Added CRL Updated " + Long.toString(crl.getThisUpdate().getTime()));
-            } catch (Exception e) {
-                logger.error("AddCRLServlet: " + e.getMessage(), e);
-            }
+                logger.info("AddCRLServlet: Start Committing CRL");
 
-            logger.info("AddCRLServlet: Created CRL Repository " + Long.toString(crl.getThisUpdate().getTime()));
+                // *****************************************************
+                // The commit transaction may take long time and
+                // there may have a system crash during the transaction
+                // *****************************************************
 
-            if (defStore.waitOnCRLUpdate()) {
-                defStore.updateCRL(crl);
-            } else {
-                // when the CRL large, the thread is terminiated by the
-                // servlet framework before it can finish its work
-                UpdateCRLThread uct = new UpdateCRLThread(defStore, crl);
+                RepositoryRecord repRec = defStore.createRepositoryRecord();
+
+                repRec.set(RepositoryRecord.ATTR_SERIALNO,
+                        new BigInteger(Long.toString(crl.getThisUpdate().getTime())));
+                try {
+                    defStore.addRepository(
+                            crl.getIssuerDN().getName(),
+                            Long.toString(crl.getThisUpdate().getTime()),
+                            repRec);
+                    logger.info("AddCRLServlet: Added CRL Updated " + Long.toString(crl.getThisUpdate().getTime()));
+                } catch (Exception e) {
+                    logger.error("AddCRLServlet: " + e.getMessage(), e);
+                }
+
+                logger.info("AddCRLServlet: Created CRL Repository " + Long.toString(crl.getThisUpdate().getTime()));
+
+                if (defStore.waitOnCRLUpdate()) {
+                    defStore.updateCRL(crl);
+                } else {
+                    // when the CRL large, the thread is terminiated by the
+                    // servlet framework before it can finish its work
+                    UpdateCRLThread uct = new UpdateCRLThread(defStore, crl);
 
-                uct.start();
+                    uct.start();
+                }
             }
 
             try {
@@ -591,6 +679,116 @@ public class AddCRLServlet extends CMSServlet {
         }
     }
 
+    /**
+     * Reads the rest of a DER-encoded CRL and verifies its signature
+     * with the CA certificate of the issuing point, if available.
+     */
+    X509CRLImpl readCRL(StreamingCRLReader reader, CRLIssuingPointRecord pt) throws Exception {
+
+        byte[] caCertData = pt.getCACert();
+        if (caCertData == null) {
+            return reader.readCRL(null, null);
+        }
+
+        OCSPEngine engine = OCSPEngine.getInstance();
+        OCSPEngineConfig cs = engine.getConfig();
+
+        CryptoManager cmanager = CryptoManager.getInstance();
+        String tokenName = cs.getString("ocsp.crlVerify.token", CryptoUtil.INTERNAL_TOKEN_NAME);
+        CryptoToken savedToken = cmanager.getThreadToken();
+        CryptoToken verToken = CryptoUtil.getCryptoToken(tokenName);
+        boolean tokenSwitched = false;
+
+        if (!savedToken.getName().equals(verToken.getName())) {
+            cmanager.setThreadToken(verToken);
+            tokenSwitched = true;
+        }
+
+        try {
+            org.mozilla.jss.crypto.X509Certificate jssCert = cmanager.importCACertPackage(caCertData);
+
+            logger.debug("AddCRLServlet: start verify");
+            X509CRLImpl crl = reader.readCRL(jssCert.getPublicKey(), "Mozilla-JSS");
+            logger.debug("AddCRLServlet: done verify");
+
+            return crl;
+
+        } finally {
+            if (tokenSwitched) {
+                cmanager.setThreadToken(savedToken);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the base CRL of a delta CRL.
+     */
+    static BigInteger getBaseCRLNumber(X509CRLImpl deltaCRL) throws IOException {
+
+        CRLExtensions exts = deltaCRL.getExtensions();
+        if (exts == null) {
+            return null;
+        }
+
+        for (int i = 0; i < exts.size(); i++) {
+            Extension ext = exts.elementAt(i);
+            if (ext instanceof DeltaCRLIndicatorExtension deltaExt) {
+                return (BigInteger) deltaExt.get(DeltaCRLIndicatorExtension.NUMBER);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks whether a delta CRL can be applied to the current CRL
+     * of the issuing point. The base CRL of the delta CRL must not be
+     * newer than the current CRL, and the delta CRL must be newer than
+     * the current CRL and delta CRL.
+     *
+     * @return error message, or null if the delta CRL can be applied
+     */
+    String checkDeltaCRL(IDefStore defStore, CRLIssuingPointRecord pt, X509CRLImpl deltaCRL) {
+
+        if (!defStore.isDeltaCRLSupported()) {
+            return CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED");
+        }
+
+        BigInteger crlNumber = pt.getCRLNumber();
+        BigInteger deltaCRLNumber = deltaCRL.getCRLNumber();
+        BigInteger baseCRLNumber;
+
+        try {
+            baseCRLNumber = getBaseCRLNumber(deltaCRL);
+        } catch (IOException e) {
+            logger.warn("AddCRLServlet: Unable to get base CRL number: " + e.getMessage(), e);
+            baseCRLNumber = null;
+        }
+
+        if (crlNumber == null || crlNumber.signum() < 0) {
+            return "No base CRL for delta CRL";
+        }
+
+        if (deltaCRLNumber == null || baseCRLNumber == null) {
+            return "Missing delta CRL number";
+        }
+
+        if (baseCRLNumber.compareTo(crlNumber) > 0) {
+            return "Base CRL " + baseCRLNumber + " of delta CRL is newer than the current CRL " + crlNumber;
+        }
+
+        if (deltaCRLNumber.compareTo(crlNumber) <= 0) {
+            return "Sent delta CRL is not newer than the current CRL";
+        }
+
+        BigInteger currentDeltaCRLNumber = pt.getDeltaCRLNumber();
+        if (currentDeltaCRLNumber != null && deltaCRLNumber.compareTo(currentDeltaCRLNumber) <= 0) {
+            return "Sent delta CRL is not newer than the current delta CRL";
+        }
+
+        return null;
+    }
+
     public X509CRLImpl mapCRL1(String mime64)
             throws IOException {
         mime64 = Cert.stripCRLBrackets(mime64.trim());
@@ -28,7 +28,10 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.dogtagpki.server.ocsp.OCSPCacheConfig;
 import org.dogtagpki.server.ocsp.OCSPConfig;
 import org.dogtagpki.server.ocsp.OCSPEngine;
 import org.dogtagpki.server.ocsp.OCSPEngineConfig;
@@ -61,6 +64,8 @@ import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.dbs.DBSubsystem;
 import com.netscape.cmscore.logging.Auditor;
+import com.netscape.cmscore.util.Histogram;
+import com.netscape.cmscore.util.MetricsRegistry;
 import com.netscape.cmscore.util.StatsSubsystem;
 import com.netscape.cmsutil.crypto.CryptoUtil;
 import com.netscape.cmsutil.ocsp.BasicOCSPResponse;
@@ -89,8 +94,6 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
 
     public static final String ID = "ocsp";
 
-    private long mServedTime = 0;
-
     public final static OBJECT_IDENTIFIER OCSP_NONCE = new OBJECT_IDENTIFIER("1.3.6.1.5.5.7.48.1.2");
 
     public final static String PROP_DEF_STORE_ID = "storeId";
@@ -105,12 +108,17 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
 
     private String[] mOCSPSigningAlgorithms = null;
     private IOCSPStore mDefStore = null;
+    private OCSPResponseCache mCache;
+
+    private LongAdder mNumOCSPRequest = new LongAdder();
+    private LongAdder mTotalTime = new LongAdder(); // nanoseconds
+    private LongAdder mTotalData = new LongAdder();
+    private LongAdder mSignTime = new LongAdder(); // nanoseconds
+    private LongAdder mLookupTime = new LongAdder(); // nanoseconds
 
-    public long mNumOCSPRequest = 0;
-    public long mTotalTime = 0;
-    public long mTotalData = 0;
-    public long mSignTime = 0;
-    public long mLookupTime = 0;
+    // request durations by cache result, null if statistics are disabled
+    private Histogram mCachedRequests;
+    private Histogram mUncachedRequests;
 
     /**
      * Retrieves the name of this subsystem.
@@ -177,6 +185,14 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
                 logger.warn(CMS.getLogMessage("CMSCORE_OCSP_SIGNING_UNIT", e.toString()), e);
             }
 
+            OCSPCacheConfig cacheConfig = mConfig.getCacheConfig();
+
+            if (cacheConfig.isEnabled() && mDefStore instanceof IDefStore defStore) {
+                logger.info("OCSPAuthority: Initializing response cache");
+                mCache = new OCSPResponseCache(this, defStore);
+                mCache.init(cacheConfig);
+            }
+
         } catch (EBaseException e) {
             logger.error("OCSPAuthority: " + e.getMessage(), e);
             throw e;
@@ -339,6 +355,22 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
             if (mDefStore != null)
                 mDefStore.startup();
 
+            StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+            if (mCache != null && statsSub != null) {
+                statsSub.addSource("ocsp.cache", mCache::getStats);
+            }
+
+            if (mSigningUnit.getSignaturePool() != null && statsSub != null) {
+                statsSub.addSource("signing.ocsp", mSigningUnit.getSignaturePool()::getStats);
+            }
+
+            if (statsSub != null) {
+                MetricsRegistry registry = statsSub.getMetricsRegistry();
+                registry.setHelp("pki_ocsp_request_duration_seconds", "Duration of OCSP requests");
+                mCachedRequests = registry.histogram("pki_ocsp_request_duration_seconds", "cache", "hit");
+                mUncachedRequests = registry.histogram("pki_ocsp_request_duration_seconds", "cache", "miss");
+            }
+
         } catch (EBaseException e) {
             logger.warn("OCSPAuthority: " + e.getMessage(), e);
             if (engine.isPreOpMode()) {
@@ -390,11 +422,66 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
         OCSPEngine engine = OCSPEngine.getInstance();
         StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
 
-        incNumOCSPRequest(1);
-        long startTime = new Date().getTime();
+        mNumOCSPRequest.increment();
+        long startTime = System.nanoTime();
 
         OCSPResponse response;
 
+        Extension nonce[] = null;
+
+        for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
+            Extension thisExt = tbsReq.getRequestExtensionAt(j);
+
+            if (thisExt.getExtnId().equals(OCSPAuthority.OCSP_NONCE)) {
+                nonce = new Extension[1];
+                nonce[0] = thisExt;
+            }
+        }
+
+        // responses with nonce are unique to the request so only
+        // single requests without nonce can be served from the cache
+        CertID cacheKey = null;
+        long cacheGeneration = 0;
+
+        if (mCache != null) {
+            if (nonce == null && tbsReq.getRequestCount() == 1) {
+                cacheKey = tbsReq.getRequestAt(0).getCertID();
+            } else {
+                mCache.bypass();
+            }
+        }
+
+        if (cacheKey != null) {
+
+            // obtained before the status lookup so that a response
+            // from outdated revocation data is not cached
+            cacheGeneration = mCache.getGeneration();
+
+            if (statsSub != null) {
+                statsSub.startTiming("cache_lookup");
+            }
+
+            response = mCache.get(cacheKey);
+
+            if (statsSub != null) {
+                statsSub.endTiming("cache_lookup");
+            }
+
+            if (response != null) {
+                logger.info("OCSPAuthority: Returning cached response for cert 0x{}",
+                        cacheKey.getSerialNumber().toString(16));
+
+                long elapsed = System.nanoTime() - startTime;
+                mTotalTime.add(elapsed);
+
+                if (mCachedRequests != null) {
+                    mCachedRequests.record(elapsed);
+                }
+
+                return response;
+            }
+        }
+
         try {
             // (3) look into database to check the certificate's status
             Vector<SingleResponse> singleResponses = new Vector<>();
@@ -403,7 +490,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
                 statsSub.startTiming("lookup");
             }
 
-            long lookupStartTime = new Date().getTime();
+            long lookupStartTime = System.nanoTime();
 
             for (int i = 0; i < tbsReq.getRequestCount(); i++) {
                 Request req = tbsReq.getRequestAt(i);
@@ -417,8 +504,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
                 singleResponses.addElement(sr);
             }
 
-            long lookupEndTime = new Date().getTime();
-            incLookupTime(lookupEndTime - lookupStartTime);
+            mLookupTime.add(System.nanoTime() - lookupStartTime);
 
             if (statsSub != null) {
                 statsSub.endTiming("lookup");
@@ -431,27 +517,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
             SingleResponse res[] = new SingleResponse[singleResponses.size()];
             singleResponses.copyInto(res);
 
-            ResponderID rid = null;
-
-            if (mDefStore.isByName()) {
-                rid = getResponderIDByName();
-            } else {
-                rid = getResponderIDByHash();
-            }
-
-            Extension nonce[] = null;
-
-            for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
-                Extension thisExt = tbsReq.getRequestExtensionAt(j);
-
-                if (thisExt.getExtnId().equals(OCSPAuthority.OCSP_NONCE)) {
-                    nonce = new Extension[1];
-                    nonce[0] = thisExt;
-                }
-            }
-
-            ResponseData rd = new ResponseData(rid,
-                    new GeneralizedTime(new Date()), res, nonce);
+            ResponseData rd = createResponseData(res, nonce);
 
             if (statsSub != null) {
                 statsSub.endTiming("build_response");
@@ -461,21 +527,21 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
                 statsSub.startTiming("signing");
             }
 
-            long signStartTime = new Date().getTime();
+            long signStartTime = System.nanoTime();
 
             BasicOCSPResponse basicRes = sign(rd);
 
-            long signEndTime = new Date().getTime();
-            incSignTime(signEndTime - signStartTime);
+            mSignTime.add(System.nanoTime() - signStartTime);
 
             if (statsSub != null) {
                 statsSub.endTiming("signing");
             }
 
-            response = new OCSPResponse(
-                    OCSPResponseStatus.SUCCESSFUL,
-                    new ResponseBytes(ResponseBytes.OCSP_BASIC,
-                            new OCTET_STRING(ASN1Util.encode(basicRes))));
+            response = createResponse(basicRes);
+
+            if (cacheKey != null) {
+                mCache.put(cacheKey, res[0], response, cacheGeneration);
+            }
 
         } catch (EBaseException e) {
             logger.error(CMS.getLogMessage("OCSP_REQUEST_FAILURE", e.toString()), e);
@@ -488,10 +554,12 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
 
         logger.info("OCSPAuthority: Done validating OCSP request");
 
-        long endTime = new Date().getTime();
-        incTotalTime(endTime - startTime);
+        long elapsed = System.nanoTime() - startTime;
+        mTotalTime.add(elapsed);
 
-        mServedTime = mServedTime + (endTime - startTime);
+        if (mUncachedRequests != null) {
+            mUncachedRequests.record(elapsed);
+        }
 
         return response;
     }
@@ -503,6 +571,63 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public void shutdown() {
+
+        OCSPEngine engine = OCSPEngine.getInstance();
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.removeSource("ocsp.cache");
+            statsSub.removeSource("signing.ocsp");
+        }
+
+        if (mCache != null) {
+            mCache.shutdown();
+            mCache = null;
+        }
+
+        if (mSigningUnit != null) {
+            mSigningUnit.shutdown();
+        }
+    }
+
+    /**
+     * Returns the response cache, or null if disabled.
+     */
+    public OCSPResponseCache getResponseCache() {
+        return mCache;
+    }
+
+    /**
+     * Creates the (unsigned) response data for the single responses.
+     */
+    public ResponseData createResponseData(SingleResponse[] res, Extension[] nonce) throws Exception {
+
+        ResponderID rid = null;
+
+        if (mDefStore.isByName()) {
+            rid = getResponderIDByName();
+        } else {
+            rid = getResponderIDByHash();
+        }
+
+        return new ResponseData(rid, new GeneralizedTime(new Date()), res, nonce);
+    }
+
+    /**
+     * Wraps the signed response into a successful OCSP response.
+     */
+    public OCSPResponse createResponse(BasicOCSPResponse basicRes) {
+        return new OCSPResponse(
+                OCSPResponseStatus.SUCCESSFUL,
+                new ResponseBytes(ResponseBytes.OCSP_BASIC,
+                        new OCTET_STRING(ASN1Util.encode(basicRes))));
+    }
+
+    /**
+     * Creates a signed OCSP response for the single responses.
+     */
+    public OCSPResponse createResponse(SingleResponse[] res, Extension[] nonce) throws Exception {
+        ResponseData rd = createResponseData(res, nonce);
+        return createResponse(sign(rd));
     }
 
     /**
@@ -559,7 +684,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
 
             byte rd_data[] = ASN1Util.encode(rd);
             if (rd_data != null) {
-                mTotalData += rd_data.length;
+                mTotalData.add(rd_data.length);
             }
 
             rd.encode(tmp);
@@ -706,7 +831,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public long getNumOCSPRequest() {
-        return mNumOCSPRequest;
+        return mNumOCSPRequest.sum();
     }
 
     /**
@@ -717,7 +842,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public long getOCSPRequestTotalTime() {
-        return mTotalTime;
+        return TimeUnit.NANOSECONDS.toMillis(mTotalTime.sum());
     }
 
     /**
@@ -728,12 +853,12 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public long getOCSPTotalSignTime() {
-        return mSignTime;
+        return TimeUnit.NANOSECONDS.toMillis(mSignTime.sum());
     }
 
     @Override
     public long getOCSPTotalLookupTime() {
-        return mLookupTime;
+        return TimeUnit.NANOSECONDS.toMillis(mLookupTime.sum());
     }
 
     /**
@@ -744,22 +869,22 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public long getOCSPTotalData() {
-        return mTotalData;
+        return mTotalData.sum();
     }
 
     public void incTotalTime(long inc) {
-        mTotalTime += inc;
+        mTotalTime.add(TimeUnit.MILLISECONDS.toNanos(inc));
     }
 
     public void incSignTime(long inc) {
-        mSignTime += inc;
+        mSignTime.add(TimeUnit.MILLISECONDS.toNanos(inc));
     }
 
     public void incLookupTime(long inc) {
-        mLookupTime += inc;
+        mLookupTime.add(TimeUnit.MILLISECONDS.toNanos(inc));
     }
 
     public void incNumOCSPRequest(long inc) {
-        mNumOCSPRequest += inc;
+        mNumOCSPRequest.add(inc);
     }
 }
@@ -0,0 +1,400 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ocsp;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.binary.Hex;
+import org.dogtagpki.server.ocsp.OCSPCacheConfig;
+import org.mozilla.jss.asn1.ASN1Util;
+import org.mozilla.jss.asn1.INTEGER;
+import org.mozilla.jss.asn1.NULL;
+import org.mozilla.jss.asn1.OCTET_STRING;
+import org.mozilla.jss.crypto.DigestAlgorithm;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+import org.mozilla.jss.netscape.security.x509.X509CertImpl;
+import org.mozilla.jss.netscape.security.x509.X509Key;
+import org.mozilla.jss.pkix.primitive.AlgorithmIdentifier;
+
+import com.netscape.certsrv.ocsp.CRLUpdateListener;
+import com.netscape.certsrv.ocsp.IDefStore;
+import com.netscape.cmscore.dbs.CRLIssuingPointRecord;
+import com.netscape.cmsutil.ocsp.CertID;
+import com.netscape.cmsutil.ocsp.OCSPResponse;
+import com.netscape.cmsutil.ocsp.Request;
+import com.netscape.cmsutil.ocsp.SingleResponse;
+
+/**
+ * Cache of signed OCSP responses for requests without nonce.
+ *
+ * Responses are keyed by the CertID of the request and are valid
+ * until the nextUpdate of the response, the configured maximum age,
+ * or until a new CRL for the issuer is received, whichever comes first.
+ *
+ * If pre-generation is enabled, responses for the revoked certificates
+ * of a new CRL are signed in the background so that requests for them
+ * do not require a signing operation.
+ */
+public class OCSPResponseCache implements CRLUpdateListener {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(OCSPResponseCache.class);
+
+    static class Entry {
+
+        final String issuer;
+        final byte[] certID;
+        final OCSPResponse response;
+        final long expires;
+
+        Entry(String issuer, byte[] certID, OCSPResponse response, long expires) {
+            this.issuer = issuer;
+            this.certID = certID;
+            this.response = response;
+            this.expires = expires;
+        }
+    }
+
+    private OCSPAuthority authority;
+    private IDefStore store;
+
+    private int maxEntries;
+    private long maxAge;
+    private boolean pregenerate;
+    private List<String> pregenerateDigests = new ArrayList<>();
+    private int pregenerateMaxEntries;
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private ExecutorService pregenerator;
+
+    // incremented whenever responses are invalidated so that responses
+    // created from older revocation data are not added afterwards
+    private AtomicLong generation = new AtomicLong();
+
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder bypassed = new LongAdder();
+    private LongAdder pregenerated = new LongAdder();
+    private LongAdder evicted = new LongAdder();
+
+    public OCSPResponseCache(OCSPAuthority authority, IDefStore store) {
+        this.authority = authority;
+        this.store = store;
+    }
+
+    public void init(OCSPCacheConfig config) throws Exception {
+
+        maxEntries = config.getMaxEntries();
+        maxAge = config.getMaxAge() * 1000L;
+        pregenerate = config.getPregenerate();
+
+        for (String digest : config.getPregenerateDigests().split(",")) {
+            digest = digest.trim();
+            if (!digest.isEmpty()) {
+                pregenerateDigests.add(digest);
+            }
+        }
+
+        pregenerateMaxEntries = config.getPregenerateMaxEntries();
+
+        logger.info("OCSPResponseCache: max entries: " + maxEntries);
+        logger.info("OCSPResponseCache: max age: " + config.getMaxAge() + " s");
+        logger.info("OCSPResponseCache: pre-generate: " + pregenerate);
+
+        if (pregenerate) {
+            pregenerator = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "OCSPResponsePregenerator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        store.addCRLUpdateListener(this);
+    }
+
+    public void shutdown() {
+
+        store.removeCRLUpdateListener(this);
+
+        if (pregenerator != null) {
+            pregenerator.shutdownNow();
+            pregenerator = null;
+        }
+
+        entries.clear();
+    }
+
+    static String createIssuerKey(String digest, byte[] nameHash) {
+        return digest + ":" + Hex.encodeHexString(nameHash);
+    }
+
+    static String createKey(CertID certID) {
+        return createIssuerKey(certID.getDigestName(), certID.getIssuerNameHash().toByteArray())
+                + ":" + Hex.encodeHexString(certID.getIssuerKeyHash().toByteArray())
+                + ":" + certID.getSerialNumber().toString(16);
+    }
+
+    /**
+     * Records a request that cannot be served from the cache
+     * (e.g. with nonce or multiple certificates).
+     */
+    public void bypass() {
+        bypassed.increment();
+    }
+
+    /**
+     * Returns the cached response for the CertID, or null.
+     */
+    public OCSPResponse get(CertID certID) {
+
+        String key = createKey(certID);
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.expires <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        // the response echoes the CertID, so it must match the request
+        // exactly (e.g. including the digest algorithm parameters)
+        if (!Arrays.equals(entry.certID, ASN1Util.encode(certID))) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Returns the current generation of the cache. It must be obtained
+     * before checking the certificate status and passed to put().
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Adds a signed response for a single CertID to the cache unless
+     * the cache has been invalidated since the given generation.
+     */
+    public void put(CertID certID, SingleResponse singleResponse, OCSPResponse response, long generation) {
+
+        if (this.generation.get() != generation) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expires = now + maxAge;
+
+        if (singleResponse.getNextUpdate() != null) {
+            expires = Math.min(expires, singleResponse.getNextUpdate().toDate().getTime());
+        }
+
+        if (expires <= now) {
+            return;
+        }
+
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+
+        String issuer = createIssuerKey(certID.getDigestName(), certID.getIssuerNameHash().toByteArray());
+        String key = createKey(certID);
+        Entry entry = new Entry(issuer, ASN1Util.encode(certID), response, expires);
+        entries.put(key, entry);
+
+        // the cache may have been invalidated while the entry was added
+        if (this.generation.get() != generation) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Removes expired entries, or an arbitrary entry if none has expired.
+     */
+    void evict(long now) {
+
+        int size = entries.size();
+        entries.values().removeIf(entry -> entry.expires <= now);
+
+        if (entries.size() < maxEntries) {
+            evicted.add(size - entries.size());
+            return;
+        }
+
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+
+        evicted.add(size - entries.size());
+    }
+
+    /**
+     * Removes all responses of the issuer.
+     *
+     * @param name encoded issuer name
+     */
+    public void invalidate(byte[] name) throws Exception {
+
+        generation.incrementAndGet();
+
+        List<String> issuers = new ArrayList<>();
+        for (String digest : new String[] { "SHA-1", "SHA-256", "SHA-384", "SHA-512" }) {
+            issuers.add(createIssuerKey(digest, MessageDigest.getInstance(digest).digest(name)));
+        }
+
+        entries.values().removeIf(entry -> issuers.contains(entry.issuer));
+    }
+
+    @Override
+    public void crlUpdated(X509CRL crl) {
+
+        logger.info("OCSPResponseCache: Invalidating responses for " + crl.getIssuerDN());
+
+        try {
+            invalidate(((X500Name) crl.getIssuerDN()).getEncoded());
+        } catch (Exception e) {
+            logger.warn("OCSPResponseCache: Unable to invalidate responses: " + e.getMessage(), e);
+            entries.clear();
+        }
+
+        if (pregenerator != null) {
+            pregenerator.submit(() -> pregenerate((X509CRLImpl) crl));
+        }
+    }
+
+    @Override
+    public void crlReloaded(X509CertImpl caCert) {
+
+        logger.info("OCSPResponseCache: Invalidating responses for " + caCert.getSubjectDN());
+
+        try {
+            invalidate(caCert.getSubjectObj().getX500Name().getEncoded());
+        } catch (Exception e) {
+            logger.warn("OCSPResponseCache: Unable to invalidate responses: " + e.getMessage(), e);
+            entries.clear();
+        }
+    }
+
+    static DigestAlgorithm getDigestAlgorithm(String digest) {
+        switch (digest) {
+        case "SHA-1":
+            return DigestAlgorithm.SHA1;
+        case "SHA-256":
+            return DigestAlgorithm.SHA256;
+        case "SHA-384":
+            return DigestAlgorithm.SHA384;
+        case "SHA-512":
+            return DigestAlgorithm.SHA512;
+        default:
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + digest);
+        }
+    }
+
+    /**
+     * Signs responses for the revoked certificates in the CRL.
+     */
+    void pregenerate(X509CRLImpl crl) {
+        long generation = getGeneration();
+
+        try {
+            String issuerName = crl.getIssuerDN().getName();
+            CRLIssuingPointRecord rec = store.readCRLIssuingPoint(issuerName);
+
+            if (rec == null || rec.getCACert() == null) {
+                logger.warn("OCSPResponseCache: Missing CA certificate for " + issuerName);
+                return;
+            }
+
+            Set<RevokedCertificate> revokedCerts = crl.getRevokedCertificates();
+            if (revokedCerts == null || revokedCerts.isEmpty()) {
+                return;
+            }
+
+            X509CertImpl caCert = new X509CertImpl(rec.getCACert());
+            X509Key key = (X509Key) caCert.getPublicKey();
+            byte[] name = caCert.getSubjectObj().getX500Name().getEncoded();
+
+            logger.info("OCSPResponseCache: Pre-generating responses for " + issuerName);
+
+            int count = 0;
+
+            for (String digest : pregenerateDigests) {
+
+                MessageDigest md = MessageDigest.getInstance(digest);
+                OCTET_STRING nameHash = new OCTET_STRING(md.digest(name));
+                OCTET_STRING keyHash = new OCTET_STRING(md.digest(key.getKey()));
+
+                // most clients encode the digest parameters as NULL
+                AlgorithmIdentifier algID = new AlgorithmIdentifier(
+                        getDigestAlgorithm(digest).toOID(), NULL.getInstance());
+
+                for (RevokedCertificate revokedCert : revokedCerts) {
+
+                    if (count >= pregenerateMaxEntries || Thread.currentThread().isInterrupted()) {
+                        logger.info("OCSPResponseCache: Pre-generated " + count + " responses");
+                        return;
+                    }
+
+                    BigInteger serialNumber = revokedCert.getSerialNumber();
+                    CertID certID = new CertID(algID, nameHash, keyHash, new INTEGER(serialNumber));
+
+                    SingleResponse sr = store.processRequest(new Request(certID, null));
+                    OCSPResponse response = authority.createResponse(new SingleResponse[] { sr }, null);
+
+                    put(certID, sr, response, generation);
+                    pregenerated.increment();
+                    count++;
+                }
+            }
+
+            logger.info("OCSPResponseCache: Pre-generated " + count + " responses");
+
+        } catch (Exception e) {
+            logger.warn("OCSPResponseCache: Unable to pre-generate responses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns cache counters.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("bypassed", bypassed.sum());
+        stats.put("pregenerated", pregenerated.sum());
+        stats.put("evicted", evicted.sum());
+
+        return stats;
+    }
+}
@@ -57,6 +57,9 @@ public final class OCSPSigningUnit extends SigningUnit {
 
         logger.debug("OCSPSigningUnit.init(" + config.getName() + ")");
 
+        // contexts of the previous key cannot be reused
+        shutdown();
+
         mConfig = config;
 
         String tokenname = null;
@@ -92,6 +95,8 @@ public final class OCSPSigningUnit extends SigningUnit {
             mDefSigningAlgorithm = checkSigningAlgorithmFromName(mDefSigningAlgname);
             logger.debug("SigningUnit: signing algorithm: " + mDefSigningAlgorithm);
 
+            initSignaturePool();
+
             mInited = true;
 
         } catch (java.security.cert.CertificateException e) {
@@ -126,6 +131,11 @@ public final class OCSPSigningUnit extends SigningUnit {
             throw new EBaseException("OCSPSigningUnit not initialized!");
         }
 
+        if (mSignaturePool != null) {
+            logger.info("OCSPSigningUnit: Signing OCSP response with pooled context");
+            return signWithPool(data, algname);
+        }
+
         // XXX for now do this mapping until James changes the names
         // to match JCA names and provide a getAlgorithm method.
         SignatureAlgorithm signAlg = mDefSigningAlgorithm;
@@ -134,7 +144,6 @@ public final class OCSPSigningUnit extends SigningUnit {
             signAlg = checkSigningAlgorithmFromName(algname);
         }
 
-        // XXX use a pool of signers based on alg ?
         // XXX Map algor. name to id. hack: use hardcoded define for now.
         logger.info("OCSPSigningUnit: Getting algorithm context for " + algname + " " + signAlg);
         Signature signer = mToken.getSignatureContext(signAlg);
@@ -0,0 +1,69 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.ocsp;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ocsp.cache.* parameters.
+ */
+public class OCSPCacheConfig extends ConfigStore {
+
+    public OCSPCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public OCSPCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns ocsp.cache.enable parameter.
+     */
+    public boolean isEnabled() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns ocsp.cache.maxEntries parameter.
+     */
+    public int getMaxEntries() throws EBaseException {
+        return getInteger("maxEntries", 100000);
+    }
+
+    /**
+     * Returns ocsp.cache.maxAge parameter in seconds.
+     * Cached responses are also discarded when a new CRL is received
+     * or when the nextUpdate of the response has passed.
+     */
+    public int getMaxAge() throws EBaseException {
+        return getInteger("maxAge", 3600);
+    }
+
+    /**
+     * Returns ocsp.cache.pregenerate parameter.
+     */
+    public boolean getPregenerate() throws EBaseException {
+        return getBoolean("pregenerate", false);
+    }
+
+    /**
+     * Returns ocsp.cache.pregenerateDigests parameter.
+     */
+    public String getPregenerateDigests() throws EBaseException {
+        return getString("pregenerateDigests", "SHA-1");
+    }
+
+    /**
+     * Returns ocsp.cache.pregenerateMaxEntries parameter.
+     */
+    public int getPregenerateMaxEntries() throws EBaseException {
+        return getInteger("pregenerateMaxEntries", 10000);
+    }
+}
@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.server.ocsp;
 
+import java.math.BigInteger;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.security.SigningUnitConfig;
 import com.netscape.cmscore.base.ConfigStorage;
@@ -31,6 +33,22 @@ public class OCSPConfig extends ConfigStore {
         return getSubStore("signing", SigningUnitConfig.class);
     }
 
+    /**
+     * Returns ocsp.cache.* parameters.
+     */
+    public OCSPCacheConfig getCacheConfig() {
+        return getSubStore("cache", OCSPCacheConfig.class);
+    }
+
+    public static final long DEFAULT_MAX_CRL_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * Returns the maximum size in bytes of a CRL submitted in DER format.
+     */
+    public long getMaxCRLSize() throws EBaseException {
+        return getBigInteger("maxCRLSize", BigInteger.valueOf(DEFAULT_MAX_CRL_SIZE)).longValue();
+    }
+
     /**
      * Returns the comma-separated list of digest algorithms to reject in OCSP requests.
      * If not configured or empty, all algorithms are accepted.
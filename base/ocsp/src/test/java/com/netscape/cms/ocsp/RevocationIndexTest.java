@@ -0,0 +1,114 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+
+public class RevocationIndexTest {
+
+    @Test
+    public void testLookup() {
+
+        RevocationIndex.Builder builder = new RevocationIndex.Builder("test", null, 0);
+        for (int i = 1; i <= 1000; i++) {
+            builder.add(BigInteger.valueOf(i * 2), new Date(i), i % 10);
+        }
+        RevocationIndex index = builder.build();
+
+        assertEquals(1000, index.size());
+
+        for (int i = 1; i <= 1000; i++) {
+            int entry = index.lookup(BigInteger.valueOf(i * 2));
+            assertTrue(entry >= 0);
+            assertEquals(new Date(i), index.getRevocationDate(entry));
+            assertEquals(i % 10, index.getReason(entry));
+
+            assertEquals(-1, index.lookup(BigInteger.valueOf(i * 2 + 1)));
+        }
+    }
+
+    @Test
+    public void testLargeSerialNumbers() {
+
+        BigInteger low = new BigInteger("1234567890abcdef", 16);
+        BigInteger large = new BigInteger("fedcba98765432101234567890abcdef", 16);
+        BigInteger larger = new BigInteger("01fedcba98765432101234567890abcdef", 16);
+
+        RevocationIndex index = new RevocationIndex.Builder("test", null, 0)
+                .add(large, new Date(1), RevocationIndex.NO_REASON)
+                .build();
+
+        // same lowest 64 bits but different serial numbers
+        assertEquals(-1, index.lookup(low));
+        assertEquals(-1, index.lookup(larger));
+
+        int entry = index.lookup(large);
+        assertEquals(0, entry);
+        assertEquals(RevocationIndex.NO_REASON, index.getReason(entry));
+    }
+
+    @Test
+    public void testEmptyIndex() {
+
+        RevocationIndex index = new RevocationIndex.Builder("test", null, 0).build();
+
+        assertEquals(0, index.size());
+        assertEquals(-1, index.lookup(BigInteger.ONE));
+    }
+
+    @Test
+    public void testDelta() {
+
+        RevocationIndex base = new RevocationIndex.Builder("test", null, 0)
+                .add(BigInteger.valueOf(1), new Date(1), RevocationIndex.NO_REASON)
+                .add(BigInteger.valueOf(2), new Date(2), RevocationReason.CERTIFICATE_HOLD.getCode())
+                .setThisUpdate(new Date(100))
+                .build();
+
+        RevocationIndex delta = new RevocationIndex.Builder("test", null, 0)
+                .add(BigInteger.valueOf(2), new Date(2), RevocationReason.REMOVE_FROM_CRL.getCode())
+                .add(BigInteger.valueOf(3), new Date(3), RevocationReason.KEY_COMPROMISE.getCode())
+                .setThisUpdate(new Date(200))
+                .build();
+
+        RevocationIndex index = base.withDelta(delta);
+
+        assertEquals(new Date(200), index.getThisUpdate());
+
+        // base entry
+        assertEquals(new Date(1), index.getRevocationDate(index.lookup(BigInteger.valueOf(1))));
+
+        // removed from CRL by the delta
+        assertEquals(-1, index.lookup(BigInteger.valueOf(2)));
+
+        // added by the delta
+        int entry = index.lookup(BigInteger.valueOf(3));
+        assertTrue(entry >= 0);
+        assertEquals(new Date(3), index.getRevocationDate(entry));
+        assertEquals(RevocationReason.KEY_COMPROMISE.getCode(), index.getReason(entry));
+
+        // a new delta replaces the previous one
+        RevocationIndex newDelta = new RevocationIndex.Builder("test", null, 0)
+                .setThisUpdate(new Date(300))
+                .build();
+
+        index = index.withDelta(newDelta);
+        assertEquals(new Date(300), index.getThisUpdate());
+        assertTrue(index.lookup(BigInteger.valueOf(2)) >= 0);
+        assertEquals(-1, index.lookup(BigInteger.valueOf(3)));
+
+        // base index is unchanged
+        assertEquals(new Date(100), base.getThisUpdate());
+        assertTrue(base.lookup(BigInteger.valueOf(2)) >= 0);
+    }
+}
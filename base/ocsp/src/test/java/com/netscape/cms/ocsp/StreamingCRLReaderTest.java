@@ -0,0 +1,126 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Hashtable;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+
+public class StreamingCRLReaderTest {
+
+    static final String ALGORITHM = "SHA256withRSA";
+
+    static KeyPair keyPair;
+    static KeyPair otherKeyPair;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+    }
+
+    static byte[] createCRL(int size) throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> entries = new Hashtable<>();
+        for (int i = 1; i <= size; i++) {
+            BigInteger serialNumber = BigInteger.valueOf(i);
+            entries.put(serialNumber, new RevokedCertImpl(serialNumber, new Date(), null));
+        }
+
+        Date thisUpdate = new Date();
+        Date nextUpdate = new Date(thisUpdate.getTime() + 60 * 60 * 1000);
+
+        X509CRLImpl crl = new X509CRLImpl(new X500Name("CN=Test CA"), AlgorithmId.get(ALGORITHM),
+                thisUpdate, nextUpdate, entries, null);
+
+        try (DerOutputStream out = new DerOutputStream();
+                DerOutputStream tmp = new DerOutputStream()) {
+
+            crl.encodeInfo(tmp);
+            AlgorithmId.get(ALGORITHM).encode(tmp);
+
+            Signature signer = Signature.getInstance(ALGORITHM);
+            signer.initSign(keyPair.getPrivate());
+            signer.update(crl.getTBSCertList());
+
+            tmp.putBitString(signer.sign());
+            out.write(DerValue.tag_Sequence, tmp);
+
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testReadCRL() throws Exception {
+
+        byte[] bytes = createCRL(1000);
+        StreamingCRLReader reader = new StreamingCRLReader(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertEquals(new X500Name("CN=Test CA"), reader.getIssuer());
+
+        X509CRLImpl crl = reader.readCRL(keyPair.getPublic(), null);
+
+        assertEquals(1000, crl.getNumberOfRevokedCertificates());
+        assertArrayEquals(bytes, crl.getEncoded());
+    }
+
+    @Test
+    public void testReadCRLWithoutVerification() throws Exception {
+
+        byte[] bytes = createCRL(0);
+        StreamingCRLReader reader = new StreamingCRLReader(new ByteArrayInputStream(bytes), bytes.length);
+
+        X509CRLImpl crl = reader.readCRL(null, null);
+        assertArrayEquals(bytes, crl.getEncoded());
+    }
+
+    @Test
+    public void testInvalidSignature() throws Exception {
+
+        byte[] bytes = createCRL(10);
+        StreamingCRLReader reader = new StreamingCRLReader(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertThrows(SignatureException.class, () -> reader.readCRL(otherKeyPair.getPublic(), null));
+    }
+
+    @Test
+    public void testInvalidCRL() throws Exception {
+
+        byte[] bytes = createCRL(10);
+
+        // too large
+        assertThrows(IOException.class,
+                () -> new StreamingCRLReader(new ByteArrayInputStream(bytes), bytes.length - 1));
+
+        // truncated
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 10);
+        StreamingCRLReader reader = new StreamingCRLReader(new ByteArrayInputStream(truncated), bytes.length);
+        assertThrows(IOException.class, () -> reader.readCRL(keyPair.getPublic(), null));
+    }
+}
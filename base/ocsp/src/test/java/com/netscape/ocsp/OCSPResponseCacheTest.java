@@ -0,0 +1,213 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ocsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.Hashtable;
+
+import org.dogtagpki.server.ocsp.OCSPCacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.asn1.GeneralizedTime;
+import org.mozilla.jss.asn1.INTEGER;
+import org.mozilla.jss.asn1.NULL;
+import org.mozilla.jss.asn1.OCTET_STRING;
+import org.mozilla.jss.crypto.DigestAlgorithm;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+import org.mozilla.jss.pkix.primitive.AlgorithmIdentifier;
+
+import com.netscape.cms.ocsp.DefStore;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmsutil.ocsp.CertID;
+import com.netscape.cmsutil.ocsp.GoodInfo;
+import com.netscape.cmsutil.ocsp.OCSPResponse;
+import com.netscape.cmsutil.ocsp.OCSPResponseStatus;
+import com.netscape.cmsutil.ocsp.SingleResponse;
+
+public class OCSPResponseCacheTest {
+
+    static final long HOUR = 3600 * 1000L;
+
+    /**
+     * Store that notifies the listeners when the revocation index of
+     * an issuer has been swapped, like the DefStore index builder.
+     */
+    static class DefStoreStub extends DefStore {
+
+        void swapIndex(X500Name issuer) throws Exception {
+            X509CRLImpl crl = new X509CRLImpl(issuer, AlgorithmId.get("SHA256withRSA"),
+                    new Date(), null, new Hashtable<>(), null);
+            notifyCRLUpdateListeners(crl);
+        }
+    }
+
+    X500Name issuerA = new X500Name("CN=CA A");
+    X500Name issuerB = new X500Name("CN=CA B");
+
+    DefStoreStub store = new DefStoreStub();
+    OCSPResponseCache cache;
+
+    public OCSPResponseCacheTest() throws Exception {
+    }
+
+    OCSPResponseCache createCache(int maxEntries) throws Exception {
+
+        OCSPCacheConfig config = new OCSPCacheConfig("cache", new SimpleProperties());
+        config.putInteger("maxEntries", maxEntries);
+
+        cache = new OCSPResponseCache(null, store);
+        cache.init(config);
+
+        return cache;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    CertID createCertID(X500Name issuer, long serialNumber) throws Exception {
+
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        AlgorithmIdentifier algID = new AlgorithmIdentifier(DigestAlgorithm.SHA1.toOID(), NULL.getInstance());
+
+        return new CertID(
+                algID,
+                new OCTET_STRING(md.digest(issuer.getEncoded())),
+                new OCTET_STRING(md.digest(issuer.getEncoded())),
+                new INTEGER(BigInteger.valueOf(serialNumber)));
+    }
+
+    SingleResponse createSingleResponse(CertID certID, long nextUpdate) {
+        return new SingleResponse(
+                certID,
+                new GoodInfo(),
+                new GeneralizedTime(new Date()),
+                new GeneralizedTime(new Date(nextUpdate)));
+    }
+
+    OCSPResponse put(CertID certID, long generation) {
+        OCSPResponse response = new OCSPResponse(OCSPResponseStatus.SUCCESSFUL, null);
+        SingleResponse sr = createSingleResponse(certID, System.currentTimeMillis() + HOUR);
+        cache.put(certID, sr, response, generation);
+        return response;
+    }
+
+    @Test
+    public void testGet() throws Exception {
+
+        OCSPResponseCache cache = createCache(10);
+
+        CertID certID = createCertID(issuerA, 1);
+        assertNull(cache.get(certID));
+
+        OCSPResponse response = put(certID, cache.getGeneration());
+        assertSame(response, cache.get(certID));
+        assertNull(cache.get(createCertID(issuerA, 2)));
+
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    public void testExpiredResponse() throws Exception {
+
+        OCSPResponseCache cache = createCache(10);
+
+        CertID certID = createCertID(issuerA, 1);
+        OCSPResponse response = new OCSPResponse(OCSPResponseStatus.SUCCESSFUL, null);
+        SingleResponse sr = createSingleResponse(certID, System.currentTimeMillis() - HOUR);
+
+        // responses past their nextUpdate are not cached
+        cache.put(certID, sr, response, cache.getGeneration());
+        assertNull(cache.get(certID));
+    }
+
+    @Test
+    public void testInvalidationAfterIndexSwap() throws Exception {
+
+        OCSPResponseCache cache = createCache(10);
+
+        CertID certA = createCertID(issuerA, 1);
+        CertID certB = createCertID(issuerB, 1);
+
+        put(certA, cache.getGeneration());
+        put(certB, cache.getGeneration());
+
+        store.swapIndex(issuerA);
+
+        // only the responses of the issuer with the new index are removed
+        assertNull(cache.get(certA));
+        assertNotNull(cache.get(certB));
+
+        // responses are cached again from the new index
+        put(certA, cache.getGeneration());
+        assertNotNull(cache.get(certA));
+    }
+
+    @Test
+    public void testStaleResponse() throws Exception {
+
+        OCSPResponseCache cache = createCache(10);
+
+        CertID certID = createCertID(issuerA, 1);
+
+        // the status is checked against the old index
+        long generation = cache.getGeneration();
+
+        store.swapIndex(issuerA);
+
+        // so the response is not cached after the swap
+        put(certID, generation);
+        assertNull(cache.get(certID));
+        assertEquals(0L, cache.getStats().get("entries"));
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+
+        OCSPResponseCache cache = createCache(3);
+
+        for (int i = 1; i <= 5; i++) {
+            put(createCertID(issuerA, i), cache.getGeneration());
+            assertTrue(cache.getStats().get("entries") <= 3);
+        }
+
+        assertEquals(2L, cache.getStats().get("evicted"));
+
+        // the most recent response is always cached
+        assertNotNull(cache.get(createCertID(issuerA, 5)));
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+
+        OCSPResponseCache cache = createCache(10);
+
+        CertID certID = createCertID(issuerA, 1);
+        put(certID, cache.getGeneration());
+
+        cache.shutdown();
+        assertNull(cache.get(certID));
+
+        // the cache no longer receives CRL updates
+        long generation = cache.getGeneration();
+        store.swapIndex(issuerA);
+        assertEquals(generation, cache.getGeneration());
+    }
+}
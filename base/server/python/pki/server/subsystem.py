@@ -906,8 +906,8 @@ class PKISubsystem(object):
         current_file_path = self.config['log.instance.SignedAudit.fileName']
         (log_dir, current_file) = os.path.split(current_file_path)
 
-        # sort log files based on timestamp
-        files = [f for f in os.listdir(log_dir) if f != current_file]
+        # sort log files based on timestamp, skip the log index directory
+        files = [f for f in os.listdir(log_dir) if f not in (current_file, '.index')]
         files.sort()
 
         # put the current log file at the end
@@ -40,6 +40,9 @@ import com.netscape.cmsutil.http.HttpResponse;
  * ca.connector.KRA.id="kra"
  * ca.connector.KRA.minHttpConns=1                   #Min connection pool connections.
  * ca.connector.KRA.maxHttpConns=10                  #Max connection pool connections.
+ * ca.connector.KRA.binaryEncoding=true             #Send requests in binary format.
+ * ca.connector.KRA.keepAlive=true                  #Keep connections open between requests.
+ * ca.connector.KRA.keepAliveTimeout=15             #Reopen connections idle longer than this (seconds).
  * </pre>
  */
 public class Connector {
@@ -78,4 +78,25 @@ public class ConnectorConfig extends ConfigStore {
     public int getMaxHttpConns() throws EBaseException {
         return getInteger("maxHttpConns", 15);
     }
+
+    /**
+     * Returns true if PKI messages should be sent in binary format
+     * instead of Java serialization.
+     */
+    public boolean getBinaryEncoding() throws EBaseException {
+        return getBoolean("binaryEncoding", true);
+    }
+
+    public boolean getKeepAlive() throws EBaseException {
+        return getBoolean("keepAlive", true);
+    }
+
+    /**
+     * Returns the idle time in seconds after which a kept-alive
+     * connection is reopened. It should be shorter than the
+     * keep-alive timeout of the remote server.
+     */
+    public int getKeepAliveTimeout() throws EBaseException {
+        return getInteger("keepAliveTimeout", 15);
+    }
 }
@@ -0,0 +1,38 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.security;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SignatureException;
+
+import org.mozilla.jss.crypto.Signature;
+
+/**
+ * Writes the data into a signature context.
+ */
+public class SignatureOutputStream extends OutputStream {
+
+    private Signature signer;
+
+    public SignatureOutputStream(Signature signer) {
+        this.signer = signer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            signer.update(b, off, len);
+        } catch (SignatureException e) {
+            throw new IOException("Unable to update signature: " + e.getMessage(), e);
+        }
+    }
+}
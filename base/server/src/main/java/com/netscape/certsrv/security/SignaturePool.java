@@ -0,0 +1,258 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.security;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.crypto.PrivateKey;
+import org.mozilla.jss.crypto.Signature;
+import org.mozilla.jss.crypto.SignatureAlgorithm;
+import org.mozilla.jss.crypto.TokenException;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.ca.ECAException;
+import com.netscape.cmscore.util.Histogram;
+
+/**
+ * Pool of signature contexts initialized with the private key
+ * of a signing unit.
+ *
+ * Creating and initializing a signature context is relatively
+ * expensive, especially on HSMs, so the contexts are kept per
+ * algorithm and reused. After sign() a context returns to the
+ * state it was in after initSign(), so it can be reused for the
+ * same key without reinitialization. A context that fails in any
+ * way is discarded and a new one is created on the next request.
+ *
+ * The number of concurrent signing operations is bounded by the
+ * pool size.
+ */
+public class SignaturePool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SignaturePool.class);
+
+    private String id;
+    private CryptoToken token;
+    private PrivateKey privateKey;
+
+    private int size;
+    private long maxWait; // milliseconds, <= 0 waits indefinitely
+
+    private Semaphore permits;
+    private Map<SignatureAlgorithm, ConcurrentLinkedDeque<Context>> idle = new ConcurrentHashMap<>();
+
+    private LongAdder signatures = new LongAdder();
+    private LongAdder created = new LongAdder();
+    private LongAdder discarded = new LongAdder();
+    private LongAdder waits = new LongAdder();
+    private LongAdder timeouts = new LongAdder();
+
+    private Histogram waitTime = new Histogram(); // nanoseconds
+    private Histogram signTime = new Histogram(); // nanoseconds
+
+    /**
+     * Signature context initialized with the private key.
+     */
+    protected interface Context {
+        byte[] sign(SigningUnit.DataSource data) throws Exception;
+    }
+
+    public SignaturePool(String id, CryptoToken token, PrivateKey privateKey) {
+        this.id = id;
+        this.token = token;
+        this.privateKey = privateKey;
+    }
+
+    public void init(int size, long maxWait) {
+
+        this.size = size;
+        this.maxWait = maxWait;
+
+        logger.info("SignaturePool: Creating signature pool for " + id);
+        logger.info("SignaturePool: - size: " + size);
+        logger.info("SignaturePool: - max wait: " + maxWait + " ms");
+
+        permits = new Semaphore(size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Signs the data with a pooled signature context.
+     *
+     * @param signAlg signing algorithm
+     * @param data data to be signed
+     * @return signature
+     */
+    public byte[] sign(SignatureAlgorithm signAlg, byte[] data) throws Exception {
+        return sign(signAlg, out -> out.write(data));
+    }
+
+    /**
+     * Signs the data written by the data source with a pooled
+     * signature context.
+     *
+     * @param signAlg signing algorithm
+     * @param data data to be signed
+     * @return signature
+     */
+    public byte[] sign(SignatureAlgorithm signAlg, SigningUnit.DataSource data) throws Exception {
+
+        long start = System.nanoTime();
+        acquire();
+
+        long acquired = System.nanoTime();
+        waitTime.record(acquired - start);
+
+        Context signer = null;
+
+        try {
+            signer = checkout(signAlg);
+            byte[] signature = signer.sign(data);
+
+            checkin(signAlg, signer);
+            signer = null;
+
+            signatures.increment();
+            return signature;
+
+        } finally {
+            if (signer != null) {
+                // context is in an unknown state after a failure
+                logger.warn("SignaturePool: Discarding signature context for " + signAlg);
+                discarded.increment();
+            }
+
+            signTime.record(System.nanoTime() - acquired);
+            permits.release();
+        }
+    }
+
+    private void acquire() throws EBaseException {
+
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        waits.increment();
+
+        try {
+            if (maxWait <= 0) {
+                permits.acquire();
+
+            } else if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new EBaseException("Timed out waiting " + maxWait + " ms for signature context in " + id);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EBaseException("Interrupted while waiting for signature context in " + id, e);
+        }
+    }
+
+    /**
+     * Takes an idle context for the algorithm or creates a new one.
+     * The caller must hold a permit.
+     */
+    private Context checkout(SignatureAlgorithm signAlg) throws EBaseException {
+
+        ConcurrentLinkedDeque<Context> contexts = idle.get(signAlg);
+        if (contexts != null) {
+            Context signer = contexts.pollFirst();
+            if (signer != null) {
+                return signer;
+            }
+        }
+
+        logger.debug("SignaturePool: Creating signature context for " + signAlg);
+
+        Context signer = createContext(signAlg);
+        created.increment();
+        return signer;
+    }
+
+    /**
+     * Creates a new signature context for the algorithm.
+     */
+    protected Context createContext(SignatureAlgorithm signAlg) throws EBaseException {
+
+        try {
+            Signature signer = token.getSignatureContext(signAlg);
+            signer.initSign(privateKey);
+
+            return data -> {
+                data.writeTo(new SignatureOutputStream(signer));
+                return signer.sign();
+            };
+
+        } catch (NoSuchAlgorithmException | TokenException | InvalidKeyException e) {
+            throw new ECAException("Signing algorithm not supported: " + signAlg + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void checkin(SignatureAlgorithm signAlg, Context signer) {
+
+        ConcurrentLinkedDeque<Context> contexts =
+                idle.computeIfAbsent(signAlg, alg -> new ConcurrentLinkedDeque<>());
+
+        // there are never more busy contexts than permits
+        // so keeping up to the pool size per algorithm is enough
+        if (contexts.size() < size) {
+            contexts.offerFirst(signer);
+        } else {
+            discarded.increment();
+        }
+    }
+
+    /**
+     * Drops all idle contexts, e.g. after the token was reinitialized.
+     */
+    public void clear() {
+        idle.clear();
+    }
+
+    public int getIdleContexts() {
+        int count = 0;
+        for (ConcurrentLinkedDeque<Context> contexts : idle.values()) {
+            count += contexts.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns pool metrics. Times are in microseconds.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("size", (long) size);
+        stats.put("inUse", (long) (size - permits.availablePermits()));
+        stats.put("idle", (long) getIdleContexts());
+        stats.put("signatures", signatures.sum());
+        stats.put("created", created.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("waits", waits.sum());
+        stats.put("timeouts", timeouts.sum());
+
+        waitTime.export("waitTime", stats, TimeUnit.MICROSECONDS);
+        signTime.export("signTime", stats, TimeUnit.MICROSECONDS);
+
+        return stats;
+    }
+}
@@ -17,6 +17,7 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.certsrv.security;
 
+import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
@@ -65,6 +66,8 @@ public abstract class SigningUnit {
     protected String mDefSigningAlgname;
     protected SignatureAlgorithm mDefSigningAlgorithm;
 
+    protected SignaturePool mSignaturePool;
+
     /**
      * Retrieves the nickname of the signing certificate.
      */
@@ -249,6 +252,118 @@ public abstract class SigningUnit {
         }
     }
 
+    /**
+     * Creates the signature context pool if configured.
+     * Must be called after the token and private key are loaded.
+     */
+    protected void initSignaturePool() throws EBaseException {
+
+        int poolSize = mConfig.getPoolSize();
+        if (poolSize <= 0) {
+            return;
+        }
+
+        mSignaturePool = new SignaturePool(mConfig.getName(), mToken, mPrivk);
+        mSignaturePool.init(poolSize, mConfig.getPoolMaxWait());
+    }
+
+    /**
+     * Releases the signature context pool. The signing unit has to be
+     * initialized again before it can use the pool.
+     */
+    public void shutdown() {
+
+        if (mSignaturePool == null) {
+            return;
+        }
+
+        mSignaturePool.clear();
+        mSignaturePool = null;
+    }
+
+    /**
+     * Retrieves the signature context pool.
+     *
+     * @return signature pool, or null if disabled
+     */
+    public SignaturePool getSignaturePool() {
+        return mSignaturePool;
+    }
+
+    /**
+     * Writes the data to be signed in parts.
+     */
+    @FunctionalInterface
+    public interface DataSource {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Signs the data with a pooled signature context.
+     *
+     * @param data data to be signed
+     * @param algname signing algorithm, or null for default algorithm
+     * @return signed data
+     */
+    protected byte[] signWithPool(byte[] data, String algname) throws Exception {
+        return signWithPool(out -> out.write(data), algname);
+    }
+
+    /**
+     * Signs the data with a pooled signature context.
+     *
+     * @param data data to be signed
+     * @param algname signing algorithm, or null for default algorithm
+     * @return signed data
+     */
+    protected byte[] signWithPool(DataSource data, String algname) throws Exception {
+
+        SignatureAlgorithm signAlg = mDefSigningAlgorithm;
+
+        if (algname != null) {
+            // the algorithm is validated when the pool initializes the context
+            signAlg = Cert.mapAlgorithmToJss(algname);
+            if (signAlg == null) {
+                throw new ECAException("Signing algorithm not supported: " + algname);
+            }
+        }
+
+        return mSignaturePool.sign(signAlg, data);
+    }
+
+    /**
+     * Signs data that is too large to be passed to sign() as a single
+     * byte array. The data is written into the signature context in
+     * parts, using a pooled context if the pool is enabled.
+     *
+     * @param data data to be signed
+     * @param algname signing algorithm, or null for default algorithm
+     * @return signed data
+     */
+    public byte[] sign(DataSource data, String algname) throws Exception {
+
+        if (!mInited) {
+            throw new EBaseException("Signing unit not initialized");
+        }
+
+        if (mSignaturePool != null) {
+            return signWithPool(data, algname);
+        }
+
+        SignatureAlgorithm signAlg = mDefSigningAlgorithm;
+
+        if (algname != null) {
+            signAlg = checkSigningAlgorithmFromName(algname);
+        }
+
+        Signature signer = mToken.getSignatureContext(signAlg);
+        signer.initSign(mPrivk);
+
+        data.writeTo(new SignatureOutputStream(signer));
+
+        return signer.sign();
+    }
+
     /**
      * Retrieves the public key associated in this unit.
      *
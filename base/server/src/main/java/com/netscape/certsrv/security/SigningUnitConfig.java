@@ -93,6 +93,22 @@ public class SigningUnitConfig extends ConfigStore {
         return getBoolean("testSignatureFailure", false);
     }
 
+    /**
+     * Returns the number of pooled signature contexts.
+     * Zero disables the pool.
+     */
+    public int getPoolSize() throws EBaseException {
+        return getInteger("pool.size", 0);
+    }
+
+    /**
+     * Returns the maximum time in milliseconds to wait for a
+     * signature context. Zero or less waits indefinitely.
+     */
+    public int getPoolMaxWait() throws EBaseException {
+        return getInteger("pool.maxWait", 0);
+    }
+
     public String getDefaultSigningAlgorithm() throws EBaseException {
         return getString("defaultSigningAlgorithm");
     }
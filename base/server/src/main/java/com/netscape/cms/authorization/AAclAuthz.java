@@ -19,12 +19,12 @@ package com.netscape.cms.authorization;
 
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.dogtagpki.server.authentication.AuthToken;
 import org.dogtagpki.server.authorization.AuthorizationConfig;
@@ -39,9 +39,12 @@ import com.netscape.certsrv.authorization.EAuthzAccessDenied;
 import com.netscape.certsrv.authorization.EAuthzInternalError;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.evaluators.AccessEvaluator;
+import com.netscape.cms.authorization.ACLDecisionCache.Decision;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.usrgrp.GroupListener;
+import com.netscape.cmscore.usrgrp.UGSubsystem;
 
 /**
  * An abstract class represents an authorization manager that governs the
@@ -79,9 +82,24 @@ public abstract class AAclAuthz extends AuthzManager {
 
     protected static final String ACLS_ATTR = "aclResources";
 
-    private Map<String, ACL> mACLs = new HashMap<>();
+    /**
+     * Evaluators whose result only depends on the user and groups
+     * in the auth token, so their decisions can be cached.
+     */
+    public static final Set<String> CACHEABLE_EVALUATORS = Set.of("user", "group");
+
+    private Map<String, ACL> mACLs = new ConcurrentHashMap<>();
     private Hashtable<String, AccessEvaluator> mEvaluators = new Hashtable<>();
 
+    // compiled access expressions
+    private Map<String, ACLExpression> mExpressions = new ConcurrentHashMap<>();
+
+    // whether the decisions for a resource and operation can be cached
+    private Map<String, Boolean> mCacheable = new ConcurrentHashMap<>();
+
+    private ACLDecisionCache mDecisionCache;
+    private GroupListener mGroupListener;
+
     /* Vector of extendedPluginInfo strings */
     protected static Vector<String> mExtendedPluginInfo = null;
 
@@ -150,9 +168,69 @@ public abstract class AAclAuthz extends AuthzManager {
             }
         }
 
+        AuthorizationConfig authzConfig = mainConfig.getAuthorizationConfig();
+
+        if (authzConfig.getCacheEnabled()) {
+            int cacheSize = authzConfig.getCacheSize();
+            int cacheTTL = authzConfig.getCacheTTL();
+
+            logger.info("AAclAuthz: Decision cache:");
+            logger.info("AAclAuthz: - size: " + cacheSize);
+            logger.info("AAclAuthz: - TTL: " + cacheTTL + " s");
+
+            mDecisionCache = new ACLDecisionCache(cacheSize, cacheTTL);
+
+            // group membership changes invalidate cached decisions
+            UGSubsystem ug = engine.getUGSubsystem();
+            if (ug != null) {
+                mGroupListener = groupID -> mDecisionCache.invalidate();
+                ug.addGroupListener(mGroupListener);
+            }
+        }
+
         logger.info("AAclAuthz: initialization done");
     }
 
+    /**
+     * Releases the resources used by this authorization manager.
+     */
+    @Override
+    public void shutdown() {
+
+        if (mGroupListener != null) {
+            engine.getUGSubsystem().removeGroupListener(mGroupListener);
+            mGroupListener = null;
+        }
+
+        if (mDecisionCache != null) {
+            logger.info("AAclAuthz: Decision cache hits: " + mDecisionCache.getHits()
+                    + ", misses: " + mDecisionCache.getMisses()
+                    + ", invalidations: " + mDecisionCache.getInvalidations());
+            mDecisionCache = null;
+        }
+    }
+
+    /**
+     * Invalidates cached decisions after the ACLs or
+     * the evaluators have changed.
+     */
+    protected void invalidateDecisions() {
+
+        mCacheable.clear();
+
+        ACLDecisionCache decisionCache = mDecisionCache;
+        if (decisionCache != null) {
+            decisionCache.invalidate();
+        }
+    }
+
+    /**
+     * Returns the compiled form of the access expression.
+     */
+    protected ACLExpression getExpression(String expression) {
+        return mExpressions.computeIfAbsent(expression, ACLExpression::parse);
+    }
+
     /**
      * Parse ACL resource attributes, then update the ACLs memory store
      * This is intended to be used if storing ACLs on ldap is not desired,
@@ -186,6 +264,8 @@ public abstract class AAclAuthz extends AuthzManager {
         } else {
             curACL.merge(acl);
         }
+
+        invalidateDecisions();
     }
 
     @Override
@@ -230,6 +310,7 @@ public abstract class AAclAuthz extends AuthzManager {
     @Override
     public void registerEvaluator(String type, AccessEvaluator evaluator) {
         mEvaluators.put(type, evaluator);
+        invalidateDecisions();
         logger.info("AAclAuthz: " + type + " evaluator registered");
     }
 
@@ -477,25 +558,72 @@ public abstract class AAclAuthz extends AuthzManager {
      * @param perm permission requested
      * @exception EACLsException access permission denied
      */
-    public synchronized void checkPermission(AuthToken authToken, String name,
+    public void checkPermission(AuthToken authToken, String name,
             String perm)
             throws EACLsException {
 
         logger.debug("AAclAuthz.checkPermission(" + name + ", " + perm + ")");
 
+        ACLDecisionCache decisionCache = mDecisionCache;
+        String key = null;
+        long generation = 0;
+
+        if (decisionCache != null && isCacheable(name, perm)) {
+            key = ACLDecisionCache.createKey(authToken, name, perm);
+        }
+
+        if (key != null) {
+            Decision decision = decisionCache.get(key);
+
+            if (decision != null) {
+                logger.debug("AAclAuthz: Cached decision: " + decision);
+                applyDecision(decision, name, perm);
+                return;
+            }
+
+            generation = decisionCache.getGeneration();
+        }
+
+        Decision decision = evaluatePermission(authToken, name, perm);
+
+        if (key != null) {
+            decisionCache.put(key, decision, generation);
+        }
+
+        applyDecision(decision, name, perm);
+    }
+
+    private Decision evaluatePermission(AuthToken authToken, String name, String perm)
+            throws EACLsException {
+
         Vector<String> nodes = getNodes(name);
         EvaluationOrder order = getOrder();
 
         boolean permitted = false;
         if (order == EvaluationOrder.DENY_ALLOW) {
-            checkDenyEntries(authToken, nodes, perm);
+            if (matchDenyEntries(authToken, nodes, perm)) {
+                return Decision.DENIED;
+            }
             permitted = checkAllowEntries(authToken, nodes, perm);
         } else if (order == EvaluationOrder.ALLOW_DENY) {
             permitted = checkAllowEntries(authToken, nodes, perm);
-            checkDenyEntries(authToken, nodes, perm);
+            if (matchDenyEntries(authToken, nodes, perm)) {
+                return Decision.DENIED;
+            }
+        }
+
+        return permitted ? Decision.GRANTED : Decision.NOT_ALLOWED;
+    }
+
+    private void applyDecision(Decision decision, String name, String perm)
+            throws EACLsException {
+
+        if (decision == Decision.DENIED) {
+            logger.error("AAclAuthz: checkPermission(): permission denied");
+            throw new EACLsException(CMS.getUserMessage("CMS_ACL_PERMISSION_DENIED"));
         }
 
-        if (!permitted) {
+        if (decision == Decision.NOT_ALLOWED) {
             String[] params = new String[2];
             params[0] = name;
             params[1] = perm;
@@ -508,6 +636,34 @@ public abstract class AAclAuthz extends AuthzManager {
         logger.info("AAclAuthz: Granting " + perm + " permission for " + name);
     }
 
+    /**
+     * Returns true if all access expressions that apply to the resource
+     * and operation only use evaluators whose result depends on the
+     * auth token alone.
+     */
+    protected boolean isCacheable(String name, String perm) throws EACLsException {
+
+        String key = name + ":" + perm;
+        Boolean cacheable = mCacheable.get(key);
+
+        if (cacheable == null) {
+            cacheable = true;
+            Vector<String> nodes = getNodes(name);
+
+            for (ACLEntry.Type type : ACLEntry.Type.values()) {
+                for (ACLEntry entry : getEntries(type, nodes, perm)) {
+                    if (!getExpression(entry.getAttributeExpressions()).usesOnly(CACHEABLE_EVALUATORS)) {
+                        cacheable = false;
+                    }
+                }
+            }
+
+            mCacheable.put(key, cacheable);
+        }
+
+        return cacheable;
+    }
+
     protected boolean checkAllowEntries(
             AuthToken authToken,
             Iterable<String> nodes,
@@ -521,19 +677,18 @@ public abstract class AAclAuthz extends AuthzManager {
         return false;
     }
 
-    /** throw EACLsException if a deny entry is matched */
-    protected void checkDenyEntries(
+    private boolean matchDenyEntries(
             AuthToken authToken,
             Iterable<String> nodes,
             String perm)
             throws EACLsException {
         for (ACLEntry entry : getEntries(ACLEntry.Type.DENY, nodes, perm)) {
-            logger.debug("checkDenyEntries(): expressions: " + entry.getAttributeExpressions());
+            logger.debug("matchDenyEntries(): expressions: " + entry.getAttributeExpressions());
             if (evaluateExpressions(authToken, entry.getAttributeExpressions())) {
-                logger.error("AAclAuthz: checkPermission(): permission denied");
-                throw new EACLsException(CMS.getUserMessage("CMS_ACL_PERMISSION_DENIED"));
+                return true;
             }
         }
+        return false;
     }
 
     protected Iterable<ACLEntry> getEntries(
@@ -569,68 +724,8 @@ public abstract class AAclAuthz extends AuthzManager {
      * group="Administrators" || group="Operators"
      */
     private boolean evaluateExpressions(AuthToken authToken, String s) {
-        // XXX - just handle "||" (or) among multiple expressions for now
-        // XXX - could use some optimization ... later
         logger.debug("evaluating expressions: " + s);
-
-        Vector<Object> v = new Vector<>();
-
-        while (s.length() > 0) {
-            int orIndex = s.indexOf("||");
-            int andIndex = s.indexOf("&&");
-
-            // this is the last expression
-            if (orIndex == -1 && andIndex == -1) {
-                boolean passed = evaluateExpression(authToken, s.trim());
-
-                logger.debug("evaluated expression: " + s.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                break;
-
-                // || first
-            } else if (andIndex == -1 || (orIndex != -1 && orIndex < andIndex)) {
-                String s1 = s.substring(0, orIndex);
-                boolean passed = evaluateExpression(authToken, s1.trim());
-
-                logger.debug("evaluated expression: " + s1.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("||");
-                s = s.substring(orIndex + 2);
-                // && first
-            } else {
-                String s1 = s.substring(0, andIndex);
-                boolean passed = evaluateExpression(authToken, s1.trim());
-
-                logger.debug("evaluated expression: " + s1.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("&&");
-                s = s.substring(andIndex + 2);
-            }
-        }
-
-        if (v.isEmpty()) {
-            return false;
-        }
-
-        if (v.size() == 1) {
-            Boolean bool = (Boolean) v.remove(0);
-
-            return bool.booleanValue();
-        }
-
-        boolean left = false;
-        String op = "";
-        boolean right = false;
-
-        while (!v.isEmpty()) {
-            if (op.equals(""))
-                left = ((Boolean) v.remove(0)).booleanValue();
-            op = (String) v.remove(0);
-            right = ((Boolean) v.remove(0)).booleanValue();
-            left = evaluateExp(left, op, right);
-        }
-
-        return left;
+        return getExpression(s).evaluate(authToken, mEvaluators);
     }
 
     public Vector<String> getNodes(String resourceID) {
@@ -653,57 +748,6 @@ public abstract class AAclAuthz extends AuthzManager {
         return v;
     }
 
-    /**
-     * Resolves the given expression.
-     */
-    private boolean evaluateExpression(AuthToken authToken, String expression) {
-        String op = getOp(expression);
-        String type = "";
-        String value = "";
-
-        if (!op.equals("")) {
-            int len = op.length();
-            int i = expression.indexOf(op);
-
-            type = expression.substring(0, i).trim();
-            value = expression.substring(i + len).trim();
-        }
-        AccessEvaluator evaluator = mEvaluators.get(type);
-
-        if (evaluator == null) {
-            logger.warn("AAclAuthz: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", type));
-            return false;
-        }
-
-        return evaluator.evaluate(authToken, type, op, value);
-    }
-
-    private String getOp(String exp) {
-        int i = exp.indexOf("!=");
-
-        if (i == -1) {
-            i = exp.indexOf("=");
-            if (i == -1) {
-                i = exp.indexOf(">");
-                if (i == -1) {
-                    i = exp.indexOf("<");
-                    if (i == -1) {
-                        logger.warn("AAclAuthz: " + CMS.getLogMessage("AUTHZ_OP_NOT_SUPPORTED", exp));
-                    } else {
-                        return "<";
-                    }
-                } else {
-                    return ">";
-                }
-            } else {
-                return "=";
-            }
-        } else {
-            return "!=";
-        }
-        return "";
-    }
-
     private boolean evaluateExp(boolean left, String op, boolean right) {
         if (op.equals("||")) {
             return left || right;
@@ -739,6 +783,7 @@ public abstract class AAclAuthz extends AuthzManager {
         }
 
         mACLs.put(ac.getName(), ac);
+        invalidateDecisions();
     }
 
     /**
@@ -0,0 +1,150 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.authorization;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dogtagpki.server.authentication.AuthToken;
+
+/**
+ * Bounded cache of authorization decisions by principal,
+ * resource, and operation.
+ *
+ * The principal is identified by the user ID and the groups in the
+ * auth token, which are the only inputs of the user and group access
+ * evaluators. Decisions expire after the configured time to live so
+ * changes made outside of this server (e.g. by a clone) are picked up
+ * eventually. When the cache is full it is cleared.
+ */
+public class ACLDecisionCache {
+
+    public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACLDecisionCache.class);
+
+    public enum Decision { GRANTED, DENIED, NOT_ALLOWED }
+
+    record Entry(Decision decision, long expires) {
+    }
+
+    private int maxSize;
+    private long ttl; // nanoseconds
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // incremented on each invalidation
+    private AtomicLong generation = new AtomicLong();
+
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+
+    public ACLDecisionCache(int maxSize, int ttl) {
+        this.maxSize = maxSize;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    /**
+     * Returns the cache key for the request, or null if the
+     * auth token does not identify the principal.
+     */
+    public static String createKey(AuthToken authToken, String resource, String operation) {
+
+        if (authToken == null) {
+            return null;
+        }
+
+        String userID = authToken.getInString(AuthToken.USER_ID);
+        String uid = authToken.getInString(AuthToken.UID);
+
+        if (userID == null && uid == null) {
+            return null;
+        }
+
+        String[] groups = authToken.getInStringArray(AuthToken.GROUPS);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(userID).append('\0');
+        sb.append(uid).append('\0');
+        sb.append(groups == null ? null : Arrays.toString(groups)).append('\0');
+        sb.append(resource).append('\0');
+        sb.append(operation);
+
+        return sb.toString();
+    }
+
+    public Decision get(String key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expires() > 0) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.decision();
+    }
+
+    /**
+     * Returns the current generation. It should be obtained before
+     * evaluating the decision and passed to put().
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Stores the decision unless the cache has been invalidated since
+     * the given generation, since the decision might have been made
+     * with outdated ACLs or group memberships.
+     */
+    public void put(String key, Decision decision, long generation) {
+
+        if (entries.size() >= maxSize) {
+            logger.debug("ACLDecisionCache: Cache full, clearing");
+            entries.clear();
+        }
+
+        Entry entry = new Entry(decision, System.nanoTime() + ttl);
+        entries.put(key, entry);
+
+        if (this.generation.get() != generation) {
+            entries.remove(key, entry);
+        }
+    }
+
+    public void invalidate() {
+        invalidations.increment();
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+}
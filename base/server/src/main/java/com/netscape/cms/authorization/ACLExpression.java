@@ -0,0 +1,203 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.authorization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dogtagpki.server.authentication.AuthToken;
+
+import com.netscape.certsrv.evaluators.AccessEvaluator;
+import com.netscape.cmscore.apps.CMS;
+
+/**
+ * Compiled ACL access expression, e.g.
+ *
+ * <PRE>
+ *   group="Administrators" || group="Operators" &amp;&amp; user!="tempAdmin"
+ * </PRE>
+ *
+ * The expression is parsed once into an immutable list of terms
+ * and operators so it can be evaluated concurrently without
+ * reparsing. The operators have equal precedence and are applied
+ * from left to right, i.e. the expression above is evaluated as
+ * (A || B) &amp;&amp; C. A term is not evaluated if it cannot change
+ * the result.
+ */
+public class ACLExpression {
+
+    public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACLExpression.class);
+
+    public enum Operator { AND, OR }
+
+    /**
+     * Single comparison in an expression, e.g. group="Administrators".
+     */
+    public record Term(String type, String op, String value) {
+
+        public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+
+            AccessEvaluator evaluator = evaluators.get(type);
+
+            if (evaluator == null) {
+                logger.warn("ACLExpression: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", type));
+                return false;
+            }
+
+            boolean passed = evaluator.evaluate(authToken, type, op, value);
+            logger.debug("ACLExpression: evaluated expression: " + type + op + value + " to be " + passed);
+
+            return passed;
+        }
+    }
+
+    private final String expression;
+    private final Term[] terms;
+    private final Operator[] operators;
+
+    private ACLExpression(String expression, Term[] terms, Operator[] operators) {
+        this.expression = expression;
+        this.terms = terms;
+        this.operators = operators;
+    }
+
+    /**
+     * Parses the expression.
+     *
+     * @param expression expression || expression &amp;&amp; ...
+     * @return compiled expression
+     */
+    public static ACLExpression parse(String expression) {
+
+        List<Term> terms = new ArrayList<>();
+        List<Operator> operators = new ArrayList<>();
+
+        String s = expression;
+
+        while (s.length() > 0) {
+            int orIndex = s.indexOf("||");
+            int andIndex = s.indexOf("&&");
+
+            // this is the last expression
+            if (orIndex == -1 && andIndex == -1) {
+                terms.add(parseTerm(s.trim()));
+                break;
+
+                // || first
+            } else if (andIndex == -1 || (orIndex != -1 && orIndex < andIndex)) {
+                terms.add(parseTerm(s.substring(0, orIndex).trim()));
+                operators.add(Operator.OR);
+                s = s.substring(orIndex + 2);
+
+                // && first
+            } else {
+                terms.add(parseTerm(s.substring(0, andIndex).trim()));
+                operators.add(Operator.AND);
+                s = s.substring(andIndex + 2);
+            }
+        }
+
+        // a trailing operator has no right operand
+        if (operators.size() == terms.size()) {
+            terms.add(new Term("", "", ""));
+        }
+
+        return new ACLExpression(
+                expression,
+                terms.toArray(new Term[0]),
+                operators.toArray(new Operator[0]));
+    }
+
+    static Term parseTerm(String expression) {
+
+        String op = getOp(expression);
+
+        if (op.equals("")) {
+            // evaluates to false since there is no evaluator for empty type
+            return new Term("", "", "");
+        }
+
+        int i = expression.indexOf(op);
+        String type = expression.substring(0, i).trim();
+        String value = expression.substring(i + op.length()).trim();
+
+        return new Term(type, op, value);
+    }
+
+    static String getOp(String exp) {
+
+        if (exp.contains("!=")) {
+            return "!=";
+        }
+
+        if (exp.contains("=")) {
+            return "=";
+        }
+
+        if (exp.contains(">")) {
+            return ">";
+        }
+
+        if (exp.contains("<")) {
+            return "<";
+        }
+
+        logger.warn("ACLExpression: " + CMS.getLogMessage("AUTHZ_OP_NOT_SUPPORTED", exp));
+        return "";
+    }
+
+    public List<Term> getTerms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    public List<Operator> getOperators() {
+        return Collections.unmodifiableList(Arrays.asList(operators));
+    }
+
+    /**
+     * Returns true if all terms use one of the given evaluator types.
+     */
+    public boolean usesOnly(Set<String> types) {
+        for (Term term : terms) {
+            if (!types.contains(term.type())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+
+        if (terms.length == 0) {
+            return false;
+        }
+
+        boolean result = terms[0].evaluate(authToken, evaluators);
+
+        for (int i = 1; i < terms.length; i++) {
+
+            Operator operator = operators[i - 1];
+
+            // (true || x) and (false && x) do not depend on x
+            if (operator == Operator.OR && result || operator == Operator.AND && !result) {
+                continue;
+            }
+
+            result = terms[i].evaluate(authToken, evaluators);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -65,5 +65,6 @@ public class BasicAclAuthz extends AAclAuthz
     @Override
     public void shutdown() {
         logger.info("BasicAclAuthz: shutting down");
+        super.shutdown();
     }
 }
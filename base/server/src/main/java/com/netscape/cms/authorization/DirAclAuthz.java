@@ -354,6 +354,8 @@ public class DirAclAuthz extends AAclAuthz
         } catch (DBException e) {
             logger.warn("DirAclAuthz: " + CMS.getLogMessage("AUTHZ_EVALUATOR_LDAP_ERROR", e.toString()), e);
         }
+
+        super.shutdown();
     }
 
 }
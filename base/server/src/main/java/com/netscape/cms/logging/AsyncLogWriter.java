@@ -0,0 +1,223 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.netscape.certsrv.logging.LogEvent;
+
+/**
+ * Writes log events to a LogFile in a background thread.
+ *
+ * Request threads add events to a bounded lock-free queue without
+ * taking the LogFile lock. The writer thread removes the events in
+ * batches and writes each batch with LogFile.writeBatch(), so the
+ * file is flushed and synced, and the signature is pushed, at most
+ * once per batch.
+ *
+ * If the queue is full, offer() waits up to the configured time for
+ * the writer to catch up and then fails, so the caller can apply the
+ * audit failure policy.
+ */
+public class AsyncLogWriter implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    // time the writer sleeps when the queue is empty
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // time a producer sleeps while the queue is full
+    private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private LogFile logFile;
+    private String name;
+
+    private int capacity;
+    private int batchSize;
+    private long maxWait; // nanoseconds
+
+    private ConcurrentLinkedQueue<LogEvent> queue = new ConcurrentLinkedQueue<>();
+    private AtomicInteger size = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile boolean idle;
+    private Thread thread;
+
+    private LongAdder enqueued = new LongAdder();
+    private LongAdder written = new LongAdder();
+    private LongAdder batches = new LongAdder();
+    private LongAdder waits = new LongAdder();
+    private LongAdder rejected = new LongAdder();
+
+    public AsyncLogWriter(LogFile logFile, String name, int capacity, int batchSize, int maxWait) {
+        this.logFile = logFile;
+        this.name = name;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxWait = TimeUnit.MILLISECONDS.toNanos(maxWait);
+    }
+
+    public void start() {
+
+        logger.info("AsyncLogWriter: Starting writer for " + name);
+        logger.info("AsyncLogWriter: - queue size: " + capacity);
+        logger.info("AsyncLogWriter: - batch size: " + batchSize);
+        logger.info("AsyncLogWriter: - max wait: " + TimeUnit.NANOSECONDS.toMillis(maxWait) + " ms");
+
+        running = true;
+
+        thread = new Thread(this, "AsyncLogWriter-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isAlive() {
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Adds an event to the queue.
+     *
+     * @return false if the writer is stopped or the queue remained
+     *         full for the maximum wait time
+     */
+    public boolean offer(LogEvent event) {
+
+        long deadline = 0;
+
+        while (true) {
+
+            if (!running) {
+                return false;
+            }
+
+            int n = size.get();
+
+            if (n < capacity) {
+                if (size.compareAndSet(n, n + 1)) {
+                    break;
+                }
+                continue;
+            }
+
+            long now = System.nanoTime();
+
+            if (deadline == 0) {
+                waits.increment();
+                deadline = now + maxWait;
+            }
+
+            if (now - deadline >= 0) {
+                rejected.increment();
+                return false;
+            }
+
+            LockSupport.parkNanos(FULL_WAIT);
+        }
+
+        queue.offer(event);
+
+        if (!running && queue.remove(event)) {
+            // the writer has stopped and will not see this event
+            size.decrementAndGet();
+            return false;
+        }
+
+        enqueued.increment();
+
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the writer. The writer thread writes the remaining events
+     * before it terminates.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+
+        List<LogEvent> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+
+            LogEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+
+            if (batch.isEmpty()) {
+
+                if (!running) {
+                    // recheck for events added before the writer was stopped
+                    if (queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+
+                idle = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                }
+                idle = false;
+
+                continue;
+            }
+
+            size.addAndGet(-batch.size());
+
+            try {
+                logFile.writeBatch(batch);
+
+            } catch (Throwable e) {
+                logger.error("AsyncLogWriter: Unable to write " + name + ": " + e.getMessage(), e);
+            }
+
+            written.add(batch.size());
+            batches.increment();
+
+            batch.clear();
+        }
+
+        logger.info("AsyncLogWriter: Stopped writer for " + name + ": " + getStats());
+    }
+
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("queued", (long) size.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batches.sum());
+        stats.put("waits", waits.sum());
+        stats.put("rejected", rejected.sum());
+
+        return stats;
+    }
+}
@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
 import java.io.CharArrayWriter;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -44,11 +45,14 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
@@ -130,6 +134,11 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
      */
     protected BufferedWriter mLogWriter;
 
+    /**
+     * The file descriptor of the log file, used to sync batches
+     */
+    private FileDescriptor mFileDescriptor;
+
     /**
      * The log date entry format pattern
      */
@@ -226,6 +235,36 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
     private PrivateKey mSigningKey;
     private Signature mSignature;
 
+    /**
+     * The background writer if asynchronous logging is enabled
+     */
+    private volatile AsyncLogWriter mAsyncWriter;
+    private boolean mAsyncSync = true;
+
+    /**
+     * The entry index of the current log file, or null if disabled
+     */
+    protected boolean mIndexEnabled = true;
+    protected volatile LogIndex mIndex;
+
+    /**
+     * The number of bytes in the current log file including buffered
+     * entries, and the number of bytes that have been flushed
+     */
+    private long mOffset;
+    private volatile long mFlushedOffset;
+
+    /**
+     * The indexes of recently retrieved rolled log files
+     */
+    private static final int MAX_ROLLED_INDEXES = 4;
+    private final Map<String, LogIndex> mRolledIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LogIndex> eldest) {
+            return size() > MAX_ROLLED_INDEXES;
+        }
+    };
+
     /**
      * Constructor for a LogFile.
      *
@@ -325,6 +364,17 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
                 throw e;
             }
         }
+
+        if (mOn && config.getAsync()) {
+            mAsyncSync = config.getAsyncSync();
+            mAsyncWriter = new AsyncLogWriter(
+                    this,
+                    config.getName(),
+                    config.getAsyncQueueSize(),
+                    config.getAsyncBatchSize(),
+                    config.getAsyncMaxWait());
+            mAsyncWriter.start();
+        }
     }
 
     /**
@@ -461,6 +511,8 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
             throw new ELogException(message, e);
         }
 
+        mIndexEnabled = config.getIndex();
+
         if (mOn) {
             init(fileName, config.getBufferSize(), config.getFlushInterval());
         }
@@ -715,8 +767,15 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
                     logger.warn(message, e);
                 }
             }
+            mFileDescriptor = out.getFD();
             mLogWriter = new BufferedWriter(
-                        new FileWriter(out.getFD()), mBufferSize);
+                        new FileWriter(mFileDescriptor), mBufferSize);
+
+            mOffset = out.length();
+            mFlushedOffset = mOffset;
+            if (mIndexEnabled) {
+                mIndex = openIndex(mFile, mOffset);
+            }
 
             // The first time we open, mSignature will not have been
             // initialized yet. That's ok, we will push our first signature
@@ -747,6 +806,46 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         mBytesUnflushed = 0;
     }
 
+    /**
+     * Loads the index of the log file, or builds it if the stored
+     * index does not match the file.
+     */
+    private LogIndex openIndex(File file, long length) {
+
+        LogIndex index = LogIndex.load(LogIndex.getIndexFile(file), length);
+        if (index != null) {
+            return index;
+        }
+
+        if (length == 0) {
+            return new LogIndex();
+        }
+
+        try {
+            return LogIndex.build(file, mDatePattern);
+        } catch (IOException e) {
+            logger.warn("LogFile: Unable to index " + file + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the index of the current log file.
+     */
+    protected synchronized void storeIndex(File file) {
+
+        LogIndex index = mIndex;
+        if (index == null) {
+            return;
+        }
+
+        try {
+            index.store(LogIndex.getIndexFile(file));
+        } catch (IOException e) {
+            logger.warn("LogFile: Unable to store index of " + file + ": " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Flush the log file. Also update the MAC for hash protected logs
      *
@@ -760,6 +859,7 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
 
             if (mLogWriter != null) {
                 mLogWriter.flush();
+                mFlushedOffset = mOffset;
             }
 
         } catch (Exception e) {
@@ -784,6 +884,7 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
             flush();
             if (mLogWriter != null) {
                 mLogWriter.close();
+                storeIndex(mFile);
             }
         } catch (IOException e) {
             System.err.println(CMS.getUserMessage("CMS_LOG_CLOSE_FAILED", mFileName, e.toString()));
@@ -817,9 +918,35 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
 
         auditor.log(auditMessage);
 
+        stopAsyncWriter();
         close();
     }
 
+    /**
+     * Stops the background writer after it has written the queued events.
+     * Subsequent events are written synchronously.
+     */
+    protected synchronized void stopAsyncWriter() {
+
+        AsyncLogWriter writer = mAsyncWriter;
+        if (writer == null) {
+            return;
+        }
+
+        writer.stop();
+
+        try {
+            // release the lock so the writer can write the remaining events
+            while (writer.isAlive()) {
+                wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        mAsyncWriter = null;
+    }
+
     /**
      * Set the flush interval
      * <P>
@@ -882,12 +1009,113 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
     }
 
     /**
-     * Synchronized method to write an event to the log file.
+     * Writes an event to the log file, or adds it to the queue of the
+     * background writer if asynchronous logging is enabled.
      *
      * @param event The log event
      */
-    protected synchronized void doLog(LogEvent event) throws ELogException {
-        doLog(event, false);
+    protected void doLog(LogEvent event) throws ELogException {
+
+        AsyncLogWriter writer = mAsyncWriter;
+
+        if (writer == null || !writer.isRunning()) {
+            synchronized (this) {
+                doLog(event, false);
+            }
+            return;
+        }
+
+        if (writer.offer(event)) {
+            return;
+        }
+
+        if (!writer.isRunning()) {
+            // the writer has been stopped in the meantime
+            synchronized (this) {
+                doLog(event, false);
+            }
+            return;
+        }
+
+        String message = "Unable to queue event for " + mFileName + ": Queue full";
+        logger.error("LogFile: " + message);
+        System.err.println(message);
+        if (mLogSigning) {
+            // Failed to write to audit log, shut down CMS
+            shutdownCMS();
+        }
+        throw new ELogException(message);
+    }
+
+    /**
+     * Writes a batch of events from the background writer, then flushes
+     * and syncs the log file once for the whole batch. The signature is
+     * only pushed between batches.
+     *
+     * @param events The log events
+     */
+    protected synchronized void writeBatch(List<LogEvent> events) {
+
+        for (LogEvent event : events) {
+            try {
+                doLog(event, true);
+            } catch (ELogException e) {
+                // already reported by doLog()
+                logger.debug("LogFile: Unable to write event: " + e.getMessage());
+            }
+        }
+
+        if (mBufferSize > 0 && mBytesUnflushed > mBufferSize) {
+            flush();
+        }
+
+        try {
+            if (mLogWriter != null) {
+                mLogWriter.flush();
+                mFlushedOffset = mOffset;
+                if (mAsyncSync) {
+                    mFileDescriptor.sync();
+                }
+            }
+
+        } catch (IOException e) {
+            String message = CMS.getUserMessage("CMS_LOG_FLUSH_LOG_FAILED", mFileName, e.getMessage());
+            logger.error("LogFile: " + message, e);
+            System.err.println(message);
+            if (mLogSigning) {
+                // Failed to write to audit log, shut down CMS
+                shutdownCMS();
+            }
+        }
+
+        try {
+            checkLogSize();
+        } catch (ELogException e) {
+            logger.error("LogFile: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Called after events have been written to the log file.
+     */
+    protected void checkLogSize() throws ELogException {
+    }
+
+    /**
+     * Returns true if events are written by the background writer.
+     */
+    public boolean isAsync() {
+        AsyncLogWriter writer = mAsyncWriter;
+        return writer != null && writer.isRunning();
+    }
+
+    /**
+     * Returns the statistics of the background writer, or null if
+     * asynchronous logging is not enabled.
+     */
+    public Map<String, Long> getAsyncStats() {
+        AsyncLogWriter writer = mAsyncWriter;
+        return writer == null ? null : writer.getStats();
     }
 
     // Standard line separator byte. We always sign this line separator,
@@ -895,6 +1123,9 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
     // verification is platform-independent.
     private static final byte LINE_SEP_BYTE = 0x0a;
 
+    // Length of the line separator actually written by BufferedWriter.newLine().
+    private static final int LINE_SEP_LENGTH = System.lineSeparator().length();
+
     /**
      * This method actually does the logging, and is not overridden
      * by subclasses, so you can call it and know that it will do exactly
@@ -918,6 +1149,9 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
             throw new ELogException(message);
 
         }
+        long length = LogIndex.getLength(entry);
+        boolean written = false;
+
         try {
             mLogWriter.write(entry, 0/*offset*/, entry.length());
 
@@ -958,9 +1192,23 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
                     mLogWriter.write(fileAndLine, 0/*offset*/, fileAndLine.length());
                     mLogWriter.write(" ", 0/*offset*/, " ".length());
                     mLogWriter.write(method, 0/*offset*/, method.length());
+                    length += LogIndex.getLength(fileAndLine) + 1 + LogIndex.getLength(method);
                 }
             }
             mLogWriter.newLine();
+            length += LINE_SEP_LENGTH;
+
+            LogIndex index = mIndex;
+            if (index != null) {
+                String eventType = event.getEventType();
+                if (eventType == null) {
+                    eventType = LogIndex.parseEventType(entry);
+                }
+                index.add(mOffset, length, event.getTimeStamp(), event.getLevel(),
+                        event.getSource().value(), eventType);
+            }
+            mOffset += length;
+            written = true;
 
             if (mLogSigning == true) {
                 if (mSignature != null) {
@@ -1003,6 +1251,12 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
             }
         }
 
+        if (!written && mIndex != null) {
+            // the offsets of subsequent entries are unknown
+            logger.warn("LogFile: Disabling index of " + mFileName);
+            mIndex = null;
+        }
+
         // XXX
         // Although length will be in Unicode dual-bytes, the PrintWriter
         // will only print out 1 byte per character.  I suppose this could
@@ -1420,15 +1674,17 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
      * Retrieve last "maxLine" number of system log with log lever &gt; "level"
      * and from source "source". If the parameter is omitted. All entries
      * are sent back.
+     *
+     * If the log file is indexed the entries are read without holding
+     * the log file lock.
      */
     @Override
-    public synchronized NameValuePairs retrieveLogContent(Hashtable<String, String> req) throws ServletException,
+    public NameValuePairs retrieveLogContent(Hashtable<String, String> req) throws ServletException,
             IOException, EBaseException {
         NameValuePairs params = new NameValuePairs();
         String tmp, fName = null;
         int maxLine = -1, level = -1;
         LogSource source = null;
-        Vector<LogEntry> entries = null;
 
         if ((tmp = req.get(Constants.PR_LOG_ENTRY)) != null) {
             maxLine = Integer.parseInt(tmp);
@@ -1447,10 +1703,21 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         }
 
         try {
-            entries = readEntry(maxLine, level, source, fName);
+            List<String> entries = findEntries(fName, maxLine, level,
+                    source == null || source == ILogger.S_ALL ? -1 : source.value(),
+                    null, 0, 0);
+
+            if (entries == null) {
+                entries = new ArrayList<>();
+                synchronized (this) {
+                    for (LogEntry entry : readEntry(maxLine, level, source, fName)) {
+                        entries.add(entry.getEntry());
+                    }
+                }
+            }
+
             for (int i = 0; i < entries.size(); i++) {
-                params.put(Integer.toString(i) +
-                        entries.elementAt(i).getEntry(), "");
+                params.put(Integer.toString(i) + entries.get(i), "");
             }
         } catch (Exception e) {
             logger.warn("System log parse error: " + e.getMessage(), e);
@@ -1458,6 +1725,86 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         return params;
     }
 
+    /**
+     * Finds the last matching entries in the log file using the index.
+     * Only entries that have been flushed to the current log file are
+     * returned.
+     *
+     * @param fName The log file name to be read. If it's null, read the current
+     *            log file
+     * @param maxLine The maximum number of entries, or -1 for all
+     * @param level The minimum level, or -1 for all
+     * @param source The source, or -1 for all
+     * @param eventType The audit event type, or null for all
+     * @param from The minimum time stamp in milliseconds, or 0
+     * @param to The maximum time stamp in milliseconds, or 0
+     * @return the entries in file order, or null if the file is not indexed
+     */
+    public List<String> findEntries(String fName, int maxLine, int level, int source,
+            String eventType, long from, long to) throws IOException {
+
+        if (fName != null && !fName.equals(mFileName)) {
+
+            LogIndex index = getRolledIndex(new File(fName));
+            if (index == null) {
+                return null;
+            }
+
+            int[] entries = index.find(index.getEnd(), maxLine, level, source, eventType, from, to);
+            return index.read(new File(fName), entries, true);
+        }
+
+        // the index is replaced when the log file is rotated, so retry
+        // if that happens while reading
+        for (int i = 0; i < 3; i++) {
+
+            LogIndex index = mIndex;
+            if (index == null) {
+                return null;
+            }
+
+            int[] entries = index.find(mFlushedOffset, maxLine, level, source, eventType, from, to);
+            List<String> results = index.read(mFile, entries, false);
+
+            if (index == mIndex) {
+                return results;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the index of a rolled log file.
+     */
+    private LogIndex getRolledIndex(File file) {
+
+        if (!mIndexEnabled || !file.isFile()) {
+            return null;
+        }
+
+        String key = file.getAbsolutePath();
+        long length = file.length();
+
+        synchronized (mRolledIndexes) {
+            LogIndex index = mRolledIndexes.get(key);
+            if (index != null && index.getEnd() == length) {
+                return index;
+            }
+        }
+
+        LogIndex index = openIndex(file, length);
+        if (index == null) {
+            return null;
+        }
+
+        synchronized (mRolledIndexes) {
+            mRolledIndexes.put(key, index);
+        }
+
+        return index;
+    }
+
     /**
      * Retrieve log file list.
      */
@@ -0,0 +1,616 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the entries in a log file.
+ *
+ * For each entry the index stores the offset in the file, the time
+ * stamp, the level, the source, and the event type. Entries are also
+ * grouped by event type and by time bucket so tail, event type, and
+ * time range queries do not need to read the whole file.
+ *
+ * The index is appended by a single writer (i.e. LogFile while holding
+ * its lock) and can be read concurrently without locking: the arrays
+ * are only replaced when they grow and the number of entries is
+ * published after the entry has been stored.
+ *
+ * The index of a log file is stored in the .index directory next to
+ * the log file when the file is closed or rotated.
+ */
+public class LogIndex {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LogIndex.class);
+
+    public static final String INDEX_DIR = ".index";
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x504b4c49; // PKLI
+    private static final int VERSION = 1;
+
+    private static final long BUCKET_SIZE = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String EVENT_TYPE_PREFIX = "[AuditEvent=";
+
+    /**
+     * Growable list of entry numbers.
+     */
+    static class IntList {
+
+        private int[] values = new int[16];
+        private volatile int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            size = size + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+    }
+
+    private long[] offsets = new long[1024];
+    private long[] times = new long[1024];
+    private byte[] levels = new byte[1024];
+    private byte[] sources = new byte[1024];
+    private int[] types = new int[1024];
+
+    // number of entries, published after each entry
+    private volatile int size;
+
+    // offset after the last entry
+    private volatile long end;
+
+    // event types by ID
+    private List<String> typeNames = new CopyOnWriteArrayList<>();
+    private Map<String, Integer> typeIDs = new ConcurrentHashMap<>();
+    private Map<Integer, IntList> typeEntries = new ConcurrentHashMap<>();
+
+    // first entry in each time bucket
+    private long[] bucketKeys = new long[64];
+    private int[] bucketEntries = new int[64];
+    private volatile int buckets;
+
+    public LogIndex() {
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset after the last entry.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    public long getOffset(int entry) {
+        return offsets[entry];
+    }
+
+    /**
+     * Returns the offset after the entry.
+     */
+    public long getEndOffset(int entry) {
+        return entry + 1 < size ? offsets[entry + 1] : end;
+    }
+
+    public long getTime(int entry) {
+        return times[entry];
+    }
+
+    public int getLevel(int entry) {
+        return levels[entry];
+    }
+
+    public int getSource(int entry) {
+        return sources[entry];
+    }
+
+    public String getEventType(int entry) {
+        int type = types[entry];
+        return type < 0 ? null : typeNames.get(type);
+    }
+
+    /**
+     * Adds an entry. Must only be called by the writer.
+     *
+     * @param offset the offset of the entry in the file
+     * @param length the length of the entry in bytes including the line separator
+     */
+    public void add(long offset, long length, long time, int level, int source, String eventType) {
+
+        int n = size;
+
+        if (n == offsets.length) {
+            int capacity = n * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            times = Arrays.copyOf(times, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        int type = -1;
+        if (eventType != null) {
+            type = typeIDs.computeIfAbsent(eventType, t -> {
+                typeNames.add(t);
+                return typeNames.size() - 1;
+            });
+        }
+
+        offsets[n] = offset;
+        times[n] = time;
+        levels[n] = (byte) level;
+        sources[n] = (byte) source;
+        types[n] = type;
+
+        if (type >= 0) {
+            typeEntries.computeIfAbsent(type, t -> new IntList()).add(n);
+        }
+
+        long bucket = time / BUCKET_SIZE;
+        int b = buckets;
+        if (b == 0 || bucketKeys[b - 1] < bucket) {
+            if (b == bucketKeys.length) {
+                bucketKeys = Arrays.copyOf(bucketKeys, b * 2);
+                bucketEntries = Arrays.copyOf(bucketEntries, b * 2);
+            }
+            bucketKeys[b] = bucket;
+            bucketEntries[b] = n;
+            buckets = b + 1;
+        }
+
+        end = offset + length;
+        size = n + 1;
+    }
+
+    /**
+     * Returns the first entry that might have a time stamp
+     * at or after the given time.
+     */
+    int findFirstEntry(long time) {
+
+        int b = buckets;
+        long[] keys = bucketKeys;
+        int[] entries = bucketEntries;
+
+        int i = Arrays.binarySearch(keys, 0, b, time / BUCKET_SIZE);
+        if (i < 0) {
+            // insertion point
+            i = -i - 1;
+        }
+
+        // entries written by concurrent threads might be slightly
+        // out of order, so start from the previous bucket
+        i = Math.max(0, i - 1);
+
+        return i < b ? entries[i] : size;
+    }
+
+    /**
+     * Finds the last matching entries that end at or before the
+     * given offset.
+     *
+     * @param limit offset after the last readable entry
+     * @param max maximum number of entries, or -1 for all
+     * @param minLevel minimum level, or -1 for all
+     * @param source source, or -1 for all
+     * @param eventType event type, or null for all
+     * @param from minimum time stamp in milliseconds, or 0
+     * @param to maximum time stamp in milliseconds, or 0
+     * @return entry numbers in file order
+     */
+    public int[] find(long limit, int max, int minLevel, int source, String eventType, long from, long to) {
+
+        int n = size;
+        while (n > 0 && getEndOffset(n - 1) > limit) {
+            n--;
+        }
+
+        int first = from > 0 ? findFirstEntry(from) : 0;
+
+        IntList list = null;
+        int count = n;
+
+        if (eventType != null) {
+            Integer type = typeIDs.get(eventType);
+            if (type == null) {
+                return new int[0];
+            }
+            list = typeEntries.get(type);
+            count = list.size();
+        }
+
+        int[] results = new int[max >= 0 ? Math.min(max, count) : count];
+        int found = 0;
+
+        for (int i = count - 1; i >= 0 && found < results.length; i--) {
+
+            int entry = list == null ? i : list.get(i);
+
+            if (entry >= n) {
+                continue;
+            }
+
+            if (entry < first) {
+                break;
+            }
+
+            if (minLevel >= 0 && levels[entry] < minLevel) continue;
+            if (source >= 0 && sources[entry] != source) continue;
+            if (from > 0 && times[entry] < from) continue;
+            if (to > 0 && times[entry] > to) continue;
+
+            results[results.length - 1 - found] = entry;
+            found++;
+        }
+
+        return Arrays.copyOfRange(results, results.length - found, results.length);
+    }
+
+    /**
+     * Reads entries from the log file. Continuation lines are returned
+     * without the leading space, and entries that are no longer in the
+     * file (e.g. the file was rotated) are omitted.
+     *
+     * @param file the log file
+     * @param entries entry numbers in file order
+     * @param mapped true to map the file into memory, which should only
+     *        be used for files that are not modified anymore
+     */
+    public List<String> read(File file, int[] entries, boolean mapped) throws IOException {
+
+        List<String> results = new ArrayList<>(entries.length);
+
+        if (entries.length == 0) {
+            return results;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            long start = getOffset(entries[0]);
+            long stop = getEndOffset(entries[entries.length - 1]);
+            long length = Math.min(stop, channel.size()) - start;
+
+            MappedByteBuffer buffer = null;
+            if (mapped && length > 0 && length <= Integer.MAX_VALUE) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+
+            for (int entry : entries) {
+
+                long offset = getOffset(entry);
+                int size = (int) (getEndOffset(entry) - offset);
+                ByteBuffer bytes;
+
+                if (buffer != null) {
+                    if (offset - start + size > length) break;
+                    bytes = buffer.slice((int) (offset - start), size);
+
+                } else {
+                    bytes = ByteBuffer.allocate(size);
+                    while (bytes.hasRemaining()) {
+                        if (channel.read(bytes, offset + bytes.position()) < 0) break;
+                    }
+                    if (bytes.hasRemaining()) break;
+                    bytes.flip();
+                }
+
+                results.add(toString(bytes));
+            }
+        }
+
+        return results;
+    }
+
+    static String toString(ByteBuffer bytes) {
+
+        String entry = StandardCharsets.UTF_8.decode(bytes).toString();
+
+        int n = entry.length();
+        while (n > 0 && (entry.charAt(n - 1) == '\n' || entry.charAt(n - 1) == '\r')) {
+            n--;
+        }
+
+        return entry.substring(0, n).replace("\n ", "\n");
+    }
+
+    /**
+     * Returns the number of bytes of the string in UTF-8.
+     */
+    public static int getLength(String s) {
+
+        int length = 0;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns the audit event type in the entry, or null if the entry
+     * is not an audit event.
+     */
+    public static String parseEventType(String entry) {
+
+        int i = entry.indexOf(EVENT_TYPE_PREFIX);
+        if (i < 0) {
+            return null;
+        }
+
+        i += EVENT_TYPE_PREFIX.length();
+        int j = entry.indexOf(']', i);
+
+        return j < 0 ? null : entry.substring(i, j);
+    }
+
+    /**
+     * Returns the index file of a log file.
+     */
+    public static File getIndexFile(File logFile) {
+        File dir = new File(logFile.getAbsoluteFile().getParentFile(), INDEX_DIR);
+        return new File(dir, logFile.getName() + INDEX_SUFFIX);
+    }
+
+    public void store(File file) throws IOException {
+
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File tmpFile = new File(dir, file.getName() + ".tmp");
+
+        int n = size;
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(n == 0 ? 0 : getEndOffset(n - 1));
+
+            List<String> names = new ArrayList<>(typeNames);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                out.writeLong(offsets[i]);
+                out.writeLong(times[i]);
+                out.writeByte(levels[i]);
+                out.writeByte(sources[i]);
+                out.writeInt(types[i]);
+            }
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the index of a log file.
+     *
+     * @param file the index file
+     * @param length the current length of the log file
+     * @return the index, or null if the index does not exist
+     *         or does not match the log file
+     */
+    public static LogIndex load(File file, long length) {
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("LogIndex: Unsupported index: " + file);
+                return null;
+            }
+
+            long end = in.readLong();
+            if (end != length) {
+                logger.info("LogIndex: Outdated index: " + file);
+                return null;
+            }
+
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+
+            LogIndex index = new LogIndex();
+            int n = in.readInt();
+
+            long offset = 0;
+            long time = 0;
+            int level = 0;
+            int source = 0;
+            String type = null;
+
+            for (int i = 0; i < n; i++) {
+
+                long nextOffset = in.readLong();
+
+                if (i > 0) {
+                    index.add(offset, nextOffset - offset, time, level, source, type);
+                }
+
+                offset = nextOffset;
+                time = in.readLong();
+                level = in.readByte();
+                source = in.readByte();
+                int t = in.readInt();
+                type = t < 0 ? null : names[t];
+            }
+
+            if (n > 0) {
+                index.add(offset, end - offset, time, level, source, type);
+            }
+
+            return index;
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn("LogIndex: Unable to load " + file + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Builds the index of an existing log file.
+     *
+     * An entry starts with a line that does not begin with a space.
+     * Lines that cannot be parsed are added to the previous entry.
+     */
+    public static LogIndex build(File logFile, String datePattern) throws IOException {
+
+        logger.info("LogIndex: Indexing " + logFile);
+
+        LogIndex index = new LogIndex();
+        SimpleDateFormat dateFormat = new SimpleDateFormat(datePattern);
+
+        // current entry
+        long entryOffset = 0;
+        long entryLength = 0;
+        ParsedEntry entry = null;
+
+        long offset = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(logFile))) {
+
+            int c;
+            do {
+                c = in.read();
+                if (c >= 0) {
+                    line.write(c);
+                    if (c != '\n') continue;
+                }
+
+                if (line.size() == 0) break;
+
+                byte[] bytes = line.toByteArray();
+                line.reset();
+
+                ParsedEntry parsed = null;
+                if (bytes[0] != ' ' && bytes[0] != '\n') {
+                    parsed = parse(new String(bytes, StandardCharsets.UTF_8), dateFormat);
+                }
+
+                if (parsed == null && entry != null) {
+                    // continuation line
+                    entryLength += bytes.length;
+
+                } else {
+                    if (entry != null) {
+                        index.add(entryOffset, entryLength, entry.time, entry.level, entry.source, entry.eventType);
+                    }
+                    entryOffset = offset;
+                    entryLength = bytes.length;
+                    entry = parsed != null ? parsed : new ParsedEntry(0, 0, 0, null);
+                }
+
+                offset += bytes.length;
+
+            } while (c >= 0);
+        }
+
+        if (entry != null) {
+            index.add(entryOffset, entryLength, entry.time, entry.level, entry.source, entry.eventType);
+        }
+
+        logger.info("LogIndex: Indexed " + index.size() + " entries");
+
+        return index;
+    }
+
+    record ParsedEntry(long time, int level, int source, String eventType) {
+    }
+
+    /**
+     * Parses the first line of an entry:
+     * PID.thread - [date] [source] [level] message
+     *
+     * @return the parsed entry, or null if it is not a valid entry
+     */
+    static ParsedEntry parse(String line, SimpleDateFormat dateFormat) {
+
+        int i = line.indexOf(" - [");
+        if (i < 0) return null;
+
+        int j = line.indexOf("] [", i);
+        if (j < 0) return null;
+
+        int k = line.indexOf("] [", j + 3);
+        if (k < 0) return null;
+
+        int l = line.indexOf("] ", k + 3);
+        if (l < 0) return null;
+
+        try {
+            long time = dateFormat.parse(line.substring(i + 4, j)).getTime();
+            int source = Integer.parseInt(line.substring(j + 3, k));
+            int level = Integer.parseInt(line.substring(k + 3, l));
+            return new ParsedEntry(time, level, source, parseEventType(line));
+
+        } catch (ParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -22,6 +22,8 @@ import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Hashtable;
 import java.util.Vector;
 
@@ -247,6 +249,17 @@ public class RollingLogFile extends LogFile {
                     Utils.exec("chmod 00640 " + backupFile.getCanonicalPath());
                 }
 
+                // Keep the index stored by close() with the backup file.
+                File indexFile = LogIndex.getIndexFile(mFile);
+                try {
+                    if (indexFile.exists()) {
+                        Files.move(indexFile.toPath(), LogIndex.getIndexFile(backupFile).toPath(),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Unable to move " + indexFile + ": " + e.getMessage(), e);
+                }
+
                 try {
                     // Open and close the original file
                     // to zeroize its contents.
@@ -345,6 +358,7 @@ public class RollingLogFile extends LogFile {
             // be interpeted.  The doc is wrong.  See JavaSoft bug #4094538
             if ((currentTime - fileTime) > expirationTime) {
                 file.delete();
+                LogIndex.getIndexFile(file).delete();
 
                 if (file.exists()) {
                     // log failure in deleting an expired signed audit log file
@@ -494,10 +508,21 @@ public class RollingLogFile extends LogFile {
      * @param ev The event to be logged.
      **/
     @Override
-    public synchronized void log(LogEvent ev) throws ELogException {
+    public void log(LogEvent ev) throws ELogException {
         //xxx, Shall we log first without checking if it exceed the maximum?
         super.log(ev); // Will increment mBytesWritten
 
+        if (!isAsync()) {
+            // the background writer checks the size after each batch
+            checkLogSize();
+        }
+    }
+
+    /**
+     * Rotates the log file if it exceeds the maximum size.
+     */
+    @Override
+    protected synchronized void checkLogSize() throws ELogException {
         if ((0 != mMaxFileSize) && (mBytesWritten > mMaxFileSize)) {
             flush();
             try {
@@ -68,6 +68,7 @@ public class PKIService {
 
     public final static int MIN_FILTER_LENGTH = 3;
     public final static int DEFAULT_SIZE = 20;
+    public final static int MAX_SIZE = 1000;
 
     @Context
     protected UriInfo uriInfo;
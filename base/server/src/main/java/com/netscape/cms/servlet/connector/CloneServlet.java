@@ -247,8 +247,9 @@ public class CloneServlet extends CMSServlet {
             return;
         }
 
-        // encode reply
-        String encodedrep = mReqEncoder.encode(replymsg);
+        // encode reply in the format used by the client
+        boolean binary = HttpRequestEncoder.isBinary(encodedreq);
+        String encodedrep = mReqEncoder.encode(replymsg, binary);
 
         resp.setStatus(HttpServletResponse.SC_OK);
         resp.setContentType("text/html");
@@ -184,7 +184,7 @@ public class ConnectorServlet extends CMSServlet {
         // get content length
         len = request.getContentLength();
 
-        // get content, a base 64 encoded serialized request.
+        // get content, a base 64 encoded binary or serialized request.
         if (len > 0) {
             InputStream in = request.getInputStream();
             InputStreamReader inreader = new InputStreamReader(in, "UTF8");
@@ -306,7 +306,9 @@ public class ConnectorServlet extends CMSServlet {
 
         // encode reply
         try {
-            String encodedrep = mReqEncoder.encode(replymsg);
+            // reply in the format used by the client
+            boolean binary = HttpRequestEncoder.isBinary(encodedreq);
+            String encodedrep = mReqEncoder.encode(replymsg, binary);
 
             resp.setStatus(HttpServletResponse.SC_OK);
             resp.setContentType("text/html");
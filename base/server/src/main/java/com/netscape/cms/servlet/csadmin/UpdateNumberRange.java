@@ -116,6 +116,21 @@ public abstract class UpdateNumberRange extends CMSServlet {
             logger.info("UpdateNumberRange: Getting " + type + " repository");
             Repository repo = getRepository(type);
 
+            // leased IDs are allocated from the shared nextRange attribute,
+            // so clones lease their own blocks instead of getting a range
+            if (repo.getIDGenerator() == Repository.IDGenerator.LEASED) {
+                logger.error("UpdateNumberRange: Number range transfer does not apply to leased " + type + " IDs");
+                auditMessage = CMS.getLogMessage(
+                                   AuditEvent.CONFIG_SERIAL_NUMBER,
+                                   auditSubjectID,
+                                   ILogger.FAILURE,
+                                   auditParams);
+                auditor.log(auditMessage);
+
+                outputError(httpResp, "Error: Number range transfer does not apply to leased " + type + " IDs");
+                return;
+            }
+
             // checkRanges for replicaID - we do this each time a replica is created.
             // This needs to be done beforehand to ensure that we always have enough
             // replica numbers
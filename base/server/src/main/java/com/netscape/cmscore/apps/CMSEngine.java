@@ -782,6 +782,13 @@ public class CMSEngine {
         PasswordStore passwordStore = getPasswordStore();
 
         ugSubsystem.init(ldapConfig, socketConfig, passwordStore);
+
+        if (ugConfig.getCacheEnabled()) {
+            ugSubsystem.initCache(
+                    ugConfig.getCacheSize(),
+                    ugConfig.getCacheTTL(),
+                    ugConfig.getCacheMonitorEnabled());
+        }
     }
 
     public void initOIDLoaderSubsystem() throws Exception {
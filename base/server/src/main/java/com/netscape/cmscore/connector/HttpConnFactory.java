@@ -17,6 +17,15 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.connector;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmsutil.http.JssSSLSocketFactory;
@@ -24,6 +33,14 @@ import com.netscape.cmsutil.net.ISocketFactory;
 
 /**
  * Factory for getting HTTP Connections to a HTTPO server
+ *
+ * Idle connections are kept in a lock-free deque and the number of
+ * connections handed out is bounded by a fair semaphore, so getConn()
+ * and returnConn() do not serialize the callers. With keep-alive the
+ * connections stay open between requests.
+ *
+ * The factory also keeps the request latency and queue depth metrics
+ * of the destination.
  */
 public class HttpConnFactory {
 
@@ -33,14 +50,29 @@ public class HttpConnFactory {
     protected int mMinConns = 1;
     protected int mMaxConns = 30;
 
-    private int mNumConns = 0; // number of available conns in array
-    private int mTotal = 0; // total num conns
-    private HttpConnection mConns[];
     private RemoteAuthority mDest;
     private String mNickname = "";
     private String mClientCiphers = null;
     private int mTimeout = 0;
 
+    private boolean mKeepAlive;
+    private int mKeepAliveTimeout; // seconds
+    private HttpRequestEncoder mReqEncoder = new HttpRequestEncoder();
+
+    private Semaphore mPermits;
+    private ConcurrentLinkedDeque<HttpConnection> mIdleConns = new ConcurrentLinkedDeque<>();
+
+    private AtomicInteger mTotal = new AtomicInteger();
+    private AtomicInteger mInUse = new AtomicInteger();
+    private AtomicInteger mWaiting = new AtomicInteger();
+
+    private LongAdder mWaits = new LongAdder();
+    private LongAdder mCreated = new LongAdder();
+    private LongAdder mRequests = new LongAdder();
+    private LongAdder mFailures = new LongAdder();
+    private LongAdder mRequestTime = new LongAdder();
+    private AtomicLong mMaxRequestTime = new AtomicLong();
+
     /**
      * Constructor for initializing from the config store.
      * must be followed by init(ConfigStore)
@@ -86,6 +118,29 @@ public class HttpConnFactory {
         this.engine = engine;
     }
 
+    /**
+     * Keeps the connections open between PKI message requests.
+     *
+     * @param keepAlive whether to keep the connections open
+     * @param timeout idle time in seconds after which a connection
+     *        is reopened before it is used
+     */
+    public void setKeepAlive(boolean keepAlive, int timeout) {
+        mKeepAlive = keepAlive;
+        mKeepAliveTimeout = timeout;
+    }
+
+    /**
+     * Sets the encoder shared by all connections of the factory.
+     */
+    public void setRequestEncoder(HttpRequestEncoder encoder) {
+        mReqEncoder = encoder;
+    }
+
+    public HttpRequestEncoder getRequestEncoder() {
+        return mReqEncoder;
+    }
+
     /**
      * initialize parameters obtained from either constructor or
      * config store
@@ -106,21 +161,15 @@ public class HttpConnFactory {
             throw new EBaseException("HttpConnFactory: Invalid minimum and maximum connections");
         }
 
-        logger.debug("before creating httpconn array");
-
-        mConns = new HttpConnection[mMaxConns];
-
-        // Create connection handle and make initial connection
+        logger.debug("HttpConnFactory: keep alive: " + mKeepAlive);
+        logger.debug("HttpConnFactory: binary encoding: " + mReqEncoder.isBinary());
 
-        logger.debug("before makeConnection");
+        mPermits = new Semaphore(mMaxConns, true);
 
         logger.debug(
                 "initializing HttpConnFactory with mininum " + mMinConns + " and maximum " + mMaxConns +
                         " connections to ");
 
-        // initalize minimum number of connection handles available.
-        //makeMinimum();
-
         logger.debug("leaving HttpConnFactory init.");
     }
 
@@ -142,6 +191,8 @@ public class HttpConnFactory {
             }
 
             retConn.setCMSEngine(engine);
+            retConn.setRequestEncoder(mReqEncoder);
+            retConn.setKeepAlive(mKeepAlive, mKeepAliveTimeout);
             retConn.init();
 
         } catch (Exception e) {
@@ -150,33 +201,10 @@ public class HttpConnFactory {
             throw new EBaseException(message, e);
         }
 
-        return retConn;
-    }
-
-    /**
-     * makes the minumum number of connections
-     */
-    private void makeMinimum() throws EBaseException {
-
-        logger.debug("In HttpConnFactory.makeMinimum.");
-        int increment;
-
-        if (mNumConns < mMinConns && mTotal <= mMaxConns) {
-
-            increment = Math.min(mMinConns - mNumConns, mMaxConns - mTotal);
+        mTotal.incrementAndGet();
+        mCreated.increment();
 
-            if (increment == 0)
-                return;
-
-            logger.debug("increasing minimum connections by " + increment);
-            for (int i = increment - 1; i >= 0; i--) {
-                mConns[i] = createConnection();
-            }
-            mTotal += increment;
-            mNumConns += increment;
-            logger.debug("new total available http connections " + mTotal);
-            logger.debug("new number of http connections " + mNumConns);
-        }
+        return retConn;
     }
 
     /**
@@ -225,37 +253,48 @@ public class HttpConnFactory {
      * }
      * </pre>
      */
-    public synchronized HttpConnection getConn(boolean waitForConn)
+    public HttpConnection getConn(boolean waitForConn)
             throws EBaseException {
-        boolean waited = false;
 
         logger.debug("In HttpConnFactory.getConn");
-        if (mNumConns == 0)
-            makeMinimum();
-        if (mNumConns == 0) {
+
+        if (!mPermits.tryAcquire()) {
+
             if (!waitForConn)
                 return null;
+
+            logger.warn("HttpConnFactory: Ran out of HTTP connections");
+            mWaits.increment();
+            mWaiting.incrementAndGet();
+
             try {
-                logger.warn("HttpConnFactory: Ran out of HTTP connections");
-                waited = true;
                 logger.debug("HttpConn:about to wait for a new http connection");
-                while (mNumConns == 0)
-                    wait();
-
+                mPermits.acquire();
                 logger.debug("HttpConn:done waiting for new http connection");
+
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EBaseException("HttpConnFactory: Interrupted while waiting for HTTP connection", e);
+
+            } finally {
+                mWaiting.decrementAndGet();
             }
         }
-        mNumConns--;
-        HttpConnection conn = mConns[mNumConns];
 
-        mConns[mNumConns] = null;
+        HttpConnection conn = mIdleConns.pollFirst();
+
+        if (conn == null) {
+            try {
+                conn = createConnection();
 
-        if (waited) {
-            logger.warn("HttpConn:had to wait for an available connection from pool");
-            logger.warn("Http connections are available again in http connection pool");
+            } catch (EBaseException | RuntimeException e) {
+                mPermits.release();
+                throw e;
+            }
         }
-        logger.debug("HttpgetConn: mNumConns now " + mNumConns);
+
+        int inUse = mInUse.incrementAndGet();
+        logger.debug("HttpConnFactory: connections in use: " + inUse);
 
         return conn;
     }
@@ -278,22 +317,57 @@ public class HttpConnFactory {
      * }
      * </pre>
      */
-    public synchronized void returnConn(HttpConnection conn) {
+    public void returnConn(HttpConnection conn) {
 
         logger.debug("In HttpConnFactory.returnConn");
         if (conn == null) {
             return;
         }
-        HttpConnection boundconn = conn;
 
-        for (int i = 0; i < mNumConns; i++) {
-            if (mConns[i] == conn) {
-                logger.debug("returnConn: previously returned connection. " + conn);
+        // most recently used connections are reused first
+        // so that their keep-alive sessions stay open
+        mIdleConns.offerFirst(conn);
+        mInUse.decrementAndGet();
+        mPermits.release();
+    }
 
-            }
+    /**
+     * Records the result of a request sent through a connection
+     * of this factory.
+     *
+     * @param time request time in nanoseconds
+     * @param success whether the request succeeded
+     */
+    public void record(long time, boolean success) {
+
+        mRequests.increment();
+        mRequestTime.add(time);
+        mMaxRequestTime.accumulateAndGet(time, Math::max);
+
+        if (!success) {
+            mFailures.increment();
         }
-        mConns[mNumConns++] = boundconn;
-        logger.debug("HttpreturnConn: mNumConns now " + mNumConns);
-        notify();
+    }
+
+    /**
+     * Returns connection and request metrics. Times are in microseconds.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        long count = mRequests.sum();
+        stats.put("requests", count);
+        stats.put("failures", mFailures.sum());
+        stats.put("requestTimeAvg", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(mRequestTime.sum() / count));
+        stats.put("requestTimeMax", TimeUnit.NANOSECONDS.toMicros(mMaxRequestTime.get()));
+        stats.put("inUse", (long) mInUse.get());
+        stats.put("waiting", (long) mWaiting.get());
+        stats.put("waits", mWaits.sum());
+        stats.put("idle", (long) mIdleConns.size());
+        stats.put("total", (long) mTotal.get());
+        stats.put("created", mCreated.sum());
+
+        return stats;
     }
 }
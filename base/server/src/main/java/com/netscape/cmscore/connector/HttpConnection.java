@@ -23,6 +23,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +59,9 @@ public class HttpConnection {
     protected HttpClient mHttpClient = null;
 
     int timeout = 0;
+    boolean keepAlive;
+    long keepAliveTimeout; // nanoseconds
+    long lastUsed;
     List<InetSocketAddress> targets;
     String localIP = "localhost";
 
@@ -82,6 +86,26 @@ public class HttpConnection {
         this.engine = engine;
     }
 
+    /**
+     * Sets the encoder for PKI messages. By default messages
+     * are serialized.
+     */
+    public void setRequestEncoder(HttpRequestEncoder encoder) {
+        mReqEncoder = encoder;
+    }
+
+    /**
+     * Keeps the connection open between PKI message requests.
+     *
+     * @param keepAlive whether to keep the connection open
+     * @param timeout idle time in seconds after which the connection
+     *        is reopened before it is used
+     */
+    public void setKeepAlive(boolean keepAlive, int timeout) {
+        this.keepAlive = keepAlive;
+        this.keepAliveTimeout = TimeUnit.SECONDS.toNanos(timeout);
+    }
+
     public void init() {
 
         logger.debug("HttpConnection: Creating HttpConnection with timeout=" + timeout);
@@ -92,7 +116,10 @@ public class HttpConnection {
             // default to "localhost";
         }
 
-        mReqEncoder = new HttpRequestEncoder();
+        if (mReqEncoder == null) {
+            mReqEncoder = new HttpRequestEncoder();
+        }
+
         mHttpClient = new HttpClient(factory);
 
         targets = parseTarget(dest.getHost(), dest.getPort());
@@ -170,6 +197,7 @@ public class HttpConnection {
                 mHttpClient.connect(hostname, port, timeout * 1000);
 
                 logger.debug("HttpConnection: Connected to " + hostname + ":" + port);
+                lastUsed = System.nanoTime();
                 return;
 
             } catch (IOException e) {
@@ -225,18 +253,20 @@ public class HttpConnection {
         logger.debug("in HttpConnection.send " + this);
         logger.trace("encoding request ");
 
-        String content = null;
+        mHttpreq.setHeader("Connection", keepAlive ? "keep-alive" : "close");
 
-        try {
-            content = mReqEncoder.encode(tomsg);
-        } catch (IOException e) {
-            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "Could not encode request"));
+        boolean binary = mReqEncoder.isBinary();
+        resp = execute(encode(tomsg, binary));
+
+        if (binary && "400".equals(resp.getStatusCode())) {
+            // the remote authority does not support binary encoding,
+            // use serialization for this and subsequent requests
+            logger.warn("HttpConnection: " + url + " rejected binary request, retrying with serialized request");
+            mReqEncoder.setBinary(false);
+            resp = execute(encode(tomsg, false));
         }
-        logger.trace("encoded request");
-        logger.trace("------ " + content.length() + "-----");
-        logger.trace(content);
-        logger.trace("--------------------------");
-        resp = doSend(content);
+
+        checkStatus(resp);
 
         // decode reply.
         // if reply is bad, error is thrown and request will be resent
@@ -261,6 +291,23 @@ public class HttpConnection {
         return replymsg;
     }
 
+    private String encode(IPKIMessage tomsg, boolean binary) throws EBaseException {
+
+        String content = null;
+
+        try {
+            content = mReqEncoder.encode(tomsg, binary);
+        } catch (IOException e) {
+            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "Could not encode request"));
+        }
+        logger.trace("encoded request");
+        logger.trace("------ " + content.length() + "-----");
+        logger.trace(content);
+        logger.trace("--------------------------");
+
+        return content;
+    }
+
     /**
      * Sends the message to the remote authority.
      *
@@ -282,11 +329,19 @@ public class HttpConnection {
 
         //logger.debug("HttpConnection.send: with String content: " + content);
 
+        mHttpreq.setHeader("Connection", "close");
+
         resp = doSend(content);
         return resp;
     }
 
     private HttpResponse doSend(String content) throws EBaseException {
+        HttpResponse resp = execute(content);
+        checkStatus(resp);
+        return resp;
+    }
+
+    private HttpResponse execute(String content) throws EBaseException {
 
         HttpResponse resp = null;
         boolean reconnected = false;
@@ -309,6 +364,12 @@ public class HttpConnection {
         mHttpreq.setContent(content);
 
         try {
+            if (keepAlive && mHttpClient.connected() && System.nanoTime() - lastUsed > keepAliveTimeout) {
+                // the remote authority might have closed the idle connection
+                logger.debug("HttpConnection.doSend: reopening idle connection");
+                mHttpClient.disconnect();
+            }
+
             if (!mHttpClient.connected()) {
                 connect();
                 reconnected = true;
@@ -365,6 +426,12 @@ public class HttpConnection {
             }
         } //while
 
+        lastUsed = System.nanoTime();
+        return resp;
+    }
+
+    private void checkStatus(HttpResponse resp) throws EBaseException {
+
         // got reply; check status
         String statusStr = resp.getStatusCode();
 
@@ -395,7 +462,5 @@ public class HttpConnection {
             logger.error(msg);
             throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", msg));
         }
-
-        return resp;
     }
 }
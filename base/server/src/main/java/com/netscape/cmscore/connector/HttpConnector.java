@@ -26,6 +26,7 @@ import com.netscape.certsrv.request.RequestId;
 import com.netscape.certsrv.request.RequestStatus;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.request.Request;
+import com.netscape.cmscore.util.StatsSubsystem;
 import com.netscape.cmsutil.http.HttpResponse;
 import com.netscape.cmsutil.http.JssSSLSocketFactory;
 import com.netscape.cmsutil.net.ISocketFactory;
@@ -92,15 +93,31 @@ public class HttpConnector extends Connector {
         int maxConns = config.getMaxHttpConns();
         logger.debug("HttpConnector: maxHttpConns: " + maxConns);
 
+        boolean binary = config.getBinaryEncoding();
+        logger.debug("HttpConnector: binaryEncoding: " + binary);
+
+        boolean keepAlive = config.getKeepAlive();
+        logger.debug("HttpConnector: keepAlive: " + keepAlive);
+
+        int keepAliveTimeout = config.getKeepAliveTimeout();
+        logger.debug("HttpConnector: keepAliveTimeout: " + keepAliveTimeout);
+
         try {
             mConnFactory = new HttpConnFactory(minConns, maxConns, mDest, nickname, clientCiphers, mTimeout);
             mConnFactory.setCMSEngine(engine);
+            mConnFactory.setRequestEncoder(new HttpRequestEncoder(binary));
+            mConnFactory.setKeepAlive(keepAlive, keepAliveTimeout);
             mConnFactory.init();
 
         } catch (EBaseException e) {
             logger.warn("HttpConnector: Unble to create new HttpConnFactory: " + e.getMessage(), e);
         }
 
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub != null && mConnFactory != null) {
+            statsSub.addSource(getStatsName(), mConnFactory::getStats);
+        }
+
         // this will start resending past requests in parallel.
         if (resendInterval >= 0) {
             mResender = new Resender(nickname, clientCiphers, mDest, resendInterval);
@@ -111,6 +128,18 @@ public class HttpConnector extends Connector {
 
     // Insert end
 
+    /**
+     * Returns the name of the connection metrics of the destination.
+     */
+    public String getStatsName() {
+        String host = mDest.getHost().replace(' ', ',');
+        return "connector." + host + ":" + mDest.getPort();
+    }
+
+    public HttpConnFactory getConnFactory() {
+        return mConnFactory;
+    }
+
     // cfu
     @Override
     public HttpResponse send(String op, String msg)
@@ -129,13 +158,21 @@ public class HttpConnector extends Connector {
             throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "HttpConnector.send(): cannot find uri for op"));
         }
 
+        long start = 0;
+
         try {
             curConn = mConnFactory.getConn();
             curConn.setRequestURI(uri);
+
+            start = System.nanoTime();
             resp = curConn.send(msg);
+            mConnFactory.record(System.nanoTime() - start, true);
 
         } catch (EBaseException e) {
             logger.warn("HttpConnector: send(): "+ e.getMessage(), e);
+            if (start != 0) {
+                mConnFactory.record(System.nanoTime() - start, false);
+            }
 
         } finally {
             if (curConn != null) {
@@ -161,7 +198,15 @@ public class HttpConnector extends Connector {
 
             logger.debug("HttpConnector.send " + curConn);
 
-            replymsg = (HttpPKIMessage) curConn.send(tomsg);
+            long start = System.nanoTime();
+            try {
+                replymsg = (HttpPKIMessage) curConn.send(tomsg);
+                mConnFactory.record(System.nanoTime() - start, replymsg != null);
+
+            } catch (EBaseException e) {
+                mConnFactory.record(System.nanoTime() - start, false);
+                throw e;
+            }
 
             if (replymsg == null) {
                 logger.warn("HttpConncter. replymsg is null");
@@ -19,10 +19,16 @@ package com.netscape.cmscore.connector;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OptionalDataException;
+import java.nio.charset.StandardCharsets;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.util.Utils;
 
@@ -30,11 +36,56 @@ import org.mozilla.jss.netscape.security.util.Utils;
  * This represents a rquest encoder that serializes and
  * deserializes a request to a Remote Authority so that it can be sent through
  * the connector.
+ *
+ * Two formats are supported:
+ * <ul>
+ * <li>serialized: the message is written with Java serialization
+ * <li>binary: HttpPKIMessage is written in a versioned format
+ * consisting of the "PKI" magic bytes, a version byte, the request
+ * type, ID, status, and realm, followed by the name/value pairs.
+ * Values are either strings or string tables.
+ * </ul>
+ * In both formats the content is Base64-encoded. The decoder detects
+ * the format of the content so a server can accept both formats and
+ * reply in the format used by the client.
  */
 public class HttpRequestEncoder {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HttpRequestEncoder.class);
 
+    public static final int VERSION = 1;
+
+    // "PKI" is Base64-encoded into exactly 4 chars
+    static final byte[] MAGIC = { 'P', 'K', 'I' };
+    static final String ENCODED_MAGIC = "UEtJ";
+
+    static final int STRING_VALUE = 1;
+    static final int TABLE_VALUE = 2;
+
+    private volatile boolean binary;
+
+    public HttpRequestEncoder() {
+    }
+
+    public HttpRequestEncoder(boolean binary) {
+        this.binary = binary;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Returns true if the content is in binary format.
+     */
+    public static boolean isBinary(String s) {
+        return s != null && s.startsWith(ENCODED_MAGIC);
+    }
+
     /**
      * Encodes a request object.
      *
@@ -44,6 +95,25 @@ public class HttpRequestEncoder {
      */
     public String encode(Object r)
             throws IOException {
+        return encode(r, binary);
+    }
+
+    /**
+     * Encodes a request object in the specified format. Objects other
+     * than HttpPKIMessage are always serialized.
+     *
+     * @param r Object to serve as the source of the message.
+     * @param binary Whether to use binary format.
+     * @return String containing encoded message.
+     * @exception IOException Failure of the encoding operation due to IO error.
+     */
+    public String encode(Object r, boolean binary)
+            throws IOException {
+
+        if (binary && r instanceof HttpPKIMessage msg) {
+            return Utils.base64encode(encodeMessage(msg), false);
+        }
+
         String s = null;
         byte[] serial;
         ByteArrayOutputStream ba = new ByteArrayOutputStream();
@@ -63,6 +133,11 @@ public class HttpRequestEncoder {
      */
     public Object decode(String s)
             throws IOException {
+
+        if (isBinary(s)) {
+            return decodeMessage(Utils.base64decode(s));
+        }
+
         Object result = null;
         byte[] serial = null;
 
@@ -88,4 +163,183 @@ public class HttpRequestEncoder {
         }
         return result;
     }
+
+    byte[] encodeMessage(HttpPKIMessage msg) throws IOException {
+
+        ByteArrayOutputStream ba = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(ba);
+
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+
+        writeString(out, msg.reqType);
+        writeString(out, msg.reqId);
+        writeString(out, msg.reqStatus);
+        writeString(out, msg.reqRealm);
+
+        Vector<Object> nameVals = msg.mNameVals;
+        int size = nameVals.size() / 2;
+
+        // count the values that can be encoded
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (isSupported(nameVals.get(2 * i), nameVals.get(2 * i + 1))) {
+                count++;
+            }
+        }
+
+        out.writeInt(count);
+
+        for (int i = 0; i < size; i++) {
+
+            Object key = nameVals.get(2 * i);
+            Object value = nameVals.get(2 * i + 1);
+
+            if (!isSupported(key, value)) {
+                // same as serialization, skip the attribute
+                logger.warn("HttpRequestEncoder: Skipped attribute " + key + ": " +
+                        (value == null ? null : value.getClass().getName()));
+                continue;
+            }
+
+            writeString(out, (String) key);
+
+            if (value instanceof String str) {
+                out.writeByte(STRING_VALUE);
+                writeString(out, str);
+                continue;
+            }
+
+            Map<?, ?> table = (Map<?, ?>) value;
+            out.writeByte(TABLE_VALUE);
+            out.writeInt(table.size());
+
+            for (Map.Entry<?, ?> entry : table.entrySet()) {
+                writeString(out, (String) entry.getKey());
+                writeString(out, (String) entry.getValue());
+            }
+        }
+
+        out.flush();
+        return ba.toByteArray();
+    }
+
+    boolean isSupported(Object key, Object value) {
+
+        if (!(key instanceof String)) {
+            return false;
+        }
+
+        if (value instanceof String) {
+            return true;
+        }
+
+        if (!(value instanceof Hashtable<?, ?> table)) {
+            return false;
+        }
+
+        for (Map.Entry<?, ?> entry : table.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    HttpPKIMessage decodeMessage(byte[] data) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new IOException("Invalid message header");
+            }
+        }
+
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported message version: " + version);
+        }
+
+        HttpPKIMessage msg = new HttpPKIMessage();
+        msg.reqType = readString(in);
+        msg.reqId = readString(in);
+        msg.reqStatus = readString(in);
+        msg.reqRealm = readString(in);
+
+        int count = readCount(in);
+        Vector<Object> nameVals = new Vector<>(2 * count);
+
+        for (int i = 0; i < count; i++) {
+
+            String key = readString(in);
+            int type = in.readUnsignedByte();
+
+            if (type == STRING_VALUE) {
+                nameVals.add(key);
+                nameVals.add(readString(in));
+                continue;
+            }
+
+            if (type != TABLE_VALUE) {
+                throw new IOException("Invalid value type for " + key + ": " + type);
+            }
+
+            int size = readCount(in);
+            Hashtable<String, String> table = new Hashtable<>();
+
+            for (int j = 0; j < size; j++) {
+                table.put(readString(in), readString(in));
+            }
+
+            nameVals.add(key);
+            nameVals.add(table);
+        }
+
+        msg.mNameVals = nameVals;
+        return msg;
+    }
+
+    void writeString(DataOutputStream out, String s) throws IOException {
+
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    String readString(DataInputStream in) throws IOException {
+
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int readCount(DataInputStream in) throws IOException {
+
+        int count = in.readInt();
+
+        // each entry takes at least 4 bytes
+        if (count < 0 || count > in.available() / 4) {
+            throw new IOException("Invalid count: " + count);
+        }
+
+        return count;
+    }
 }
@@ -440,6 +440,13 @@ public class DBSubsystem {
         return null;
     }
 
+    /**
+     * Retrieves LDAP connection factory.
+     */
+    public LdapBoundConnFactory getConnFactory() {
+        return mLdapConnFactory;
+    }
+
     /**
      * Shutdowns this subsystem gracefully.
      */
@@ -0,0 +1,273 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.math.BigInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.cmscore.apps.CMSEngine;
+import com.netscape.cmscore.apps.EngineConfig;
+
+import netscape.ldap.LDAPAttribute;
+import netscape.ldap.LDAPAttributeSet;
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPModification;
+
+/**
+ * Sequential ID allocator that leases blocks of IDs from the database.
+ *
+ * A block is leased by atomically advancing the nextRange attribute
+ * shared by all clones: the modify operation deletes the exact value
+ * that was read, so it fails if another clone leased a block in the
+ * meantime, in which case the lease is retried. The lease is also
+ * recorded as a pkiRange entry so replication conflicts can be detected
+ * the same way as for regular ranges.
+ *
+ * IDs are handed out from the current block with an atomic counter.
+ * When the number of remaining IDs in the current block reaches the
+ * prefetch threshold the next block is leased in the background, so
+ * the lock is only taken when switching blocks.
+ *
+ * The nextRange value is parsed and stored with the radix of the
+ * repository, the same way the legacy generator reads it when it
+ * allocates a new range, so switching an instance from the legacy
+ * generator does not reissue IDs from its previous ranges. Once the
+ * leased generator is used, the other clones cannot switch back to
+ * the legacy generator.
+ *
+ * IDs remaining in the current block are not reused after a restart.
+ */
+public class IDBlockAllocator {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IDBlockAllocator.class);
+
+    public static final int MAX_LEASE_ATTEMPTS = 10;
+
+    record Block(BigInteger start, long size, AtomicLong next) {
+    }
+
+    private CMSEngine engine;
+    private DBSubsystem dbSubsystem;
+    private String name;
+    private String nextRangeDN;
+    private String rangeDN;
+    private int radix;
+
+    private long blockSize;
+    private long prefetch;
+
+    private volatile Block current;
+    private Future<Block> nextBlock;
+    private ExecutorService executor;
+
+    public IDBlockAllocator(
+            CMSEngine engine,
+            DBSubsystem dbSubsystem,
+            String name,
+            String nextRangeDN,
+            String rangeDN,
+            int radix) {
+
+        this.engine = engine;
+        this.dbSubsystem = dbSubsystem;
+        this.name = name;
+        this.nextRangeDN = nextRangeDN;
+        this.rangeDN = rangeDN;
+        this.radix = radix;
+    }
+
+    public void init(long blockSize, long prefetch) {
+
+        this.blockSize = blockSize;
+
+        // prefetch at least one ID before the end of the block
+        this.prefetch = Math.max(1, Math.min(prefetch, blockSize));
+
+        logger.info("IDBlockAllocator: Initializing " + name + " ID allocator");
+        logger.info("IDBlockAllocator: - next range DN: " + nextRangeDN);
+        logger.info("IDBlockAllocator: - radix: " + radix);
+        logger.info("IDBlockAllocator: - block size: " + blockSize);
+        logger.info("IDBlockAllocator: - prefetch: " + this.prefetch);
+
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "IDBlockAllocator-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the next ID.
+     */
+    public BigInteger next() throws EBaseException {
+
+        while (true) {
+
+            Block block = current;
+
+            if (block != null) {
+                long offset = block.next().getAndIncrement();
+
+                if (offset < block.size()) {
+
+                    if (offset == block.size() - prefetch) {
+                        // exactly one thread gets this offset
+                        prefetch();
+                    }
+
+                    return block.start().add(BigInteger.valueOf(offset));
+                }
+            }
+
+            switchBlock(block);
+        }
+    }
+
+    private synchronized void prefetch() {
+
+        if (nextBlock != null) {
+            return;
+        }
+
+        logger.info("IDBlockAllocator: Prefetching next " + name + " ID block");
+        nextBlock = executor.submit(this::lease);
+    }
+
+    /**
+     * Replaces the exhausted block with the prefetched block, or leases
+     * a new block if the prefetch is not available.
+     */
+    private synchronized void switchBlock(Block exhausted) throws EBaseException {
+
+        if (current != exhausted) {
+            // another thread has switched the block
+            return;
+        }
+
+        Block block = null;
+
+        if (nextBlock != null) {
+            try {
+                block = nextBlock.get();
+
+            } catch (ExecutionException e) {
+                logger.warn("IDBlockAllocator: Unable to prefetch " + name + " ID block: "
+                        + e.getCause().getMessage(), e.getCause());
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DBException("Interrupted while waiting for " + name + " ID block", e);
+
+            } finally {
+                nextBlock = null;
+            }
+        }
+
+        if (block == null) {
+            block = lease();
+        }
+
+        current = block;
+    }
+
+    /**
+     * Leases the next block of IDs from the database.
+     */
+    Block lease() throws EBaseException {
+
+        for (int attempt = 1; ; attempt++) {
+
+            LDAPSession session = (LDAPSession) dbSubsystem.createSession();
+
+            try {
+                LDAPConnection conn = session.getConnection();
+
+                LDAPEntry entry = conn.read(nextRangeDN, new String[] { DBSubsystem.PROP_NEXT_RANGE });
+
+                LDAPAttribute attr = entry.getAttribute(DBSubsystem.PROP_NEXT_RANGE);
+                if (attr == null) {
+                    throw new DBException("Missing attribute " + DBSubsystem.PROP_NEXT_RANGE + " in " + nextRangeDN);
+                }
+
+                // nextRange is stored with the repository radix
+                String nextRange = attr.getStringValues().nextElement();
+                BigInteger start = new BigInteger(nextRange, radix);
+                BigInteger end = start.add(BigInteger.valueOf(blockSize));
+
+                // delete the exact value that was read so the modify
+                // fails if another clone has advanced nextRange
+                LDAPModification[] mods = {
+                        new LDAPModification(LDAPModification.DELETE, attr),
+                        new LDAPModification(LDAPModification.ADD,
+                                new LDAPAttribute(DBSubsystem.PROP_NEXT_RANGE, end.toString(radix)))
+                };
+
+                conn.modify(nextRangeDN, mods);
+
+                if (engine != null) {
+                    // the range entry requires the host and port of the
+                    // server, which are not available in offline tools
+                    addRangeEntry(conn, start, end.subtract(BigInteger.ONE));
+                }
+
+                logger.info("IDBlockAllocator: Leased " + name + " IDs " + start + ".." + end.subtract(BigInteger.ONE));
+
+                return new Block(start, blockSize, new AtomicLong());
+
+            } catch (LDAPException e) {
+
+                int resultCode = e.getLDAPResultCode();
+
+                // NO_SUCH_ATTRIBUTE: nextRange was advanced by another clone
+                // ENTRY_ALREADY_EXISTS: the block was leased by another clone
+                // before the nextRange update was replicated
+                if ((resultCode == LDAPException.NO_SUCH_ATTRIBUTE
+                        || resultCode == LDAPException.ENTRY_ALREADY_EXISTS)
+                        && attempt < MAX_LEASE_ATTEMPTS) {
+
+                    logger.info("IDBlockAllocator: Concurrent " + name + " ID lease, retrying");
+                    continue;
+                }
+
+                throw new DBException("Unable to lease " + name + " ID block: " + e.getMessage(), e);
+
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    private void addRangeEntry(LDAPConnection conn, BigInteger begin, BigInteger end) throws LDAPException {
+
+        EngineConfig cs = engine.getConfig();
+
+        LDAPAttributeSet attrs = new LDAPAttributeSet();
+        attrs.add(new LDAPAttribute("objectClass", "top"));
+        attrs.add(new LDAPAttribute("objectClass", "pkiRange"));
+
+        // store ranges with the repository radix
+        String beginRange = begin.toString(radix);
+        attrs.add(new LDAPAttribute("beginRange", beginRange));
+        attrs.add(new LDAPAttribute("endRange", end.toString(radix)));
+
+        attrs.add(new LDAPAttribute("cn", beginRange));
+        attrs.add(new LDAPAttribute("host", cs.getHostname()));
+        attrs.add(new LDAPAttribute("securePort", engine.getEESSLPort()));
+
+        String dn = "cn=" + beginRange + "," + rangeDN;
+        logger.debug("IDBlockAllocator: Adding entry " + dn);
+
+        conn.add(new LDAPEntry(dn, attrs));
+    }
+}
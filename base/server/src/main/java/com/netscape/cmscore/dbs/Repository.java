@@ -55,7 +55,8 @@ public abstract class Repository {
     public enum IDGenerator {
         LEGACY_2("legacy2"),
         LEGACY("legacy"),
-        RANDOM("random");
+        RANDOM("random"),
+        LEASED("leased");
 
         private String name;
 
@@ -106,6 +107,8 @@ public abstract class Repository {
 
     protected SecureRandom secureRandom;
 
+    protected IDBlockAllocator idAllocator;
+
     /**
      * Constructs a repository.
      * <P>
@@ -207,12 +210,28 @@ public abstract class Repository {
         this.idGenerator = IDGenerator.fromString(idGenerator);
     }
 
+    /**
+     * Initializes the allocator for leased sequential IDs. The blocks
+     * are leased from the same nextRange counter used by the legacy
+     * generator so the IDs do not collide with the ranges allocated
+     * to other clones. The counter is read with the repository radix
+     * like in parseNextRange().
+     *
+     * @param name ID type
+     * @param blockSize number of IDs per lease
+     * @param prefetch number of remaining IDs that triggers the next lease
+     */
+    protected void initLeasedGenerator(String name, long blockSize, long prefetch) {
+        idAllocator = new IDBlockAllocator(engine, dbSubsystem, name, getNextRangeDN(), rangeDN, mRadix);
+        idAllocator.init(blockSize, prefetch);
+    }
+
     /**
      * init serial number cache
      */
     protected void initCache() throws EBaseException {
 
-        if (idGenerator == IDGenerator.RANDOM) {
+        if (idGenerator == IDGenerator.RANDOM || idGenerator == IDGenerator.LEASED) {
             return;
         }
 
@@ -270,6 +289,11 @@ public abstract class Repository {
 
         logger.debug("Repository:In getTheSerialNumber ");
 
+        if (idGenerator == IDGenerator.LEASED) {
+            // leased IDs cannot be transferred to another clone
+            return null;
+        }
+
         initCache();
 
         BigInteger serial = mLastSerialNo.add(BigInteger.ONE);
@@ -311,9 +335,13 @@ public abstract class Repository {
      * @return serial number
      * @exception EBaseException failed to retrieve next serial number
      */
-    public synchronized BigInteger getNextSerialNumber() throws
+    public BigInteger getNextSerialNumber() throws
             EBaseException {
 
+        if (idGenerator == IDGenerator.LEASED) {
+            return idAllocator.next();
+        }
+
         if (idGenerator == IDGenerator.RANDOM) {
 
             logger.debug("Repository: Generating random serial number");
@@ -327,6 +355,14 @@ public abstract class Repository {
             return id;
         }
 
+        return getNextSequentialNumber();
+    }
+
+    /**
+     * Retrieves the next serial number from the current range.
+     */
+    protected synchronized BigInteger getNextSequentialNumber() throws EBaseException {
+
         logger.debug("Repository: in getNextSerialNumber. ");
 
         initCache();
@@ -559,6 +595,21 @@ public abstract class Repository {
         }
     }
 
+    /**
+     * Converts the start of the next range returned by getNextRange()
+     * into the first serial number of that range.
+     */
+    protected BigInteger parseNextRange(String nextRange) {
+
+        if (idGenerator == IDGenerator.LEGACY_2) {
+            return new BigInteger(nextRange);
+        }
+
+        // nextRange is read as decimal in other places and with radix (hex default) here making
+        // its value inconsistent
+        return new BigInteger(nextRange, mRadix);
+    }
+
     /**
      * Determines if a range conflict has been observed in database.
      * If so, delete the conflicting entries and remove the next range.
@@ -622,7 +673,7 @@ public abstract class Repository {
      */
     public void checkRanges() throws EBaseException {
 
-        if (idGenerator == IDGenerator.RANDOM) {
+        if (idGenerator == IDGenerator.RANDOM || idGenerator == IDGenerator.LEASED) {
             return;
         }
 
@@ -660,13 +711,7 @@ public abstract class Repository {
             logger.debug("Repository: Requesting next range");
             String nextRange = getNextRange();
             logger.debug("Repository: next range: " + nextRange);
-            if (idGenerator == IDGenerator.LEGACY_2) {
-                mNextMinSerialNo = new BigInteger(nextRange);
-            } else {
-                // nextRange is read as decimal in other places and with radix (hex default) here making
-                // its value inconsistent
-                mNextMinSerialNo = new BigInteger(nextRange, mRadix);
-            }
+            mNextMinSerialNo = parseNextRange(nextRange);
             if (mNextMinSerialNo == null) {
                 logger.debug("Repository: Next range not available");
             } else {
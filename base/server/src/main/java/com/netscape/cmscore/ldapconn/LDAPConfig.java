@@ -100,4 +100,11 @@ public class LDAPConfig extends ConfigStore {
     public LDAPAuthenticationConfig getAuthenticationConfig() {
         return getSubStore("ldapauth", LDAPAuthenticationConfig.class);
     }
+
+    /**
+     * Returns <LDAP>.pool.* parameters.
+     */
+    public LDAPPoolConfig getPoolConfig() {
+        return getSubStore("pool", LDAPPoolConfig.class);
+    }
 }
@@ -0,0 +1,85 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.ldapconn;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides <LDAP>.pool.* parameters.
+ *
+ * For example:
+ * - internaldb.pool.type=fair
+ * - internaldb.pool.maxWait=30000
+ * - internaldb.pool.validateOnBorrow=true
+ * - internaldb.pool.validationInterval=60
+ * - internaldb.pool.idleTimeout=300
+ * - internaldb.pool.evictionInterval=60
+ */
+public class LDAPPoolConfig extends ConfigStore {
+
+    public static final String TYPE_LEGACY = "legacy";
+    public static final String TYPE_FAIR = "fair";
+
+    public LDAPPoolConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public LDAPPoolConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns <LDAP>.pool.type parameter.
+     */
+    public String getType() throws EBaseException {
+        return getString("type", TYPE_LEGACY);
+    }
+
+    public void setType(String type) {
+        putString("type", type);
+    }
+
+    /**
+     * Returns <LDAP>.pool.maxWait parameter in milliseconds.
+     * Zero or negative value means wait indefinitely.
+     */
+    public int getMaxWait() throws EBaseException {
+        return getInteger("maxWait", 0);
+    }
+
+    /**
+     * Returns <LDAP>.pool.validateOnBorrow parameter.
+     */
+    public boolean getValidateOnBorrow() throws EBaseException {
+        return getBoolean("validateOnBorrow", true);
+    }
+
+    /**
+     * Returns <LDAP>.pool.validationInterval parameter in seconds.
+     * Idle connections older than this are probed before being handed out.
+     */
+    public int getValidationInterval() throws EBaseException {
+        return getInteger("validationInterval", 60);
+    }
+
+    /**
+     * Returns <LDAP>.pool.idleTimeout parameter in seconds.
+     * Zero disables idle eviction.
+     */
+    public int getIdleTimeout() throws EBaseException {
+        return getInteger("idleTimeout", 300);
+    }
+
+    /**
+     * Returns <LDAP>.pool.evictionInterval parameter in seconds.
+     */
+    public int getEvictionInterval() throws EBaseException {
+        return getInteger("evictionInterval", 60);
+    }
+}
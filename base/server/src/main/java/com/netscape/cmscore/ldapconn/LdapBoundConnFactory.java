@@ -19,7 +19,9 @@ package com.netscape.cmscore.ldapconn;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.ldap.ELdapException;
@@ -45,6 +47,9 @@ import netscape.ldap.LDAPv3;
  *
  * XXX not sure how useful this is given that LDAPConnection itself can
  * be shared by multiple threads and cloned.
+ *
+ * If <LDAP>.pool.type is set to "fair" the connections are managed by
+ * LdapBoundConnPool instead of the synchronized pool in this class.
  */
 public class LdapBoundConnFactory extends LdapConnFactory {
 
@@ -58,6 +63,10 @@ public class LdapBoundConnFactory extends LdapConnFactory {
     LdapBoundConnection mMasterConn; // master connection object.
     List<LdapBoundConnection> mConns;
 
+    LDAPPoolConfig poolConfig;
+    boolean fairPool;
+    volatile LdapBoundConnPool pool;
+
     /**
      * Constructor for initializing from the config store.
      * must be followed by init(ConfigStore)
@@ -155,6 +164,8 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         doCloning = dbConfig.getBoolean("doCloning", true);
         logger.debug("LdapBoundConnFactory: doCloning: " + doCloning);
 
+        poolConfig = dbConfig.getPoolConfig();
+
         init();
     }
 
@@ -189,6 +200,23 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         logger.debug("LdapBoundConnFactory: secure: " + mConnInfo.getSecure());
         logger.debug("LdapBoundConnFactory: authentication: " + mAuthInfo.getAuthType());
 
+        fairPool = isFairPool();
+
+        if (fairPool) {
+            logger.debug("LdapBoundConnFactory: pool: " + LDAPPoolConfig.TYPE_FAIR);
+            pool = createPool();
+
+            if (mMinConns > 0) {
+                makeConnection(mErrorIfDown);
+
+                // server may be down if errorIfDown is false
+                if (mMasterConn != null || !doCloning) {
+                    pool.prefill();
+                }
+            }
+            return;
+        }
+
         mConns = new ArrayList<>(Arrays.asList(new LdapBoundConnection[mMaxConns]));
 
         if (mMinConns > 0) {
@@ -200,6 +228,90 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         }
     }
 
+    boolean isFairPool() throws ELdapException {
+
+        if (poolConfig == null) {
+            return false;
+        }
+
+        try {
+            String type = poolConfig.getType();
+            if (LDAPPoolConfig.TYPE_FAIR.equals(type)) {
+                return true;
+            }
+
+            if (!LDAPPoolConfig.TYPE_LEGACY.equals(type)) {
+                throw new ELdapException("Invalid LDAP connection pool type: " + type);
+            }
+
+            return false;
+
+        } catch (ELdapException e) {
+            throw e;
+
+        } catch (EBaseException e) {
+            throw new ELdapException("Unable to get LDAP connection pool type: " + e.getMessage(), e);
+        }
+    }
+
+    LdapBoundConnPool createPool() throws ELdapException {
+
+        LdapBoundConnPool pool = new LdapBoundConnPool(id, this::createPooledConnection);
+
+        try {
+            pool.init(mMinConns, mMaxConns, poolConfig);
+
+        } catch (ELdapException e) {
+            throw e;
+
+        } catch (Exception e) {
+            throw new ELdapException("Unable to initialize LDAP connection pool: " + e.getMessage(), e);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Returns the pool, recreating it if it has been reset.
+     */
+    LdapBoundConnPool getPool() throws ELdapException {
+
+        LdapBoundConnPool pool = this.pool;
+        if (pool != null) {
+            return pool;
+        }
+
+        synchronized (this) {
+            if (this.pool == null) {
+                this.pool = createPool();
+            }
+            return this.pool;
+        }
+    }
+
+    /**
+     * Creates a connection for LdapBoundConnPool, cloning the master
+     * connection if cloning is enabled.
+     */
+    LdapBoundConnection createPooledConnection() throws ELdapException {
+
+        if (!doCloning || mMinConns == 0) {
+            return makeNewConnection(true);
+        }
+
+        synchronized (this) {
+            if (mMasterConn == null || !mMasterConn.isConnected()) {
+                try {
+                    makeConnection(true);
+                } catch (ELdapException e) {
+                    mMasterConn = null;
+                    throw new ELdapException("LdapBoundConnFactory: Unable to create master connection. " + e.getMessage(), e);
+                }
+            }
+            return (LdapBoundConnection) mMasterConn.clone();
+        }
+    }
+
     /**
      * makes the initial master connection used to clone others..
      *
@@ -247,6 +359,16 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         return conn;
     }
 
+    /**
+     * Creates a connection that is not part of the pool, e.g. for a
+     * long-running persistent search. The caller must disconnect it.
+     *
+     * @exception ELdapException if the connection cannot be created
+     */
+    public LdapBoundConnection createConnection() throws ELdapException {
+        return makeNewConnection(true);
+    }
+
     /**
      * makes the minumum number of connections
      */
@@ -332,7 +454,38 @@ public class LdapBoundConnFactory extends LdapConnFactory {
      * }
      * </pre>
      */
-    public synchronized LdapBoundConnection getConn(boolean waitForConn)
+    public LdapBoundConnection getConn(boolean waitForConn)
+            throws ELdapException {
+
+        if (fairPool) {
+            return getPooledConn(waitForConn);
+        }
+
+        return getLegacyConn(waitForConn);
+    }
+
+    LdapBoundConnection getPooledConn(boolean waitForConn) throws ELdapException {
+
+        LdapBoundConnPool pool = getPool();
+
+        LdapBoundConnection conn = pool.borrow(waitForConn);
+        if (conn == null) {
+            return null;
+        }
+
+        try {
+            // Reset the SIZELIMIT option for the next owner
+            // (see getLegacyConn()).
+            conn.setOption(LDAPv3.SIZELIMIT, mMaxResults);
+        } catch (LDAPException e) {
+            pool.release(conn);
+            throw new ELdapException("Unable to set LDAP size limit: " + e.getMessage(), e);
+        }
+
+        return conn;
+    }
+
+    synchronized LdapBoundConnection getLegacyConn(boolean waitForConn)
             throws ELdapException {
         LdapBoundConnection conn = null;
         String method = "LdapBoundConnFactory (" + id + ").getConn: ";
@@ -433,7 +586,32 @@ public class LdapBoundConnFactory extends LdapConnFactory {
      * </pre>
      */
     @Override
-    public synchronized void returnConn(LDAPConnection conn) {
+    public void returnConn(LDAPConnection conn) {
+
+        if (conn == null) {
+            return;
+        }
+
+        LdapBoundConnPool pool = this.pool;
+        if (fairPool && pool != null) {
+            if (conn instanceof LdapBoundConnection boundconn) {
+                pool.release(boundconn);
+            } else {
+                logger.warn("LdapBoundConnFactory: Unable to return connection: not a bound connection");
+            }
+            return;
+        }
+
+        if (fairPool) {
+            // pool has been shut down, just close the connection
+            conn.close();
+            return;
+        }
+
+        returnLegacyConn(conn);
+    }
+
+    synchronized void returnLegacyConn(LDAPConnection conn) {
         String method = "LdapBoundConnFactory (" + id + ").returnConn: ";
         logger.debug(method + "initial values. Total: " + mTotal + ", pool: " + mNumConns);
 
@@ -481,6 +659,28 @@ public class LdapBoundConnFactory extends LdapConnFactory {
     public synchronized void reset()
             throws ELdapException {
         logger.debug("Destroying LdapBoundConnFactory(" + id + ")");
+
+        if (fairPool) {
+            if (pool != null && pool.hasOutstandingConnections()) {
+                String message = "Unable to reset LDAP connection factory due to outstanding connections";
+                logger.error("LdapBoundConnFactory: " + message);
+                throw new ELdapException(message);
+            }
+
+            // the pool will be recreated on the next getConn()
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+
+            disconnectMaster();
+
+            if (mAuthInfo != null) {
+                mAuthInfo.reset();
+            }
+            return;
+        }
+
         if (mNumConns == mTotal) {
             for (int i = 0; i < mNumConns; i++) {
                 try {
@@ -514,10 +714,32 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         }
     }
 
+    void disconnectMaster() {
+
+        if (mMasterConn == null) {
+            return;
+        }
+
+        try {
+            logger.debug("LdapBoundConnFactory: disconnecting master connection");
+            mMasterConn.disconnect();
+        } catch (LDAPException e) {
+            String message = "Unable to disconnect master connection: " + e.getMessage();
+            logger.warn("LdapBoundConnFactory: " + message, e);
+        }
+
+        mMasterConn = null;
+    }
+
     public synchronized void shutdown() throws ELdapException {
 
         logger.debug("Destroying LdapBoundConnFactory(" + id + ")");
 
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+
         for (int i = 0; i < mNumConns; i++) {
             if (mConns.get(i) != null) {
                 mConns.get(i).close();
@@ -539,6 +761,43 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         }
     }
 
+    @Override
+    public int freeConn() {
+        LdapBoundConnPool pool = this.pool;
+        if (pool != null) {
+            return pool.getFreeConnections();
+        }
+        return super.freeConn();
+    }
+
+    @Override
+    public int totalConn() {
+        LdapBoundConnPool pool = this.pool;
+        if (pool != null) {
+            return pool.getTotalConnections();
+        }
+        return super.totalConn();
+    }
+
+    /**
+     * Returns connection pool metrics.
+     */
+    public Map<String, Long> getStats() {
+
+        LdapBoundConnPool pool = this.pool;
+        if (pool != null) {
+            return pool.getStats();
+        }
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("idle", (long) mNumConns);
+            stats.put("total", (long) mTotal);
+            stats.put("inUse", (long) (mTotal - mNumConns));
+        }
+        return stats;
+    }
+
     /**
      * return ldap authentication info
      */
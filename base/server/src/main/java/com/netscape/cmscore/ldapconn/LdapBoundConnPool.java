@@ -0,0 +1,366 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.ldapconn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.ldap.ELdapException;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPException;
+
+/**
+ * Connection pool used by LdapBoundConnFactory when
+ * <LDAP>.pool.type=fair.
+ *
+ * Idle connections are kept in a lock-free deque. The number of
+ * connections handed out is bounded by a fair semaphore so waiting
+ * threads are served in FIFO order and a returned connection wakes
+ * up exactly one waiter. Connections that have been idle for a while
+ * are probed before being handed out, and connections idle longer
+ * than the idle timeout are closed by a background evictor.
+ */
+public class LdapBoundConnPool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LdapBoundConnPool.class);
+
+    /**
+     * Creates physical (or cloned) connections for the pool.
+     */
+    public interface ConnectionProvider {
+        LdapBoundConnection createConnection() throws ELdapException;
+    }
+
+    static class IdleConnection {
+
+        final LdapBoundConnection conn;
+        final long idleSince;
+
+        IdleConnection(LdapBoundConnection conn, long idleSince) {
+            this.conn = conn;
+            this.idleSince = idleSince;
+        }
+    }
+
+    String id;
+    ConnectionProvider provider;
+
+    int minConns;
+    int maxConns;
+    long maxWait;             // milliseconds, <= 0 waits indefinitely
+    boolean validateOnBorrow;
+    long validationInterval;  // nanoseconds
+    long idleTimeout;         // nanoseconds, 0 disables eviction
+    int evictionInterval;     // seconds
+
+    Semaphore permits;
+    ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    Map<LdapBoundConnection, Long> borrowed = new ConcurrentHashMap<>();
+
+    AtomicInteger total = new AtomicInteger();
+    AtomicInteger inUse = new AtomicInteger();
+    AtomicInteger highWaterMark = new AtomicInteger();
+
+    LongAdder borrows = new LongAdder();
+    LongAdder waits = new LongAdder();
+    LongAdder timeouts = new LongAdder();
+    LongAdder borrowTime = new LongAdder();
+    AtomicLong maxBorrowTime = new AtomicLong();
+    LongAdder created = new LongAdder();
+    LongAdder evicted = new LongAdder();
+    LongAdder validationFailures = new LongAdder();
+
+    ScheduledExecutorService evictor;
+    volatile boolean closed;
+
+    public LdapBoundConnPool(String id, ConnectionProvider provider) {
+        this.id = id;
+        this.provider = provider;
+    }
+
+    public void init(int minConns, int maxConns, LDAPPoolConfig poolConfig) throws Exception {
+
+        this.minConns = minConns;
+        this.maxConns = maxConns;
+        this.maxWait = poolConfig.getMaxWait();
+        this.validateOnBorrow = poolConfig.getValidateOnBorrow();
+        this.validationInterval = TimeUnit.SECONDS.toNanos(poolConfig.getValidationInterval());
+        this.idleTimeout = TimeUnit.SECONDS.toNanos(poolConfig.getIdleTimeout());
+        this.evictionInterval = poolConfig.getEvictionInterval();
+
+        logger.debug("LdapBoundConnPool: max wait: {} ms", maxWait);
+        logger.debug("LdapBoundConnPool: validate on borrow: {}", validateOnBorrow);
+        logger.debug("LdapBoundConnPool: idle timeout: {} s", poolConfig.getIdleTimeout());
+
+        permits = new Semaphore(maxConns, true);
+
+        if (idleTimeout > 0 && evictionInterval > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "LdapBoundConnPool-" + id);
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictor.scheduleWithFixedDelay(this::evict, evictionInterval, evictionInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Creates the minimum number of idle connections.
+     */
+    public void prefill() throws ELdapException {
+        while (total.get() < minConns) {
+            idle.offerLast(new IdleConnection(create(), System.nanoTime()));
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool.
+     *
+     * @param waitForConn whether to wait for a connection if none is available
+     * @return connection, or null if none is available and waitForConn is false
+     */
+    public LdapBoundConnection borrow(boolean waitForConn) throws ELdapException {
+
+        long start = System.nanoTime();
+
+        if (!permits.tryAcquire()) {
+
+            if (!waitForConn) {
+                logger.warn("LdapBoundConnPool: out of LDAP connections for {}", id);
+                return null;
+            }
+
+            waits.increment();
+            logger.debug("LdapBoundConnPool: waiting for connection in {}", id);
+
+            try {
+                if (maxWait <= 0) {
+                    permits.acquire();
+
+                } else if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                    timeouts.increment();
+                    throw new ELdapException(
+                            "Timed out waiting " + maxWait + " ms for LDAP connection in " + id);
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("LdapBoundConnPool: connection wait interrupted");
+                return null;
+            }
+        }
+
+        LdapBoundConnection conn;
+        try {
+            conn = take();
+
+        } catch (ELdapException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        borrowed.put(conn, start);
+
+        int current = inUse.incrementAndGet();
+        highWaterMark.accumulateAndGet(current, Math::max);
+
+        long elapsed = System.nanoTime() - start;
+        borrows.increment();
+        borrowTime.add(elapsed);
+        maxBorrowTime.accumulateAndGet(elapsed, Math::max);
+
+        return conn;
+    }
+
+    /**
+     * Takes a healthy idle connection or creates a new one.
+     * The caller must hold a permit.
+     */
+    LdapBoundConnection take() throws ELdapException {
+
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+
+            if (isValid(entry)) {
+                return entry.conn;
+            }
+
+            validationFailures.increment();
+            logger.debug("LdapBoundConnPool: discarding stale connection in {}", id);
+            destroy(entry.conn);
+        }
+
+        return create();
+    }
+
+    boolean isValid(IdleConnection entry) {
+
+        LdapBoundConnection conn = entry.conn;
+
+        if (!conn.isConnected()) {
+            return false;
+        }
+
+        if (!validateOnBorrow || System.nanoTime() - entry.idleSince < validationInterval) {
+            return true;
+        }
+
+        try {
+            // read root DSE without attributes
+            conn.read("", new String[] { LDAPConnection.NO_ATTRS });
+            return true;
+
+        } catch (LDAPException e) {
+            logger.warn("LdapBoundConnPool: connection validation failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool.
+     */
+    public void release(LdapBoundConnection conn) {
+
+        if (borrowed.remove(conn) == null) {
+            logger.warn("LdapBoundConnPool: Connection already returned or not from this pool");
+            return;
+        }
+
+        inUse.decrementAndGet();
+
+        if (!closed && conn.isConnected()) {
+            // most recently used connections are reused first so that
+            // surplus connections age out and get evicted
+            IdleConnection entry = new IdleConnection(conn, System.nanoTime());
+            idle.offerFirst(entry);
+
+            // shutdown() may have drained the idle connections in the meantime
+            if (closed && idle.remove(entry)) {
+                destroy(conn);
+            }
+
+        } else {
+            destroy(conn);
+        }
+
+        permits.release();
+    }
+
+    LdapBoundConnection create() throws ELdapException {
+
+        LdapBoundConnection conn = provider.createConnection();
+        if (conn == null) {
+            throw new ELdapException("Unable to create LDAP connection for " + id);
+        }
+
+        total.incrementAndGet();
+        created.increment();
+
+        return conn;
+    }
+
+    void destroy(LdapBoundConnection conn) {
+
+        total.decrementAndGet();
+
+        try {
+            conn.disconnect();
+        } catch (LDAPException e) {
+            logger.warn("LdapBoundConnPool: Unable to disconnect: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout
+     * while keeping at least the minimum number of connections.
+     */
+    void evict() {
+        try {
+            long now = System.nanoTime();
+
+            IdleConnection entry;
+            while (total.get() > minConns && (entry = idle.pollLast()) != null) {
+
+                if (now - entry.idleSince < idleTimeout && entry.conn.isConnected()) {
+                    // oldest idle connection is still fresh
+                    idle.offerLast(entry);
+                    break;
+                }
+
+                destroy(entry.conn);
+                evicted.increment();
+            }
+
+        } catch (Exception e) {
+            logger.warn("LdapBoundConnPool: Unable to evict idle connections: " + e.getMessage(), e);
+        }
+    }
+
+    public int getFreeConnections() {
+        return idle.size();
+    }
+
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    public boolean hasOutstandingConnections() {
+        return !borrowed.isEmpty();
+    }
+
+    /**
+     * Returns pool metrics. Times are in microseconds.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        long count = borrows.sum();
+        stats.put("borrows", count);
+        stats.put("waits", waits.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("borrowTimeAvg", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(borrowTime.sum() / count));
+        stats.put("borrowTimeMax", TimeUnit.NANOSECONDS.toMicros(maxBorrowTime.get()));
+        stats.put("inUse", (long) inUse.get());
+        stats.put("idle", (long) idle.size());
+        stats.put("total", (long) total.get());
+        stats.put("highWaterMark", (long) highWaterMark.get());
+        stats.put("created", created.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("validationFailures", validationFailures.sum());
+
+        return stats;
+    }
+
+    /**
+     * Closes all idle connections and stops the evictor.
+     * Borrowed connections are disconnected when they are returned.
+     */
+    public void shutdown() {
+
+        closed = true;
+
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry.conn);
+        }
+    }
+}
@@ -152,6 +152,14 @@ public class LdapBoundConnection extends LDAPConnection {
         super.connect(version, hostname, port, null, null);
     }
 
+    /**
+     * Instantiates an unconnected connection for subclasses that
+     * manage the connection themselves.
+     */
+    protected LdapBoundConnection(LDAPSocketFactory factory) {
+        super(factory);
+    }
+
     /**
      * Overrides same method in LDAPConnection to do prevent re-authentication.
      */
@@ -29,6 +29,12 @@ public class LoggerConfig extends ConfigStore {
     public static final String LAST_HASH_FILE_NAME = "lastHashFileName";
     public static final String BUFFER_SIZE = "bufferSize";
     public static final String FLUSH_INTERVAL = "flushInterval";
+    public static final String ASYNC = "async";
+    public static final String ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    public static final String ASYNC_BATCH_SIZE = "asyncBatchSize";
+    public static final String ASYNC_MAX_WAIT = "asyncMaxWait";
+    public static final String ASYNC_SYNC = "asyncSync";
+    public static final String INDEX = "index";
 
     /**
      * The default output stream buffer size in bytes
@@ -40,6 +46,21 @@ public class LoggerConfig extends ConfigStore {
      */
     public static final int DEFAULT_FLUSH_INTERVAL = 5;
 
+    /**
+     * The default maximum number of queued events for asynchronous logging
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 8192;
+
+    /**
+     * The default maximum number of events written in one batch
+     */
+    public static final int DEFAULT_ASYNC_BATCH_SIZE = 256;
+
+    /**
+     * The default time in milliseconds to wait while the queue is full
+     */
+    public static final int DEFAULT_ASYNC_MAX_WAIT = 5000;
+
     public LoggerConfig() {
     }
 
@@ -102,4 +123,28 @@ public class LoggerConfig extends ConfigStore {
     public int getFlushInterval() throws EBaseException {
         return getInteger(FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL);
     }
+
+    public boolean getAsync() throws EBaseException {
+        return getBoolean(ASYNC, false);
+    }
+
+    public int getAsyncQueueSize() throws EBaseException {
+        return getInteger(ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE);
+    }
+
+    public int getAsyncBatchSize() throws EBaseException {
+        return getInteger(ASYNC_BATCH_SIZE, DEFAULT_ASYNC_BATCH_SIZE);
+    }
+
+    public int getAsyncMaxWait() throws EBaseException {
+        return getInteger(ASYNC_MAX_WAIT, DEFAULT_ASYNC_MAX_WAIT);
+    }
+
+    public boolean getAsyncSync() throws EBaseException {
+        return getBoolean(ASYNC_SYNC, true);
+    }
+
+    public boolean getIndex() throws EBaseException {
+        return getBoolean(INDEX, true);
+    }
 }
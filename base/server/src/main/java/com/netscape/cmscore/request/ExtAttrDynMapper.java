@@ -19,7 +19,9 @@ package com.netscape.cmscore.request;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.dbs.IDBObj;
@@ -63,10 +65,16 @@ public class ExtAttrDynMapper extends DBDynAttrMapper {
         mAttrs.add(Schema.LDAP_ATTR_EXT_ATTR);
     }
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private final Map<String, String> encodedKeys = new ConcurrentHashMap<>();
+    private final Map<String, String> decodedKeys = new ConcurrentHashMap<>();
+
     @Override
     public boolean supportsLDAPAttributeName(String attrName) {
-        return (attrName != null) &&
-                attrName.toLowerCase().startsWith(extAttrPrefix);
+        return (attrName != null) && hasPrefix(attrName);
     }
 
     @Override
@@ -79,54 +87,61 @@ public class ExtAttrDynMapper extends DBDynAttrMapper {
      * -- followed by a 4 digit hexadecimal string is decoded to the character
      * representing the hex string.
      *
-     * The routine is written to be highly efficient. It only allocates
-     * the StringBuffer if needed and copies the pieces in large chunks.
+     * The set of keys used by the profiles is small, so decoded keys are
+     * cached. Keys without encoded characters are returned as is.
      *
      * @param key The key to decode
      * @return The decoded key.
      */
     public String decodeKey(String key) {
 
-        StringBuffer output = null;
-        char[] input = key.toCharArray();
+        if (key.indexOf("--") < 0) {
+            return key;
+        }
+
+        String output = decodedKeys.get(key);
+        if (output != null) {
+            return output;
+        }
+
+        output = decode(key);
+        cacheKey(decodedKeys, key, output);
+
+        return output;
+    }
+
+    private String decode(String input) {
+
+        StringBuilder output = new StringBuilder(input.length());
+        int length = input.length();
         int startCopyIndex = 0;
 
         int index = 0;
-        while (index < input.length) {
+        while (index < length) {
 
-            if (input[index] != '-') {
+            if (input.charAt(index) != '-') {
                 index++;
                 continue;
             }
 
-            if (index + 1 >= input.length || input[index + 1] != '-') {
+            if (index + 1 >= length || input.charAt(index + 1) != '-') {
                 index++;
                 continue;
             }
 
-            if (output == null) {
-                output = new StringBuffer(input.length);
-            }
-
-            output.append(input, startCopyIndex, index - startCopyIndex);
+            output.append(input, startCopyIndex, index);
             index += 2;
 
-            if (index + 3 < input.length) {
-                String value = new String(input, index, 4);
-                int codePoint = Integer.parseInt(value, 16);
-                char[] chars = Character.toChars(codePoint);
-                output.append(chars);
+            if (index + 3 < length) {
+                int codePoint = Integer.parseInt(input, index, index + 4, 16);
+                output.append(Character.toChars(codePoint));
             }
 
             index += 4;
             startCopyIndex = index;
         }
 
-        if (output == null) {
-            return key;
-        }
-
-        output.append(input, startCopyIndex, index - startCopyIndex);
+        output.append(input, Math.min(startCopyIndex, length), length);
         return output.toString();
     }
 
@@ -146,67 +161,117 @@ public class ExtAttrDynMapper extends DBDynAttrMapper {
      * the - as well as all following [^a-zA-Z0-9] characters are encoded
      * as --XXXX.
      *
-     * This routine tries to be as efficient as possible with StringBuffer and
-     * large copies. However, the encoding unfortunately requires several
-     * objects to be allocated.
+     * Keys that need to be encoded are cached since the same keys are
+     * stored in every request.
      *
      * @param key The key to encode
      * @return The encoded key
      */
     public String encodeKey(String key) {
 
-        StringBuffer output = null;
-        char[] input = key.toCharArray();
-        int startCopyIndex = 0;
+        int index = findEncodedChar(key);
+        if (index < 0) {
+            return key;
+        }
+
+        String output = encodedKeys.get(key);
+        if (output != null) {
+            return output;
+        }
+
+        output = encode(key, index);
+        cacheKey(encodedKeys, key, output);
+
+        return output;
+    }
+
+    /**
+     * Returns the index of the first character that needs to be encoded,
+     * or -1 if the key can be stored as is.
+     */
+    private int findEncodedChar(String input) {
 
+        int length = input.length();
         int index = 0;
-        while (index < input.length) {
 
-            if (isAlphaNum(input[index])) {
+        while (index < length) {
+
+            char c = input.charAt(index);
+
+            if (isAlphaNum(c)) {
                 index++;
                 continue;
             }
 
-            if (input[index] == '-' &&
-                    index + 1 < input.length &&
-                    isAlphaNum(input[index + 1])) {
+            if (c == '-' && index + 1 < length && isAlphaNum(input.charAt(index + 1))) {
                 index += 2;
                 continue;
             }
 
-            if (input[index] == '-' && index + 1 == input.length) {
+            if (c == '-' && index + 1 == length) {
                 index += 1;
                 continue;
             }
 
-            if (output == null) {
-                output = new StringBuffer(input.length + 5);
+            return index;
+        }
+
+        return -1;
+    }
+
+    private String encode(String input, int index) {
+
+        StringBuilder output = new StringBuilder(input.length() + 10);
+        int length = input.length();
+        int startCopyIndex = 0;
+
+        while (index < length) {
+
+            char c = input.charAt(index);
+
+            if (isAlphaNum(c)) {
+                index++;
+                continue;
             }
 
-            output.append(input, startCopyIndex, index - startCopyIndex);
-            while (index < input.length && !isAlphaNum(input[index])) {
-                output.append("--");
-                String hexString = Integer.toHexString(input[index]);
-                int padding = 4 - hexString.length();
+            if (c == '-' && index + 1 < length && isAlphaNum(input.charAt(index + 1))) {
+                index += 2;
+                continue;
+            }
 
-                while (padding > 0) {
-                    output.append('0');
-                    padding--;
-                }
+            if (c == '-' && index + 1 == length) {
+                index += 1;
+                continue;
+            }
 
-                output.append(hexString);
+            output.append(input, startCopyIndex, index);
+            while (index < length && !isAlphaNum(input.charAt(index))) {
+                c = input.charAt(index);
+                output.append("--");
+                output.append(HEX_DIGITS[(c >> 12) & 0xf]);
+                output.append(HEX_DIGITS[(c >> 8) & 0xf]);
+                output.append(HEX_DIGITS[(c >> 4) & 0xf]);
+                output.append(HEX_DIGITS[c & 0xf]);
                 index++;
             }
 
             startCopyIndex = index;
         }
 
-        if (output == null) {
-            return key;
+        output.append(input, startCopyIndex, length);
+        return output.toString();
+    }
+
+    private void cacheKey(Map<String, String> cache, String key, String value) {
+        // keys are not evicted, so stop caching if the keys are not
+        // from a small set (e.g. generated by a custom plugin)
+        if (cache.size() < MAX_CACHED_KEYS) {
+            cache.put(key, value);
         }
+    }
 
-        output.append(input, startCopyIndex, index - startCopyIndex);
-        return output.toString();
+    boolean hasPrefix(String attrName) {
+        return attrName.regionMatches(true, 0, extAttrPrefix, 0, extAttrPrefix.length());
     }
 
     protected boolean isAlphaNum(char in) {
@@ -284,7 +349,7 @@ public class ExtAttrDynMapper extends DBDynAttrMapper {
             LDAPAttribute attr = attrEnum.nextElement();
             String baseName = attr.getBaseName();
 
-            if (!baseName.toLowerCase().startsWith(extAttrPrefix)) {
+            if (!hasPrefix(baseName)) {
                 continue;
             }
 
@@ -18,10 +18,23 @@
 package com.netscape.cmscore.request;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.request.RequestId;
@@ -34,26 +47,76 @@ import com.netscape.cmscore.dbs.RecordPagedList;
  * so it will be invoked when a request is completely serviced
  * by the IService object, then it will notify all registered
  * request listeners.
+ *
+ * If the publishing queue is enabled, completed requests are added
+ * to a bounded in-memory queue which is drained in batches by up to
+ * the maximum number of publishing threads of an executor. A request
+ * that is already in the queue is not added again. Requests that do
+ * not fit into the queue are not lost: they are found later by
+ * searching the completed requests in the database starting from the
+ * first request that did not fit.
+ *
+ * Requests that failed to publish are retried after a delay. A retry
+ * only runs the publishing listeners and the listeners that failed,
+ * so notifications that were already sent are not repeated. The ID
+ * of the oldest request that has not been published is periodically
+ * saved in the database so the queue can be recovered after a restart.
  */
 public class RequestNotifier {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RequestNotifier.class);
 
+    /**
+     * @param completed names of the listeners that have processed
+     * the request and do not need to run again on a retry
+     */
+    record QueueEntry(BigInteger id, long enqueued, int attempts, Set<String> completed) {
+
+        QueueEntry(BigInteger id, long enqueued, int attempts) {
+            this(id, enqueued, attempts, Set.of());
+        }
+    }
+
     protected CMSEngine engine;
 
     private Hashtable<String, RequestListener> mListeners = new Hashtable<>();
-    private Vector<Thread> mNotifierThreads = new Vector<>();
-    private Vector<String> mRequests = new Vector<>();
     private int mMaxRequests = 100;
-    private boolean mSearchForRequests = false;
     private int mMaxThreads = 1;
+    private int mBatchSize = 10;
+    private int mMaxRetries = 3;
+    private int mRetryDelay = 30; // seconds
 
     private boolean mIsPublishingQueueEnabled = false;
     private int mPublishingQueuePriority = 0;
 
     private String mPublishingStatus = null;
     private int mSavePublishingStatus = 0;
-    private int mSavePublishingCounter = 0;
+    private AtomicInteger mSavePublishingCounter = new AtomicInteger();
+
+    // queued requests
+    private ConcurrentLinkedQueue<QueueEntry> mQueue = new ConcurrentLinkedQueue<>();
+    private Map<BigInteger, QueueEntry> mQueued = new ConcurrentHashMap<>();
+    private AtomicInteger mQueueSize = new AtomicInteger();
+
+    // queued, in progress, or waiting for retry
+    private ConcurrentSkipListSet<BigInteger> mPending = new ConcurrentSkipListSet<>();
+
+    // first request that did not fit into the queue
+    private BigInteger mOverflowFrom;
+    private Object mOverflowMonitor = new Object();
+
+    private ScheduledThreadPoolExecutor mExecutor;
+    private AtomicInteger mWorkers = new AtomicInteger();
+
+    private LongAdder mEnqueued = new LongAdder();
+    private LongAdder mCoalesced = new LongAdder();
+    private LongAdder mPublished = new LongAdder();
+    private LongAdder mRetries = new LongAdder();
+    private LongAdder mFailures = new LongAdder();
+    private LongAdder mOverflows = new LongAdder();
+    private LongAdder mSearches = new LongAdder();
+    private LongAdder mLag = new LongAdder();
+    private AtomicLong mMaxLag = new AtomicLong();
 
     public RequestNotifier() {
         mPublishingQueuePriority = Thread.currentThread().getPriority();
@@ -80,14 +143,51 @@ public class RequestNotifier {
                                     int maxNumberOfPublishingThreads,
                                     int publishingQueuePageSize,
                                     int savePublishingStatus) {
+        setPublishingQueue(
+                isPublishingQueueEnabled,
+                publishingQueuePriorityLevel,
+                maxNumberOfPublishingThreads,
+                publishingQueuePageSize,
+                savePublishingStatus,
+                mBatchSize,
+                mMaxRetries,
+                mRetryDelay);
+    }
+
+    /**
+     * Sets publishing queue parameters.
+     *
+     * @param isPublishingQueueEnabled publishing queue switch
+     * @param publishingQueuePriorityLevel publishing queue priority level
+     * @param maxNumberOfPublishingThreads maximum number of publishing threads
+     * @param publishingQueuePageSize publishing queue page size
+     * @param savePublishingStatus number of published requests between status updates
+     * @param batchSize number of requests taken from the queue at a time
+     * @param maxRetries maximum number of retries for failed requests
+     * @param retryDelay delay in seconds before a failed request is retried
+     */
+    public void setPublishingQueue(boolean isPublishingQueueEnabled,
+                                    int publishingQueuePriorityLevel,
+                                    int maxNumberOfPublishingThreads,
+                                    int publishingQueuePageSize,
+                                    int savePublishingStatus,
+                                    int batchSize,
+                                    int maxRetries,
+                                    int retryDelay) {
         logger.debug("setPublishingQueue:  Publishing Queue Enabled: " + isPublishingQueueEnabled +
                   "  Priority Level: " + publishingQueuePriorityLevel +
                   "  Maximum Number of Threads: " + maxNumberOfPublishingThreads +
-                  "  Page Size: " + publishingQueuePageSize);
+                  "  Page Size: " + publishingQueuePageSize +
+                  "  Batch Size: " + batchSize +
+                  "  Maximum Retries: " + maxRetries +
+                  "  Retry Delay: " + retryDelay);
         mIsPublishingQueueEnabled = isPublishingQueueEnabled;
         mMaxThreads = maxNumberOfPublishingThreads;
         mMaxRequests = publishingQueuePageSize;
         mSavePublishingStatus = savePublishingStatus;
+        mBatchSize = Math.max(1, batchSize);
+        mMaxRetries = maxRetries;
+        mRetryDelay = retryDelay;
 
         // Publishing Queue Priority Levels:  2 - maximum, 1 - higher, 0 - normal, -1 - lower, -2 - minimum
         if (publishingQueuePriorityLevel > 1) {
@@ -102,6 +202,18 @@ public class RequestNotifier {
             mPublishingQueuePriority = Thread.currentThread().getPriority();
         }
 
+        if (mIsPublishingQueueEnabled && mExecutor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            mExecutor = new ScheduledThreadPoolExecutor(Math.max(1, mMaxThreads), r -> {
+                Thread thread = new Thread(r, "RequestNotifier-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                if (mPublishingQueuePriority > 0) {
+                    thread.setPriority(mPublishingQueuePriority);
+                }
+                return thread;
+            });
+        }
+
         RequestRepository requestRepository = engine.getRequestRepository();
 
         if (mIsPublishingQueueEnabled && mSavePublishingStatus > 0 && requestRepository != null) {
@@ -118,6 +230,35 @@ public class RequestNotifier {
 
     }
 
+    /**
+     * Stops the publishing threads. Requests that have not been
+     * published will be recovered on the next startup if the
+     * publishing status is saved.
+     */
+    public void shutdown() {
+
+        ScheduledThreadPoolExecutor executor = mExecutor;
+        if (executor == null) {
+            return;
+        }
+
+        mExecutor = null;
+        executor.shutdownNow();
+
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // publishing threads that never started
+        mWorkers.set(0);
+
+        if (mSavePublishingStatus > 0) {
+            updatePublishingStatus();
+        }
+    }
+
     /**
      * Registers a request listener.
      *
@@ -187,113 +328,30 @@ public class RequestNotifier {
         return mListeners.elements();
     }
 
-    private Object publishingCounterMonitor = new Object();
-
-    public void updatePublishingStatus(String id) {
+    /**
+     * Saves the ID of the oldest request that has not been published,
+     * or -1 if all requests have been published.
+     */
+    void updatePublishingStatus() {
 
         RequestRepository requestRepository = engine.getRequestRepository();
 
-        if (requestRepository != null) {
-            synchronized (publishingCounterMonitor) {
-                if (mSavePublishingCounter == 0) {
-                    logger.debug("updatePublishingStatus  requestId: " + id);
-                    requestRepository.setPublishingStatus(id);
-                }
-                mSavePublishingCounter++;
-                logger.debug("updatePublishingStatus  mSavePublishingCounter: " + mSavePublishingCounter +
-                          " mSavePublishingStatus: " + mSavePublishingStatus);
-                if (mSavePublishingCounter >= mSavePublishingStatus) {
-                    mSavePublishingCounter = 0;
-                }
-            }
-        } else {
+        if (requestRepository == null) {
             logger.warn("updatePublishingStatus  requestQueue == null");
+            return;
         }
-    }
-
-    /**
-     * Gets request from publishing queue.
-     *
-     * @return request
-     */
-    public synchronized Request getRequest() {
-        Request r = null;
-        String id = null;
 
-        logger.debug("getRequest  mRequests=" + mRequests.size() + "  mSearchForRequests=" + mSearchForRequests);
-        if (mSearchForRequests && mRequests.size() == 1) {
-
-            id = mRequests.elementAt(0);
-            RequestRepository requestRepository = engine.getRequestRepository();
+        BigInteger oldest = mPending.isEmpty() ? null : mPending.first();
 
-            if (id != null && requestRepository != null) {
-                logger.debug("getRequest  request id=" + id);
-                String filter = "(& (requestID >= " + new RequestId(id) + ")(requeststate=complete))";
-                RecordPagedList<RequestRecord> list;
-                try {
-                    list = requestRepository.getPagedRequestsByFilter(
-                            filter,
-                            mMaxRequests,
-                            "requestId");
-
-                } catch (EBaseException e) {
-                    throw new RuntimeException(e);
-                }
-                Iterator<RequestRecord> itReqRecs = list.iterator();
-
-                while (itReqRecs.hasNext() && mRequests.size() < mMaxRequests) {
-                    RequestRecord reqRec = itReqRecs.next();
-                    try {
-                        r = reqRec.toRequest();
-                    } catch (Exception e) {
-                        // handled below
-                    }
-                    String requestType = r.getRequestType();
-                    if (requestType == null) {
-                        continue;
-                    }
-                    if (!(requestType.equals(Request.ENROLLMENT_REQUEST) ||
-                            requestType.equals(Request.RENEWAL_REQUEST) ||
-                            requestType.equals(Request.REVOCATION_REQUEST) ||
-                            requestType.equals(Request.CMCREVOKE_REQUEST) ||
-                            requestType.equals(Request.UNREVOCATION_REQUEST))) {
-                        continue;
-                    }
-                    mRequests.addElement(r.getRequestId().toString());
-                    logger.debug("getRequest  added {}  request {} to mRequests: {}  ({})",
-                              r.getRequestType(), r.getRequestId().toString(), mRequests.size(), mMaxRequests);
-                }
-                logger.debug("getRequest  done with adding requests to mRequests: {}", mRequests.size());
-            } else {
-                logger.warn("getRequest  has no access to the request queue");
+        synchronized (mOverflowMonitor) {
+            if (mOverflowFrom != null && (oldest == null || mOverflowFrom.compareTo(oldest) < 0)) {
+                oldest = mOverflowFrom;
             }
         }
-        if (mRequests.size() > 0) {
-            id = mRequests.elementAt(0);
-            if (id != null) {
-                logger.debug("getRequest  getting request: " + id);
-                RequestRepository requestRepository = engine.getRequestRepository();
-
-                if (requestRepository != null) {
-                    try {
-                        r = requestRepository.readRequest(new RequestId(id));
-                        mRequests.remove(0);
-                        logger.debug("getRequest  request " + id + ((r != null) ? " found" : " not found"));
-                        //updatePublishingStatus(id);
-                    } catch (EBaseException e) {
-                        logger.warn("getRequest  Exception: " + e.getMessage(), e);
-                    }
-                } else {
-                    logger.warn("getRequest  has no access to the request queue");
-                }
-            }
-            if (mRequests.size() == 0) {
-                mSearchForRequests = false;
-            }
-        }
-        logger.debug("getRequest  mRequests=" + mRequests.size() + "  mSearchForRequests=" + mSearchForRequests + " done");
 
-        return r;
+        String status = oldest == null ? "-1" : oldest.toString();
+        logger.debug("updatePublishingStatus  requestId: " + status);
+        requestRepository.setPublishingStatus(status);
     }
 
     /**
@@ -302,7 +360,7 @@ public class RequestNotifier {
      * @return number of requests in publishing queue
      */
     public int getNumberOfRequests() {
-        return mRequests.size();
+        return mQueueSize.get();
     }
 
     /**
@@ -314,24 +372,6 @@ public class RequestNotifier {
         return mIsPublishingQueueEnabled;
     }
 
-    /**
-     * Removes a notifier thread from the pool of publishing queue threads.
-     *
-     * @param notifierThread Thread
-     */
-    public void removeNotifierThread(Thread notifierThread) {
-        if (mNotifierThreads.size() > 0) {
-            mNotifierThreads.remove(notifierThread);
-            if (mNotifierThreads.size() == 0) {
-                RequestRepository requestRepository = engine.getRequestRepository();
-                if (requestRepository != null) {
-                    requestRepository.setPublishingStatus("-1");
-                }
-            }
-        }
-        logger.debug("Number of publishing threads: " + mNotifierThreads.size());
-    }
-
     /**
      * Provides notification that a request has been completed.
      * The implementation may use values stored in the Request
@@ -380,108 +420,411 @@ public class RequestNotifier {
     }
 
     /**
-     * Checks if more publishing threads can be added.
+     * Checks whether the request should be published again
+     * after it has been processed by the listeners.
+     *
+     * @param r request
+     * @return true if the request failed to publish
+     */
+    public boolean isPublishingFailed(Request r) {
+        return false;
+    }
+
+    /**
+     * Checks whether the listener publishes the request and should run
+     * again when the request failed to publish.
      *
-     * @return true if more publishing threads can be added, false otherwise
+     * @param listener request listener
+     * @return true if the listener publishes the request
      */
-    private boolean morePublishingThreads() {
-        boolean moreThreads = false;
-
-        if (mNotifierThreads.size() == 0) {
-            moreThreads = true;
-        } else if (mNotifierThreads.size() < mMaxThreads) {
-            logger.debug("morePublishingThreads  (" + mRequests.size() + ">" +
-                      ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads) +
-                      " " + "(" + mMaxRequests + "*" + mNotifierThreads.size() + "):" + mMaxThreads);
-            // gradually add new publishing threads
-            if (mRequests.size() > ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads)) {
-                // check for available publishing connections
-                if (checkAvailablePublishingConnections()) {
-                    moreThreads = true;
+    public boolean isPublishingListener(RequestListener listener) {
+        return false;
+    }
+
+    /**
+     * Adds the request to the publishing queue.
+     *
+     * @param r request
+     */
+    public void addToNotify(Request r) {
+
+        logger.info("RequestNotifier: Adding request " + r.getRequestId().toHexString() + " to publishing queue");
+        logger.debug("RequestNotifier: - queue size: " + mQueueSize.get() + "/" + mMaxRequests);
+
+        enqueue(new QueueEntry(r.getRequestId().toBigInteger(), System.nanoTime(), 0));
+        startWorkers();
+    }
+
+    /**
+     * Adds an entry to the queue, or records it for a later
+     * search if the queue is full.
+     */
+    void enqueue(QueueEntry entry) {
+
+        if (mQueueSize.get() >= mMaxRequests) {
+            logger.debug("RequestNotifier: Publishing queue full, request " + entry.id() + " will be searched later");
+            mOverflows.increment();
+
+            synchronized (mOverflowMonitor) {
+                if (mOverflowFrom == null || entry.id().compareTo(mOverflowFrom) < 0) {
+                    mOverflowFrom = entry.id();
                 }
             }
+            return;
+        }
+
+        if (mQueued.putIfAbsent(entry.id(), entry) != null) {
+            logger.debug("RequestNotifier: Request " + entry.id() + " already in publishing queue");
+            mCoalesced.increment();
+            return;
+        }
+
+        mPending.add(entry.id());
+        mQueueSize.incrementAndGet();
+        mQueue.offer(entry);
+        mEnqueued.increment();
+    }
+
+    QueueEntry dequeue() {
+
+        QueueEntry entry = mQueue.poll();
+        if (entry == null) {
+            return null;
         }
-        logger.debug("morePublishingThreads  moreThreads: " + moreThreads);
 
-        return moreThreads;
+        mQueued.remove(entry.id(), entry);
+        mQueueSize.decrementAndGet();
+
+        return entry;
     }
 
     /**
-     * Notifies all registered listeners about request.
-     *
-     * @param r request
+     * Starts another publishing thread if the maximum has not been
+     * reached. Additional threads are added gradually as the queue
+     * grows, and only if there are available publishing connections.
      */
-    public synchronized void addToNotify(Request r) {
+    void startWorkers() {
 
-        logger.info("RequestNotifier: Notifying all listeners for request " + r.getRequestId().toHexString());
+        ScheduledThreadPoolExecutor executor = mExecutor;
+        if (executor == null) {
+            return;
+        }
 
-        if (!mSearchForRequests) {
+        while (true) {
 
-            logger.info("RequestNotifier: - max requests: " + mMaxRequests);
-            logger.info("RequestNotifier: - buffer size: " + mRequests.size());
+            int workers = mWorkers.get();
 
-            if (mRequests.size() < mMaxRequests) {
-                logger.info("RequestNotifier: Extending buffer");
-                mRequests.addElement(r.getRequestId().toString());
+            if (workers >= Math.max(1, mMaxThreads)) {
+                return;
+            }
 
-                if (morePublishingThreads()) {
-                    try {
-                        Thread notifierThread = new Thread(new RunListeners(this), "RequestNotifier-addToNotify");
-                        if (notifierThread != null) {
-                            mNotifierThreads.addElement(notifierThread);
-                            logger.info("RequestNotifier: - publishing threads: " + mNotifierThreads.size());
-                            if (mPublishingQueuePriority > 0) {
-                                notifierThread.setPriority(mPublishingQueuePriority);
-                            }
-                            notifierThread.start();
-                        }
+            if (workers > 0 && (mQueueSize.get() <= workers * mBatchSize || !checkAvailablePublishingConnections())) {
+                return;
+            }
 
-                    } catch (Throwable e) {
-                        logger.warn("Unable to notify listeners: " + e.getMessage(), e);
+            if (!mWorkers.compareAndSet(workers, workers + 1)) {
+                continue;
+            }
+
+            logger.debug("RequestNotifier: Starting publishing thread " + (workers + 1));
+
+            try {
+                executor.execute(this::drain);
+
+            } catch (RejectedExecutionException e) {
+                mWorkers.decrementAndGet();
+                logger.warn("RequestNotifier: Unable to start publishing thread: " + e.getMessage());
+            }
+
+            return;
+        }
+    }
+
+    /**
+     * Publishes the queued requests in batches until the queue is empty
+     * and there are no more requests to search.
+     */
+    void drain() {
+
+        List<QueueEntry> batch = new ArrayList<>(mBatchSize);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+
+                QueueEntry entry;
+                while (batch.size() < mBatchSize && (entry = dequeue()) != null) {
+                    batch.add(entry);
+                }
+
+                if (batch.isEmpty()) {
+                    if (searchRequests()) {
+                        continue;
                     }
+                    break;
                 }
 
+                logger.debug("RequestNotifier: Publishing " + batch.size() + " request(s)");
+
+                for (QueueEntry e : batch) {
+                    publish(e);
+                }
+
+                batch.clear();
+            }
+
+        } catch (Throwable e) {
+            logger.warn("RequestNotifier: Publishing thread failed: " + e.getMessage(), e);
+
+        } finally {
+            int workers = mWorkers.decrementAndGet();
+
+            if (!mQueue.isEmpty()) {
+                // requests added while the thread was stopping
+                startWorkers();
+
+            } else if (workers == 0 && mSavePublishingStatus > 0) {
+                updatePublishingStatus();
+            }
+        }
+    }
+
+    void publish(QueueEntry entry) {
+
+        RequestId requestId = new RequestId(entry.id());
+        Set<String> completed = ConcurrentHashMap.newKeySet();
+        completed.addAll(entry.completed());
+        boolean failed = false;
+
+        try {
+            RequestRepository requestRepository = engine.getRequestRepository();
+            Request r = requestRepository.readRequest(requestId);
+
+            if (r == null) {
+                logger.warn("RequestNotifier: Request " + requestId.toHexString() + " not found");
+
             } else {
-                mSearchForRequests = true;
+                failed = runListeners(r, completed);
+                failed |= isPublishingFailed(r);
+            }
+
+        } catch (Exception e) {
+            logger.warn("RequestNotifier: Unable to publish request " + requestId.toHexString() + ": " + e.getMessage(), e);
+            failed = true;
+        }
+
+        ScheduledThreadPoolExecutor executor = mExecutor;
+
+        if (failed && entry.attempts() < mMaxRetries && executor != null) {
+            logger.info("RequestNotifier: Retrying request " + requestId.toHexString() + " in " + mRetryDelay + " s");
+            mRetries.increment();
+
+            QueueEntry retry = new QueueEntry(entry.id(), entry.enqueued(), entry.attempts() + 1, completed);
+
+            try {
+                executor.schedule(() -> {
+                    enqueue(retry);
+                    startWorkers();
+                }, mRetryDelay, TimeUnit.SECONDS);
+
+                // keep the request pending until the retry
+                return;
+
+            } catch (RejectedExecutionException e) {
+                logger.warn("RequestNotifier: Unable to retry request " + requestId.toHexString() + ": " + e.getMessage());
             }
         }
+
+        if (failed) {
+            logger.warn("RequestNotifier: Unable to publish request " + requestId.toHexString());
+            mFailures.increment();
+        } else {
+            mPublished.increment();
+        }
+
+        long lag = System.nanoTime() - entry.enqueued();
+        mLag.add(lag);
+        mMaxLag.accumulateAndGet(lag, Math::max);
+
+        if (!mQueued.containsKey(entry.id())) {
+            mPending.remove(entry.id());
+        }
+
+        if (mSavePublishingStatus > 0
+                && mSavePublishingCounter.incrementAndGet() % mSavePublishingStatus == 0) {
+            updatePublishingStatus();
+        }
     }
 
     /**
-     * Recovers publishing queue.
+     * Runs the listeners that have not completed the request yet.
+     * Listeners other than the publishing listeners are added to the
+     * completed listeners once they have processed the request.
      *
-     * @param id request request
+     * @param r request
+     * @param completed names of the completed listeners
+     * @return true if a listener failed
      */
-    public void recoverPublishingQueue(String id) {
+    boolean runListeners(Request r, Set<String> completed) {
 
-        logger.info("RequestNotifier: Recovering publishing queue for request " + id);
-        logger.info("RequestNotifier: - requests: " + mRequests.size());
-        logger.info("RequestNotifier: - max requests: " + mMaxRequests);
+        RequestId requestId = r.getRequestId();
+        boolean failed = false;
 
-        if (mRequests.size() == 0) {
-            logger.info("RequestNotifier: Extending buffer");
-            mRequests.addElement(id);
+        for (Map.Entry<String, RequestListener> entry : new ArrayList<>(mListeners.entrySet())) {
+
+            String name = entry.getKey();
+            RequestListener l = entry.getValue();
+
+            if (completed.contains(name)) {
+                logger.debug("RequestNotifier: Request " + requestId.toHexString() + " already processed by " + name);
+                continue;
+            }
 
-            if (morePublishingThreads()) {
-                synchronized (this) {
-                    mSearchForRequests = true;
+            logger.info("RequestNotifier: Processing request " + requestId.toHexString() + " with " + l.getClass().getSimpleName());
+
+            try {
+                l.accept(r);
+
+            } catch (Exception e) {
+                logger.warn("RequestNotifier: Unable to process request " + requestId.toHexString()
+                        + " with " + name + ": " + e.getMessage(), e);
+                failed = true;
+                continue;
+            }
+
+            if (!isPublishingListener(l)) {
+                completed.add(name);
+            }
+        }
+
+        return failed;
+    }
+
+    /**
+     * Adds completed requests that did not fit into the queue by searching
+     * the database starting from the first request that did not fit.
+     *
+     * @return true if requests were added to the queue
+     */
+    boolean searchRequests() {
+
+        BigInteger from;
+        synchronized (mOverflowMonitor) {
+            from = mOverflowFrom;
+            mOverflowFrom = null;
+        }
+
+        if (from == null) {
+            return false;
+        }
+
+        RequestRepository requestRepository = engine.getRequestRepository();
+
+        if (requestRepository == null) {
+            logger.warn("RequestNotifier: No access to the request repository");
+            return false;
+        }
+
+        logger.info("RequestNotifier: Searching completed requests from " + from);
+        mSearches.increment();
+
+        String filter = "(& (requestID >= " + new RequestId(from) + ")(requeststate=complete))";
+        int added = 0;
+        BigInteger next = null;
+
+        try {
+            RecordPagedList<RequestRecord> list = requestRepository.getPagedRequestsByFilter(
+                    filter,
+                    mMaxRequests,
+                    "requestId");
+
+            Iterator<RequestRecord> records = list.iterator();
+
+            while (records.hasNext()) {
+
+                RequestRecord record = records.next();
+                BigInteger id = record.getRequestId().toBigInteger();
+
+                if (mQueueSize.get() >= mMaxRequests) {
+                    // continue from this request later
+                    next = id;
+                    break;
                 }
 
-                try {
-                    Thread notifierThread = new Thread(new RunListeners(this), "RequestNotifier-recoverPublishingQueue");
-                    if (notifierThread != null) {
-                        mNotifierThreads.addElement(notifierThread);
-                        logger.info("RequestNotifier: - publishing threads: " + mNotifierThreads.size());
-                        if (mPublishingQueuePriority > 0) {
-                            notifierThread.setPriority(mPublishingQueuePriority);
-                        }
-                        notifierThread.start();
-                    }
+                String requestType = record.getRequestType();
+                if (requestType == null) {
+                    continue;
+                }
+
+                if (!(requestType.equals(Request.ENROLLMENT_REQUEST) ||
+                        requestType.equals(Request.RENEWAL_REQUEST) ||
+                        requestType.equals(Request.REVOCATION_REQUEST) ||
+                        requestType.equals(Request.CMCREVOKE_REQUEST) ||
+                        requestType.equals(Request.UNREVOCATION_REQUEST))) {
+                    continue;
+                }
+
+                enqueue(new QueueEntry(id, System.nanoTime(), 0));
+                added++;
+            }
 
-                } catch (Throwable e) {
-                    logger.warn("Unable to recover publishing queue: " + e.getMessage(), e);
+        } catch (Exception e) {
+            logger.warn("RequestNotifier: Unable to search requests: " + e.getMessage(), e);
+            next = from;
+        }
+
+        logger.info("RequestNotifier: Added " + added + " request(s) to publishing queue");
+
+        if (next != null) {
+            synchronized (mOverflowMonitor) {
+                if (mOverflowFrom == null || next.compareTo(mOverflowFrom) < 0) {
+                    mOverflowFrom = next;
                 }
             }
         }
+
+        return added > 0;
+    }
+
+    /**
+     * Recovers publishing queue.
+     *
+     * @param id request request
+     */
+    public void recoverPublishingQueue(String id) {
+
+        logger.info("RequestNotifier: Recovering publishing queue for request " + id);
+
+        synchronized (mOverflowMonitor) {
+            mOverflowFrom = new RequestId(id).toBigInteger();
+        }
+
+        startWorkers();
+    }
+
+    /**
+     * Returns publishing queue metrics. Times are in microseconds.
+     */
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        long published = mPublished.sum();
+        long failures = mFailures.sum();
+        long count = published + failures;
+
+        stats.put("queued", (long) mQueueSize.get());
+        stats.put("pending", (long) mPending.size());
+        stats.put("threads", (long) mWorkers.get());
+        stats.put("enqueued", mEnqueued.sum());
+        stats.put("coalesced", mCoalesced.sum());
+        stats.put("published", published);
+        stats.put("retries", mRetries.sum());
+        stats.put("failures", failures);
+        stats.put("overflows", mOverflows.sum());
+        stats.put("searches", mSearches.sum());
+        stats.put("lagAvg", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(mLag.sum() / count));
+        stats.put("lagMax", TimeUnit.NANOSECONDS.toMicros(mMaxLag.get()));
+
+        return stats;
     }
 }
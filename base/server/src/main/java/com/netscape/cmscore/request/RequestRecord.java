@@ -81,6 +81,15 @@ public class RequestRecord extends DBRecord {
         return mRequestId;
     }
 
+    /**
+     * Gets the request type.
+     *
+     * @return request type
+     */
+    public String getRequestType() {
+        return mRequestType;
+    }
+
     /**
      * Gets attribute names of the request.
      *
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import com.netscape.certsrv.base.EBaseException;
@@ -64,6 +65,11 @@ public class RequestRepository extends Repository {
     public static final String PROP_REQUEST_ID_LENGTH = "request.id.length";
     public static final int DEFAULT_REQUEST_ID_LENGTH = 128;
 
+    public static final String PROP_REQUEST_ID_LEASE_SIZE = "request.id.lease.size";
+    public static final int DEFAULT_REQUEST_ID_LEASE_SIZE = 1000;
+
+    public static final String PROP_REQUEST_ID_LEASE_PREFETCH = "request.id.lease.prefetch";
+
     protected String filter;
 
     /**
@@ -112,6 +118,8 @@ public class RequestRepository extends Repository {
             logger.debug("RequestRepository: - request ID length: " + idLength);
         } else if (idGenerator == IDGenerator.LEGACY_2) {
             initLegacy2Generator();
+        } else if (idGenerator == IDGenerator.LEASED) {
+            initLeasedGenerator();
         } else {
             initLegacyGenerator();
         }
@@ -156,6 +164,21 @@ public class RequestRepository extends Repository {
         logger.debug("RequestRepository: - increment serial: " + mIncrementNo);
     }
 
+    protected void initLeasedGenerator() throws EBaseException {
+        DatabaseConfig dbConfig = dbSubsystem.getDBConfigStore();
+
+        rangeDN = dbConfig.getRequestRangeDN() + "," + dbSubsystem.getBaseDN();
+        logger.debug("RequestRepository: - range DN: " + rangeDN);
+
+        int leaseSize = dbConfig.getInteger(PROP_REQUEST_ID_LEASE_SIZE, DEFAULT_REQUEST_ID_LEASE_SIZE);
+        logger.debug("RequestRepository: - lease size: " + leaseSize);
+
+        int prefetch = dbConfig.getInteger(PROP_REQUEST_ID_LEASE_PREFETCH, leaseSize / 4);
+        logger.debug("RequestRepository: - lease prefetch: " + prefetch);
+
+        initLeasedGenerator("request", leaseSize, prefetch);
+    }
+
     public void initLegacyGenerator() throws Exception {
 
         DatabaseConfig dbConfig = dbSubsystem.getDBConfigStore();
@@ -501,6 +524,38 @@ public class RequestRepository extends Repository {
         return records.iterator();
     }
 
+    /**
+     * Finds request records that satisfy the filter sorted by request ID,
+     * starting from the given request ID.
+     *
+     * @param filter search filter
+     * @param timeLimit search time limit in seconds, 0 for no limit
+     * @param from first request ID to return, or null to start from the lowest ID
+     * @param size maximum number of records to return
+     * @return a list of request records
+     * @exception EBaseException failed to search
+     */
+    public List<RequestRecord> searchRequestsFrom(String filter, int timeLimit, BigInteger from, int size)
+            throws EBaseException {
+
+        if (from != null) {
+            String range = "(" + RequestRecord.ATTR_REQUEST_ID + ">=" + new RequestId(from) + ")";
+            filter = filter == null ? range : "(&" + filter + range + ")";
+        }
+
+        logger.debug("RequestRepository: Searching requests with filter {} and size {}", filter, size);
+
+        List<RequestRecord> records = new ArrayList<>();
+        try (DBSSession s = dbSubsystem.createSession()) {
+            DBSearchResults sr = s.pagedSearch(
+                    mBaseDN, filter, new String[] { RequestRecord.ATTR_REQUEST_ID }, 0, size, timeLimit);
+            while (sr.hasMoreElements() && records.size() < size) {
+                records.add((RequestRecord) sr.nextElement());
+            }
+        }
+        return records;
+    }
+
     public Collection<RequestRecord> listRequestsByFilter(String filter) throws EBaseException {
 
         Collection<RequestRecord> records = new ArrayList<>();
@@ -0,0 +1,20 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+/**
+ * This interface is notified when a group or its membership has changed.
+ */
+public interface GroupListener {
+
+    /**
+     * This method is called after the change has been stored.
+     *
+     * @param groupID the group that has changed, or null if
+     *        any group might have changed (e.g. a user was removed)
+     */
+    void groupChanged(String groupID);
+}
@@ -0,0 +1,204 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of group memberships and certificate-to-user mappings
+ * for UGSubsystem.
+ *
+ * Entries expire after the configured time to live. They are also
+ * removed when UGSubsystem modifies the user or group, or when the
+ * change monitor receives a change from the database, so the time
+ * to live only matters if the change notification is missed.
+ *
+ * Users returned by findUser() and findUsersByCert() are shared
+ * between callers and must not be modified.
+ */
+public class UGCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UGCache.class);
+
+    record Entry<T>(T value, long expires) {
+    }
+
+    private int maxSize;
+    private long ttl; // nanoseconds
+
+    // memberships by group ID and user DN
+    private Map<String, Map<String, Entry<Boolean>>> memberships = new ConcurrentHashMap<>();
+    private AtomicLong membershipCount = new AtomicLong();
+
+    // users by certificate string or certificate search filter
+    private Map<String, Entry<User>> certUsers = new ConcurrentHashMap<>();
+
+    // incremented on each invalidation
+    private AtomicLong generation = new AtomicLong();
+
+    private LongAdder membershipHits = new LongAdder();
+    private LongAdder membershipMisses = new LongAdder();
+    private LongAdder userHits = new LongAdder();
+    private LongAdder userMisses = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+
+    public UGCache(int maxSize, int ttl) {
+        this.maxSize = maxSize;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    static String normalize(String s) {
+        return s.toLowerCase();
+    }
+
+    /**
+     * Returns the current generation. It should be obtained before
+     * retrieving the value from the database and passed to put*().
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the cached membership of the user in the group,
+     * or null if it is not cached.
+     */
+    public Boolean getMembership(String userDN, String groupID) {
+
+        Map<String, Entry<Boolean>> members = memberships.get(normalize(groupID));
+        Entry<Boolean> entry = members == null ? null : members.get(normalize(userDN));
+
+        if (entry == null || System.nanoTime() - entry.expires() >= 0) {
+            membershipMisses.increment();
+            return null;
+        }
+
+        membershipHits.increment();
+        return entry.value();
+    }
+
+    public void putMembership(String userDN, String groupID, boolean member, long generation) {
+
+        if (membershipCount.get() >= maxSize) {
+            logger.debug("UGCache: Membership cache full, clearing");
+            memberships.clear();
+            membershipCount.set(0);
+        }
+
+        String key = normalize(groupID);
+        Map<String, Entry<Boolean>> members = memberships.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+
+        Entry<Boolean> entry = new Entry<>(member, System.nanoTime() + ttl);
+        if (members.put(normalize(userDN), entry) == null) {
+            membershipCount.incrementAndGet();
+        }
+
+        if (this.generation.get() != generation && members.remove(normalize(userDN), entry)) {
+            membershipCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the cached user for the certificate string or search
+     * filter, or null if it is not cached.
+     */
+    public User getCertUser(String key) {
+
+        Entry<User> entry = certUsers.get(key);
+
+        if (entry == null || System.nanoTime() - entry.expires() >= 0) {
+            userMisses.increment();
+            return null;
+        }
+
+        userHits.increment();
+        return entry.value();
+    }
+
+    public void putCertUser(String key, User user, long generation) {
+
+        if (certUsers.size() >= maxSize) {
+            logger.debug("UGCache: User cache full, clearing");
+            certUsers.clear();
+        }
+
+        Entry<User> entry = new Entry<>(user, System.nanoTime() + ttl);
+        certUsers.put(key, entry);
+
+        if (this.generation.get() != generation) {
+            certUsers.remove(key, entry);
+        }
+    }
+
+    /**
+     * Removes the memberships of the group.
+     */
+    public void invalidateGroup(String groupID) {
+
+        logger.debug("UGCache: Invalidating group " + groupID);
+        invalidations.increment();
+        generation.incrementAndGet();
+
+        Map<String, Entry<Boolean>> members = memberships.remove(normalize(groupID));
+        if (members != null) {
+            membershipCount.addAndGet(-members.size());
+        }
+    }
+
+    /**
+     * Removes the memberships and certificate mappings of the user.
+     */
+    public void invalidateUser(String userDN) {
+
+        logger.debug("UGCache: Invalidating user " + userDN);
+        invalidations.increment();
+        generation.incrementAndGet();
+
+        String key = normalize(userDN);
+
+        for (Map<String, Entry<Boolean>> members : memberships.values()) {
+            if (members.remove(key) != null) {
+                membershipCount.decrementAndGet();
+            }
+        }
+
+        certUsers.values().removeIf(entry -> {
+            String dn = entry.value().getUserDN();
+            return dn == null || key.equals(normalize(dn));
+        });
+    }
+
+    public void invalidateAll() {
+
+        logger.debug("UGCache: Invalidating all entries");
+        invalidations.increment();
+        generation.incrementAndGet();
+
+        memberships.clear();
+        membershipCount.set(0);
+        certUsers.clear();
+    }
+
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("memberships", membershipCount.get());
+        stats.put("users", (long) certUsers.size());
+        stats.put("membershipHits", membershipHits.sum());
+        stats.put("membershipMisses", membershipMisses.sum());
+        stats.put("userHits", userHits.sum());
+        stats.put("userMisses", userMisses.sum());
+        stats.put("invalidations", invalidations.sum());
+
+        return stats;
+    }
+}
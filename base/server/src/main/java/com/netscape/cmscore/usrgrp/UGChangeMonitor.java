@@ -0,0 +1,213 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.cmsutil.ldap.LDAPUtil;
+
+import netscape.ldap.LDAPAttribute;
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPSearchConstraints;
+import netscape.ldap.LDAPSearchResults;
+import netscape.ldap.controls.LDAPEntryChangeControl;
+import netscape.ldap.controls.LDAPPersistSearchControl;
+
+/**
+ * Monitors changes to the users or groups subtree with a persistent
+ * search and notifies UGSubsystem so it can remove the affected entries
+ * from the cache.
+ *
+ * Changes made while the search is not running (e.g. while the database
+ * is unavailable) are not reported, so the whole cache is invalidated
+ * each time the search is started.
+ *
+ * The search runs on a dedicated connection outside of the UGSubsystem
+ * connection pool since it is held for the lifetime of the monitor.
+ */
+public class UGChangeMonitor implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UGChangeMonitor.class);
+
+    public enum Type { USERS, GROUPS }
+
+    public static final long STOP_TIMEOUT = 5000; // milliseconds
+
+    private UGSubsystem ugSubsystem;
+    private Type type;
+    private String baseDN;
+
+    private volatile boolean stopped;
+    private Thread thread;
+
+    private volatile LDAPConnection conn;
+    private volatile LDAPSearchResults results;
+
+    public UGChangeMonitor(UGSubsystem ugSubsystem, Type type, String baseDN) {
+        this.ugSubsystem = ugSubsystem;
+        this.type = type;
+        this.baseDN = baseDN;
+    }
+
+    public void start() {
+        thread = new Thread(this, "UGChangeMonitor-" + type.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+
+        stopped = true;
+
+        // the search blocks until the next change, so abandon it
+        // and close the connection to release the thread
+        LDAPConnection conn = this.conn;
+        LDAPSearchResults results = this.results;
+
+        if (conn != null && results != null) {
+            try {
+                conn.abandon(results);
+            } catch (LDAPException e) {
+                logger.warn("UGChangeMonitor: Unable to abandon search: " + e.getMessage());
+            }
+        }
+
+        disconnect(conn);
+
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+
+        try {
+            thread.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            logger.warn("UGChangeMonitor: Unable to stop monitoring " + baseDN);
+        }
+
+        thread = null;
+    }
+
+    private void disconnect(LDAPConnection conn) {
+
+        if (conn == null || !conn.isConnected()) {
+            return;
+        }
+
+        try {
+            conn.disconnect();
+        } catch (LDAPException e) {
+            logger.warn("UGChangeMonitor: Unable to disconnect: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+
+        int op = LDAPPersistSearchControl.ADD
+            | LDAPPersistSearchControl.MODIFY
+            | LDAPPersistSearchControl.DELETE
+            | LDAPPersistSearchControl.MODDN;
+        LDAPPersistSearchControl persistCtrl =
+            new LDAPPersistSearchControl(op, true, true, true);
+
+        String filter = type == Type.GROUPS
+                ? "(objectclass=" + UGSubsystem.GROUP_ATTR_VALUE + ")"
+                : "(objectclass=*)";
+        String[] attrs = { "cn" };
+
+        logger.info("UGChangeMonitor: Monitoring " + baseDN);
+
+        while (!stopped) {
+            try {
+                conn = ugSubsystem.getConnFactory().createConnection();
+                if (stopped) {
+                    break;
+                }
+
+                LDAPSearchConstraints cons = conn.getSearchConstraints();
+                cons.setServerControls(persistCtrl);
+                cons.setBatchSize(1);
+                cons.setServerTimeLimit(0 /* seconds */);
+                results = conn.search(
+                    baseDN, LDAPConnection.SCOPE_SUB, filter, attrs, false, cons);
+
+                // changes might have been missed while disconnected
+                ugSubsystem.notifyGroupChanged(null);
+
+                while (!stopped && results.hasMoreElements()) {
+                    LDAPEntry entry = results.next();
+
+                    LDAPEntryChangeControl changeControl = (LDAPEntryChangeControl)
+                        LDAPUtil.getControl(
+                            LDAPEntryChangeControl.class, results.getResponseControls());
+
+                    int changeType = changeControl == null ? 0 : changeControl.getChangeType();
+                    logger.debug("UGChangeMonitor: Change " + changeType + " in " + entry.getDN());
+
+                    processChange(changeType, entry);
+                }
+
+            } catch (DBException e) {
+                logger.warn("UGChangeMonitor: Unable to get LDAP connection. Retrying in 1 second.");
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+            } catch (LDAPException e) {
+                if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE_CRITICAL_EXTENSION) {
+                    logger.warn("UGChangeMonitor: Persistent search not supported, cache entries will expire by TTL only");
+                    stopped = true;
+
+                } else if (!stopped) {
+                    logger.warn("UGChangeMonitor: Unable to monitor " + baseDN + ": " + e.getMessage(), e);
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            } finally {
+                results = null;
+                disconnect(conn);
+                conn = null;
+            }
+        }
+
+        logger.info("UGChangeMonitor: Stopped monitoring " + baseDN);
+    }
+
+    void processChange(int changeType, LDAPEntry entry) {
+
+        if (changeType == LDAPPersistSearchControl.MODDN) {
+            // the previous name is not known
+            ugSubsystem.notifyGroupChanged(null);
+            return;
+        }
+
+        if (type == Type.USERS) {
+            ugSubsystem.notifyUserChanged(entry.getDN());
+            return;
+        }
+
+        LDAPAttribute cn = entry.getAttribute("cn");
+        if (cn == null) {
+            ugSubsystem.notifyGroupChanged(null);
+            return;
+        }
+
+        ugSubsystem.notifyGroupChanged(cn.getStringValues().nextElement());
+    }
+}
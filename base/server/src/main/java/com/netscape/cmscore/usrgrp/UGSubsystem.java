@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -87,6 +88,11 @@ public class UGSubsystem {
     protected transient LdapBoundConnFactory mLdapConnFactory = null;
     protected String mBaseDN = null;
 
+    protected List<GroupListener> groupListeners = new CopyOnWriteArrayList<>();
+
+    protected UGCache cache;
+    protected List<UGChangeMonitor> changeMonitors = new ArrayList<>();
+
     /**
      * Constructs LDAP based usr/grp management
      */
@@ -129,10 +135,100 @@ public class UGSubsystem {
         mLdapConnFactory.init(ldapConfig);
     }
 
+    /**
+     * Enables caching of group memberships and certificate-to-user
+     * mappings.
+     *
+     * @param size maximum number of entries
+     * @param ttl time to live in seconds
+     * @param monitor whether to monitor changes in the database
+     */
+    public void initCache(int size, int ttl, boolean monitor) {
+
+        logger.info("UGSubsystem: Cache:");
+        logger.info("UGSubsystem: - size: " + size);
+        logger.info("UGSubsystem: - TTL: " + ttl + " s");
+        logger.info("UGSubsystem: - monitor: " + monitor);
+
+        cache = new UGCache(size, ttl);
+
+        if (!monitor) {
+            return;
+        }
+
+        changeMonitors.add(new UGChangeMonitor(this, UGChangeMonitor.Type.USERS, getUserBaseDN()));
+        changeMonitors.add(new UGChangeMonitor(this, UGChangeMonitor.Type.GROUPS, getGroupBaseDN()));
+
+        for (UGChangeMonitor changeMonitor : changeMonitors) {
+            changeMonitor.start();
+        }
+    }
+
+    public UGCache getCache() {
+        return cache;
+    }
+
+    public void addGroupListener(GroupListener listener) {
+        groupListeners.add(listener);
+    }
+
+    public void removeGroupListener(GroupListener listener) {
+        groupListeners.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners that a group or its membership has changed.
+     *
+     * @param groupID the group that has changed, or null if any group
+     *        might have changed
+     */
+    public void notifyGroupChanged(String groupID) {
+
+        if (cache != null) {
+            if (groupID == null) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidateGroup(groupID);
+            }
+        }
+
+        for (GroupListener listener : groupListeners) {
+            try {
+                listener.groupChanged(groupID);
+            } catch (Exception e) {
+                logger.warn("UGSubsystem: Unable to notify group listener: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the cached information of a user that has changed.
+     *
+     * @param userDN the DN of the user
+     */
+    public void notifyUserChanged(String userDN) {
+        if (cache != null) {
+            cache.invalidateUser(userDN);
+        }
+    }
+
+    /**
+     * Retrieves LDAP connection factory.
+     */
+    public LdapBoundConnFactory getConnFactory() {
+        return mLdapConnFactory;
+    }
+
     /**
      * Disconnects usr/grp manager from the LDAP
      */
     public void shutdown() {
+
+        for (UGChangeMonitor changeMonitor : changeMonitors) {
+            changeMonitor.stop();
+        }
+        changeMonitors.clear();
+
         try {
             if (mLdapConnFactory != null) {
                 mLdapConnFactory.reset();
@@ -226,17 +322,34 @@ public class UGSubsystem {
             return null;
         }
 
+        String certString = getCertificateString(cert);
+        long generation = 0;
+
+        if (cache != null) {
+            User user = cache.getCertUser(certString);
+            if (user != null) {
+                return user;
+            }
+            generation = cache.getGeneration();
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
             ldapconn = getConn();
-            String filter = LDAP_ATTR_USER_CERT_STRING + "=" + LDAPUtil.escapeFilter(getCertificateString(cert));
+            String filter = LDAP_ATTR_USER_CERT_STRING + "=" + LDAPUtil.escapeFilter(certString);
             LDAPSearchResults res =
                     ldapconn.search(getUserBaseDN(),
                             LDAPConnection.SCOPE_SUB, filter, null, false);
             Enumeration<User> e = buildUsers(res);
 
-            return e.nextElement();
+            User user = e.nextElement();
+
+            if (cache != null && user != null) {
+                cache.putCertUser(certString, user, generation);
+            }
+
+            return user;
 
         } catch (LDAPException e) {
             logger.warn("Unable to find user: " + e.getMessage(), e);
@@ -278,6 +391,16 @@ public class UGSubsystem {
             filter = stripped.toString() + up;
         }
 
+        long generation = 0;
+
+        if (cache != null) {
+            User user = cache.getCertUser(filter);
+            if (user != null) {
+                return user;
+            }
+            generation = cache.getGeneration();
+        }
+
         LDAPConnection ldapconn = null;
 
         try {
@@ -288,7 +411,13 @@ public class UGSubsystem {
 
             Enumeration<User> e = buildUsers(res);
 
-            return e.nextElement();
+            User user = e.nextElement();
+
+            if (cache != null && user != null) {
+                cache.putCertUser(filter, user, generation);
+            }
+
+            return user;
 
         } catch (LDAPException e) {
             logger.warn("Unable to find user by certificate: " + e.getMessage(), e);
@@ -854,6 +983,7 @@ public class UGSubsystem {
 
             ldapconn = getConn();
             ldapconn.modify(dn, mods);
+            notifyUserChanged(dn);
 
             SessionContext sessionContext = SessionContext.getContext();
             String adminId = (String) sessionContext.get(SessionContext.USER_ID);
@@ -1036,6 +1166,7 @@ public class UGSubsystem {
                 attrs.add(LDAPModification.DELETE, certAttrS);
 
                 ldapconn.modify(dn, attrs);
+                notifyUserChanged(dn);
 
                 certCount++;
 
@@ -1086,6 +1217,7 @@ public class UGSubsystem {
                     LDAPModification.ADD, memberAttr);
 
             ldapconn.modify(groupDN, singleChange);
+            notifyGroupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1114,6 +1246,7 @@ public class UGSubsystem {
                     LDAPModification.DELETE, memberAttr);
 
             ldapconn.modify(groupDN, singleChange);
+            notifyGroupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1140,6 +1273,10 @@ public class UGSubsystem {
         try {
             ldapconn = getConn();
             ldapconn.delete("uid=" + LDAPUtil.escapeRDNValue(userid) + "," + getUserBaseDN());
+
+            // the user might have been a member of any group
+            notifyGroupChanged(null);
+
             // for audit log
             SessionContext sessionContext = SessionContext.getContext();
             String adminId = (String) sessionContext.get(SessionContext.USER_ID);
@@ -1295,6 +1432,8 @@ public class UGSubsystem {
              **/
             ldapconn.modify("uid=" + LDAPUtil.escapeRDNValue(user.getUserID()) +
                     "," + getUserBaseDN(), attrs);
+            notifyUserChanged(getUserDN(user.getUserID()));
+
             // for audit log
             SessionContext sessionContext = SessionContext.getContext();
             String adminId = (String) sessionContext.get(SessionContext.USER_ID);
@@ -1663,6 +1802,17 @@ public class UGSubsystem {
      * by running an ldap search for the user in the group
      */
     protected boolean isMemberOfLdapGroup(String userid, String groupname) {
+
+        long generation = 0;
+
+        if (cache != null) {
+            Boolean member = cache.getMembership(userid, groupname);
+            if (member != null) {
+                return member;
+            }
+            generation = cache.getGeneration();
+        }
+
         String basedn = "cn=" + LDAPUtil.escapeRDNValue(groupname) + ",ou=groups," + mBaseDN;
         LDAPConnection ldapconn = null;
         boolean founduser = false;
@@ -1691,6 +1841,10 @@ public class UGSubsystem {
                 founduser = true;
             }
             logger.trace("authorization result: " + founduser);
+
+            if (cache != null) {
+                cache.putMembership(userid, groupname, founduser, generation);
+            }
         } catch (LDAPException e) {
             String errMsg =
                     "isMemberOfLdapGroup: could not find group " + groupname + ". Error " + e;
@@ -1762,6 +1916,7 @@ public class UGSubsystem {
 
             ldapconn = getConn();
             ldapconn.add(entry);
+            notifyGroupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1790,6 +1945,7 @@ public class UGSubsystem {
         try {
             ldapconn = getConn();
             ldapconn.delete("cn=" + LDAPUtil.escapeRDNValue(name) + "," + getGroupBaseDN());
+            notifyGroupChanged(name);
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1850,6 +2006,7 @@ public class UGSubsystem {
 
             ldapconn = getConn();
             ldapconn.modify(dn, mod);
+            notifyGroupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -13,6 +13,9 @@ import com.netscape.cmscore.ldapconn.LDAPConfig;
 
 public class UGSubsystemConfig extends ConfigStore {
 
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    public static final int DEFAULT_CACHE_TTL = 300; // seconds
+
     public UGSubsystemConfig() {
     }
 
@@ -27,4 +30,32 @@ public class UGSubsystemConfig extends ConfigStore {
     public LDAPConfig getLDAPConfig() throws EBaseException {
         return getSubStore("ldap", LDAPConfig.class);
     }
+
+    /**
+     * Returns usrgrp.cache.enable parameter.
+     */
+    public boolean getCacheEnabled() throws EBaseException {
+        return getBoolean("cache.enable", false);
+    }
+
+    /**
+     * Returns usrgrp.cache.monitor parameter.
+     */
+    public boolean getCacheMonitorEnabled() throws EBaseException {
+        return getBoolean("cache.monitor", true);
+    }
+
+    /**
+     * Returns usrgrp.cache.size parameter.
+     */
+    public int getCacheSize() throws EBaseException {
+        return getInteger("cache.size", DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Returns usrgrp.cache.ttl parameter in seconds.
+     */
+    public int getCacheTTL() throws EBaseException {
+        return getInteger("cache.ttl", DEFAULT_CACHE_TTL);
+    }
 }
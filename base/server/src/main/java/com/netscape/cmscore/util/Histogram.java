@@ -0,0 +1,159 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values (e.g. durations in
+ * nanoseconds).
+ *
+ * Values are counted in log-linear buckets: each power of two is
+ * split into 16 sub-buckets, so a percentile is accurate to within
+ * about 6% of the actual value. Recording a value is a few atomic
+ * increments and does not allocate, so the histogram can stay
+ * enabled in production. Percentiles are computed from a snapshot
+ * of the buckets when the histogram is read.
+ *
+ * The buckets do not depend on configured bounds, so tail percentiles
+ * (e.g. p999) remain meaningful for any range of values.
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // enough buckets for any non-negative long
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    public record Snapshot(long count, long sum, long max, long[] counts) {
+
+        /**
+         * Returns the value at the given quantile (0.0 - 1.0),
+         * or 0 if there are no values.
+         */
+        public long getValueAtQuantile(double quantile) {
+
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(quantile * total);
+            if (rank < 1) rank = 1;
+
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // the largest bucket cannot exceed the recorded max
+                    return Math.min(getBucketValue(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private LongAdder count = new LongAdder();
+    private LongAdder sum = new LongAdder();
+    private AtomicLong max = new AtomicLong();
+
+    static int getBucket(long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the midpoint of the range of values counted in the bucket.
+     */
+    static long getBucketValue(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << shift;
+
+        return lower + ((1L << shift) >>> 1);
+    }
+
+    public void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Adds the values of a histogram of durations in nanoseconds into
+     * the map using the given prefix: prefix.count, and prefix.sum,
+     * prefix.max, prefix.p50, prefix.p90, prefix.p99 and prefix.p999
+     * converted to the given unit.
+     */
+    public void export(String prefix, Map<String, Long> values, TimeUnit unit) {
+
+        Snapshot snapshot = getSnapshot();
+
+        values.put(prefix + ".count", snapshot.count());
+        values.put(prefix + ".sum", unit.convert(snapshot.sum(), TimeUnit.NANOSECONDS));
+        values.put(prefix + ".max", unit.convert(snapshot.max(), TimeUnit.NANOSECONDS));
+        values.put(prefix + ".p50", unit.convert(snapshot.getValueAtQuantile(0.5), TimeUnit.NANOSECONDS));
+        values.put(prefix + ".p90", unit.convert(snapshot.getValueAtQuantile(0.9), TimeUnit.NANOSECONDS));
+        values.put(prefix + ".p99", unit.convert(snapshot.getValueAtQuantile(0.99), TimeUnit.NANOSECONDS));
+        values.put(prefix + ".p999", unit.convert(snapshot.getValueAtQuantile(0.999), TimeUnit.NANOSECONDS));
+    }
+
+    public Snapshot getSnapshot() {
+
+        long[] values = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            values[i] = counts.get(i);
+        }
+
+        return new Snapshot(count.sum(), sum.sum(), max.get(), values);
+    }
+}
@@ -0,0 +1,225 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of counters, gauges and histograms.
+ *
+ * Metrics are identified by name and labels, and are created on
+ * first use. Updating a metric does not take any lock. The registry
+ * can be exported in the Prometheus text exposition format, in which
+ * histograms of durations are exposed as summaries in seconds with
+ * the p50, p99 and p999 quantiles.
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    public static class Counter {
+
+        private LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    record Metric(String name, String labels, String type, Object value) {
+    }
+
+    // metrics by name and labels, sorted so metrics with the same name are adjacent
+    private Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    private Map<String, String> help = new ConcurrentHashMap<>();
+
+    /**
+     * Formats the labels given as name-value pairs.
+     */
+    static String formatLabels(String... labels) {
+
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name-value pairs");
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+                }
+            }
+
+            sb.append('"');
+        }
+
+        return sb.toString();
+    }
+
+    static String getID(String name, String labels) {
+        return name + "{" + labels + "}";
+    }
+
+    private Object getMetric(String name, String type, Supplier<Object> factory, String... labels) {
+
+        String formattedLabels = formatLabels(labels);
+        String id = getID(name, formattedLabels);
+
+        Metric metric = metrics.get(id);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(id, k -> new Metric(name, formattedLabels, type, factory.get()));
+        }
+
+        if (!metric.type().equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + metric.type());
+        }
+
+        return metric.value();
+    }
+
+    public void setHelp(String name, String text) {
+        help.put(name, text);
+    }
+
+    /**
+     * Returns the counter with the given name and labels.
+     * Callers on hot paths should keep the returned counter
+     * instead of looking it up for each update.
+     */
+    public Counter counter(String name, String... labels) {
+        return (Counter) getMetric(name, "counter", Counter::new, labels);
+    }
+
+    /**
+     * Returns the histogram with the given name and labels.
+     * The recorded values must be in nanoseconds.
+     */
+    public Histogram histogram(String name, String... labels) {
+        return (Histogram) getMetric(name, "summary", Histogram::new, labels);
+    }
+
+    /**
+     * Registers a gauge whose value is obtained when the
+     * metrics are exported.
+     */
+    public void gauge(String name, LongSupplier supplier, String... labels) {
+        String formattedLabels = formatLabels(labels);
+        metrics.put(getID(name, formattedLabels), new Metric(name, formattedLabels, "gauge", supplier));
+    }
+
+    public void remove(String name, String... labels) {
+        metrics.remove(getID(name, formatLabels(labels)));
+    }
+
+    static String formatSeconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    static void writeSample(Writer out, String name, String labels, String value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format.
+     *
+     * @param out output writer
+     * @param sources additional values (e.g. from StatsSubsystem sources)
+     *        exported as pki_source_value gauges
+     */
+    public void write(Writer out, Map<String, Map<String, Long>> sources) throws IOException {
+
+        String currentName = null;
+
+        for (Metric metric : metrics.values()) {
+
+            String name = metric.name();
+            String labels = metric.labels();
+
+            if (!name.equals(currentName)) {
+                currentName = name;
+
+                String text = help.get(name);
+                if (text != null) {
+                    out.write("# HELP " + name + " " + text + "\n");
+                }
+                out.write("# TYPE " + name + " " + metric.type() + "\n");
+            }
+
+            if (metric.value() instanceof Counter counter) {
+                writeSample(out, name, labels, Long.toString(counter.get()));
+
+            } else if (metric.value() instanceof LongSupplier gauge) {
+                writeSample(out, name, labels, Long.toString(gauge.getAsLong()));
+
+            } else if (metric.value() instanceof Histogram histogram) {
+
+                Histogram.Snapshot snapshot = histogram.getSnapshot();
+                String separator = labels.isEmpty() ? "" : labels + ",";
+
+                for (double quantile : QUANTILES) {
+                    writeSample(out, name, separator + "quantile=\"" + quantile + "\"",
+                            formatSeconds(snapshot.getValueAtQuantile(quantile)));
+                }
+
+                writeSample(out, name + "_sum", labels, formatSeconds(snapshot.sum()));
+                writeSample(out, name + "_count", labels, Long.toString(snapshot.count()));
+            }
+        }
+
+        if (sources == null || sources.isEmpty()) {
+            return;
+        }
+
+        out.write("# HELP pki_source_value Values reported by server components\n");
+        out.write("# TYPE pki_source_value gauge\n");
+
+        for (Map.Entry<String, Map<String, Long>> source : sources.entrySet()) {
+            for (Map.Entry<String, Long> entry : source.getValue().entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                writeSample(out, "pki_source_value",
+                        formatLabels("source", source.getKey(), "name", entry.getKey()),
+                        Long.toString(entry.getValue()));
+            }
+        }
+    }
+}
@@ -17,14 +17,26 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.util;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.Hashtable;
-import java.util.Vector;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.Subsystem;
 import com.netscape.certsrv.util.StatsEvent;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.dbs.DBSubsystem;
+import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
+import com.netscape.cmscore.usrgrp.UGSubsystem;
 
 /**
  * A class represents a internal subsystem. This subsystem
@@ -37,16 +49,32 @@ public class StatsSubsystem extends Subsystem {
 
     public static final String ID = "stats";
 
+    public static final String OPERATION_DURATION = "pki_operation_duration_seconds";
+
     private String mId = null;
     private StatsEvent mAllTrans = new StatsEvent(null);
     private Date mStartTime = new Date();
-    private Hashtable<String, Vector<StatsMilestone>> mHashtable = new Hashtable<>();
+
+    // operations being timed in the current thread
+    private ThreadLocal<Deque<StatsMilestone>> mMilestones = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private MetricsRegistry mRegistry = new MetricsRegistry();
+
+    // duration histograms by operation
+    private Map<StatsEvent, Histogram> mHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * Named sources of counters and gauges (e.g. connection pools)
+     * that are sampled when the statistics are retrieved.
+     */
+    private Map<String, Supplier<Map<String, Long>>> mSources = new ConcurrentSkipListMap<>();
 
     /**
      * Constructs a certificate server.
      */
     public StatsSubsystem() {
         super();
+        mRegistry.setHelp(OPERATION_DURATION, "Duration of server operations");
     }
 
     /**
@@ -96,59 +124,82 @@ public class StatsSubsystem extends Subsystem {
     }
 
     public void startTiming(String id, boolean mainAction) {
-        Thread t = Thread.currentThread();
-        Vector<StatsMilestone> milestones = null;
-        if (mHashtable.containsKey(t.toString())) {
-            milestones = mHashtable.get(t.toString());
-        } else {
-            milestones = new Vector<>();
-            mHashtable.put(t.toString(), milestones);
-        }
-        long startTime = new Date().getTime();
-        StatsEvent currentST = null;
-        for (int i = 0; i < milestones.size(); i++) {
-            StatsMilestone se = milestones.elementAt(i);
-            if (currentST == null) {
-                currentST = mAllTrans.getSubEvent(se.getId());
-            } else {
-                currentST = currentST.getSubEvent(se.getId());
-            }
-        }
-        if (currentST == null) {
+
+        long startTime = System.nanoTime();
+
+        Deque<StatsMilestone> milestones = mMilestones.get();
+        StatsMilestone current = milestones.peekLast();
+        StatsEvent currentST;
+
+        if (current == null) {
             if (!mainAction) {
                 return; /* ignore none main action */
             }
             currentST = mAllTrans;
+        } else {
+            currentST = current.getStatsEvent();
         }
-        StatsEvent newST = currentST.getSubEvent(id);
-        if (newST == null) {
-            newST = new StatsEvent(currentST);
-            newST.setName(id);
-            currentST.addSubEvent(newST);
-        }
-        milestones.addElement(new StatsMilestone(id, startTime, newST));
+
+        StatsEvent newST = currentST.getOrCreateSubEvent(id);
+        milestones.addLast(new StatsMilestone(id, startTime, newST));
     }
 
     /**
      * Stops timing of a operation.
+     *
+     * Operations started after this one in the same thread that
+     * were not stopped (e.g. due to an exception) are discarded.
      */
     public void endTiming(String id) {
-        long endTime = new Date().getTime();
-        Thread t = Thread.currentThread();
-        if (!mHashtable.containsKey(t.toString())) {
-            return; /* error */
+
+        long endTime = System.nanoTime();
+
+        Deque<StatsMilestone> milestones = mMilestones.get();
+        StatsMilestone last = null;
+
+        for (Iterator<StatsMilestone> i = milestones.descendingIterator(); i.hasNext();) {
+            StatsMilestone milestone = i.next();
+            if (milestone.getId().equals(id)) {
+                last = milestone;
+                break;
+            }
         }
-        Vector<StatsMilestone> milestones = mHashtable.get(t.toString());
-        if (milestones.size() == 0) {
-            return; /* error */
+
+        if (last == null) {
+            return; /* not started */
         }
-        StatsMilestone last = milestones.remove(milestones.size() - 1);
+
+        while (milestones.removeLast() != last) {
+            // discard unfinished operations
+        }
+
+        long elapsed = endTime - last.getStartTime();
+
         StatsEvent st = last.getStatsEvent();
         st.incNoOfOperations(1);
-        st.incTimeTaken(endTime - last.getStartTime());
-        if (milestones.size() == 0) {
-            mHashtable.remove(t.toString());
+        st.incTimeTaken(TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        getHistogram(st).record(elapsed);
+    }
+
+    private Histogram getHistogram(StatsEvent st) {
+
+        Histogram histogram = mHistograms.get(st);
+        if (histogram != null) {
+            return histogram;
         }
+
+        return mHistograms.computeIfAbsent(st, e -> {
+
+            // operation name is the path of the event, e.g. enrollment.signing
+            StringBuilder sb = new StringBuilder(e.getName());
+            for (StatsEvent parent = e.getParent(); parent != null && parent.getName() != null;
+                    parent = parent.getParent()) {
+                sb.insert(0, parent.getName() + ".");
+            }
+
+            return mRegistry.histogram(OPERATION_DURATION, "operation", sb.toString());
+        });
     }
 
     /**
@@ -166,8 +217,66 @@ public class StatsSubsystem extends Subsystem {
         return mAllTrans;
     }
 
+    /**
+     * Returns the registry of counters, gauges and histograms
+     * that are exported in the Prometheus format.
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return mRegistry;
+    }
+
+    /**
+     * Writes the metrics and the values of the registered sources
+     * in the Prometheus text exposition format.
+     */
+    public void writeMetrics(Writer out) throws IOException {
+        mRegistry.write(out, getSourceValues());
+    }
+
+    /**
+     * Registers a source of counters and gauges.
+     */
+    public void addSource(String name, Supplier<Map<String, Long>> source) {
+        mSources.put(name, source);
+    }
+
+    public void removeSource(String name) {
+        mSources.remove(name);
+    }
+
+    /**
+     * Retrieves the current values of all registered sources.
+     */
+    public Map<String, Map<String, Long>> getSourceValues() {
+        Map<String, Map<String, Long>> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Map<String, Long>>> entry : mSources.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
     @Override
     public void startup() throws EBaseException {
+
+        if (engine == null) {
+            return;
+        }
+
+        DBSubsystem dbSubsystem = engine.getDBSubsystem();
+        if (dbSubsystem != null && dbSubsystem.getConnFactory() != null) {
+            LdapBoundConnFactory connFactory = dbSubsystem.getConnFactory();
+            addSource("ldapconn.internaldb", connFactory::getStats);
+        }
+
+        UGSubsystem ugSubsystem = engine.getUGSubsystem();
+        if (ugSubsystem != null && ugSubsystem.getConnFactory() != null) {
+            LdapBoundConnFactory connFactory = ugSubsystem.getConnFactory();
+            addSource("ldapconn.usrgrp", connFactory::getStats);
+        }
+
+        if (ugSubsystem != null && ugSubsystem.getCache() != null) {
+            addSource("usrgrp.cache", ugSubsystem.getCache()::getStats);
+        }
     }
 
     /**
@@ -175,6 +284,7 @@ public class StatsSubsystem extends Subsystem {
      */
     @Override
     public synchronized void shutdown() {
+        mSources.clear();
     }
 
     /*
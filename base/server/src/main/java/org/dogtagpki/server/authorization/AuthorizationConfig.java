@@ -19,6 +19,13 @@ public class AuthorizationConfig extends ConfigStore {
     public final static String SOURCE_TYPE_LDAP = "ldap";
     public final static String SOURCE_TYPE_XML = "web.xml";
 
+    public final static String CACHE_ENABLE = "cache.enable";
+    public final static String CACHE_SIZE = "cache.size";
+    public final static String CACHE_TTL = "cache.ttl";
+
+    public final static int DEFAULT_CACHE_SIZE = 10000;
+    public final static int DEFAULT_CACHE_TTL = 60; // seconds
+
     public AuthorizationConfig(ConfigStorage storage) {
         super(storage);
     }
@@ -34,6 +41,27 @@ public class AuthorizationConfig extends ConfigStore {
         return getString(SOURCE_TYPE, SOURCE_TYPE_LDAP);
     }
 
+    /**
+     * Returns authz.cache.enable parameter.
+     */
+    public boolean getCacheEnabled() throws EBaseException {
+        return getBoolean(CACHE_ENABLE, false);
+    }
+
+    /**
+     * Returns authz.cache.size parameter.
+     */
+    public int getCacheSize() throws EBaseException {
+        return getInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Returns authz.cache.ttl parameter in seconds.
+     */
+    public int getCacheTTL() throws EBaseException {
+        return getInteger(CACHE_TTL, DEFAULT_CACHE_TTL);
+    }
+
     /**
      * Returns authz.instance.* parameters.
      */
@@ -49,6 +49,7 @@ public interface IRemoteRequest {
     public static final String TOKEN_DATA = "data";
     public static final String WRAPPED_DEK_SESSION_KEY = "wrappedDekKey";
     public static final String TOKEN_OLD_KEYSET = "oldKeySet";  // ** G&D 256 Key Rollover Support **
+    public static final String TOKEN_NEXT_HOST_CHALLENGE_NUM_BYTES = "nextHostChallengeNumBytes";
 
     // TKS response params
     /* computeSessionKey responses */
@@ -65,6 +66,7 @@ public interface IRemoteRequest {
     public static final String TKS_RESPONSE_KeyCheck_Des = "keycheck_des";          // Applet and Alg Selection by Token Range Support
 
     public static final String TKS_RESPONSE_HostCryptogram = "hostCryptogram";
+    public static final String TKS_RESPONSE_NextHostChallenge = "nextHostChallenge";
 
     /* createKeySetData response */
     public static final String TKS_RESPONSE_KeySetData = "keySetData";
@@ -28,6 +28,7 @@ import com.netscape.certsrv.logging.AuditFile;
 import com.netscape.certsrv.logging.AuditFileCollection;
 import com.netscape.certsrv.logging.ILogger;
 import com.netscape.certsrv.logging.event.ConfigSignedAuditEvent;
+import com.netscape.cms.logging.LogIndex;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.logging.Auditor;
@@ -326,6 +327,7 @@ public class AuditServletBase {
         // add all log files except the current one
         for (String filename : logDir.list()) {
             if (filename.equals(currentFilename)) continue;
+            if (filename.equals(LogIndex.INDEX_DIR)) continue;
             filenames.add(filename);
         }
 
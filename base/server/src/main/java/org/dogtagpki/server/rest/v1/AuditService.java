@@ -50,6 +50,7 @@ import com.netscape.certsrv.logging.AuditFileCollection;
 import com.netscape.certsrv.logging.AuditResource;
 import com.netscape.certsrv.logging.ILogger;
 import com.netscape.certsrv.logging.event.ConfigSignedAuditEvent;
+import com.netscape.cms.logging.LogIndex;
 import com.netscape.cms.servlet.base.SubsystemService;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
@@ -353,6 +354,7 @@ public class AuditService extends SubsystemService implements AuditResource {
         // add all log files except the current one
         for (String filename : logDir.list()) {
             if (filename.equals(currentFilename)) continue;
+            if (filename.equals(LogIndex.INDEX_DIR)) continue;
             filenames.add(filename);
         }
 
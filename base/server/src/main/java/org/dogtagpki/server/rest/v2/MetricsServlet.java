@@ -0,0 +1,45 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.rest.v2;
+
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netscape.certsrv.base.ResourceNotFoundException;
+import com.netscape.certsrv.base.WebAction;
+import com.netscape.cmscore.apps.CMSEngine;
+import com.netscape.cmscore.util.MetricsRegistry;
+import com.netscape.cmscore.util.StatsSubsystem;
+
+/**
+ * Exports the server metrics in the Prometheus text exposition format.
+ */
+public class MetricsServlet extends PKIServlet {
+    private static final long serialVersionUID = 1L;
+    public static final Logger logger = LoggerFactory.getLogger(MetricsServlet.class);
+
+    @WebAction(method = HttpMethod.GET, paths = {""})
+    public void getMetrics(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        logger.debug("MetricsServlet.getMetrics()");
+
+        CMSEngine engine = getEngine();
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (statsSub == null) {
+            throw new ResourceNotFoundException("Metrics not available");
+        }
+
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+
+        PrintWriter out = response.getWriter();
+        statsSub.writeMetrics(out);
+        out.flush();
+    }
+}
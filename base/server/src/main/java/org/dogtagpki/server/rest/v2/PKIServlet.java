@@ -56,6 +56,7 @@ public abstract class PKIServlet extends HttpServlet {
     private static Logger logger = LoggerFactory.getLogger(PKIServlet.class);
     public static final int DEFAULT_MAXTIME = 0;
     public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 1000;
     public static final int MIN_FILTER_LENGTH = 3;
     public static final int DEFAULT_LONG_CACHE_LIFETIME = 1000;
 
@@ -0,0 +1,19 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.rest.v2.filters;
+
+import javax.servlet.ServletException;
+
+public class MetricsACL extends ACLFilter {
+    private static final long serialVersionUID = 1L;
+    private static final String READ = "metrics.read";
+
+    @Override
+    public void init() throws ServletException {
+        setAcl(READ);
+    }
+
+}
@@ -0,0 +1,152 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.crypto.SignatureAlgorithm;
+
+import com.netscape.certsrv.base.EBaseException;
+
+public class SignaturePoolTest {
+
+    static final SignatureAlgorithm RSA = SignatureAlgorithm.RSASignatureWithSHA256Digest;
+    static final SignatureAlgorithm EC = SignatureAlgorithm.ECSignatureWithSHA256Digest;
+
+    /**
+     * Creates contexts that return the signed data as the signature.
+     */
+    static class SignaturePoolStub extends SignaturePool {
+
+        AtomicInteger contexts = new AtomicInteger();
+
+        SignaturePoolStub(int size, long maxWait) {
+            super("test", null, null);
+            init(size, maxWait);
+        }
+
+        @Override
+        protected Context createContext(SignatureAlgorithm signAlg) {
+            contexts.incrementAndGet();
+            return data -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                data.writeTo(out);
+                return out.toByteArray();
+            };
+        }
+    }
+
+    @Test
+    public void testAcquireRelease() throws Exception {
+
+        SignaturePoolStub pool = new SignaturePoolStub(2, 0);
+
+        byte[] data = { 1, 2, 3 };
+        assertArrayEquals(data, pool.sign(RSA, data));
+        assertArrayEquals(data, pool.sign(RSA, data));
+
+        // the context is released into the pool and reused
+        assertEquals(1, pool.contexts.get());
+        assertEquals(1, pool.getIdleContexts());
+
+        Map<String, Long> stats = pool.getStats();
+        assertEquals(2L, stats.get("signatures"));
+        assertEquals(1L, stats.get("created"));
+        assertEquals(0L, stats.get("inUse"));
+    }
+
+    @Test
+    public void testDiscardOnFailure() throws Exception {
+
+        SignaturePoolStub pool = new SignaturePoolStub(1, 0);
+
+        assertThrows(EBaseException.class, () -> pool.sign(RSA, out -> {
+            throw new EBaseException("Failed");
+        }));
+
+        // the failed context is not reused but the permit is released
+        assertEquals(0, pool.getIdleContexts());
+        assertEquals(1L, pool.getStats().get("discarded"));
+        assertEquals(0L, pool.getStats().get("inUse"));
+
+        pool.sign(RSA, new byte[] { 1 });
+        assertEquals(2, pool.contexts.get());
+    }
+
+    @Test
+    public void testBoundedSize() throws Exception {
+
+        SignaturePoolStub pool = new SignaturePoolStub(2, 100);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // hold both permits
+            Future<?> f1 = executor.submit(() -> pool.sign(RSA, out -> {
+                started.countDown();
+                finish.await();
+            }));
+            Future<?> f2 = executor.submit(() -> pool.sign(EC, out -> {
+                started.countDown();
+                finish.await();
+            }));
+
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertEquals(2L, pool.getStats().get("inUse"));
+
+            // no more than the pool size can sign concurrently
+            assertThrows(EBaseException.class, () -> pool.sign(RSA, new byte[] { 1 }));
+            assertEquals(1L, pool.getStats().get("timeouts"));
+
+            finish.countDown();
+            f1.get(10, TimeUnit.SECONDS);
+            f2.get(10, TimeUnit.SECONDS);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0L, pool.getStats().get("inUse"));
+        assertEquals(2, pool.getIdleContexts());
+
+        pool.sign(RSA, new byte[] { 1 });
+        assertEquals(2, pool.contexts.get());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+
+        SignaturePoolStub pool = new SignaturePoolStub(2, 0);
+
+        pool.sign(RSA, new byte[] { 1 });
+        pool.sign(EC, new byte[] { 1 });
+        assertEquals(2, pool.getIdleContexts());
+
+        pool.clear();
+        assertEquals(0, pool.getIdleContexts());
+
+        // new contexts are created after the pool is cleared
+        pool.sign(RSA, new byte[] { 1 });
+        assertEquals(3, pool.contexts.get());
+        assertEquals(1, pool.getIdleContexts());
+    }
+}
@@ -0,0 +1,137 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.authorization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.dogtagpki.server.authentication.AuthToken;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.cms.authorization.ACLDecisionCache.Decision;
+
+public class ACLDecisionCacheTest {
+
+    AuthToken createAuthToken(String userID, String... groups) {
+        AuthToken authToken = new AuthToken(null);
+        authToken.set(AuthToken.USER_ID, userID);
+        authToken.set(AuthToken.UID, userID);
+        authToken.set(AuthToken.GROUPS, groups);
+        return authToken;
+    }
+
+    @Test
+    public void testCreateKey() {
+
+        AuthToken admin = createAuthToken("admin", "Administrators");
+
+        String key = ACLDecisionCache.createKey(admin, "certServer.ca.certs", "read");
+        assertEquals(key, ACLDecisionCache.createKey(
+                createAuthToken("admin", "Administrators"), "certServer.ca.certs", "read"));
+
+        // group membership is part of the principal
+        assertNotEquals(key, ACLDecisionCache.createKey(
+                createAuthToken("admin", "Administrators", "Auditors"), "certServer.ca.certs", "read"));
+
+        assertNotEquals(key, ACLDecisionCache.createKey(admin, "certServer.ca.certs", "execute"));
+        assertNotEquals(key, ACLDecisionCache.createKey(admin, "certServer.ca.crl", "read"));
+
+        // decisions without a principal are not cached
+        assertNull(ACLDecisionCache.createKey(null, "certServer.ca.certs", "read"));
+        assertNull(ACLDecisionCache.createKey(new AuthToken(null), "certServer.ca.certs", "read"));
+    }
+
+    @Test
+    public void testGet() {
+
+        ACLDecisionCache cache = new ACLDecisionCache(10, 60);
+
+        assertNull(cache.get("key1"));
+
+        cache.put("key1", Decision.GRANTED, cache.getGeneration());
+        cache.put("key2", Decision.DENIED, cache.getGeneration());
+
+        assertEquals(Decision.GRANTED, cache.get("key1"));
+        assertEquals(Decision.DENIED, cache.get("key2"));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiration() {
+
+        ACLDecisionCache cache = new ACLDecisionCache(10, 0);
+
+        cache.put("key", Decision.GRANTED, cache.getGeneration());
+
+        // expired decisions are removed on access
+        long start = System.nanoTime();
+        while (System.nanoTime() - start <= 0) {
+            Thread.onSpinWait();
+        }
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidation() {
+
+        ACLDecisionCache cache = new ACLDecisionCache(10, 60);
+
+        cache.put("key1", Decision.GRANTED, cache.getGeneration());
+
+        cache.invalidate();
+
+        assertNull(cache.get("key1"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void testStaleDecision() {
+
+        ACLDecisionCache cache = new ACLDecisionCache(10, 60);
+
+        // the decision is evaluated with the ACLs of this generation
+        long generation = cache.getGeneration();
+
+        // the ACLs or group memberships change during the evaluation
+        cache.invalidate();
+
+        // so the decision is not cached
+        cache.put("key1", Decision.GRANTED, generation);
+        assertNull(cache.get("key1"));
+        assertEquals(0, cache.size());
+
+        // decisions of the new generation are cached
+        cache.put("key1", Decision.DENIED, cache.getGeneration());
+        assertEquals(Decision.DENIED, cache.get("key1"));
+    }
+
+    @Test
+    public void testClearWhenFull() {
+
+        ACLDecisionCache cache = new ACLDecisionCache(3, 60);
+
+        cache.put("key1", Decision.GRANTED, cache.getGeneration());
+        cache.put("key2", Decision.GRANTED, cache.getGeneration());
+        cache.put("key3", Decision.GRANTED, cache.getGeneration());
+        assertEquals(3, cache.size());
+
+        // the cache is cleared before adding to a full cache
+        cache.put("key4", Decision.NOT_ALLOWED, cache.getGeneration());
+        assertEquals(1, cache.size());
+
+        assertNull(cache.get("key1"));
+        assertEquals(Decision.NOT_ALLOWED, cache.get("key4"));
+
+        // clearing does not invalidate decisions being evaluated
+        assertEquals(0, cache.getInvalidations());
+    }
+}
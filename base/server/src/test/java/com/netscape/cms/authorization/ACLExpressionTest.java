@@ -0,0 +1,106 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.authorization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dogtagpki.server.authentication.AuthToken;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.evaluators.AccessEvaluator;
+
+public class ACLExpressionTest {
+
+    /**
+     * Evaluator that matches the value against a fixed set of values
+     * and records the evaluated values.
+     */
+    static class TestEvaluator extends AccessEvaluator {
+
+        Set<String> values;
+        List<String> evaluated = new ArrayList<>();
+
+        TestEvaluator(String... values) {
+            this.values = Set.of(values);
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public boolean evaluate(String type, String op, String value) {
+            return evaluate(null, type, op, value);
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, String type, String op, String value) {
+            evaluated.add(value);
+            boolean matched = values.contains(value);
+            return op.equals("!=") ? !matched : matched;
+        }
+
+        @Override
+        public String[] getSupportedOperators() {
+            return new String[] { "=", "!=" };
+        }
+    }
+
+    @Test
+    public void testParse() {
+
+        ACLExpression exp = ACLExpression.parse("group=\"Administrators\" || user!=\"tempAdmin\"");
+
+        assertEquals(2, exp.getTerms().size());
+        assertEquals(new ACLExpression.Term("group", "=", "\"Administrators\""), exp.getTerms().get(0));
+        assertEquals(new ACLExpression.Term("user", "!=", "\"tempAdmin\""), exp.getTerms().get(1));
+        assertEquals(List.of(ACLExpression.Operator.OR), exp.getOperators());
+
+        assertTrue(exp.usesOnly(Set.of("user", "group")));
+        assertFalse(exp.usesOnly(Set.of("group")));
+    }
+
+    @Test
+    public void testLeftToRight() {
+
+        TestEvaluator evaluator = new TestEvaluator("b", "c");
+        Map<String, AccessEvaluator> evaluators = new HashMap<>();
+        evaluators.put("group", evaluator);
+
+        // (a || b) && c
+        assertTrue(ACLExpression.parse("group=a || group=b && group=c").evaluate(null, evaluators));
+
+        // (b || a) && d
+        assertFalse(ACLExpression.parse("group=b || group=a && group=d").evaluate(null, evaluators));
+
+        // (a && b) || c
+        assertTrue(ACLExpression.parse("group=a && group=b || group=c").evaluate(null, evaluators));
+    }
+
+    @Test
+    public void testShortCircuit() {
+
+        TestEvaluator evaluator = new TestEvaluator("a");
+        Map<String, AccessEvaluator> evaluators = new HashMap<>();
+        evaluators.put("group", evaluator);
+
+        assertTrue(ACLExpression.parse("group=a || group=b || group=c").evaluate(null, evaluators));
+        assertEquals(List.of("a"), evaluator.evaluated);
+
+        evaluator.evaluated.clear();
+
+        assertFalse(ACLExpression.parse("group=b && group=a && group=c").evaluate(null, evaluators));
+        assertEquals(List.of("b"), evaluator.evaluated);
+    }
+}
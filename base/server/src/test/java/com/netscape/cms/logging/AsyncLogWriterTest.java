@@ -0,0 +1,198 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.logging.LogEvent;
+
+public class AsyncLogWriterTest {
+
+    /**
+     * Records the batches instead of writing them. The first batch
+     * blocks until the test releases it so events can be queued while
+     * the writer is busy.
+     */
+    static class LogFileStub extends LogFile {
+
+        List<List<LogEvent>> batches = new ArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void writeBatch(List<LogEvent> events) {
+
+            entered.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (batches) {
+                batches.add(new ArrayList<>(events));
+            }
+        }
+
+        List<LogEvent> getEvents() {
+            List<LogEvent> events = new ArrayList<>();
+            synchronized (batches) {
+                for (List<LogEvent> batch : batches) {
+                    events.addAll(batch);
+                }
+            }
+            return events;
+        }
+    }
+
+    List<LogEvent> createEvents(int count) {
+        List<LogEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LogEvent event = new LogEvent();
+            event.setEventType("EVENT_" + i);
+            events.add(event);
+        }
+        return events;
+    }
+
+    void waitForWriter(AsyncLogWriter writer) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (writer.isAlive()) {
+            assertTrue(System.nanoTime() < deadline, "Writer did not stop");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testOrdering() throws Exception {
+
+        LogFileStub logFile = new LogFileStub();
+        logFile.release.countDown();
+
+        AsyncLogWriter writer = new AsyncLogWriter(logFile, "test", 1000, 16, 1000);
+        writer.start();
+
+        List<LogEvent> events = createEvents(500);
+        for (LogEvent event : events) {
+            assertTrue(writer.offer(event));
+        }
+
+        writer.stop();
+        waitForWriter(writer);
+
+        assertEquals(events, logFile.getEvents());
+        assertEquals(500L, writer.getStats().get("written"));
+    }
+
+    @Test
+    public void testBatchFlush() throws Exception {
+
+        LogFileStub logFile = new LogFileStub();
+
+        AsyncLogWriter writer = new AsyncLogWriter(logFile, "test", 100, 3, 1000);
+        writer.start();
+
+        List<LogEvent> events = createEvents(7);
+
+        // the writer blocks on the first event
+        assertTrue(writer.offer(events.get(0)));
+        assertTrue(logFile.entered.await(10, TimeUnit.SECONDS));
+
+        for (LogEvent event : events.subList(1, 7)) {
+            assertTrue(writer.offer(event));
+        }
+
+        logFile.release.countDown();
+
+        writer.stop();
+        waitForWriter(writer);
+
+        // the queued events are written in batches of up to 3 events
+        assertEquals(3, logFile.batches.size());
+        assertEquals(events.subList(0, 1), logFile.batches.get(0));
+        assertEquals(events.subList(1, 4), logFile.batches.get(1));
+        assertEquals(events.subList(4, 7), logFile.batches.get(2));
+
+        assertEquals(3L, writer.getStats().get("batches"));
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+
+        LogFileStub logFile = new LogFileStub();
+
+        AsyncLogWriter writer = new AsyncLogWriter(logFile, "test", 2, 1, 50);
+        writer.start();
+
+        List<LogEvent> events = createEvents(4);
+
+        // the writer blocks on the first event
+        assertTrue(writer.offer(events.get(0)));
+        assertTrue(logFile.entered.await(10, TimeUnit.SECONDS));
+
+        // fill the queue
+        assertTrue(writer.offer(events.get(1)));
+        assertTrue(writer.offer(events.get(2)));
+
+        // the queue stays full for the maximum wait time
+        long start = System.nanoTime();
+        assertFalse(writer.offer(events.get(3)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(1L, writer.getStats().get("waits"));
+        assertEquals(1L, writer.getStats().get("rejected"));
+
+        logFile.release.countDown();
+
+        writer.stop();
+        waitForWriter(writer);
+
+        // the rejected event is not written
+        assertEquals(events.subList(0, 3), logFile.getEvents());
+    }
+
+    @Test
+    public void testDrainOnStop() throws Exception {
+
+        LogFileStub logFile = new LogFileStub();
+
+        AsyncLogWriter writer = new AsyncLogWriter(logFile, "test", 100, 4, 1000);
+        writer.start();
+
+        List<LogEvent> events = createEvents(10);
+
+        // the writer blocks on the first event
+        assertTrue(writer.offer(events.get(0)));
+        assertTrue(logFile.entered.await(10, TimeUnit.SECONDS));
+
+        for (LogEvent event : events.subList(1, 10)) {
+            assertTrue(writer.offer(event));
+        }
+
+        writer.stop();
+
+        // events are rejected once the writer is stopped
+        assertFalse(writer.isRunning());
+        assertFalse(writer.offer(createEvents(1).get(0)));
+
+        logFile.release.countDown();
+        waitForWriter(writer);
+
+        // the events queued before stop() are written
+        assertEquals(events, logFile.getEvents());
+        assertEquals(0L, writer.getStats().get("queued"));
+    }
+}
@@ -0,0 +1,126 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.logging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LogIndexTest {
+
+    static final String DATE_PATTERN = "dd/MMM/yyyy:HH:mm:ss z";
+
+    static final long T0 = 1700000000000L;
+
+    @TempDir
+    Path tmpDir;
+
+    String entry(long time, int source, int level, String message) {
+        SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+        return "1234.main - [" + format.format(time) + "] [" + source + "] [" + level + "] " + message + "\n";
+    }
+
+    File createLog() throws Exception {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(entry(T0, 14, 6, "[AuditEvent=AUDIT_LOG_STARTUP] startup"));
+        sb.append(entry(T0 + 60000, 14, 6, "[AuditEvent=CERT_REQUEST_PROCESSED] request 1"));
+        sb.append(entry(T0 + 120000, 1, 1, "multi\n line \u00e9"));
+        sb.append(entry(T0 + 180000, 14, 6, "[AuditEvent=CERT_REQUEST_PROCESSED] request 2"));
+
+        File file = tmpDir.resolve("ca_audit").toFile();
+        Files.writeString(file.toPath(), sb.toString(), StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    @Test
+    public void testBuildAndRead() throws Exception {
+
+        File file = createLog();
+        LogIndex index = LogIndex.build(file, DATE_PATTERN);
+
+        assertEquals(4, index.size());
+        assertEquals(file.length(), index.getEnd());
+
+        // last two entries
+        int[] entries = index.find(index.getEnd(), 2, -1, -1, null, 0, 0);
+        assertArrayEquals(new int[] { 2, 3 }, entries);
+
+        List<String> results = index.read(file, entries, true);
+        assertEquals(2, results.size());
+        assertEquals("multi\nline \u00e9", results.get(0).substring(results.get(0).indexOf("] multi") + 2));
+
+        // positional reads return the same content
+        assertEquals(results, index.read(file, entries, false));
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+
+        File file = createLog();
+        LogIndex index = LogIndex.build(file, DATE_PATTERN);
+        long end = index.getEnd();
+
+        assertArrayEquals(new int[] { 1, 3 }, index.find(end, -1, -1, -1, "CERT_REQUEST_PROCESSED", 0, 0));
+        assertArrayEquals(new int[] { 3 }, index.find(end, 1, -1, -1, "CERT_REQUEST_PROCESSED", 0, 0));
+        assertArrayEquals(new int[0], index.find(end, -1, -1, -1, "UNKNOWN", 0, 0));
+
+        assertArrayEquals(new int[] { 2 }, index.find(end, -1, -1, 1, null, 0, 0));
+        assertArrayEquals(new int[] { 0, 1, 3 }, index.find(end, -1, 5, -1, null, 0, 0));
+
+        assertArrayEquals(new int[] { 1, 2 }, index.find(end, -1, -1, -1, null, T0 + 60000, T0 + 120000));
+        assertArrayEquals(new int[] { 3 }, index.find(end, -1, -1, -1, null, T0 + 150000, 0));
+
+        // entries after the limit (i.e. not flushed) are not returned
+        assertArrayEquals(new int[] { 0, 1 }, index.find(index.getOffset(2), -1, -1, -1, null, 0, 0));
+    }
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+
+        File file = createLog();
+        LogIndex index = LogIndex.build(file, DATE_PATTERN);
+
+        File indexFile = LogIndex.getIndexFile(file);
+        index.store(indexFile);
+
+        LogIndex loaded = LogIndex.load(indexFile, file.length());
+        assertNotNull(loaded);
+        assertEquals(index.size(), loaded.size());
+
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(index.getOffset(i), loaded.getOffset(i));
+            assertEquals(index.getEndOffset(i), loaded.getEndOffset(i));
+            assertEquals(index.getTime(i), loaded.getTime(i));
+            assertEquals(index.getLevel(i), loaded.getLevel(i));
+            assertEquals(index.getSource(i), loaded.getSource(i));
+            assertEquals(index.getEventType(i), loaded.getEventType(i));
+        }
+
+        // index does not match the file
+        assertNull(LogIndex.load(indexFile, file.length() + 1));
+    }
+
+    @Test
+    public void testLength() {
+        assertEquals(1, LogIndex.getLength("a"));
+        assertEquals(2, LogIndex.getLength("\u00e9"));
+        assertEquals(3, LogIndex.getLength("\u20ac"));
+        assertEquals(4, LogIndex.getLength("\ud83d\ude00"));
+    }
+}
@@ -0,0 +1,107 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Hashtable;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.util.Utils;
+
+public class HttpRequestEncoderTest {
+
+    HttpPKIMessage createMessage() {
+
+        HttpPKIMessage msg = new HttpPKIMessage();
+        msg.reqType = "enrollment";
+        msg.reqId = "12345";
+        msg.reqStatus = "complete";
+        msg.reqRealm = null;
+
+        Hashtable<String, String> table = new Hashtable<>();
+        table.put("cert_request_type", "crmf");
+        table.put("subject", "CN=J\u00f6rg");
+
+        msg.mNameVals.add("profileId");
+        msg.mNameVals.add("caServerKeygen_UserCert");
+        msg.mNameVals.add("req_x509info");
+        msg.mNameVals.add(table);
+
+        return msg;
+    }
+
+    void assertMessage(HttpPKIMessage msg) {
+
+        assertEquals("enrollment", msg.getReqType());
+        assertEquals("12345", msg.getReqId());
+        assertEquals("complete", msg.getReqStatus());
+
+        assertEquals(4, msg.mNameVals.size());
+        assertEquals("profileId", msg.mNameVals.get(0));
+        assertEquals("caServerKeygen_UserCert", msg.mNameVals.get(1));
+        assertEquals("req_x509info", msg.mNameVals.get(2));
+
+        Hashtable<?, ?> table = assertInstanceOf(Hashtable.class, msg.mNameVals.get(3));
+        assertEquals("crmf", table.get("cert_request_type"));
+        assertEquals("CN=J\u00f6rg", table.get("subject"));
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+
+        HttpRequestEncoder encoder = new HttpRequestEncoder(true);
+
+        HttpPKIMessage orig = createMessage();
+
+        // unsupported values are skipped
+        orig.mNameVals.add("unsupported");
+        orig.mNameVals.add(Integer.valueOf(1));
+
+        String encoded = encoder.encode(orig);
+        assertTrue(HttpRequestEncoder.isBinary(encoded));
+
+        HttpPKIMessage msg = assertInstanceOf(HttpPKIMessage.class, encoder.decode(encoded));
+        assertMessage(msg);
+        assertNull(msg.getReqRealm());
+    }
+
+    @Test
+    public void testSerialized() throws Exception {
+
+        HttpRequestEncoder encoder = new HttpRequestEncoder(true);
+
+        String encoded = encoder.encode(createMessage(), false);
+        assertFalse(HttpRequestEncoder.isBinary(encoded));
+
+        // serialized messages are still accepted
+        HttpPKIMessage msg = assertInstanceOf(HttpPKIMessage.class, encoder.decode(encoded));
+        assertMessage(msg);
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+
+        HttpRequestEncoder encoder = new HttpRequestEncoder(true);
+        byte[] data = encoder.encodeMessage(createMessage());
+
+        // unsupported version
+        byte[] version = data.clone();
+        version[3] = 2;
+        assertThrows(IOException.class, () -> encoder.decode(Utils.base64encode(version, false)));
+
+        // truncated message
+        byte[] truncated = new byte[data.length - 10];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> encoder.decode(Utils.base64encode(truncated, false)));
+    }
+}
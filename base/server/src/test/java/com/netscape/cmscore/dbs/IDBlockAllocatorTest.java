@@ -0,0 +1,246 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.cmscore.apps.CMSEngine;
+import com.netscape.cmscore.apps.EngineConfig;
+
+import netscape.ldap.LDAPAttribute;
+import netscape.ldap.LDAPAttributeSet;
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPModification;
+
+public class IDBlockAllocatorTest {
+
+    static final String BASE_DN = "ou=certificateRepository,ou=ca,dc=ca,dc=pki,dc=example,dc=com";
+    static final String RANGE_DN = "ou=certificateRepository,ou=ranges,dc=ca,dc=pki,dc=example,dc=com";
+
+    LDAPConnectionStub conn;
+    DBSubsystemStub dbSubsystem;
+    CMSEngine engine;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        conn = new LDAPConnectionStub();
+        dbSubsystem = new DBSubsystemStub(conn);
+
+        EngineConfig config = new EngineConfig();
+        config.setHostname("pki.example.com");
+
+        engine = new CMSEngine("CA") {
+            @Override
+            public EngineConfig getConfig() {
+                return config;
+            }
+
+            @Override
+            public String getEESSLPort() {
+                return "8443";
+            }
+        };
+    }
+
+    void setNextRange(String nextRange) throws Exception {
+        LDAPAttributeSet attrs = new LDAPAttributeSet();
+        attrs.add(new LDAPAttribute(DBSubsystem.PROP_NEXT_RANGE, nextRange));
+        conn.add(new LDAPEntry(BASE_DN, attrs));
+    }
+
+    String getNextRange() throws Exception {
+        LDAPEntry entry = conn.read(BASE_DN);
+        return entry.getAttribute(DBSubsystem.PROP_NEXT_RANGE).getStringValueArray()[0];
+    }
+
+    @Test
+    public void testLeaseAfterLegacyRange() throws Exception {
+
+        setNextRange("10000000");
+
+        // allocate a range with the legacy generator
+        RepositoryStub repository = new RepositoryStub(dbSubsystem, Repository.HEX);
+        repository.setCMSEngine(engine);
+        repository.mIncrementNo = new BigInteger("10000000", Repository.HEX);
+
+        String nextRange = repository.getNextRange();
+        assertNotNull(nextRange);
+
+        BigInteger legacyBegin = repository.parseNextRange(nextRange);
+        BigInteger legacyEnd = legacyBegin.add(repository.mIncrementNo).subtract(BigInteger.ONE);
+
+        // switch to the leased generator
+        IDBlockAllocator allocator = new IDBlockAllocator(
+                engine, dbSubsystem, "cert", BASE_DN, RANGE_DN, Repository.HEX);
+        allocator.init(1000, 250);
+
+        IDBlockAllocator.Block block = allocator.lease();
+
+        // the leased block must not overlap the legacy range
+        assertTrue(block.start().compareTo(legacyEnd) > 0,
+                "Block 0x" + block.start().toString(16) + " overlaps legacy range 0x"
+                + legacyBegin.toString(16) + "-0x" + legacyEnd.toString(16));
+
+        // nextRange is advanced with the same radix
+        BigInteger end = block.start().add(BigInteger.valueOf(1000));
+        assertEquals(end.toString(Repository.HEX), getNextRange());
+
+        // the range entry is stored with the same radix
+        String beginRange = block.start().toString(Repository.HEX);
+        LDAPEntry rangeEntry = conn.read("cn=" + beginRange + "," + RANGE_DN);
+        assertEquals(beginRange, rangeEntry.getAttribute("beginRange").getStringValueArray()[0]);
+        assertEquals(
+                end.subtract(BigInteger.ONE).toString(Repository.HEX),
+                rangeEntry.getAttribute("endRange").getStringValueArray()[0]);
+    }
+
+    @Test
+    public void testConsecutiveLeases() throws Exception {
+
+        setNextRange("1000");
+
+        IDBlockAllocator allocator = new IDBlockAllocator(
+                engine, dbSubsystem, "cert", BASE_DN, RANGE_DN, Repository.HEX);
+        allocator.init(10, 2);
+
+        BigInteger first = allocator.next();
+        assertEquals(new BigInteger("1000", Repository.HEX), first);
+
+        // IDs continue across block boundaries
+        for (int i = 1; i < 25; i++) {
+            assertEquals(first.add(BigInteger.valueOf(i)), allocator.next());
+        }
+    }
+
+    static class RepositoryStub extends Repository {
+
+        RepositoryStub(DBSubsystem dbSubsystem, int radix) {
+            super(dbSubsystem, radix);
+            mBaseDN = BASE_DN;
+            rangeDN = RANGE_DN;
+        }
+
+        @Override
+        public void setMinSerialConfig() {
+        }
+
+        @Override
+        public void setMaxSerialConfig() {
+        }
+
+        @Override
+        public void setNextMinSerialConfig() {
+        }
+
+        @Override
+        public void setNextMaxSerialConfig() {
+        }
+
+        @Override
+        public BigInteger getLastSerialNumberInRange(BigInteger serial_low_bound, BigInteger serial_upper_bound)
+                throws EBaseException {
+            return null;
+        }
+    }
+
+    static class DBSubsystemStub extends DBSubsystem {
+
+        LDAPConnection conn;
+
+        DBSubsystemStub(LDAPConnection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public DBSSession createSession() throws DBException {
+            return new LDAPSession(this, conn);
+        }
+
+        @Override
+        public void returnConn(LDAPConnection conn) {
+        }
+    }
+
+    /**
+     * In-memory directory supporting the operations used to lease ranges.
+     */
+    static class LDAPConnectionStub extends LDAPConnection {
+
+        Map<String, LDAPEntry> entries = new HashMap<>();
+
+        @Override
+        public synchronized void setOption(int option, Object value) {
+        }
+
+        @Override
+        public synchronized LDAPEntry read(String dn) throws LDAPException {
+            LDAPEntry entry = entries.get(dn);
+            if (entry == null) {
+                throw new LDAPException("No such object: " + dn, LDAPException.NO_SUCH_OBJECT);
+            }
+            return entry;
+        }
+
+        @Override
+        public synchronized LDAPEntry read(String dn, String[] attrs) throws LDAPException {
+            return read(dn);
+        }
+
+        @Override
+        public synchronized void add(LDAPEntry entry) throws LDAPException {
+            if (entries.containsKey(entry.getDN())) {
+                throw new LDAPException("Entry already exists: " + entry.getDN(), LDAPException.ENTRY_ALREADY_EXISTS);
+            }
+            entries.put(entry.getDN(), entry);
+        }
+
+        @Override
+        public synchronized void modify(String dn, LDAPModification[] mods) throws LDAPException {
+
+            LDAPAttributeSet attrs = new LDAPAttributeSet();
+            for (Enumeration<LDAPAttribute> e = read(dn).getAttributeSet().getAttributes(); e.hasMoreElements(); ) {
+                attrs.add(e.nextElement());
+            }
+
+            for (LDAPModification mod : mods) {
+
+                LDAPAttribute attr = mod.getAttribute();
+                LDAPAttribute current = attrs.getAttribute(attr.getName());
+
+                if (mod.getOp() == LDAPModification.DELETE) {
+
+                    if (current == null || !Arrays.asList(current.getStringValueArray())
+                            .containsAll(Arrays.asList(attr.getStringValueArray()))) {
+                        throw new LDAPException("No such attribute: " + attr.getName(), LDAPException.NO_SUCH_ATTRIBUTE);
+                    }
+
+                    attrs.remove(attr.getName());
+
+                } else if (mod.getOp() == LDAPModification.ADD) {
+                    attrs.add(attr);
+                }
+            }
+
+            entries.put(dn, new LDAPEntry(dn, attrs));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.ldapconn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.ldap.ELdapException;
+import com.netscape.cmscore.base.SimpleProperties;
+
+public class LdapBoundConnPoolTest {
+
+    /**
+     * Connection that is not connected to a server.
+     */
+    static class LdapBoundConnectionStub extends LdapBoundConnection {
+
+        private static final long serialVersionUID = 1L;
+
+        volatile boolean connected = true;
+
+        LdapBoundConnectionStub() {
+            super(null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public synchronized void disconnect() {
+            connected = false;
+        }
+    }
+
+    LdapBoundConnPool pool;
+
+    LdapBoundConnPool createPool(int minConns, int maxConns, int maxWait) throws Exception {
+
+        LDAPPoolConfig poolConfig = new LDAPPoolConfig("pool", new SimpleProperties());
+        poolConfig.putInteger("maxWait", maxWait);
+        poolConfig.putBoolean("validateOnBorrow", false);
+        poolConfig.putInteger("idleTimeout", 0);
+
+        pool = new LdapBoundConnPool("test", LdapBoundConnectionStub::new);
+        pool.init(minConns, maxConns, poolConfig);
+
+        return pool;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Waits until the number of threads waiting for a connection
+     * reaches the expected value.
+     */
+    void waitForQueue(LdapBoundConnPool pool, int length) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.permits.getQueueLength() < length) {
+            assertTrue(System.nanoTime() < deadline, "Thread did not wait for connection");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+
+        LdapBoundConnPool pool = createPool(2, 3, 0);
+        pool.prefill();
+
+        assertEquals(2, pool.getTotalConnections());
+        assertEquals(2, pool.getFreeConnections());
+
+        LdapBoundConnection conn = pool.borrow(true);
+        assertTrue(pool.hasOutstandingConnections());
+        pool.release(conn);
+
+        // the most recently used connection is reused first
+        assertSame(conn, pool.borrow(true));
+        assertEquals(2, pool.getTotalConnections());
+    }
+
+    @Test
+    public void testBoundedSize() throws Exception {
+
+        LdapBoundConnPool pool = createPool(0, 2, 100);
+
+        LdapBoundConnection conn1 = pool.borrow(true);
+        LdapBoundConnection conn2 = pool.borrow(true);
+        assertNotNull(conn1);
+        assertNotNull(conn2);
+
+        // no more than the maximum number of connections is handed out
+        assertNull(pool.borrow(false));
+        assertThrows(ELdapException.class, () -> pool.borrow(true));
+
+        assertEquals(2, pool.getTotalConnections());
+        assertEquals(1L, pool.getStats().get("timeouts"));
+        assertEquals(2L, pool.getStats().get("highWaterMark"));
+
+        pool.release(conn1);
+        assertSame(conn1, pool.borrow(false));
+    }
+
+    @Test
+    public void testFairness() throws Exception {
+
+        LdapBoundConnPool pool = createPool(0, 1, 0);
+        LdapBoundConnection conn = pool.borrow(true);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Thread[] threads = new Thread[3];
+        for (int i = 0; i < threads.length; i++) {
+            String name = "thread-" + i;
+            threads[i] = new Thread(() -> {
+                try {
+                    LdapBoundConnection c = pool.borrow(true);
+                    order.add(name);
+                    pool.release(c);
+                } catch (ELdapException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            // start the threads one at a time to fix the order of arrival
+            threads[i].start();
+            waitForQueue(pool, i + 1);
+        }
+
+        pool.release(conn);
+
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        // waiting threads are served in the order they arrived
+        assertEquals(List.of("thread-0", "thread-1", "thread-2"), order);
+        assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    public void testReleaseAfterShutdown() throws Exception {
+
+        LdapBoundConnPool pool = createPool(1, 2, 0);
+        pool.prefill();
+
+        LdapBoundConnectionStub conn1 = (LdapBoundConnectionStub) pool.borrow(true);
+        LdapBoundConnectionStub conn2 = (LdapBoundConnectionStub) pool.borrow(true);
+        pool.release(conn2);
+
+        pool.shutdown();
+
+        // idle connections are closed on shutdown
+        assertFalse(conn2.connected);
+        assertEquals(0, pool.getFreeConnections());
+        assertEquals(1, pool.getTotalConnections());
+
+        // borrowed connections are closed when they are returned
+        pool.release(conn1);
+        assertFalse(conn1.connected);
+        assertEquals(0, pool.getFreeConnections());
+        assertEquals(0, pool.getTotalConnections());
+        assertFalse(pool.hasOutstandingConnections());
+    }
+}
@@ -0,0 +1,189 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.base.Subsystem;
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.certsrv.request.RequestListener;
+import com.netscape.cmscore.apps.CMSEngine;
+import com.netscape.cmscore.apps.DatabaseConfig;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmscore.dbs.DBSubsystem;
+
+public class RequestNotifierTest {
+
+    static class DBSubsystemStub extends DBSubsystem {
+
+        DatabaseConfig dbConfig = new DatabaseConfig("internaldb", new SimpleProperties());
+
+        @Override
+        public DatabaseConfig getDBConfigStore() {
+            return dbConfig;
+        }
+    }
+
+    static class RequestRepositoryStub extends RequestRepository {
+
+        RequestRepositoryStub() {
+            super(null, new DBSubsystemStub(), null);
+        }
+
+        @Override
+        public Request readRequest(RequestId id) {
+            return new Request(id);
+        }
+    }
+
+    static class RequestListenerStub extends RequestListener {
+
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch;
+
+        RequestListenerStub(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void init(Subsystem sub, ConfigStore config) {
+        }
+
+        @Override
+        public void accept(Request request) {
+            count.incrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public void set(String name, String val) {
+        }
+    }
+
+    /**
+     * Listener that runs again when the request failed to publish.
+     */
+    static class PublishingListenerStub extends RequestListenerStub {
+
+        PublishingListenerStub(int expected) {
+            super(expected);
+        }
+    }
+
+    RequestNotifier.QueueEntry entry(long id) {
+        return new RequestNotifier.QueueEntry(BigInteger.valueOf(id), System.nanoTime(), 0);
+    }
+
+    @Test
+    public void testCoalescing() {
+
+        RequestNotifier notifier = new RequestNotifier();
+
+        notifier.enqueue(entry(1));
+        notifier.enqueue(entry(2));
+        notifier.enqueue(entry(1));
+
+        assertEquals(2, notifier.getNumberOfRequests());
+
+        Map<String, Long> stats = notifier.getStats();
+        assertEquals(2, stats.get("enqueued"));
+        assertEquals(1, stats.get("coalesced"));
+
+        assertEquals(BigInteger.valueOf(1), notifier.dequeue().id());
+
+        // request can be added again once it has been taken from the queue
+        notifier.enqueue(entry(1));
+        assertEquals(2, notifier.getNumberOfRequests());
+
+        assertEquals(BigInteger.valueOf(2), notifier.dequeue().id());
+        assertEquals(BigInteger.valueOf(1), notifier.dequeue().id());
+        assertNull(notifier.dequeue());
+        assertEquals(0, notifier.getNumberOfRequests());
+    }
+
+    @Test
+    public void testOverflow() {
+
+        RequestNotifier notifier = new RequestNotifier();
+
+        // default queue size is 100
+        for (int i = 1; i <= 105; i++) {
+            notifier.enqueue(entry(i));
+        }
+
+        assertEquals(100, notifier.getNumberOfRequests());
+
+        Map<String, Long> stats = notifier.getStats();
+        assertEquals(100, stats.get("enqueued"));
+        assertEquals(5, stats.get("overflows"));
+        assertEquals(100, stats.get("pending"));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+
+        RequestRepositoryStub requestRepository = new RequestRepositoryStub();
+
+        CMSEngine engine = new CMSEngine("CA") {
+            @Override
+            public RequestRepository getRequestRepository() {
+                return requestRepository;
+            }
+        };
+
+        // the request fails to publish twice and succeeds on the second retry
+        PublishingListenerStub publisher = new PublishingListenerStub(3);
+        RequestListenerStub mailer = new RequestListenerStub(1);
+
+        RequestNotifier notifier = new RequestNotifier() {
+            @Override
+            public boolean isPublishingListener(RequestListener listener) {
+                return listener instanceof PublishingListenerStub;
+            }
+
+            @Override
+            public boolean isPublishingFailed(Request r) {
+                return publisher.count.get() < 3;
+            }
+        };
+
+        notifier.setCMSEngine(engine);
+        notifier.registerListener("publisher", publisher);
+        notifier.registerListener("mailer", mailer);
+        notifier.setPublishingQueue(true, 0, 1, 100, 0, 10, 3, 0);
+
+        try {
+            notifier.notify(new Request(new RequestId(1)));
+
+            assertTrue(publisher.latch.await(10, TimeUnit.SECONDS));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (notifier.getStats().get("published") < 1) {
+                assertTrue(System.nanoTime() < deadline, "Request not published");
+                Thread.sleep(10);
+            }
+
+        } finally {
+            notifier.shutdown();
+        }
+
+        // only the publishing listener runs again on a retry
+        assertEquals(3, publisher.count.get());
+        assertEquals(1, mailer.count.get());
+        assertEquals(2, notifier.getStats().get("retries"));
+    }
+}
@@ -0,0 +1,88 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class UGCacheTest {
+
+    static final String ALICE = "uid=alice,ou=people,o=pki";
+    static final String BOB = "uid=bob,ou=people,o=pki";
+
+    @Test
+    public void testMembership() {
+
+        UGCache cache = new UGCache(100, 60);
+
+        assertNull(cache.getMembership(ALICE, "Administrators"));
+
+        cache.putMembership(ALICE, "Administrators", true, cache.getGeneration());
+        cache.putMembership(BOB, "Administrators", false, cache.getGeneration());
+
+        // DNs and group names are case-insensitive
+        assertTrue(cache.getMembership("UID=alice,ou=People,o=pki", "administrators"));
+        assertEquals(false, cache.getMembership(BOB, "Administrators"));
+
+        cache.invalidateGroup("Administrators");
+
+        assertNull(cache.getMembership(ALICE, "Administrators"));
+        assertNull(cache.getMembership(BOB, "Administrators"));
+
+        assertEquals(2, cache.getStats().get("membershipHits"));
+        assertEquals(3, cache.getStats().get("membershipMisses"));
+    }
+
+    @Test
+    public void testInvalidateUser() {
+
+        UGCache cache = new UGCache(100, 60);
+
+        User alice = new User();
+        alice.setUserID("alice");
+        alice.setUserDN(ALICE);
+
+        cache.putMembership(ALICE, "Administrators", true, cache.getGeneration());
+        cache.putMembership(BOB, "Administrators", true, cache.getGeneration());
+        cache.putCertUser("cert", alice, cache.getGeneration());
+
+        assertSame(alice, cache.getCertUser("cert"));
+
+        cache.invalidateUser(ALICE);
+
+        assertNull(cache.getMembership(ALICE, "Administrators"));
+        assertTrue(cache.getMembership(BOB, "Administrators"));
+        assertNull(cache.getCertUser("cert"));
+    }
+
+    @Test
+    public void testStaleGeneration() {
+
+        UGCache cache = new UGCache(100, 60);
+
+        // a lookup that started before an invalidation is not cached
+        long generation = cache.getGeneration();
+        cache.invalidateGroup("Administrators");
+        cache.putMembership(ALICE, "Administrators", true, generation);
+
+        assertNull(cache.getMembership(ALICE, "Administrators"));
+        assertEquals(0, cache.getStats().get("memberships"));
+    }
+
+    @Test
+    public void testExpiration() {
+
+        UGCache cache = new UGCache(100, 0);
+
+        cache.putMembership(ALICE, "Administrators", true, cache.getGeneration());
+
+        assertNull(cache.getMembership(ALICE, "Administrators"));
+    }
+}
@@ -0,0 +1,111 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    void assertClose(long expected, long actual) {
+        // buckets are accurate to within 1/16 of the value
+        assertTrue(Math.abs(expected - actual) <= expected / 16,
+                "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    public void testBuckets() {
+
+        for (long value : new long[] { 0, 1, 15, 16, 17, 100, 1_000_000, Long.MAX_VALUE }) {
+            int bucket = Histogram.getBucket(value);
+            assertTrue(bucket >= 0 && bucket < Histogram.BUCKETS);
+            assertClose(value, Histogram.getBucketValue(bucket));
+        }
+    }
+
+    @Test
+    public void testQuantiles() {
+
+        Histogram histogram = new Histogram();
+
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000, histogram.getSum());
+        assertEquals(1_000_000, histogram.getMax());
+
+        Histogram.Snapshot snapshot = histogram.getSnapshot();
+        assertClose(500_000, snapshot.getValueAtQuantile(0.5));
+        assertClose(990_000, snapshot.getValueAtQuantile(0.99));
+        assertClose(999_000, snapshot.getValueAtQuantile(0.999));
+
+        assertEquals(0, new Histogram().getSnapshot().getValueAtQuantile(0.5));
+    }
+
+    @Test
+    public void testExport() {
+
+        Histogram histogram = new Histogram();
+        histogram.record(5_000_000);
+        histogram.record(20_000_000);
+
+        Map<String, Long> values = new LinkedHashMap<>();
+        histogram.export("test", values, TimeUnit.MICROSECONDS);
+
+        assertEquals(2L, values.get("test.count"));
+        assertEquals(25_000L, values.get("test.sum"));
+        assertEquals(20_000L, values.get("test.max"));
+        assertClose(5_000, values.get("test.p50"));
+        assertClose(20_000, values.get("test.p99"));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setHelp("test_duration_seconds", "Test duration");
+        registry.histogram("test_duration_seconds", "op", "a\"b").record(1_950_000_000L);
+        registry.counter("test_total").add(3);
+        registry.gauge("test_size", () -> 7);
+
+        Map<String, Map<String, Long>> sources = new LinkedHashMap<>();
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("hits", 5L);
+        values.put("unknown", null);
+        sources.put("cache", values);
+
+        StringWriter out = new StringWriter();
+        registry.write(out, sources);
+
+        String expected = """
+                # HELP test_duration_seconds Test duration
+                # TYPE test_duration_seconds summary
+                test_duration_seconds{op="a\\"b",quantile="0.5"} 1.95
+                test_duration_seconds{op="a\\"b",quantile="0.99"} 1.95
+                test_duration_seconds{op="a\\"b",quantile="0.999"} 1.95
+                test_duration_seconds_sum{op="a\\"b"} 1.95
+                test_duration_seconds_count{op="a\\"b"} 1
+                # TYPE test_size gauge
+                test_size 7
+                # TYPE test_total counter
+                test_total 3
+                # HELP pki_source_value Values reported by server components
+                # TYPE pki_source_value gauge
+                pki_source_value{source="cache",name="hits"} 5
+                """;
+
+        assertEquals(expected, out.toString());
+    }
+}
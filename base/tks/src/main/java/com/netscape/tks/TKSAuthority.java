@@ -20,11 +20,13 @@ package com.netscape.tks;
 import org.dogtagpki.server.tks.TKSConfig;
 import org.dogtagpki.server.tks.TKSEngine;
 import org.dogtagpki.server.tks.TKSEngineConfig;
+import org.dogtagpki.server.tks.servlet.CardKeyCache;
 
 import com.netscape.certsrv.authority.IAuthority;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.Subsystem;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.util.StatsSubsystem;
 
 public class TKSAuthority extends Subsystem implements IAuthority {
 
@@ -34,6 +36,7 @@ public class TKSAuthority extends Subsystem implements IAuthority {
 
     private String mNickname = null;
     private TKSConfig mConfig;
+    private CardKeyCache cardKeyCache;
     protected String mId = null;
     public static final String PROP_NICKNAME = "nickName";
 
@@ -76,6 +79,16 @@ public class TKSAuthority extends Subsystem implements IAuthority {
         mConfig = engineConfig.getTKSConfig();
 
         //mNickname = mConfig.getString(PROP_NICKNAME);
+
+        int cardKeyCacheSize = mConfig.getCardKeyCacheSize();
+        if (cardKeyCacheSize > 0) {
+            int cardKeyCacheTTL = mConfig.getCardKeyCacheTTL();
+            logger.info("TKSAuthority: Card key cache:");
+            logger.info("TKSAuthority: - size: " + cardKeyCacheSize);
+            logger.info("TKSAuthority: - TTL: " + cardKeyCacheTTL + " s");
+            cardKeyCache = new CardKeyCache(cardKeyCacheSize, cardKeyCacheTTL);
+        }
+
         logger.debug("TKS Authority (" + getId() + "): " + "Initialized Request Processor.");
 
     }
@@ -92,6 +105,10 @@ public class TKSAuthority extends Subsystem implements IAuthority {
         // This helps us to support multiple instances
         // of a subsystem within server.
 
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
+        if (cardKeyCache != null && statsSub != null) {
+            statsSub.addSource("tks.cardKeyCache", cardKeyCache::getStats);
+        }
     }
 
     /**
@@ -101,9 +118,20 @@ public class TKSAuthority extends Subsystem implements IAuthority {
      */
     @Override
     public void shutdown() {
+        if (cardKeyCache != null) {
+            cardKeyCache.clear();
+        }
         logger.info("TKSAuthority is stopped");
     }
 
+    /**
+     * Returns the cache of derived card keys, or null if
+     * the cache is disabled.
+     */
+    public CardKeyCache getCardKeyCache() {
+        return cardKeyCache;
+    }
+
     /**
      * Returns the root configuration storage of this system.
      * <P>
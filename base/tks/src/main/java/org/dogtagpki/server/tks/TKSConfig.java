@@ -5,6 +5,7 @@
 //
 package org.dogtagpki.server.tks;
 
+import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
@@ -18,4 +19,19 @@ public class TKSConfig extends ConfigStore {
     public TKSConfig(String name, SimpleProperties source) {
         super(name, source);
     }
+
+    /**
+     * Returns the maximum number of derived card keys to cache.
+     * Zero disables the cache.
+     */
+    public int getCardKeyCacheSize() throws EBaseException {
+        return getInteger("cardKeyCache.size", 1000);
+    }
+
+    /**
+     * Returns the time in seconds a derived card key is cached.
+     */
+    public int getCardKeyCacheTTL() throws EBaseException {
+        return getInteger("cardKeyCache.ttl", 60);
+    }
 }
@@ -0,0 +1,10 @@
+package org.dogtagpki.server.tks.rest.v2.filters;
+
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.MetricsAuthMethod;
+
+@WebFilter(servletNames = "tksMetrics")
+public class TKSMetricsAuthMethod extends MetricsAuthMethod {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,141 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tks.servlet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.crypto.SymmetricKey;
+
+/**
+ * Cache of card keys derived from the master keys.
+ *
+ * A token session calls computeSessionKey, encryptData and
+ * createKeySetData separately, and each call used to diversify
+ * the same master key for the same card again. The cache keeps
+ * the derived keys as non-extractable key handles on the token
+ * for a short time so the later calls in the session can reuse
+ * them. The key material never leaves the token.
+ *
+ * Entries are keyed by everything that goes into the derivation:
+ * the token, the master key, the key type, the CUID, the KDD,
+ * the key info and the derivation method. Developer keys are not
+ * cached since they are not diversified from a master key.
+ */
+public class CardKeyCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CardKeyCache.class);
+
+    record Entry(SymmetricKey key, long expires) {
+    }
+
+    private int maxSize;
+    private long ttl; // nanoseconds
+
+    private Map<String, Entry> keys = new ConcurrentHashMap<>();
+
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder evictions = new LongAdder();
+
+    public CardKeyCache(int maxSize, int ttl) {
+        this.maxSize = maxSize;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    /**
+     * Creates the cache key for a card key.
+     *
+     * @param tokenName token holding the master key
+     * @param masterKeyName master key nickname
+     * @param keyType card key type (e.g. enc, mac, kek)
+     * @param cuid card unique ID
+     * @param kdd key derivation data
+     * @param keyInfo key version and index
+     * @param method derivation method and its parameters
+     */
+    public static String createKey(
+            String tokenName,
+            String masterKeyName,
+            String keyType,
+            byte[] cuid,
+            byte[] kdd,
+            byte[] keyInfo,
+            String method) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(tokenName).append(':');
+        sb.append(masterKeyName).append(':');
+        sb.append(keyType).append(':');
+        sb.append(SecureChannelProtocol.getHexString(cuid)).append(':');
+        sb.append(SecureChannelProtocol.getHexString(kdd)).append(':');
+        sb.append(SecureChannelProtocol.getHexString(keyInfo)).append(':');
+        sb.append(method);
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the cached card key, or null if it is not cached.
+     */
+    public SymmetricKey get(String key) {
+
+        Entry entry = keys.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expires() >= 0) {
+            keys.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.key();
+    }
+
+    public void put(String key, SymmetricKey cardKey) {
+
+        if (keys.size() >= maxSize) {
+            removeExpired();
+        }
+
+        if (keys.size() >= maxSize) {
+            logger.debug("CardKeyCache: Cache full, clearing");
+            evictions.add(keys.size());
+            keys.clear();
+        }
+
+        keys.put(key, new Entry(cardKey, System.nanoTime() + ttl));
+    }
+
+    public void removeExpired() {
+        long now = System.nanoTime();
+        keys.values().removeIf(entry -> now - entry.expires() >= 0);
+    }
+
+    public void clear() {
+        keys.clear();
+    }
+
+    public Map<String, Long> getStats() {
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+
+        stats.put("keys", (long) keys.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+
+        return stats;
+    }
+}
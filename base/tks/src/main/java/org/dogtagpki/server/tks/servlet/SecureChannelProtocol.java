@@ -30,6 +30,7 @@ import org.mozilla.jss.crypto.TokenException;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.security.JssSubsystem;
 import com.netscape.cmsutil.crypto.CryptoUtil;
+import com.netscape.tks.TKSAuthority;
 
 import org.mozilla.jss.pkcs11.PKCS11Constants;
 
@@ -292,7 +293,6 @@ public class SecureChannelProtocol {
         String keyNameStr = null;
 
         SymmetricKey sessionKey = null;
-        SymmetricKey masterKey = null;
 
         if (keyNickName == null) {
             keyNameStr = this.getKeyName(keyInfo);
@@ -375,44 +375,31 @@ logger.debug("session key = divKey");
         } else { // Creating a session key for the case where we have already upgraded the keys on the token, using the master key
             logger.debug(method + "In master key mode.");
 
-            masterKey = getSymKeyByName(token, keyNameStr);
-
             String masterKeyType = params.getMasterKeyType();
 
             logger.debug(method + " Master key case: requested master key type: " + masterKeyType);
 
-            NistSP800_108KDF nistKdf = new NistSP800_108KDF(this);
-            StandardKDF standard = new StandardKDF(this);
+            String kdfName = masterKeyType + "/" + params.getDiversificationScheme();
 
-            byte[] keyDiversified = null;
+            CardKeyCache cardKeyCache = getCardKeyCache();
+            String cardKeyName = CardKeyCache.createKey(
+                    selectedToken, keyNameStr, keyType, xCUID, xKDD, keyInfo, kdfName);
 
-            if (params.isDiversNone()) {
-                if (GPParams.AES.equalsIgnoreCase(masterKeyType)) {
-                    logger.debug(method + " Master key case: no diversification requested: With master key type of AES ");
-                }
-                else {
-                    throw new EBaseException(method + " No diversification requested in master key mode. With master key type of DES3: Aborting...");
-                }
-            } //Allow choice of emv or standard diversification
-            else if (params.isDiversEmv()) {
-                keyDiversified = KDF.getDiversificationData_EMV(xKDD, keyType);
-            } else if (params.isDiversVisa2()) {
-                keyDiversified = KDF.getDiversificationData_VISA2(xKDD, keyType);
-            }
-            SymmetricKey divKey = null;
+            SymmetricKey divKey = cardKeyCache == null ? null : cardKeyCache.get(cardKeyName);
 
-            if(GPParams.AES.equalsIgnoreCase(masterKeyType)) {
-                logger.debug(method + " master key case with AES type.");
-                if(params.isDiversGPKMC()) {
-                    logger.debug(method + " GPKMC diversification requested.");
-                    divKey = nistKdf.diversifyAESKey(masterKey, xCUID, constant_gpkmc, token);
-                } else {
-                    divKey = masterKey;
-                }
+            if (divKey != null) {
+                logger.debug(method + " Using cached card key");
             } else {
-                divKey = standard.computeCardKey_SCP03_WithDES3(masterKey, keyDiversified, token);
+                divKey = computeCardKey_SCP03(method, token, keyNameStr, keyType, masterKeyType,
+                        xCUID, xKDD, constant_gpkmc, params);
+
+                if (cardKeyCache != null) {
+                    cardKeyCache.put(cardKeyName, divKey);
+                }
             }
 
+            NistSP800_108KDF nistKdf = new NistSP800_108KDF(this);
+
             // The kek session key does not call for derivation
             if (constant == 0 /* kek key */) {
                 sessionKey = divKey;
@@ -435,6 +422,53 @@ logger.debug("session key = divKey");
         return sessionKey;
     }
 
+    // Diversify the master key into the card key in master key mode
+    private SymmetricKey computeCardKey_SCP03(String method, CryptoToken token, String keyNameStr,
+            String keyType, String masterKeyType, byte[] xCUID, byte[] xKDD, byte constant_gpkmc,
+            GPParams params) throws EBaseException {
+
+        SymmetricKey masterKey = getSymKeyByName(token, keyNameStr);
+
+        NistSP800_108KDF nistKdf = new NistSP800_108KDF(this);
+        StandardKDF standard = new StandardKDF(this);
+
+        byte[] keyDiversified = null;
+
+        if (params.isDiversNone()) {
+            if (GPParams.AES.equalsIgnoreCase(masterKeyType)) {
+                logger.debug(method + " Master key case: no diversification requested: With master key type of AES ");
+            }
+            else {
+                throw new EBaseException(method + " No diversification requested in master key mode. With master key type of DES3: Aborting...");
+            }
+        } //Allow choice of emv or standard diversification
+        else if (params.isDiversEmv()) {
+            keyDiversified = KDF.getDiversificationData_EMV(xKDD, keyType);
+        } else if (params.isDiversVisa2()) {
+            keyDiversified = KDF.getDiversificationData_VISA2(xKDD, keyType);
+        }
+
+        if(GPParams.AES.equalsIgnoreCase(masterKeyType)) {
+            logger.debug(method + " master key case with AES type.");
+            if(params.isDiversGPKMC()) {
+                logger.debug(method + " GPKMC diversification requested.");
+                return nistKdf.diversifyAESKey(masterKey, xCUID, constant_gpkmc, token);
+            }
+            return masterKey;
+        }
+
+        return standard.computeCardKey_SCP03_WithDES3(masterKey, keyDiversified, token);
+    }
+
+    private CardKeyCache getCardKeyCache() {
+        TKSEngine engine = TKSEngine.getInstance();
+        if (engine == null) {
+            return null;
+        }
+        TKSAuthority tks = (TKSAuthority) engine.getSubsystem(TKSAuthority.ID);
+        return tks == null ? null : tks.getCardKeyCache();
+    }
+
     public SymmetricKey computeKEKKey_SCP01(
             String selectedToken, String keyNickName,
             byte[] keyInfo,
@@ -565,11 +599,24 @@ logger.debug("session key = divKey");
             SymmetricKey devKey = null;
             logger.debug(method + "In master key mode.");
 
-            masterKey = getSymKeyByName(token, keyNameStr);
+            boolean useNistKDF = NistSP800_108KDF.useThisKDF(nistSP800_108KdfOnKeyVersion, keyInfo[0]);
+            String kdfName = (useNistKDF ? GPParams.NIST_SP800 : GPParams.DIVER_VISA2)
+                    + (context == xCUID ? "/cuid" : "/kdd");
+
+            CardKeyCache cardKeyCache = getCardKeyCache();
+            if (cardKeyCache != null) {
+                devKey = cardKeyCache.get(CardKeyCache.createKey(
+                        selectedToken, keyNameStr, keyType, xCUID, xKDD, keyInfo, kdfName));
+            }
+
+            if (devKey != null) {
+                logger.debug(method + " Using cached card key");
 
-            if (NistSP800_108KDF.useThisKDF(nistSP800_108KdfOnKeyVersion, keyInfo[0])) {
+            } else if (useNistKDF) {
                 logger.debug(method + " ComputeSessionKey NistSP800_108KDF code: Using NIST SP800-108 KDF.");
 
+                masterKey = getSymKeyByName(token, keyNameStr);
+
                 NistSP800_108KDF nistKDF = new NistSP800_108KDF(this);
 
                 Map<String, SymmetricKey> keys = null;
@@ -582,11 +629,28 @@ logger.debug("session key = divKey");
 
                 devKey = keys.get(keyType);
 
+                // the KDF produces all card keys at once, cache all of them
+                if (cardKeyCache != null) {
+                    for (Map.Entry<String, SymmetricKey> entry : keys.entrySet()) {
+                        cardKeyCache.put(CardKeyCache.createKey(
+                                selectedToken, keyNameStr, entry.getKey(), xCUID, xKDD, keyInfo, kdfName),
+                                entry.getValue());
+                    }
+                }
+
             } else {
+                masterKey = getSymKeyByName(token, keyNameStr);
+
                 StandardKDF standardKDF = new StandardKDF(this);
                 logger.debug(method + " ComputeSessionKey NistSP800_108KDF code: Using original KDF.");
                 byte[] data = KDF.getDiversificationData_VISA2(context, keyType);
                 devKey = standardKDF.computeCardKey(masterKey, data, token, PROTOCOL_ONE);
+
+                if (cardKeyCache != null) {
+                    cardKeyCache.put(CardKeyCache.createKey(
+                            selectedToken, keyNameStr, keyType, xCUID, xKDD, keyInfo, kdfName),
+                            devKey);
+                }
             }
 
             if (noDerive == true) {
@@ -1538,6 +1538,7 @@ public class TokenServlet extends CMSServlet {
                 value = sb.toString();
             }
 
+            value += createNextHostChallenge(req, agentId);
         }
         //logger.debug("TokenServlet:outputString.encode " + value);
 
@@ -2523,6 +2524,49 @@ public class TokenServlet extends CMSServlet {
         }
     }
 
+    /**
+     * Generates the host challenge for the next secure channel of the
+     * token session if the TPS requested it along with the session keys.
+     * This saves the TPS a separate computeRandomData round trip when
+     * it opens another secure channel with the token.
+     *
+     * @return the response parameter to append, or an empty string
+     */
+    private String createNextHostChallenge(HttpServletRequest req, String agentId) {
+
+        String sDataSize = req.getParameter(IRemoteRequest.TOKEN_NEXT_HOST_CHALLENGE_NUM_BYTES);
+        if (sDataSize == null || sDataSize.equals("")) {
+            return "";
+        }
+
+        TKSEngine engine = TKSEngine.getInstance();
+        Auditor auditor = engine.getAuditor();
+
+        try {
+            int dataSize = Integer.parseInt(sDataSize.trim());
+            if (dataSize <= 0) {
+                throw new NumberFormatException("Invalid data size: " + dataSize);
+            }
+
+            JssSubsystem jssSubsystem = engine.getJSSSubsystem();
+            SecureRandom random = jssSubsystem.getRandomNumberGenerator();
+            byte[] randomData = new byte[dataSize];
+            random.nextBytes(randomData);
+
+            auditor.log(ComputeRandomDataRequestProcessedEvent.success("0", agentId));
+
+            return "&" + IRemoteRequest.TKS_RESPONSE_NextHostChallenge + "=" +
+                    org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(randomData);
+
+        } catch (Exception e) {
+            // the TPS will fall back to computeRandomData
+            logger.warn("TokenServlet: Unable to create next host challenge: " + e.getMessage(), e);
+            auditor.log(ComputeRandomDataRequestProcessedEvent.failure("2", agentId,
+                    "Can't generate random data!"));
+            return "";
+        }
+    }
+
     public void process(CMSRequest cmsReq) throws EBaseException {
         HttpServletRequest req = cmsReq.getHttpReq();
         HttpServletResponse resp = cmsReq.getHttpResp();
@@ -3081,6 +3125,7 @@ public class TokenServlet extends CMSServlet {
                 value = sb.toString();
             }
 
+            value += createNextHostChallenge(req, agentId);
         }
         //logger.debug(method + "outputString.encode " + value);
 
@@ -28,9 +28,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.GeneralSecurityException;
 import java.security.cert.CertificateFactory;
 import java.security.InvalidAlgorithmParameterException;
@@ -42,6 +47,7 @@ import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.spec.MGF1ParameterSpec;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
@@ -50,7 +56,13 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -849,6 +861,14 @@ public class KRATool {
     private static final String SPLIT_TARGET_LDIF_PER_RECORDS_DESCRIPTION = "  <number> Split target LDIF into multiple files after every N records" + NEWLINE +
                                                                              "        " + "   Creates files: targetfile-1.ldif, targetfile-2.ldif, etc.";
 
+    private static final String THREADS = "-threads";
+    private static final String THREADS_DESCRIPTION = "  <number> Number of threads rewrapping records in parallel (default: 1)" + NEWLINE +
+                                                      "        " + "   Records are written to the target LDIF file in the source order";
+
+    private static final String CHECKPOINT_FILE = "-checkpoint_file";
+    private static final String CHECKPOINT_FILE_DESCRIPTION = "  <complete path to the checkpoint file> Record the progress" + NEWLINE +
+                                                              "        " + "   in this file and resume from it if it exists";
+
     private static final String SOURCE_KRA_NAMING_CONTEXT = "-source_kra_naming_context";
 
     private static final String SOURCE_KRA_NAMING_CONTEXT_DESCRIPTION = "  <source KRA naming context>";
@@ -1114,6 +1134,8 @@ public class KRATool {
     private static final int INITIAL_LDIF_RECORD_CAPACITY = 0;
     private static final int EXTDATA_REQUEST_NOTES_FIRST_LINE_DATA_LENGTH = 56;
     private static final int PRIVATE_KEY_DATA_FIRST_LINE_DATA_LENGTH = 60;
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final int PENDING_RECORDS_PER_THREAD = 4;
     private static final String KRA_LDIF_RECORD = "Generic";
     private static final String KRA_LDIF_CA_KEY_RECORD = "CA";
     private static final String KRA_LDIF_ENROLLMENT = "enrollment";
@@ -1173,6 +1195,8 @@ public class KRATool {
     private static int mSplitTargetLdifPerRecords = 0;  // Split output into multiple files after N records
     private static int mCurrentFileNumber = 1;  // Current output file number (for split mode)
     private static int mRecordsInCurrentFile = 0;  // Records written to current output file
+    private static int mThreads = 1;  // Threads converting records (baseline mode)
+    private static String mCheckpointFilename = null;  // Progress file for resuming (baseline mode)
     private static int mMandatoryNameValuePairs = 0;
     private static int mRewrapNameValuePairs = 0;
     private static int mPKISecurityDatabasePwdfileNameValuePairs = 0;
@@ -1184,6 +1208,7 @@ public class KRATool {
     private static int mProcessedKeyRecords = 0;
     private static int mFailedKeyRecords = 0;
     private static int mProcessedEntries = 0;  // cross-scheme: total entries written (for blank line logic)
+    private static long mConvertedRecords = 0;  // baseline: records written to the target LDIF file
 
     // Variables: Command-Line Values (Mandatory)
     private static String mKratoolCfgFilename = null;
@@ -1215,7 +1240,14 @@ public class KRATool {
 
     // Variables:  KRATOOL LDIF File Parameters of Interest
     private static Vector<String> record = null;
-    private static Iterator<String> ldif_record = null;
+
+    // Lines of the LDIF record being converted by the current thread
+    private static final ThreadLocal<Iterator<String>> ldif_record = new ThreadLocal<>();
+
+    // Record being converted by a worker thread and its position
+    // in the source LDIF file
+    private record PendingRecord(long index, Future<String> output) {
+    }
 
     // Variables:  Logging
     private static boolean mDebug = false; // set 'true' for debug messages
@@ -1430,6 +1462,22 @@ public class KRATool {
                           + VERBOSE_DESCRIPTION
                           + "]"
                           + NEWLINE
+                          + "        "
+                          + "["
+                          + THREADS
+                          + NEWLINE
+                          + "        "
+                          + THREADS_DESCRIPTION
+                          + "]"
+                          + NEWLINE
+                          + "        "
+                          + "["
+                          + CHECKPOINT_FILE
+                          + NEWLINE
+                          + "        "
+                          + CHECKPOINT_FILE_DESCRIPTION
+                          + "]"
+                          + NEWLINE
                           + NEWLINE
                           + "    --- Cross-Scheme Migration Options ---"
                           + NEWLINE
@@ -4243,7 +4291,7 @@ public class KRATool {
                     ).trim());
         }
 
-        while ((line = ldif_record.next()) != null) {
+        while ((line = ldif_record.get().next()) != null) {
             if (line.startsWith(SPACE)) {
                 // Do NOT use "trim()";
                 // remove single leading space and
@@ -5413,7 +5461,7 @@ public class KRATool {
                     ).trim());
 
             // Read continuation lines
-            while ((line = ldif_record.next()) != null) {
+            while ((line = ldif_record.get().next()) != null) {
                 if (line.startsWith(SPACE)) {
                     data.append(line.trim());
                 } else {
@@ -5446,7 +5494,7 @@ public class KRATool {
                     ).trim());
 
             // Read continuation lines
-            while ((line = ldif_record.next()) != null) {
+            while ((line = ldif_record.get().next()) != null) {
                 if (line.startsWith(SPACE)) {
                     data.append(line.trim());
                 } else {
@@ -5552,7 +5600,7 @@ public class KRATool {
                                 KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -5616,7 +5664,7 @@ public class KRATool {
                                    KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -5873,6 +5921,243 @@ public class KRATool {
         return output;
     }
 
+    /**
+     * Baseline code: converts a single LDIF record.
+     *
+     * This method may be called concurrently by multiple threads as
+     * long as each thread uses its own writer.
+     * <P>
+     *
+     * @param record_type the record type
+     * @param lines the lines of the LDIF record including the empty line
+     * @param previous_line the last line written before this record
+     * @param writer the PrintWriter used to output the converted record
+     * @return the last line written, or null if the conversion failed
+     */
+    private static String convert_ldif_record(String record_type,
+                                              List<String> lines,
+                                              String previous_line,
+                                              PrintWriter writer) {
+        String line = null;
+        String output = null;
+
+        Iterator<String> iterator = lines.iterator();
+        ldif_record.set(iterator);
+
+        try {
+            // Process each line of the record:
+            //   * If LDIF Record Type for this line is 'valid'
+            //     * If KRATOOL Configuration File Parameter is 'true'
+            //       * Process this data
+            //     * Else If KRATOOL Configuration File Parameter is 'false'
+            //       * Pass through this data unchanged
+            //   * Else If LDIF Record Type for this line is 'invalid'
+            //     * Log error and leave method returning 'false'
+            while (iterator.hasNext()) {
+
+                line = iterator.next();
+
+                if (line.startsWith(KRA_LDIF_CN)) {
+                    output = output_cn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
+                    output = output_date_of_modify(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DN)) {
+                    output = output_dn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                    logger.info(output);
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
+                    output = output_extdata_key_record(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
+                    output = output_extdata_request_id(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
+                    output = output_extdata_request_notes(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
+                    // if one is not already present,
+                    // compose and write out the missing
+                    // 'extdata_requestnotes' line
+                    if (previous_line != null) {
+                        create_extdata_request_notes(record_type,
+                                previous_line,
+                                writer);
+                    } else {
+                        return null;
+                    }
+
+                    // ALWAYS pass through the original
+                    // 'extdata-requesttype' line UNCHANGED
+                    // so that it is ALWAYS written
+                    output = line;
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
+                    output = output_extdata_serial_number(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
+                    output = output_private_key_data(record_type,
+                                                      line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
+                    output = output_request_id(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
+                    output = output_serial_no(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
+                    output = output_extdata_auth_token_user(record_type,
+                                                             line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
+                    output = output_extdata_auth_token_user_dn(record_type,
+                                                                line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else {
+                    // Pass through line unchanged
+                    output = line;
+                }
+
+                // Always save a copy of this line
+                previous_line = output;
+
+                // Always write out the output line and flush the buffer
+                writer.write(output + NEWLINE);
+                writer.flush();
+            }
+        } finally {
+            ldif_record.remove();
+        }
+
+        return previous_line;
+    }
+
+    /**
+     * Baseline code: reads the checkpoint file.
+     *
+     * @return the number of source records and the length of the target
+     *         LDIF file recorded in the checkpoint, or null if there is
+     *         no checkpoint
+     */
+    private static long[] read_checkpoint() throws IOException {
+
+        if (mCheckpointFilename == null) {
+            return null;
+        }
+
+        Path path = Paths.get(mCheckpointFilename);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        Properties checkpoint = new Properties();
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            checkpoint.load(in);
+        }
+
+        String source = checkpoint.getProperty("source");
+        String target = checkpoint.getProperty("target");
+
+        if (!mSourceLdifFilename.equals(source) || !mTargetLdifFilename.equals(target)) {
+            throw new IOException("Checkpoint " + mCheckpointFilename
+                    + " was created for source LDIF file " + source
+                    + " and target LDIF file " + target);
+        }
+
+        return new long[] {
+                Long.parseLong(checkpoint.getProperty("records")),
+                Long.parseLong(checkpoint.getProperty("targetLength"))
+        };
+    }
+
+    /**
+     * Baseline code: records the number of source records processed
+     * and the length of the flushed target LDIF file.
+     */
+    private static void write_checkpoint(long records) throws IOException {
+
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("source", mSourceLdifFilename);
+        checkpoint.setProperty("target", mTargetLdifFilename);
+        checkpoint.setProperty("records", Long.toString(records));
+        checkpoint.setProperty("targetLength", Long.toString(Files.size(Paths.get(mTargetLdifFilename))));
+
+        Path path = Paths.get(mCheckpointFilename);
+        Path tmp = Paths.get(mCheckpointFilename + ".tmp");
+
+        try (BufferedWriter out = Files.newBufferedWriter(tmp)) {
+            checkpoint.store(out, KRA_TOOL);
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Baseline code: writes a converted record to the target LDIF file,
+     * then reports the progress and records the checkpoint periodically.
+     *
+     * @param index the position of the record in the source LDIF file
+     * @param output the converted record
+     * @param writer the PrintWriter for the target LDIF file
+     * @param startTime the time the conversion started in nanoseconds
+     */
+    private static void write_ldif_record(long index,
+                                          String output,
+                                          PrintWriter writer,
+                                          long startTime) throws IOException {
+
+        if (output != null) {
+            writer.write(output);
+            writer.flush();
+        }
+
+        mConvertedRecords++;
+
+        if (mConvertedRecords % PROGRESS_INTERVAL != 0) {
+            return;
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        logger.info("Progress: " + mConvertedRecords + " record(s) converted"
+                + (elapsed > 0 ? " (" + mConvertedRecords * 1000 / elapsed + " records/sec)" : ""));
+
+        if (mCheckpointFilename != null) {
+            write_checkpoint(index);
+        }
+    }
+
     /**
      * Baseline code: only used when -use_cross_scheme is not used
      *
@@ -5892,6 +6177,11 @@ public class KRATool {
         String output = null;
         String data = null;
         String record_type = null;
+        ExecutorService executor = null;
+        ArrayDeque<PendingRecord> pending = new ArrayDeque<>();
+        long records = 0;
+        long skippedRecords = 0;
+        long startTime = System.nanoTime();
 
         if (mRewrapFlag) {
             success = obtain_RSA_rewrapping_keys();
@@ -5906,6 +6196,22 @@ public class KRATool {
         // Process each line in the source LDIF file
         // and store it in the target LDIF file
         try {
+            long[] checkpoint = read_checkpoint();
+            boolean append = false;
+
+            if (checkpoint != null) {
+                // Discard the output written after the checkpoint
+                // and skip the records that have been converted
+                skippedRecords = checkpoint[0];
+                try (FileChannel channel = FileChannel.open(
+                        Paths.get(mTargetLdifFilename), StandardOpenOption.WRITE)) {
+                    channel.truncate(checkpoint[1]);
+                }
+                append = true;
+                logger.info("Resuming after record " + skippedRecords
+                        + " from checkpoint " + mCheckpointFilename);
+            }
+
             // Open source LDIF file for reading
             reader = new BufferedReader(
                          new FileReader(mSourceLdifFilename));
@@ -5913,7 +6219,12 @@ public class KRATool {
             // Open target LDIF file for writing
             writer = new PrintWriter(
                          new BufferedWriter(
-                                 new FileWriter(mTargetLdifFilename)));
+                                 new FileWriter(mTargetLdifFilename, append)));
+
+            if (mThreads > 1) {
+                logger.info("Converting records with " + mThreads + " threads");
+                executor = Executors.newFixedThreadPool(mThreads);
+            }
 
             logger.info("PROCESSING: ");
             while ((input = reader.readLine()) != null) {
@@ -5984,6 +6295,7 @@ public class KRATool {
 
                     // clear this LDIF record from the record vector
                     record.clear();
+                    records++;
 
                     // NOTE:  there is no need to reset the record type
 
@@ -5994,125 +6306,86 @@ public class KRATool {
                     record_type = KRA_LDIF_RECORD;
                 }
 
-                ldif_record = record.iterator();
+                records++;
 
-                // Process each line of the record:
-                //   * If LDIF Record Type for this line is 'valid'
-                //     * If KRATOOL Configuration File Parameter is 'true'
-                //       * Process this data
-                //     * Else If KRATOOL Configuration File Parameter is 'false'
-                //       * Pass through this data unchanged
-                //   * Else If LDIF Record Type for this line is 'invalid'
-                //     * Log error and leave method returning 'false'
-                while (ldif_record.hasNext()) {
+                if (records <= skippedRecords) {
+                    // this record has been converted before the checkpoint
+                    previous_line = "";
 
-                    line = ldif_record.next();
+                } else if (executor == null) {
+                    previous_line = convert_ldif_record(record_type,
+                                                        record,
+                                                        previous_line,
+                                                        writer);
+                    if (previous_line == null) {
+                        return FAILURE;
+                    }
 
-                    if (line.startsWith(KRA_LDIF_CN)) {
-                        output = output_cn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
-                        output = output_date_of_modify(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DN)) {
-                        output = output_dn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                        logger.info(output);
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
-                        output = output_extdata_key_record(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
-                        output = output_extdata_request_id(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
-                        output = output_extdata_request_notes(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
-                        // if one is not already present,
-                        // compose and write out the missing
-                        // 'extdata_requestnotes' line
-                        if (previous_line != null) {
-                            create_extdata_request_notes(record_type,
-                                    previous_line,
-                                    writer);
-                        } else {
-                            return FAILURE;
-                        }
+                    write_ldif_record(records, null, writer, startTime);
 
-                        // ALWAYS pass through the original
-                        // 'extdata-requesttype' line UNCHANGED
-                        // so that it is ALWAYS written
-                        output = line;
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
-                        output = output_extdata_serial_number(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
-                        output = output_private_key_data(record_type,
-                                                          line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
-                        output = output_request_id(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
-                        output = output_serial_no(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
-                        output = output_extdata_auth_token_user(record_type,
-                                                                 line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
-                        output = output_extdata_auth_token_user_dn(record_type,
-                                                                    line);
+                } else {
+                    // convert this record in a worker thread
+                    // into a buffer that is written out in order
+                    String type = record_type;
+                    List<String> lines = new ArrayList<>(record);
+                    String previous = previous_line;
+
+                    pending.add(new PendingRecord(records, executor.submit(() -> {
+                        StringWriter buffer = new StringWriter();
+                        PrintWriter out = new PrintWriter(buffer);
+                        String last = convert_ldif_record(type, lines, previous, out);
+                        out.flush();
+                        return last == null ? null : buffer.toString();
+                    })));
+
+                    // a converted record always ends with an empty line
+                    previous_line = "";
+
+                    // limit the number of buffered records
+                    while (pending.size() >= mThreads * PENDING_RECORDS_PER_THREAD) {
+                        PendingRecord next = pending.poll();
+                        output = next.output().get();
                         if (output == null) {
                             return FAILURE;
                         }
-                    } else {
-                        // Pass through line unchanged
-                        output = line;
+                        write_ldif_record(next.index(), output, writer, startTime);
                     }
-
-                    // Always save a copy of this line
-                    previous_line = output;
-
-                    // Always write out the output line and flush the buffer
-                    writer.write(output + NEWLINE);
-                    writer.flush();
                 }
 
                 // clear this LDIF record from the record vector
                 record.clear();
             }
+
+            // write out the remaining records
+            while (!pending.isEmpty()) {
+                PendingRecord next = pending.poll();
+                output = next.output().get();
+                if (output == null) {
+                    return FAILURE;
+                }
+                write_ldif_record(next.index(), output, writer, startTime);
+            }
+
+            writer.flush();
+
+            if (mCheckpointFilename != null) {
+                Files.deleteIfExists(Paths.get(mCheckpointFilename));
+            }
+
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            logger.info("Converted " + mConvertedRecords + " record(s) in " + elapsed / 1000 + " seconds"
+                    + (elapsed > 0 ? " (" + mConvertedRecords * 1000 / elapsed + " records/sec)" : ""));
+
             logger.info("FINISHED");
+        } catch (InterruptedException exInterrupted) {
+            logger.error("Interrupted: " + exInterrupted.getMessage(), exInterrupted);
+            Thread.currentThread().interrupt();
+            return FAILURE;
+        } catch (ExecutionException exExecution) {
+            logger.error("Unable to convert record: "
+                    + exExecution.getMessage(),
+                    exExecution);
+            return FAILURE;
         } catch (IOException exIO) {
             logger.error("line='"
                     + line
@@ -6123,6 +6396,9 @@ public class KRATool {
                     exIO);
             return FAILURE;
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
             if (reader != null) {
                 try {
                     reader.close();
@@ -7292,6 +7568,26 @@ public class KRATool {
                     printUsage();
                     System.exit(0);
                 }
+            } else if (args[i].contentEquals(THREADS)) {
+                if (i + 1 >= args.length || args[i + 1].startsWith("-")) {
+                    System.err.println("ERROR:  " + THREADS + " requires a numeric value" + NEWLINE);
+                    printUsage();
+                    System.exit(0);
+                }
+                try {
+                    mThreads = Integer.parseInt(args[i + 1]);
+                    if (mThreads <= 0) {
+                        System.err.println("ERROR:  Number of threads must be greater than 0" + NEWLINE);
+                        printUsage();
+                        System.exit(0);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("ERROR:  Invalid number of threads: " + args[i + 1] + NEWLINE);
+                    printUsage();
+                    System.exit(0);
+                }
+            } else if (args[i].contentEquals(CHECKPOINT_FILE)) {
+                mCheckpointFilename = args[i + 1];
             } else if (args[i].contentEquals(USE_CROSS_SCHEME)) {
                 // cross-scheme: boolean flag, compensate for loop's i+=2
                 mUseCrossSchemeFlag = true;
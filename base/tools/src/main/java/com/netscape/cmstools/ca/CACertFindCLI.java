@@ -69,6 +69,8 @@ public class CACertFindCLI extends SubsystemCommandCLI {
         option.setArgName("size");
         options.addOption(option);
 
+        options.addOption(null, "all", false, "Retrieve all matching certificates page by page");
+
         //file input
         option = new Option(null, "input", true, "File containing the search constraints");
         option.setArgName("file path");
@@ -230,6 +232,12 @@ public class CACertFindCLI extends SubsystemCommandCLI {
         PKIClient client = getPKIClient();
         SubsystemClient subsystemClient = getSubsystemClient(client);
         CACertClient certClient = new CACertClient(subsystemClient);
+
+        if (cmd.hasOption("all")) {
+            findAllCerts(certClient, searchData, size);
+            return;
+        }
+
         CertDataInfos certs = certClient.findCerts(searchData, start, size);
 
         Integer total = certs.getTotal();
@@ -254,6 +262,34 @@ public class CACertFindCLI extends SubsystemCommandCLI {
         MainCLI.printMessage("Number of entries returned " + certs.getEntries().size());
     }
 
+    /**
+     * Retrieves the certificates one page at a time by following the
+     * cursors returned by the server and prints each page as it arrives.
+     */
+    public void findAllCerts(CACertClient certClient, CertSearchRequest searchData, Integer size) throws Exception {
+
+        String cursor = "";
+        int count = 0;
+
+        while (cursor != null) {
+
+            CertDataInfos certs = certClient.findCertsByCursor(searchData, cursor, size);
+
+            for (CertDataInfo cert : certs.getEntries()) {
+                if (count > 0) {
+                    System.out.println();
+                }
+
+                CACertCLI.printCertInfo(cert);
+                count++;
+            }
+
+            cursor = certs.getNext();
+        }
+
+        MainCLI.printMessage("Number of entries returned " + count);
+    }
+
     public Long convertValidityDurationUnit(String unit) throws Exception {
 
         if (unit.equalsIgnoreCase("day")) {
@@ -311,6 +311,9 @@ public class TPSSubsystem extends Subsystem implements IAuthority {
 
     @Override
     public void shutdown() {
+        if (tdb != null) {
+            tdb.shutdown();
+        }
     }
 
     @Override
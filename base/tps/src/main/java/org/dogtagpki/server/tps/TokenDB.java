@@ -24,7 +24,18 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dogtagpki.server.tps.cms.CARemoteRequestHandler;
 import org.dogtagpki.server.tps.cms.CARevokeCertResponse;
@@ -39,6 +50,7 @@ import org.mozilla.jss.netscape.security.x509.RevocationReason;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
 import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.connector.ConnectorsConfig;
 import com.netscape.certsrv.dbs.DBRecordNotFoundException;
 import com.netscape.certsrv.tps.token.TokenStatus;
 
@@ -49,8 +61,34 @@ public class TokenDB {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TokenDB.class);
 
+    /**
+     * Cert to be revoked or unrevoked by revokeCertsByCUID().
+     */
+    record CertRevocation(TPSCertRecord cert, String connID, RevocationReason reason) {
+    }
+
+    /**
+     * Key of the certs that can be revoked or unrevoked in a single
+     * CA request: same CA connector, AKI, and revocation reason.
+     */
+    record RevocationBatch(String connID, String aki, RevocationReason reason) {
+    }
+
+    /**
+     * Certs of a batch that are sent to the CA in a single request.
+     */
+    record RevocationRequest(RevocationBatch batch, List<CertRevocation> certs) {
+    }
+
     private TPSSubsystem tps;
 
+    private int revocationBatchSize;
+    private int revocationMaxConcurrency;
+
+    // concurrent revocation requests by CA connector ID
+    private Map<String, Semaphore> revocationLimits = new ConcurrentHashMap<>();
+    private ExecutorService revocationExecutor;
+
     public TokenDB(TPSSubsystem tps) throws EBaseException {
         if (tps == null) {
             String msg = "TokenDB.TokenDB: tps cannot be null";
@@ -58,6 +96,70 @@ public class TokenDB {
             throw new EBaseException(msg);
         }
         this.tps = tps;
+
+        TokenDBConfig tdbConfig = TPSEngine.getInstance().getConfig().getTokenDBConfig();
+        revocationBatchSize = Math.max(1, tdbConfig.getRevocationBatchSize());
+        revocationMaxConcurrency = Math.max(1, tdbConfig.getRevocationMaxConcurrency());
+
+        // each CA connector serves at most revocationMaxConcurrency
+        // requests at a time, so more threads would only be waiting
+        int connectors = Math.max(1, getCAConnectors(tps.getConfigStore().getConnectorsConfig()));
+        int threads = revocationMaxConcurrency * connectors;
+        logger.debug("TokenDB: revocation threads: " + threads);
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "TokenDB-revocation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        revocationExecutor = executor;
+    }
+
+    /**
+     * Returns the number of enabled CA connectors.
+     */
+    static int getCAConnectors(ConnectorsConfig connectorsConfig) throws EBaseException {
+
+        int count = 0;
+        for (String connID : connectorsConfig.getSubStoreNames()) {
+            if (connID.startsWith("ca") && connectorsConfig.getConnectorConfig(connID).getBoolean("enable", false)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Groups the certs that can be sent to the same CA in a single request
+     * and splits the groups into requests of at most batchSize certs.
+     */
+    static List<RevocationRequest> createRevocationRequests(List<CertRevocation> revocations, int batchSize) {
+
+        Map<RevocationBatch, List<CertRevocation>> batches = new LinkedHashMap<>();
+
+        for (CertRevocation revocation : revocations) {
+            RevocationBatch batch = new RevocationBatch(
+                    revocation.connID(), revocation.cert().getCertificate(), revocation.reason());
+            batches.computeIfAbsent(batch, b -> new ArrayList<>()).add(revocation);
+        }
+
+        List<RevocationRequest> requests = new ArrayList<>();
+
+        for (Map.Entry<RevocationBatch, List<CertRevocation>> entry : batches.entrySet()) {
+            RevocationBatch batch = entry.getKey();
+            List<CertRevocation> certs = entry.getValue();
+
+            for (int i = 0; i < certs.size(); i += batchSize) {
+                requests.add(new RevocationRequest(batch,
+                        certs.subList(i, Math.min(i + batchSize, certs.size()))));
+            }
+        }
+
+        return requests;
     }
 
     public boolean isTransitionAllowed(TokenRecord tokenRecord, TokenStatus newState) throws Exception {
@@ -615,10 +717,16 @@ public class TokenDB {
         return true;
     }
 
-    private void revokeCert(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
+    /**
+     * Checks whether the cert should be revoked and finds the CA
+     * connector and the revocation reason.
+     *
+     * @return the cert revocation, or null if the cert should not be revoked
+     */
+    private CertRevocation prepareRevocation(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
             String ipAddress, String remoteUser) throws Exception {
 
-        String method = "TokenDB.revokeCert";
+        String method = "TokenDB.prepareRevocation";
         String logMsg;
 
         logger.debug(method + "begins: tokenReason=" + tokenReason);
@@ -633,8 +741,6 @@ public class TokenDB {
             logger.debug(method + ": " + " getting config: " + config);
             String connID = configStore.getString(config);
 
-            RevocationReason revokeReason = RevocationReason.UNSPECIFIED;
-
             checkShouldRevoke(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
 
             logMsg = "certificate to be revoked:" + cert.getSerialNumber();
@@ -645,32 +751,9 @@ public class TokenDB {
                     ".recovery." + tokenReason + ".revokeCert.reason";
             logger.debug(method + ": " + " getting config: " + config);
             int reasonInt = configStore.getInteger(config, 0);
-            revokeReason = RevocationReason.valueOf(reasonInt);
-
-            CARemoteRequestHandler caRH = new CARemoteRequestHandler(connID);
-            BigInteger bInt = cert.getSerialNumberInBigInteger();
-            String serialStr = bInt.toString();
-            logger.debug(method + ": found cert hex serial: " + cert.getSerialNumber() +
-                    " dec serial: " + serialStr);
-            CARevokeCertResponse response =
-                    caRH.revokeCertificate(true, serialStr, cert.getCertificate(),
-                            revokeReason);
-            logger.debug(method + ": response status: " + response.getStatus());
-
-            // update certificate status
-            if (revokeReason == RevocationReason.CERTIFICATE_HOLD) {
-                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                        TokenCertStatus.ONHOLD.toString());
-            } else {
-                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                        TokenCertStatus.REVOKED.toString());
-            }
-
-            logMsg = "certificate revoked: " + cert.getSerialNumber();
-            logger.debug(method + ": " + logMsg);
+            RevocationReason revokeReason = RevocationReason.valueOf(reasonInt);
 
-            tdbActivity(ActivityDatabase.OP_CERT_REVOCATION, tokenRecord,
-                    ipAddress, logMsg, "success", remoteUser);
+            return new CertRevocation(cert, connID, revokeReason);
 
         } catch (TPSException e) {
             logMsg = "certificate not revoked: " + cert.getSerialNumber() + ": " + e;
@@ -678,7 +761,7 @@ public class TokenDB {
             if (e.getStatus() == TPSStatus.STATUS_NO_ERROR) {
                 tdbActivity(ActivityDatabase.OP_TOKEN_MODIFY, tokenRecord,
                         ipAddress, e.getMessage(), "success", remoteUser);
-                return;
+                return null;
             }
 
             tdbActivity(ActivityDatabase.OP_CERT_REVOCATION, tokenRecord,
@@ -691,10 +774,16 @@ public class TokenDB {
         }
     }
 
-    private void unrevokeCert(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
+    /**
+     * Checks whether the cert can be unrevoked and finds the CA
+     * connector.
+     *
+     * @return the cert unrevocation, or null if the cert is not on hold
+     */
+    private CertRevocation prepareUnrevocation(TokenRecord tokenRecord, TPSCertRecord cert,
             String ipAddress, String remoteUser) throws Exception {
 
-        String method = "TokenDB.unrevokeCert";
+        String method = "TokenDB.prepareUnrevocation";
         String logMsg;
 
         TPSEngine engine = TPSEngine.getInstance();
@@ -705,49 +794,100 @@ public class TokenDB {
             String config = "op.enroll." + cert.getType() + ".keyGen." + cert.getKeyType() + ".ca.conn";
             String connID = configStore.getString(config);
 
-            RevocationReason revokeReason = RevocationReason.UNSPECIFIED;
-
             logMsg = "called to unrevoke";
             logger.debug(method + ": " + logMsg);
 
             if (!cert.getStatus().equalsIgnoreCase(TokenCertStatus.ONHOLD.toString())) {
                 logMsg = "certificate record current status is not revoked_on_hold; cannot unrevoke";
                 logger.warn(method + ": " + logMsg);
-                return; // TODO: continue or bail?
+                return null; // TODO: continue or bail?
             }
 
-            CARemoteRequestHandler caRH = new CARemoteRequestHandler(connID);
+            return new CertRevocation(cert, connID, RevocationReason.UNSPECIFIED);
+
+        } catch (Exception e) {
+            logMsg = "certificate not unrevoked: " + cert.getSerialNumber() + " : " + e.getMessage();
+            logger.warn(method + ": " + logMsg, e);
+
+            tdbActivity(ActivityDatabase.OP_CERT_RESTORATION, tokenRecord,
+                    ipAddress, e.getMessage(), "failure", remoteUser);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Revokes or unrevokes a batch of certs with a single CA request,
+     * then updates the cert records.
+     */
+    private void revokeCerts(boolean isRevoke, RevocationBatch batch, List<CertRevocation> revocations,
+            TokenRecord tokenRecord, String ipAddress, String remoteUser) throws Exception {
+
+        String method = isRevoke ? "TokenDB.revokeCerts" : "TokenDB.unrevokeCerts";
+        String op = isRevoke ? ActivityDatabase.OP_CERT_REVOCATION : ActivityDatabase.OP_CERT_RESTORATION;
+        String logMsg;
+
+        List<String> serials = new ArrayList<>();
+        for (CertRevocation revocation : revocations) {
+            TPSCertRecord cert = revocation.cert();
             BigInteger bInt = cert.getSerialNumberInBigInteger();
             String serialStr = bInt.toString();
             logger.debug(method + ": found cert hex serial: " + cert.getSerialNumber() +
                     " dec serial: " + serialStr);
-            CARevokeCertResponse response =
-                    caRH.revokeCertificate(false, serialStr, cert.getCertificate(),
-                            revokeReason);
-            logger.debug(method + ": response status: " + response.getStatus());
+            serials.add(serialStr);
+        }
 
-            // update certificate status
-            updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
-                    TokenCertStatus.ACTIVE.toString());
+        Semaphore limit = revocationLimits.computeIfAbsent(batch.connID(),
+                connID -> new Semaphore(revocationMaxConcurrency));
 
-            logMsg = "certificate unrevoked: " + cert.getSerialNumber();
-            logger.debug(method + ": " + logMsg);
+        try {
+            CARemoteRequestHandler caRH = new CARemoteRequestHandler(batch.connID());
 
-            tdbActivity(ActivityDatabase.OP_CERT_RESTORATION, tokenRecord,
-                    ipAddress, logMsg, "success", remoteUser);
+            CARevokeCertResponse response;
+            limit.acquire();
+            try {
+                response = caRH.revokeCertificates(isRevoke, serials, batch.aki(), batch.reason());
+            } finally {
+                limit.release();
+            }
+
+            logger.debug(method + ": response status: " + response.getStatus());
 
         } catch (Exception e) {
-            logMsg = "certificate not unrevoked: " + cert.getSerialNumber() + " : " + e.getMessage();
-            logger.warn(method + ": " + logMsg, e);
+            for (CertRevocation revocation : revocations) {
+                logMsg = "certificate not " + (isRevoke ? "revoked: " : "unrevoked: ") +
+                        revocation.cert().getSerialNumber() + " : " + e.getMessage();
+                logger.warn(method + ": " + logMsg, e);
 
-            tdbActivity(ActivityDatabase.OP_CERT_RESTORATION, tokenRecord,
-                    ipAddress, e.getMessage(), "failure", remoteUser);
+                tdbActivity(op, tokenRecord, ipAddress, e.getMessage(), "failure", remoteUser);
+            }
 
-            // bail out if unrevocation failed; This will allow the token
+            // bail out if revocation failed; This will allow the token
             // status info to be consistent with that of the certs on the
             // CA
             throw e;
         }
+
+        for (CertRevocation revocation : revocations) {
+            TPSCertRecord cert = revocation.cert();
+
+            // update certificate status
+            if (!isRevoke) {
+                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
+                        TokenCertStatus.ACTIVE.toString());
+            } else if (batch.reason() == RevocationReason.CERTIFICATE_HOLD) {
+                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
+                        TokenCertStatus.ONHOLD.toString());
+            } else {
+                updateCertsStatus(cert.getSerialNumber(), cert.getIssuedBy(),
+                        TokenCertStatus.REVOKED.toString());
+            }
+
+            logMsg = "certificate " + (isRevoke ? "revoked: " : "unrevoked: ") + cert.getSerialNumber();
+            logger.debug(method + ": " + logMsg);
+
+            tdbActivity(op, tokenRecord, ipAddress, logMsg, "success", remoteUser);
+        }
     }
 
     private void checkShouldRevoke(TokenRecord tokenRecord, TPSCertRecord cert, String tokenReason,
@@ -866,13 +1006,59 @@ public class TokenDB {
             }
         }
 
+        List<CertRevocation> revocations = new ArrayList<>();
+
         for (TPSCertRecord cert : certRecords) {
-            if (isRevoke) {
-                revokeCert(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
-            } else {
-                unrevokeCert(tokenRecord, cert, tokenReason, ipAddress, remoteUser);
+            CertRevocation revocation = isRevoke
+                    ? prepareRevocation(tokenRecord, cert, tokenReason, ipAddress, remoteUser)
+                    : prepareUnrevocation(tokenRecord, cert, ipAddress, remoteUser);
+
+            if (revocation != null) {
+                revocations.add(revocation);
             }
         }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (RevocationRequest request : createRevocationRequests(revocations, revocationBatchSize)) {
+            tasks.add(() -> {
+                revokeCerts(isRevoke, request.batch(), request.certs(), tokenRecord, ipAddress, remoteUser);
+                return null;
+            });
+        }
+
+        logger.debug(method + ": sending " + tasks.size() + " request(s) to the CA");
+
+        if (tasks.size() == 1) {
+            tasks.get(0).call();
+            return;
+        }
+
+        // send the requests to different CAs (or batches) concurrently
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(revocationExecutor.submit(task));
+        }
+
+        Exception exception = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (exception == null) {
+                    Throwable cause = e.getCause();
+                    exception = cause instanceof Exception ex ? ex : new TPSException(cause.toString());
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    public void shutdown() {
+        revocationExecutor.shutdownNow();
     }
 
     public void updateCertsStatus(String serial, String issuer, String status) throws Exception {
@@ -5,6 +5,7 @@
 //
 package org.dogtagpki.server.tps;
 
+import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
@@ -21,4 +22,23 @@ public class TokenDBConfig extends ConfigStore {
     public TokenDBConfig(String name, SimpleProperties source) {
         super(name, source);
     }
+
+    /**
+     * Returns tokendb.revocation.batchSize parameter.
+     *
+     * Maximum number of certs revoked or unrevoked in a single
+     * request to the CA.
+     */
+    public int getRevocationBatchSize() throws EBaseException {
+        return getInteger("revocation.batchSize", 100);
+    }
+
+    /**
+     * Returns tokendb.revocation.maxConcurrency parameter.
+     *
+     * Maximum number of concurrent revocation requests to each CA.
+     */
+    public int getRevocationMaxConcurrency() throws EBaseException {
+        return getInteger("revocation.maxConcurrency", 4);
+    }
 }
@@ -533,14 +533,23 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
      * @returns CARevokeCertResponse
      */
     private CARevokeCertResponse revokeCertificate(
-            String serialno,
+            List<String> serialnos,
             RevocationReason reason)
             throws EBaseException {
-        return revokeCertificate(null, serialno, reason);
+        return revokeCertificate(null, serialnos, reason);
     }
+
+    /**
+     * Revokes one or more certificates issued by the same CA in a
+     * single request.
+     *
+     * @param caConn CA connector ID, or null for the default CA
+     * @param serialnos serial numbers of the certs to revoke
+     * @param reason reason to revoke per definition in RevocationReason
+     */
     private CARevokeCertResponse revokeCertificate(
             String caConn,
-            String serialno,
+            List<String> serialnos,
             RevocationReason reason)
             throws EBaseException {
 
@@ -553,10 +562,20 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
             logger.debug(method +": using default ca ID:" + connid);
         }
         logger.debug(method +": begins");
-        if (serialno == null || reason == null) {
+        if (serialnos == null || serialnos.isEmpty() || reason == null) {
             throw new EBaseException(method +": input parameter null.");
         }
-        logger.debug(method +": revoking serial#:" + serialno + "; reason String:" + reason.toString() + "; reason code:" + reason.getCode());
+        logger.debug(method +": revoking serial#:" + serialnos + "; reason String:" + reason.toString() + "; reason code:" + reason.getCode());
+
+        // a single cert is sent as (certRecordId=<serial>),
+        // multiple certs as (|(certRecordId=<serial>)...)
+        StringBuilder filter = new StringBuilder();
+        for (String serialno : serialnos) {
+            filter.append("(" + IRemoteRequest.CA_REVOKE_SERIAL + "=" + serialno + ")");
+        }
+        if (serialnos.size() > 1) {
+            filter.insert(0, "(|").append(")");
+        }
 
         TPSEngine engine = TPSEngine.getInstance();
         // ConfigStore conf = CMS.getConfigStore();
@@ -572,9 +591,8 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
                 conn.send("revoke",
                         IRemoteRequest.CA_OP + "=" + IRemoteRequest.CA_REVOKE +
                                 "&" + IRemoteRequest.CA_REVOCATION_REASON + "=" + reason.getCode() +
-                                "&" + IRemoteRequest.CA_REVOKE_ALL + "=(" +
-                                IRemoteRequest.CA_REVOKE_SERIAL + "=" + serialno + ")&" +
-                                IRemoteRequest.CA_REVOKE_COUNT + "=1");
+                                "&" + IRemoteRequest.CA_REVOKE_ALL + "=" + filter + "&" +
+                                IRemoteRequest.CA_REVOKE_COUNT + "=" + serialnos.size());
         if (resp == null) {
             throw new EBaseException(method +" to connid: " + revCAid + ": response null.");
         }
@@ -624,13 +642,21 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
      * @returns CARevokeCertResponse
      */
     private CARevokeCertResponse unrevokeCertificate(
-            String serialno)
+            List<String> serialnos)
             throws EBaseException {
-        return unrevokeCertificate(null, serialno);
+        return unrevokeCertificate(null, serialnos);
     }
+
+    /**
+     * Unrevokes one or more certificates issued by the same CA in a
+     * single request.
+     *
+     * @param caConn CA connector ID, or null for the default CA
+     * @param serialnos serial numbers of the certs to unrevoke
+     */
     private CARevokeCertResponse unrevokeCertificate(
             String caConn,
-            String serialno)
+            List<String> serialnos)
             throws EBaseException {
 
         String method = "CARemoteRequestHandler: unrevokeCertificate()";
@@ -641,8 +667,8 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         } else {
             logger.debug(method + ": using default ca ID:" + connid);
         }
-        logger.debug(method + ": begins on serial#:" + serialno);
-        if (serialno == null) {
+        logger.debug(method + ": begins on serial#:" + serialnos);
+        if (serialnos == null || serialnos.isEmpty()) {
             throw new EBaseException(method + ": input parameter null.");
         }
 
@@ -656,7 +682,7 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         logger.debug(method + ": sending request to CA");
         HttpResponse resp =
                 conn.send("unrevoke",
-                        IRemoteRequest.CA_UNREVOKE_SERIAL + "=" + serialno);
+                        IRemoteRequest.CA_UNREVOKE_SERIAL + "=" + String.join("+", serialnos));
         if (resp == null) {
             throw new EBaseException(method + " to connid: " + unrevCAid + ": response null.");
         }
@@ -726,12 +752,12 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         } catch (Exception e) {
             throw new EBaseException(method + ": getCertAkiString failed:" + e);
         }
-        return revokeFromOtherCA(revoke, cert.getSerialNumber().toString(), certAkiString, reason);
+        return revokeFromOtherCA(revoke, List.of(cert.getSerialNumber().toString()), certAkiString, reason);
     }
 
     private CARevokeCertResponse revokeFromOtherCA(
             boolean revoke, // true==revoke; false==unrevoke
-            String serialno,
+            List<String> serialnos,
             String certAkiString,
             RevocationReason reason)
             throws EBaseException {
@@ -752,7 +778,7 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
                 String caSkiString = getCaSki(ca);
                 if (certAkiString.equals(caSkiString)) {
                     logger.debug(method + " cert AKI and caCert SKI matched");
-                    return revoke ? revokeCertificate(ca, serialno, reason) : unrevokeCertificate(ca, serialno);
+                    return revoke ? revokeCertificate(ca, serialnos, reason) : unrevokeCertificate(ca, serialnos);
                 }
                 // not a match then iterate to next ca in list
                 logger.debug(method + " cert AKI and caCert SKI not matched");
@@ -887,8 +913,27 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
             String certAkiString,
             RevocationReason reason)
             throws EBaseException {
+        return revokeCertificates(revoke, List.of(serialno), certAkiString, reason);
+    }
 
-        String method = "CARemoteRequestHandler: revokeCertificate()";
+    /**
+     * revokeCertificates() revokes or unrevokes multiple certificates
+     * issued by the same CA in a single request. The CA is found the
+     * same way as in revokeCertificate().
+     *
+     * @param revoke true to revoke; false to unrevoke
+     * @param serialnos serial numbers of the certs
+     * @param certAkiString AKI of the certs
+     * @param reason RevocationReason for the base revokeCertificate() function
+     */
+    public CARevokeCertResponse revokeCertificates(
+            boolean revoke, // true==revoke; false==unrevoke
+            List<String> serialnos,
+            String certAkiString,
+            RevocationReason reason)
+            throws EBaseException {
+
+        String method = "CARemoteRequestHandler: revokeCertificates()";
         logger.debug(method +" begins with CA discovery");
 
         if (revoke == true && reason == null) {
@@ -906,7 +951,7 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
             skipMatch = true;
         }
         if (skipMatch) {
-            return revoke ? revokeCertificate(serialno, reason) : unrevokeCertificate(serialno);
+            return revoke ? revokeCertificate(serialnos, reason) : unrevokeCertificate(serialnos);
         }
         /* now compare cert's AKI to the ca's SKI
          *   if matched, continue,
@@ -915,9 +960,9 @@ public class CARemoteRequestHandler extends RemoteRequestHandler
         logger.debug(method +" cert AKI and caCert SKI matching begins");
         if (certAkiString.equals(caSkiString)) {
             logger.debug(method +" cert AKI and caCert SKI matched");
-            return revoke ? revokeCertificate(serialno, reason) : unrevokeCertificate(serialno);
+            return revoke ? revokeCertificate(serialnos, reason) : unrevokeCertificate(serialnos);
         }
         logger.debug(method +" cert AKI and caCert SKI of the designated issuing ca do not match...calling revokeFromOtherCA to search for another ca");
-        return revokeFromOtherCA(revoke, serialno, certAkiString, reason);
+        return revokeFromOtherCA(revoke, serialnos, certAkiString, reason);
     }
 }
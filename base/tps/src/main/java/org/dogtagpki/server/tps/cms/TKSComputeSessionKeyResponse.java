@@ -83,4 +83,12 @@ public class TKSComputeSessionKeyResponse extends RemoteResponse
     public TPSBuffer getMacSessionKey() {
         return (TPSBuffer) nameValTable.get(IRemoteRequest.TKS_RESPONSE_MacSessionKey);
     }
+
+    /**
+     * Returns the host challenge for the next secure channel,
+     * or null if the TKS did not provide one.
+     */
+    public TPSBuffer getNextHostChallenge() {
+        return (TPSBuffer) nameValTable.get(IRemoteRequest.TKS_RESPONSE_NextHostChallenge);
+    }
 }
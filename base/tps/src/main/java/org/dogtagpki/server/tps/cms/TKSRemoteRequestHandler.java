@@ -46,6 +46,9 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
 {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TKSRemoteRequestHandler.class);
 
+    // size of the host challenge sent in INITIALIZE UPDATE
+    public static final int HOST_CHALLENGE_SIZE = 8;
+
     private String keySet;
 
     public TKSRemoteRequestHandler(String connID)
@@ -150,7 +153,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 "&" + IRemoteRequest.TOKEN_KEYINFO + "=" + Util.specialURLEncode(keyInfo) +
                 "&" + IRemoteRequest.TOKEN_CARD_CRYPTOGRAM + "="
                 + Util.specialURLEncode(card_cryptogram.toBytesArray()) +
-                "&" + IRemoteRequest.TOKEN_KEYSET + "=" + keySet;
+                "&" + IRemoteRequest.TOKEN_KEYSET + "=" + keySet +
+                getNextHostChallengeParam(conf);
 
         //logger.debug("TKSRemoteRequestHandler.computeSessionKey: outgoing message: " + requestString);
         logger.debug("TKSRemoteRequestHandler.computeSessionKey: sending request to TKS");
@@ -253,6 +257,9 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 logger.debug("TKSRemoteRequestHandler: computeSessionKey(): got IRemoteRequest.TKS_RESPONSE_HostCryptogram");
                 response.put(IRemoteRequest.TKS_RESPONSE_HostCryptogram, Util.specialDecode(value));
             }
+
+            decodeNextHostChallenge(response);
+
             logger.debug("TKSRemoteRequestHandler: computeSessionKey(): ends.");
 
             return new TKSComputeSessionKeyResponse(response);
@@ -319,7 +326,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 "&" + IRemoteRequest.CHANNEL_PROTOCOL + "=" + SecureChannel.SECURE_PROTO_03 +
                 "&" + IRemoteRequest.TOKEN_CARD_CRYPTOGRAM + "="
                 + Util.specialURLEncode(card_cryptogram.toBytesArray()) +
-                "&" + IRemoteRequest.TOKEN_KEYSET + "=" + keySet;
+                "&" + IRemoteRequest.TOKEN_KEYSET + "=" + keySet +
+                getNextHostChallengeParam(conf);
 
         //logger.debug(method + " request to TKS: " + requestString);
         logger.debug(method + " sending request to TKS...");
@@ -451,6 +459,8 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
                 response.put(IRemoteRequest.TKS_RESPONSE_HostCryptogram, Util.specialDecode(value));
             }
 
+            decodeNextHostChallenge(response);
+
             logger.debug(method + " ends.");
 
             return new TKSComputeSessionKeyResponse(response);
@@ -886,6 +896,33 @@ public class TKSRemoteRequestHandler extends RemoteRequestHandler
         }
     }
 
+    /*
+     * Returns the request parameter asking the TKS to generate the host
+     * challenge of the next secure channel along with the session keys,
+     * unless disabled with tps.connector.<id>.prefetchHostChallenge.
+     */
+    private String getNextHostChallengeParam(TPSEngineConfig conf) throws EBaseException {
+
+        boolean prefetch = conf.getBoolean("tps.connector." + connid + ".prefetchHostChallenge", true);
+        if (!prefetch) {
+            return "";
+        }
+
+        return "&" + IRemoteRequest.TOKEN_NEXT_HOST_CHALLENGE_NUM_BYTES + "=" + HOST_CHALLENGE_SIZE;
+    }
+
+    private void decodeNextHostChallenge(Hashtable<String, Object> response) {
+
+        // older TKS servers do not return the next host challenge
+        String value = (String) response.get(IRemoteRequest.TKS_RESPONSE_NextHostChallenge);
+        if (value == null) {
+            return;
+        }
+
+        logger.debug("TKSRemoteRequestHandler: got IRemoteRequest.TKS_RESPONSE_NextHostChallenge");
+        response.put(IRemoteRequest.TKS_RESPONSE_NextHostChallenge, Util.specialDecode(value));
+    }
+
      private TPSEngineConfig getConfigStore() {
         TPSEngine engine = TPSEngine.getInstance();
         TPSEngineConfig configStore = engine.getConfig();
@@ -156,6 +156,9 @@ public class TPSProcessor {
     protected BeginOpMsg beginMsg;
     private PlatformAndSecChannelProtoInfo platProtInfo;
 
+    // host challenge for the next secure channel, returned by the TKS with the session keys
+    private TPSBuffer nextHostChallenge;
+
     ProfileDatabase profileDatabase = new ProfileDatabase();
 
     public TPSProcessor(TPSSession session) {
@@ -653,7 +656,15 @@ public class TPSProcessor {
          }
 
 
-        TPSBuffer randomData = computeRandomData(8, connId);
+        TPSBuffer randomData = nextHostChallenge;
+        nextHostChallenge = null;
+
+        if (randomData != null && randomData.size() == TKSRemoteRequestHandler.HOST_CHALLENGE_SIZE) {
+            logger.debug("TPSProcessor.setupSecureChannel: using host challenge from previous session key request");
+        } else {
+            randomData = computeRandomData(TKSRemoteRequestHandler.HOST_CHALLENGE_SIZE, connId);
+        }
+
         if (randomData != null) {
             //logger.debug("TPSProcessor.setupSecureChannel: obtained randomData: " + randomData.toHexString());
             logger.debug("TPSProcessor.setupSecureChannel: obtained randomData");
@@ -861,6 +872,7 @@ public class TPSProcessor {
                     connId, getSelectedTokenType(), getSelectedKeySet());
 
             hostCryptogram = resp.getHostCryptogram();
+            nextHostChallenge = resp.getNextHostChallenge();
 
             if (hostCryptogram == null) {
                 throw new TPSException("TPSProcessor.generateSecureChannel: No host cryptogram returned from token!",
@@ -1042,6 +1054,7 @@ public class TPSProcessor {
             TPSBuffer kekSessionKeyBuff = resp.getKekSessionKey();
             TPSBuffer macSessionKeyBuff = resp.getMacSessionKey();
             TPSBuffer hostCryptogramBuff = resp.getHostCryptogram();
+            nextHostChallenge = resp.getNextHostChallenge();
             TPSBuffer keyCheckBuff = resp.getKeyCheck();
             // Applet and Alg Selection by Token Range Support
             if (isDesConfigured()) {
@@ -0,0 +1,10 @@
+package org.dogtagpki.server.tps.rest.v2.filters;
+
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.MetricsACL;
+
+@WebFilter(servletNames = "tpsMetrics")
+public class TPSMetricsACL extends MetricsACL {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,10 @@
+package org.dogtagpki.server.tps.rest.v2.filters;
+
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.MetricsAuthMethod;
+
+@WebFilter(servletNames = "tpsMetrics")
+public class TPSMetricsAuthMethod extends MetricsAuthMethod {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,110 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dogtagpki.server.tps.TokenDB.CertRevocation;
+import org.dogtagpki.server.tps.TokenDB.RevocationBatch;
+import org.dogtagpki.server.tps.TokenDB.RevocationRequest;
+import org.dogtagpki.server.tps.dbs.TPSCertRecord;
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+
+import com.netscape.certsrv.connector.ConnectorsConfig;
+import com.netscape.cmscore.base.SimpleProperties;
+
+public class TokenDBTest {
+
+    CertRevocation createRevocation(String serialNumber, String connID, String aki, RevocationReason reason) {
+
+        TPSCertRecord cert = new TPSCertRecord();
+        cert.setSerialNumber(serialNumber);
+        cert.setCertificate(aki);
+
+        return new CertRevocation(cert, connID, reason);
+    }
+
+    List<String> getSerialNumbers(RevocationRequest request) {
+        List<String> serialNumbers = new ArrayList<>();
+        for (CertRevocation revocation : request.certs()) {
+            serialNumbers.add(revocation.cert().getSerialNumber());
+        }
+        return serialNumbers;
+    }
+
+    @Test
+    public void testGrouping() {
+
+        List<CertRevocation> revocations = List.of(
+                createRevocation("0x1", "ca1", "aki1", RevocationReason.KEY_COMPROMISE),
+                createRevocation("0x2", "ca2", "aki1", RevocationReason.KEY_COMPROMISE),
+                createRevocation("0x3", "ca1", "aki2", RevocationReason.KEY_COMPROMISE),
+                createRevocation("0x4", "ca1", "aki1", RevocationReason.CERTIFICATE_HOLD),
+                createRevocation("0x5", "ca1", "aki1", RevocationReason.KEY_COMPROMISE));
+
+        List<RevocationRequest> requests = TokenDB.createRevocationRequests(revocations, 100);
+
+        // certs are only sent together with the same connector, AKI, and reason
+        assertEquals(4, requests.size());
+
+        assertEquals(new RevocationBatch("ca1", "aki1", RevocationReason.KEY_COMPROMISE), requests.get(0).batch());
+        assertEquals(List.of("0x1", "0x5"), getSerialNumbers(requests.get(0)));
+
+        assertEquals(new RevocationBatch("ca2", "aki1", RevocationReason.KEY_COMPROMISE), requests.get(1).batch());
+        assertEquals(List.of("0x2"), getSerialNumbers(requests.get(1)));
+
+        assertEquals(new RevocationBatch("ca1", "aki2", RevocationReason.KEY_COMPROMISE), requests.get(2).batch());
+        assertEquals(List.of("0x3"), getSerialNumbers(requests.get(2)));
+
+        assertEquals(new RevocationBatch("ca1", "aki1", RevocationReason.CERTIFICATE_HOLD), requests.get(3).batch());
+        assertEquals(List.of("0x4"), getSerialNumbers(requests.get(3)));
+    }
+
+    @Test
+    public void testBatching() {
+
+        List<CertRevocation> revocations = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            revocations.add(createRevocation("0x" + i, "ca1", "aki1", RevocationReason.KEY_COMPROMISE));
+        }
+
+        List<RevocationRequest> requests = TokenDB.createRevocationRequests(revocations, 3);
+
+        // large groups are split into requests of at most the batch size
+        assertEquals(3, requests.size());
+        assertEquals(List.of("0x1", "0x2", "0x3"), getSerialNumbers(requests.get(0)));
+        assertEquals(List.of("0x4", "0x5", "0x6"), getSerialNumbers(requests.get(1)));
+        assertEquals(List.of("0x7"), getSerialNumbers(requests.get(2)));
+
+        for (RevocationRequest request : requests) {
+            assertEquals(requests.get(0).batch(), request.batch());
+        }
+    }
+
+    @Test
+    public void testNoRevocations() {
+        assertTrue(TokenDB.createRevocationRequests(List.of(), 100).isEmpty());
+    }
+
+    @Test
+    public void testGetCAConnectors() throws Exception {
+
+        ConnectorsConfig connectorsConfig = new ConnectorsConfig("tps.connector", new SimpleProperties());
+        connectorsConfig.putBoolean("ca1.enable", true);
+        connectorsConfig.putBoolean("ca2.enable", false);
+        connectorsConfig.putBoolean("ca3.enable", true);
+        connectorsConfig.putBoolean("kra1.enable", true);
+        connectorsConfig.putBoolean("tks1.enable", true);
+
+        // only enabled CA connectors serve revocation requests
+        assertEquals(2, TokenDB.getCAConnectors(connectorsConfig));
+    }
+}